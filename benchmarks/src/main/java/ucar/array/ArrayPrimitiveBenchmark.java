@@ -0,0 +1,141 @@
+/*
+ * Copyright (c) 1998-2021 John Caron and University Corporation for Atmospheric Research/Unidata
+ * See LICENSE for license information.
+ */
+package ucar.array;
+
+import java.util.PrimitiveIterator;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Summing the elements of a {@link Array} of doubles or shorts, on the whole array ("canonical") and on a flipped
+ * and transposed view of it ("strided"). The "boxed" benchmarks use the Iterable and get(int...) methods,
+ * the others the primitive accessors.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ArrayPrimitiveBenchmark {
+
+  @Param({"DOUBLE", "SHORT"})
+  public String arrayType;
+
+  @Param({"canonical", "strided"})
+  public String layout;
+
+  /** Shape is (nrows, 1000). */
+  @Param({"1000"})
+  public int nrows;
+
+  private Array<Number> array;
+  private double[] dest;
+
+  @Setup(Level.Trial)
+  public void setup() {
+    int[] shape = new int[] {nrows, 1000};
+    int n = nrows * 1000;
+    Random random = new Random(17);
+    Array<Number> data;
+    if (arrayType.equals("SHORT")) {
+      short[] values = new short[n];
+      for (int i = 0; i < n; i++) {
+        values[i] = (short) random.nextInt();
+      }
+      data = Arrays.factory(ArrayType.SHORT, shape, values);
+    } else {
+      double[] values = new double[n];
+      for (int i = 0; i < n; i++) {
+        values[i] = random.nextDouble();
+      }
+      data = Arrays.factory(ArrayType.DOUBLE, shape, values);
+    }
+    array = layout.equals("strided") ? Arrays.transpose(Arrays.flip(data, 1), 0, 1) : data;
+    dest = new double[n];
+  }
+
+  @Benchmark
+  public double boxedIterator() {
+    double sum = 0;
+    for (Number val : array) {
+      sum += val.doubleValue();
+    }
+    return sum;
+  }
+
+  @Benchmark
+  public double boxedGetIndex() {
+    int[] shape = array.getShape();
+    double sum = 0;
+    for (int i = 0; i < shape[0]; i++) {
+      for (int j = 0; j < shape[1]; j++) {
+        sum += array.get(i, j).doubleValue();
+      }
+    }
+    return sum;
+  }
+
+  @Benchmark
+  public double getDoubleIndex() {
+    int[] shape = array.getShape();
+    double sum = 0;
+    for (int i = 0; i < shape[0]; i++) {
+      for (int j = 0; j < shape[1]; j++) {
+        sum += array.getDouble(i, j);
+      }
+    }
+    return sum;
+  }
+
+  @Benchmark
+  public double getDoubleElem() {
+    long n = array.length();
+    double sum = 0;
+    for (long elem = 0; elem < n; elem++) {
+      sum += array.getDouble(elem);
+    }
+    return sum;
+  }
+
+  @Benchmark
+  public double doubleIterator() {
+    PrimitiveIterator.OfDouble iter = array.doubleIterator();
+    double sum = 0;
+    while (iter.hasNext()) {
+      sum += iter.nextDouble();
+    }
+    return sum;
+  }
+
+  @Benchmark
+  public double forEachDouble() {
+    double[] sum = new double[1];
+    array.forEachDouble(val -> sum[0] += val);
+    return sum[0];
+  }
+
+  @Benchmark
+  public double copyTo() {
+    array.copyTo(dest, 0);
+    double sum = 0;
+    for (double val : dest) {
+      sum += val;
+    }
+    return sum;
+  }
+}
@@ -0,0 +1,102 @@
+/*
+ * Copyright (c) 1998-2021 John Caron and University Corporation for Atmospheric Research/Unidata
+ * See LICENSE for license information.
+ */
+package ucar.nc2.grib.grib2;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import ucar.array.Range;
+import ucar.unidata.io.RandomAccessFile;
+
+/**
+ * Scanning a GRIB2 file for its records, and unpacking the data of a record with {@link Grib2DataReader}:
+ * the whole record ("readRecord"), or a 10 by 10 window of it ("readWindow").
+ * The file is written by {@link SyntheticGrib2Writer}, with simple packing at different bit widths.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class Grib2DataReaderBenchmark {
+  private static final int NX = 720;
+  private static final int NY = 361;
+  private static final int NRECORDS = 8;
+
+  /** Bits per packed value. */
+  @Param({"12", "24"})
+  public int nbits;
+
+  private File file;
+  private RandomAccessFile raf;
+  private List<Grib2Record> records;
+  private int next;
+
+  @Setup(Level.Trial)
+  public void setup() throws IOException {
+    file = File.createTempFile("Grib2DataReaderBenchmark", ".grib2");
+    file.deleteOnExit();
+    try (SyntheticGrib2Writer writer = new SyntheticGrib2Writer(file.getPath(), NX, NY)) {
+      float[] data = new float[NX * NY];
+      for (int rec = 0; rec < NRECORDS; rec++) {
+        for (int y = 0; y < NY; y++) {
+          for (int x = 0; x < NX; x++) {
+            data[y * NX + x] = (float) (250 + 30 * Math.cos(Math.toRadians(y * 0.25 + 20)) + 5 * Math.sin(0.02 * x + rec));
+          }
+        }
+        writer.write(6 * rec, 50000, nbits, data);
+      }
+    }
+
+    raf = new RandomAccessFile(file.getPath(), "r");
+    records = scan();
+  }
+
+  @TearDown(Level.Trial)
+  public void tearDown() throws IOException {
+    raf.close();
+    file.delete();
+  }
+
+  @Benchmark
+  public List<Grib2Record> scan() throws IOException {
+    List<Grib2Record> result = new ArrayList<>();
+    Grib2RecordScanner scanner = new Grib2RecordScanner(raf);
+    while (scanner.hasNext()) {
+      result.add(scanner.next());
+    }
+    return result;
+  }
+
+  @Benchmark
+  public float[] readRecord() throws IOException {
+    next = (next + 1) % records.size();
+    return records.get(next).readData(raf);
+  }
+
+  @Benchmark
+  public float[] readWindow() throws IOException {
+    next = (next + 1) % records.size();
+    Grib2Record record = records.get(next);
+    return Grib2Record.readData(raf, record.getDataRepresentationSection().getStartingPosition(), 0,
+        NX * NY, record.getScanMode(), NX, NY, null, Range.make(NY / 2, NY / 2 + 9), Range.make(NX / 3, NX / 3 + 9));
+  }
+}
@@ -0,0 +1,122 @@
+/*
+ * Copyright (c) 1998-2021 John Caron and University Corporation for Atmospheric Research/Unidata
+ * See LICENSE for license information.
+ */
+package ucar.nc2.grib.grib2;
+
+import java.io.Closeable;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+
+/**
+ * Writes GRIB2 messages of temperature on a regular lat/lon grid (template 3.0) on isobaric levels (template 4.0),
+ * with simple packing (template 5.0), so the benchmarks can make their input. Not a general purpose GRIB2 writer.
+ */
+class SyntheticGrib2Writer implements Closeable {
+  private final OutputStream out;
+  private final int nx;
+  private final int ny;
+
+  /** Grid of nx by ny points, 0.25 degrees apart, from 20N, 230E, scanning south to north. */
+  SyntheticGrib2Writer(String filename, int nx, int ny) throws IOException {
+    this.out = new FileOutputStream(filename);
+    this.nx = nx;
+    this.ny = ny;
+  }
+
+  /**
+   * Write one message.
+   *
+   * @param forecastHour forecast time in hours from the 2021-06-01T00:00Z reference time.
+   * @param levelPa isobaric level in Pa.
+   * @param nbits number of bits per packed value, 1 to 31.
+   * @param data nx * ny values, x varying fastest.
+   */
+  void write(int forecastHour, int levelPa, int nbits, float[] data) throws IOException {
+    int npoints = nx * ny;
+    float min = Float.MAX_VALUE;
+    float max = -Float.MAX_VALUE;
+    for (float v : data) {
+      min = Math.min(min, v);
+      max = Math.max(max, v);
+    }
+    // Y = R + X * 2^E, choose E so that (max - min) / 2^E fits in nbits
+    int binaryScale = (int) Math.ceil(Math.log((max - min) / ((1L << nbits) - 1)) / Math.log(2));
+    if (max == min) {
+      binaryScale = 0;
+    }
+    double scale = Math.pow(2, -binaryScale);
+    int packedLength = (int) (((long) npoints * nbits + 7) / 8);
+
+    int len1 = 21;
+    int len3 = 72;
+    int len4 = 34;
+    int len5 = 21;
+    int len6 = 6;
+    int len7 = 5 + packedLength;
+    long total = 16 + len1 + len3 + len4 + len5 + len6 + len7 + 4;
+    ByteBuffer bb = ByteBuffer.allocate((int) total); // GRIB is big endian
+
+    // section 0: indicator
+    bb.put(new byte[] {'G', 'R', 'I', 'B', 0, 0, 0, 2}).putLong(total);
+
+    // section 1: identification
+    bb.putInt(len1).put((byte) 1).putShort((short) 7).putShort((short) 0).put((byte) 2).put((byte) 1);
+    bb.put((byte) 1).putShort((short) 2021).put((byte) 6).put((byte) 1).put((byte) 0).put((byte) 0).put((byte) 0);
+    bb.put((byte) 0).put((byte) 1);
+
+    // section 3: grid definition, template 3.0 lat/lon, angles in microdegrees
+    bb.putInt(len3).put((byte) 3).put((byte) 0).putInt(npoints).put((byte) 0).put((byte) 0).putShort((short) 0);
+    bb.put((byte) 6).put((byte) 0).putInt(0).put((byte) 0).putInt(0).put((byte) 0).putInt(0);
+    bb.putInt(nx).putInt(ny).putInt(0).putInt(0);
+    bb.putInt(20_000_000).putInt(230_000_000).put((byte) 0x30);
+    bb.putInt(20_000_000 + (ny - 1) * 250_000).putInt(230_000_000 + (nx - 1) * 250_000);
+    bb.putInt(250_000).putInt(250_000).put((byte) 0x40);
+
+    // section 4: product definition, template 4.0 temperature on an isobaric surface
+    bb.putInt(len4).put((byte) 4).putShort((short) 0).putShort((short) 0);
+    bb.put((byte) 0).put((byte) 0).put((byte) 2).put((byte) 0).put((byte) 96).putShort((short) 0).put((byte) 0);
+    bb.put((byte) 1).putInt(forecastHour);
+    bb.put((byte) 100).put((byte) 0).putInt(levelPa).put((byte) 255).put((byte) 0).putInt(0);
+
+    // section 5: data representation, template 5.0 simple packing
+    bb.putInt(len5).put((byte) 5).putInt(npoints).putShort((short) 0);
+    bb.putFloat(min).putShort(signMagnitude(binaryScale)).putShort((short) 0).put((byte) nbits).put((byte) 0);
+
+    // section 6: no bitmap
+    bb.putInt(len6).put((byte) 6).put((byte) 255);
+
+    // section 7: data
+    bb.putInt(len7).put((byte) 7);
+    long bitBuffer = 0;
+    int nbitsInBuffer = 0;
+    for (float v : data) {
+      long packed = Math.round((v - min) * scale);
+      packed = Math.max(0, Math.min(packed, (1L << nbits) - 1));
+      bitBuffer = (bitBuffer << nbits) | packed;
+      nbitsInBuffer += nbits;
+      while (nbitsInBuffer >= 8) {
+        bb.put((byte) (bitBuffer >>> (nbitsInBuffer - 8)));
+        nbitsInBuffer -= 8;
+      }
+    }
+    if (nbitsInBuffer > 0) {
+      bb.put((byte) (bitBuffer << (8 - nbitsInBuffer)));
+    }
+
+    // section 8: end
+    bb.put(new byte[] {'7', '7', '7', '7'});
+    out.write(bb.array());
+  }
+
+  private static short signMagnitude(int value) {
+    return (short) (value < 0 ? 0x8000 | -value : value);
+  }
+
+  @Override
+  public void close() throws IOException {
+    out.close();
+  }
+}
@@ -0,0 +1,101 @@
+/*
+ * Copyright (c) 1998-2021 John Caron and University Corporation for Atmospheric Research/Unidata
+ * See LICENSE for license information.
+ */
+package ucar.nc2.internal.iosp.hdf5;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import ucar.array.Array;
+import ucar.array.InvalidRangeException;
+import ucar.array.Section;
+import ucar.nc2.NetcdfFile;
+import ucar.nc2.NetcdfFiles;
+import ucar.nc2.Variable;
+
+/**
+ * Reading a float(time, y, x) variable from an HDF5 file with {@link H5iosp}: the whole variable, one time
+ * ("slice"), and the time series at one point ("series"). The file is written by {@link SyntheticHdf5Writer},
+ * contiguous, chunked (1, 128, 128), or chunked and deflated.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class H5iospBenchmark {
+  private static final int NTIMES = 24;
+  private static final int NY = 256;
+  private static final int NX = 256;
+
+  @Param({"contiguous", "chunked", "deflate"})
+  public String layout;
+
+  private File file;
+  private NetcdfFile ncfile;
+  private Variable var;
+  private int time;
+
+  @Setup(Level.Trial)
+  public void setup() throws IOException {
+    int[] shape = {NTIMES, NY, NX};
+    float[] data = new float[NTIMES * NY * NX];
+    int count = 0;
+    for (int t = 0; t < NTIMES; t++) {
+      for (int y = 0; y < NY; y++) {
+        for (int x = 0; x < NX; x++) {
+          data[count++] = (float) (280 + 10 * Math.sin(0.05 * x + 0.1 * t) * Math.cos(0.03 * y) + (count % 7) * 0.01);
+        }
+      }
+    }
+
+    file = File.createTempFile("H5iospBenchmark", ".h5");
+    file.deleteOnExit();
+    try (SyntheticHdf5Writer writer = new SyntheticHdf5Writer(file)) {
+      if (layout.equals("contiguous")) {
+        writer.addContiguous("data", shape, data);
+      } else {
+        writer.addChunked("data", shape, new int[] {1, 128, 128}, layout.equals("deflate") ? 5 : 0, data);
+      }
+    }
+    ncfile = NetcdfFiles.open(file.getPath());
+    var = ncfile.findVariable("data");
+  }
+
+  @TearDown(Level.Trial)
+  public void tearDown() throws IOException {
+    ncfile.close();
+    file.delete();
+  }
+
+  @Benchmark
+  public Array<?> readAll() throws IOException, InvalidRangeException {
+    return var.readArray(new Section(var.getShape()));
+  }
+
+  @Benchmark
+  public Array<?> readSlice() throws IOException, InvalidRangeException {
+    time = (time + 1) % NTIMES;
+    return var.readArray(new Section(new int[] {time, 0, 0}, new int[] {1, NY, NX}));
+  }
+
+  @Benchmark
+  public Array<?> readSeries() throws IOException, InvalidRangeException {
+    return var.readArray(new Section(new int[] {0, NY / 2, NX / 3}, new int[] {NTIMES, 1, 1}));
+  }
+}
@@ -0,0 +1,367 @@
+/*
+ * Copyright (c) 1998-2021 John Caron and University Corporation for Atmospheric Research/Unidata
+ * See LICENSE for license information.
+ */
+package ucar.nc2.internal.iosp.hdf5;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.zip.Deflater;
+
+/**
+ * Writes a minimal HDF5 file of float datasets in the root group, so the benchmarks can make their input without the
+ * HDF5 or netCDF-C library. Uses the HDF5 1.8 file format: superblock version 2, version 2 object headers with
+ * compact link storage, and version 3 layout messages. Datasets are contiguous, or chunked with a version 1 B-tree
+ * and optional deflate.
+ */
+class SyntheticHdf5Writer implements Closeable {
+  private static final byte[] SIGNATURE = {(byte) 0x89, 'H', 'D', 'F', '\r', '\n', 0x1a, '\n'};
+  private static final long UNDEFINED = -1L;
+  private static final int SUPERBLOCK_SIZE = 48;
+  private static final int MAX_BTREE_ENTRIES = 64; // 2K, K = 32 is the default for chunk B-trees
+
+  private final RandomAccessFile raf;
+  private final List<String> names = new ArrayList<>();
+  private final List<Long> addresses = new ArrayList<>();
+  private long pos;
+
+  SyntheticHdf5Writer(File file) throws IOException {
+    this.raf = new RandomAccessFile(file, "rw");
+    this.raf.setLength(0);
+    this.pos = SUPERBLOCK_SIZE;
+  }
+
+  /** Add a contiguous dataset. */
+  void addContiguous(String name, int[] shape, float[] data) throws IOException {
+    long dataAddress = write(toBytes(data, 0, data.length));
+    ByteBuffer layout = buffer(18);
+    layout.put((byte) 3).put((byte) 1).putLong(dataAddress).putLong(4L * data.length);
+    addDataset(name, shape, layout.array(), null, 2);
+  }
+
+  /** Add a chunked dataset, deflated if deflateLevel > 0. Edge chunks are padded to the full chunk shape. */
+  void addChunked(String name, int[] shape, int[] chunkShape, int deflateLevel, float[] data) throws IOException {
+    int rank = shape.length;
+    int chunkSize = 1;
+    for (int len : chunkShape) {
+      chunkSize *= len;
+    }
+
+    // write the chunks in row-major order of their origins
+    List<Chunk> chunks = new ArrayList<>();
+    float[] chunkData = new float[chunkSize];
+    int[] origin = new int[rank];
+    while (true) {
+      Arrays.fill(chunkData, 0.0f);
+      copyChunk(data, shape, origin, chunkShape, chunkData);
+      byte[] bytes = toBytes(chunkData, 0, chunkSize);
+      if (deflateLevel > 0) {
+        bytes = deflate(bytes, deflateLevel);
+      }
+      chunks.add(new Chunk(bytes.length, origin.clone(), write(bytes)));
+      if (!increment(origin, chunkShape, shape)) {
+        break;
+      }
+    }
+
+    long btreeAddress = writeBTree(chunks, shape);
+    ByteBuffer layout = buffer(3 + 8 + 4 * (rank + 1));
+    layout.put((byte) 3).put((byte) 2).put((byte) (rank + 1)).putLong(btreeAddress);
+    for (int len : chunkShape) {
+      layout.putInt(len);
+    }
+    layout.putInt(4); // element size
+    byte[] filter = null;
+    if (deflateLevel > 0) {
+      ByteBuffer bb = buffer(12);
+      bb.put((byte) 2).put((byte) 1); // version, nfilters
+      bb.putShort((short) 1).putShort((short) 0).putShort((short) 1).putInt(deflateLevel); // id, flags, nvalues
+      filter = bb.array();
+    }
+    addDataset(name, shape, layout.array(), filter, 3);
+  }
+
+  @Override
+  public void close() throws IOException {
+    try {
+      // root group: link info, group info, and a link to each dataset
+      List<byte[]> messages = new ArrayList<>();
+      ByteBuffer linkInfo = buffer(18);
+      linkInfo.put((byte) 0).put((byte) 0).putLong(UNDEFINED).putLong(UNDEFINED); // no fractal heap: links are compact
+      messages.add(message(2, linkInfo.array()));
+      messages.add(message(10, new byte[2]));
+      for (int i = 0; i < names.size(); i++) {
+        byte[] name = names.get(i).getBytes(StandardCharsets.UTF_8);
+        ByteBuffer link = buffer(3 + name.length + 8);
+        link.put((byte) 1).put((byte) 0).put((byte) name.length).put(name).putLong(addresses.get(i));
+        messages.add(message(6, link.array()));
+      }
+      long rootAddress = writeObjectHeader(messages);
+
+      ByteBuffer sb = buffer(SUPERBLOCK_SIZE);
+      sb.put(SIGNATURE).put((byte) 2).put((byte) 8).put((byte) 8).put((byte) 0);
+      sb.putLong(0).putLong(UNDEFINED).putLong(pos).putLong(rootAddress);
+      sb.putInt(lookup3(sb.array(), SUPERBLOCK_SIZE - 4));
+      raf.seek(0);
+      raf.write(sb.array());
+    } finally {
+      raf.close();
+    }
+  }
+
+  private void addDataset(String name, int[] shape, byte[] layout, byte[] filter, int allocTime) throws IOException {
+    List<byte[]> messages = new ArrayList<>();
+    ByteBuffer dataspace = buffer(4 + 8 * shape.length);
+    dataspace.put((byte) 2).put((byte) shape.length).put((byte) 0).put((byte) 1);
+    for (int len : shape) {
+      dataspace.putLong(len);
+    }
+    messages.add(message(1, dataspace.array()));
+    messages.add(message(3, floatDatatype()));
+    messages.add(message(5, new byte[] {3, (byte) (allocTime | (2 << 2))})); // no fill value, never written
+    messages.add(message(8, layout));
+    if (filter != null) {
+      messages.add(message(11, filter));
+    }
+    names.add(name);
+    addresses.add(writeObjectHeader(messages));
+  }
+
+  // IEEE 754 32 bit little endian
+  private static byte[] floatDatatype() {
+    ByteBuffer bb = buffer(20);
+    bb.put((byte) 0x11).put((byte) 0x20).put((byte) 31).put((byte) 0).putInt(4);
+    bb.putShort((short) 0).putShort((short) 32).put((byte) 23).put((byte) 8).put((byte) 0).put((byte) 23).putInt(127);
+    return bb.array();
+  }
+
+  private static byte[] message(int type, byte[] data) {
+    ByteBuffer bb = buffer(4 + data.length);
+    bb.put((byte) type).putShort((short) data.length).put((byte) 0).put(data);
+    return bb.array();
+  }
+
+  private long writeObjectHeader(List<byte[]> messages) throws IOException {
+    int size = 0;
+    for (byte[] m : messages) {
+      size += m.length;
+    }
+    ByteBuffer bb = buffer(4 + 2 + 4 + size + 4);
+    bb.put(new byte[] {'O', 'H', 'D', 'R'}).put((byte) 2).put((byte) 2).putInt(size); // 4 byte chunk size
+    for (byte[] m : messages) {
+      bb.put(m);
+    }
+    bb.putInt(lookup3(bb.array(), bb.capacity() - 4));
+    return write(bb.array());
+  }
+
+  // a version 1 B-tree of chunks. The final key of a node is the origin of the next node, or the dataset shape.
+  private long writeBTree(List<Chunk> chunks, int[] shape) throws IOException {
+    int keySize = 8 + 8 * (shape.length + 1);
+    List<Chunk> level = chunks;
+    int levelNo = 0;
+    while (true) {
+      int nnodes = (level.size() + MAX_BTREE_ENTRIES - 1) / MAX_BTREE_ENTRIES;
+      long[] nodeAddress = new long[nnodes];
+      long addr = pos;
+      for (int n = 0; n < nnodes; n++) {
+        nodeAddress[n] = addr;
+        int nentries = Math.min(MAX_BTREE_ENTRIES, level.size() - n * MAX_BTREE_ENTRIES);
+        addr += 24 + (long) (nentries + 1) * keySize + 8L * nentries;
+      }
+
+      List<Chunk> parents = new ArrayList<>();
+      for (int n = 0; n < nnodes; n++) {
+        int start = n * MAX_BTREE_ENTRIES;
+        int nentries = Math.min(MAX_BTREE_ENTRIES, level.size() - start);
+        ByteBuffer bb = buffer(24 + (nentries + 1) * keySize + 8 * nentries);
+        bb.put(new byte[] {'T', 'R', 'E', 'E'}).put((byte) 1).put((byte) levelNo).putShort((short) nentries);
+        bb.putLong(n > 0 ? nodeAddress[n - 1] : UNDEFINED).putLong(n < nnodes - 1 ? nodeAddress[n + 1] : UNDEFINED);
+        for (int i = 0; i < nentries; i++) {
+          Chunk entry = level.get(start + i);
+          putKey(bb, entry.size, entry.origin);
+          bb.putLong(entry.address);
+        }
+        int next = start + nentries;
+        if (next < level.size()) {
+          putKey(bb, level.get(next).size, level.get(next).origin);
+        } else {
+          putKey(bb, 0, shape);
+        }
+        write(bb.array());
+        Chunk first = level.get(start);
+        parents.add(new Chunk(first.size, first.origin, nodeAddress[n]));
+      }
+
+      if (nnodes == 1) {
+        return nodeAddress[0];
+      }
+      level = parents;
+      levelNo++;
+    }
+  }
+
+  private static void putKey(ByteBuffer bb, int size, int[] origin) {
+    bb.putInt(size).putInt(0); // filter mask: all filters applied
+    for (int o : origin) {
+      bb.putLong(o);
+    }
+    bb.putLong(0); // element size dimension
+  }
+
+  private long write(byte[] bytes) throws IOException {
+    long address = pos;
+    raf.seek(pos);
+    raf.write(bytes);
+    pos += bytes.length;
+    return address;
+  }
+
+  private static ByteBuffer buffer(int size) {
+    return ByteBuffer.allocate(size).order(ByteOrder.LITTLE_ENDIAN);
+  }
+
+  private static byte[] toBytes(float[] data, int start, int n) {
+    ByteBuffer bb = buffer(4 * n);
+    bb.asFloatBuffer().put(data, start, n);
+    return bb.array();
+  }
+
+  private static byte[] deflate(byte[] bytes, int level) {
+    Deflater deflater = new Deflater(level); // zlib format, as written by H5Z_FILTER_DEFLATE
+    deflater.setInput(bytes);
+    deflater.finish();
+    byte[] buff = new byte[bytes.length + 64];
+    int n = 0;
+    while (!deflater.finished()) {
+      if (n == buff.length) {
+        buff = Arrays.copyOf(buff, 2 * buff.length);
+      }
+      n += deflater.deflate(buff, n, buff.length - n);
+    }
+    deflater.end();
+    return Arrays.copyOf(buff, n);
+  }
+
+  // copy the part of data inside the chunk at origin, into the start of each row of chunkData
+  private static void copyChunk(float[] data, int[] shape, int[] origin, int[] chunkShape, float[] chunkData) {
+    int rank = shape.length;
+    int rowLen = Math.min(chunkShape[rank - 1], shape[rank - 1] - origin[rank - 1]);
+    int[] counter = new int[rank - 1];
+    while (true) {
+      int src = 0;
+      int dest = 0;
+      boolean inside = true;
+      for (int i = 0; i < rank; i++) {
+        int c = i < rank - 1 ? counter[i] : 0;
+        if (origin[i] + c >= shape[i]) {
+          inside = false;
+        }
+        src = src * shape[i] + origin[i] + c;
+        dest = dest * chunkShape[i] + c;
+      }
+      if (inside) {
+        System.arraycopy(data, src, chunkData, dest, rowLen);
+      }
+      int dim = rank - 2;
+      while (dim >= 0 && ++counter[dim] == chunkShape[dim]) {
+        counter[dim] = 0;
+        dim--;
+      }
+      if (dim < 0) {
+        return;
+      }
+    }
+  }
+
+  private static boolean increment(int[] origin, int[] chunkShape, int[] shape) {
+    for (int i = origin.length - 1; i >= 0; i--) {
+      origin[i] += chunkShape[i];
+      if (origin[i] < shape[i]) {
+        return true;
+      }
+      origin[i] = 0;
+    }
+    return false;
+  }
+
+  /** Bob Jenkins' lookup3 hashlittle(), with initval 0, used for HDF5 metadata checksums. */
+  static int lookup3(byte[] k, int length) {
+    int a, b, c;
+    a = b = c = 0xdeadbeef + length;
+    int offset = 0;
+    while (length > 12) {
+      a += getInt(k, offset);
+      b += getInt(k, offset + 4);
+      c += getInt(k, offset + 8);
+      a -= c;
+      a ^= Integer.rotateLeft(c, 4);
+      c += b;
+      b -= a;
+      b ^= Integer.rotateLeft(a, 6);
+      a += c;
+      c -= b;
+      c ^= Integer.rotateLeft(b, 8);
+      b += a;
+      a -= c;
+      a ^= Integer.rotateLeft(c, 16);
+      c += b;
+      b -= a;
+      b ^= Integer.rotateLeft(a, 19);
+      a += c;
+      c -= b;
+      c ^= Integer.rotateLeft(b, 4);
+      b += a;
+      length -= 12;
+      offset += 12;
+    }
+    if (length == 0) {
+      return c;
+    }
+    byte[] tail = Arrays.copyOfRange(k, offset, offset + 12); // zero padded
+    a += getInt(tail, 0);
+    b += getInt(tail, 4);
+    c += getInt(tail, 8);
+
+    c ^= b;
+    c -= Integer.rotateLeft(b, 14);
+    a ^= c;
+    a -= Integer.rotateLeft(c, 11);
+    b ^= a;
+    b -= Integer.rotateLeft(a, 25);
+    c ^= b;
+    c -= Integer.rotateLeft(b, 16);
+    a ^= c;
+    a -= Integer.rotateLeft(c, 4);
+    b ^= a;
+    b -= Integer.rotateLeft(a, 14);
+    c ^= b;
+    c -= Integer.rotateLeft(b, 24);
+    return c;
+  }
+
+  private static int getInt(byte[] k, int offset) {
+    return (k[offset] & 0xff) | (k[offset + 1] & 0xff) << 8 | (k[offset + 2] & 0xff) << 16
+        | (k[offset + 3] & 0xff) << 24;
+  }
+
+  private static class Chunk {
+    final int size;
+    final int[] origin;
+    final long address;
+
+    Chunk(int size, int[] origin, long address) {
+      this.size = size;
+      this.origin = origin;
+      this.address = address;
+    }
+  }
+}
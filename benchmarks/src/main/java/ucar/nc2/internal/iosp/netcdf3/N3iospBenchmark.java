@@ -0,0 +1,111 @@
+/*
+ * Copyright (c) 1998-2021 John Caron and University Corporation for Atmospheric Research/Unidata
+ * See LICENSE for license information.
+ */
+package ucar.nc2.internal.iosp.netcdf3;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import ucar.array.Array;
+import ucar.array.InvalidRangeException;
+import ucar.array.Section;
+import ucar.ma2.DataType;
+import ucar.nc2.NetcdfFile;
+import ucar.nc2.NetcdfFiles;
+import ucar.nc2.Variable;
+import ucar.nc2.write.NetcdfFormatWriter;
+
+/**
+ * Reading a float(time, y, x) variable from a netCDF-3 file with {@link N3iosp}: the whole variable, one time
+ * ("slice"), and the time series at one point ("series"). The time dimension is either fixed, so the variable is
+ * contiguous, or unlimited, so each time is in its own record, interleaved with another record variable.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class N3iospBenchmark {
+  private static final int NTIMES = 24;
+  private static final int NY = 256;
+  private static final int NX = 256;
+
+  @Param({"fixed", "record"})
+  public String timeDim;
+
+  private File file;
+  private NetcdfFile ncfile;
+  private Variable var;
+  private int time;
+
+  @Setup(Level.Trial)
+  public void setup() throws IOException, ucar.ma2.InvalidRangeException {
+    file = File.createTempFile("N3iospBenchmark", ".nc");
+    file.deleteOnExit();
+
+    NetcdfFormatWriter.Builder<?> writerb = NetcdfFormatWriter.createNewNetcdf3(file.getPath()).setFill(false);
+    if (timeDim.equals("record")) {
+      writerb.addUnlimitedDimension("time");
+    } else {
+      writerb.addDimension("time", NTIMES);
+    }
+    writerb.addDimension("y", NY);
+    writerb.addDimension("x", NX);
+    writerb.addVariable("data", DataType.FLOAT, "time y x");
+    writerb.addVariable("other", DataType.SHORT, "time y x");
+
+    try (NetcdfFormatWriter writer = writerb.build()) {
+      float[] values = new float[NY * NX];
+      short[] others = new short[NY * NX];
+      for (int t = 0; t < NTIMES; t++) {
+        for (int i = 0; i < values.length; i++) {
+          values[i] = (float) (280 + 10 * Math.sin(0.05 * (i % NX) + 0.1 * t) * Math.cos(0.03 * (i / NX)));
+          others[i] = (short) (i + t);
+        }
+        int[] shape = {1, NY, NX};
+        writer.write("data", new int[] {t, 0, 0}, ucar.ma2.Array.factory(DataType.FLOAT, shape, values));
+        writer.write("other", new int[] {t, 0, 0}, ucar.ma2.Array.factory(DataType.SHORT, shape, others));
+      }
+    }
+
+    ncfile = NetcdfFiles.open(file.getPath());
+    var = ncfile.findVariable("data");
+  }
+
+  @TearDown(Level.Trial)
+  public void tearDown() throws IOException {
+    ncfile.close();
+    file.delete();
+  }
+
+  @Benchmark
+  public Array<?> readAll() throws IOException, InvalidRangeException {
+    return var.readArray(new Section(var.getShape()));
+  }
+
+  @Benchmark
+  public Array<?> readSlice() throws IOException, InvalidRangeException {
+    time = (time + 1) % NTIMES;
+    return var.readArray(new Section(new int[] {time, 0, 0}, new int[] {1, NY, NX}));
+  }
+
+  @Benchmark
+  public Array<?> readSeries() throws IOException, InvalidRangeException {
+    return var.readArray(new Section(new int[] {0, NY / 2, NX / 3}, new int[] {NTIMES, 1, 1}));
+  }
+}
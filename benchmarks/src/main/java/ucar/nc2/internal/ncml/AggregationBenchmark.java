@@ -0,0 +1,133 @@
+/*
+ * Copyright (c) 1998-2021 John Caron and University Corporation for Atmospheric Research/Unidata
+ * See LICENSE for license information.
+ */
+package ucar.nc2.internal.ncml;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.StringReader;
+import java.nio.file.Files;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import ucar.array.Array;
+import ucar.array.ArrayType;
+import ucar.array.Arrays;
+import ucar.array.Index;
+import ucar.array.InvalidRangeException;
+import ucar.array.Section;
+import ucar.nc2.Attribute;
+import ucar.nc2.Variable;
+import ucar.nc2.dataset.NetcdfDataset;
+import ucar.nc2.dataset.NetcdfDatasets;
+import ucar.nc2.write.NetcdfFormatWriter;
+
+/**
+ * Reading a float(time, y, x) variable from a joinExisting NcML aggregation of netCDF-3 files: the whole variable,
+ * and the time series at one point, which touches every nested dataset. The nested datasets are read one at a time,
+ * or several at a time with {@link Aggregation#setMaxConcurrentReads}.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class AggregationBenchmark {
+  private static final int NFILES = 10;
+  private static final int NTIMES = 24;
+  private static final int NY = 128;
+  private static final int NX = 128;
+
+  /** Maximum number of nested datasets read at the same time. */
+  @Param({"1", "4"})
+  public int concurrency;
+
+  private File dir;
+  private NetcdfDataset ncd;
+  private Variable var;
+
+  @Setup(Level.Trial)
+  public void setup() throws IOException, InvalidRangeException {
+    dir = Files.createTempDirectory("AggregationBenchmark").toFile();
+    dir.deleteOnExit();
+
+    StringBuilder ncml = new StringBuilder();
+    ncml.append("<?xml version='1.0' encoding='UTF-8'?>\n");
+    ncml.append("<netcdf xmlns='http://www.unidata.ucar.edu/namespaces/netcdf/ncml-2.2'>\n");
+    ncml.append("  <aggregation dimName='time' type='joinExisting'>\n");
+    for (int f = 0; f < NFILES; f++) {
+      File file = new File(dir, String.format("agg%02d.nc", f));
+      file.deleteOnExit();
+      writeFile(file.getPath(), f * NTIMES);
+      ncml.append(String.format("    <netcdf location='%s' ncoords='%d'/>%n", file.getPath(), NTIMES));
+    }
+    ncml.append("  </aggregation>\n");
+    ncml.append("</netcdf>\n");
+
+    Aggregation.setMaxConcurrentReads(concurrency);
+    ncd = NetcdfDatasets.openNcmlDataset(new StringReader(ncml.toString()), new File(dir, "agg.ncml").getPath(),
+        null);
+    var = ncd.findVariable("data");
+  }
+
+  private static void writeFile(String filename, int startHour) throws IOException, InvalidRangeException {
+    NetcdfFormatWriter.Builder<?> writerb = NetcdfFormatWriter.createNewNetcdf3(filename).setFill(false);
+    writerb.addUnlimitedDimension("time");
+    writerb.addDimension("y", NY);
+    writerb.addDimension("x", NX);
+    writerb.addVariable("time", ArrayType.DOUBLE, "time")
+        .addAttribute(new Attribute("units", "hours since 2021-06-01T00:00:00Z"));
+    writerb.addVariable("data", ArrayType.FLOAT, "time y x");
+
+    try (NetcdfFormatWriter writer = writerb.build()) {
+      Variable data = writer.findVariable("data");
+      double[] times = new double[NTIMES];
+      float[] values = new float[NY * NX];
+      for (int t = 0; t < NTIMES; t++) {
+        times[t] = startHour + t;
+        for (int i = 0; i < values.length; i++) {
+          values[i] = (float) (280 + 10 * Math.sin(0.05 * (i % NX) + 0.1 * times[t]) * Math.cos(0.03 * (i / NX)));
+        }
+        writer.write(data, Index.ofRank(3).set(t, 0, 0),
+            Arrays.factory(ArrayType.FLOAT, new int[] {1, NY, NX}, values));
+      }
+      writer.write(writer.findVariable("time"), Index.ofRank(1),
+          Arrays.factory(ArrayType.DOUBLE, new int[] {NTIMES}, times));
+    }
+  }
+
+  @TearDown(Level.Trial)
+  public void tearDown() throws IOException {
+    ncd.close();
+    File[] files = dir.listFiles();
+    if (files != null) {
+      for (File file : files) {
+        file.delete();
+      }
+    }
+    dir.delete();
+  }
+
+  @Benchmark
+  public Array<?> readAll() throws IOException, InvalidRangeException {
+    return var.readArray(new Section(var.getShape()));
+  }
+
+  @Benchmark
+  public Array<?> readSeries() throws IOException, InvalidRangeException {
+    return var.readArray(new Section(new int[] {0, NY / 2, NX / 3}, new int[] {NFILES * NTIMES, 1, 1}));
+  }
+}
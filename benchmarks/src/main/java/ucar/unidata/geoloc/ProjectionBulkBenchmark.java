@@ -0,0 +1,130 @@
+/*
+ * Copyright (c) 1998-2021 John Caron and University Corporation for Atmospheric Research/Unidata
+ * See LICENSE for license information.
+ */
+package ucar.unidata.geoloc;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import ucar.unidata.geoloc.projection.AlbersEqualArea;
+import ucar.unidata.geoloc.projection.LambertConformal;
+import ucar.unidata.geoloc.projection.Mercator;
+import ucar.unidata.geoloc.projection.RotatedPole;
+import ucar.unidata.geoloc.projection.Stereographic;
+import ucar.unidata.geoloc.projection.TransverseMercator;
+import ucar.unidata.geoloc.projection.sat.Geostationary;
+
+/**
+ * Converting a 2D grid of projection coordinates to lat/lon, as when writing the lat/lon coordinates of a projected
+ * grid. The "perPoint" benchmark calls {@link Projection#projToLatLon(double, double)} for each point, the others
+ * use the bulk array methods.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ProjectionBulkBenchmark {
+
+  @Param({"LambertConformal", "Mercator", "Stereographic", "RotatedPole", "TransverseMercator", "AlbersEqualArea",
+      "Geostationary"})
+  public String projection;
+
+  /** Number of points. */
+  @Param({"1000000"})
+  public int npts;
+
+  private Projection proj;
+  private double[] x, y;
+  private double[] lat, lon;
+
+  @Setup(Level.Trial)
+  public void setup() {
+    switch (projection) {
+      case "Mercator":
+        proj = new Mercator(-100, 20);
+        break;
+      case "Stereographic":
+        proj = new Stereographic(90, -105, 0.933);
+        break;
+      case "RotatedPole":
+        proj = new RotatedPole(37.5, 177.5);
+        break;
+      case "TransverseMercator":
+        proj = new TransverseMercator(0, -105, 0.9996);
+        break;
+      case "AlbersEqualArea":
+        proj = new AlbersEqualArea(23, -96, 29.5, 45.5);
+        break;
+      case "Geostationary":
+        proj = new Geostationary();
+        break;
+      default:
+        proj = new LambertConformal(25, 265, 25, 25);
+    }
+
+    // project a lat/lon box around the projection center, so the points are valid
+    Random random = new Random(17);
+    x = new double[npts];
+    y = new double[npts];
+    lat = new double[npts];
+    lon = new double[npts];
+    LatLonPoint center = proj.projToLatLon(0, 0);
+    for (int i = 0; i < npts; i++) {
+      lat[i] = center.getLatitude() + random.nextDouble() * 20 - 10;
+      lon[i] = center.getLongitude() + random.nextDouble() * 20 - 10;
+    }
+    proj.latLonToProj(lat, lon, x, y);
+  }
+
+  @Benchmark
+  public double[] perPoint() {
+    for (int i = 0; i < npts; i++) {
+      LatLonPoint pt = proj.projToLatLon(x[i], y[i]);
+      lat[i] = pt.getLatitude();
+      lon[i] = pt.getLongitude();
+    }
+    return lat;
+  }
+
+  @Benchmark
+  public double[] bulk() {
+    proj.projToLatLon(x, y, lat, lon);
+    return lat;
+  }
+
+  @Benchmark
+  public double[] bulkParallel() {
+    proj.projToLatLonParallel(x, y, lat, lon);
+    return lat;
+  }
+
+  @Benchmark
+  public double[] perPointForward() {
+    for (int i = 0; i < npts; i++) {
+      ProjectionPoint pt = proj.latLonToProj(lat[i], lon[i]);
+      x[i] = pt.getX();
+      y[i] = pt.getY();
+    }
+    return x;
+  }
+
+  @Benchmark
+  public double[] bulkForward() {
+    proj.latLonToProj(lat, lon, x, y);
+    return x;
+  }
+}
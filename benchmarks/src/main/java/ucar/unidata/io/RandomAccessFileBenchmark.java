@@ -0,0 +1,123 @@
+/*
+ * Copyright (c) 1998-2021 John Caron and University Corporation for Atmospheric Research/Unidata
+ * See LICENSE for license information.
+ */
+package ucar.unidata.io;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteOrder;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Throughput of reading primitive arrays from a {@link RandomAccessFile}, in both byte orders.
+ * The "bulk" benchmarks use the array read methods, the "perElement" benchmarks read one value at a time,
+ * which is how the array read methods used to work.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class RandomAccessFileBenchmark {
+
+  @Param({"BIG_ENDIAN", "LITTLE_ENDIAN"})
+  public String byteOrder;
+
+  /** Number of 8 byte values in the file. Small fits in the default buffer, large does not. */
+  @Param({"512", "1000000"})
+  public int nvalues;
+
+  private File file;
+  private RandomAccessFile raf;
+  private int[] ints;
+  private float[] floats;
+  private double[] doubles;
+
+  @Setup(Level.Trial)
+  public void setup() throws IOException {
+    byte[] bytes = new byte[8 * nvalues];
+    new Random(17).nextBytes(bytes);
+    file = File.createTempFile("RandomAccessFileBenchmark", ".bin");
+    file.deleteOnExit();
+    try (FileOutputStream out = new FileOutputStream(file)) {
+      out.write(bytes);
+    }
+    raf = new RandomAccessFile(file.getPath(), "r");
+    raf.order(ByteOrder.BIG_ENDIAN.toString().equals(byteOrder) ? ByteOrder.BIG_ENDIAN : ByteOrder.LITTLE_ENDIAN);
+    ints = new int[2 * nvalues];
+    floats = new float[2 * nvalues];
+    doubles = new double[nvalues];
+  }
+
+  @TearDown(Level.Trial)
+  public void tearDown() throws IOException {
+    raf.close();
+    file.delete();
+  }
+
+  @Benchmark
+  public int[] bulkReadInt() throws IOException {
+    raf.seek(0);
+    raf.readInt(ints, 0, ints.length);
+    return ints;
+  }
+
+  @Benchmark
+  public void perElementReadInt(Blackhole bh) throws IOException {
+    raf.seek(0);
+    for (int i = 0; i < ints.length; i++) {
+      ints[i] = raf.readInt();
+    }
+    bh.consume(ints);
+  }
+
+  @Benchmark
+  public float[] bulkReadFloat() throws IOException {
+    raf.seek(0);
+    raf.readFloat(floats, 0, floats.length);
+    return floats;
+  }
+
+  @Benchmark
+  public void perElementReadFloat(Blackhole bh) throws IOException {
+    raf.seek(0);
+    for (int i = 0; i < floats.length; i++) {
+      floats[i] = Float.intBitsToFloat(raf.readInt());
+    }
+    bh.consume(floats);
+  }
+
+  @Benchmark
+  public double[] bulkReadDouble() throws IOException {
+    raf.seek(0);
+    raf.readDouble(doubles, 0, doubles.length);
+    return doubles;
+  }
+
+  @Benchmark
+  public void perElementReadDouble(Blackhole bh) throws IOException {
+    raf.seek(0);
+    for (int i = 0; i < doubles.length; i++) {
+      doubles[i] = Double.longBitsToDouble(raf.readLong());
+    }
+    bh.consume(doubles);
+  }
+}
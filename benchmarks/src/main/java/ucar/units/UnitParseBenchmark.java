@@ -0,0 +1,105 @@
+/*
+ * Copyright (c) 1998-2021 John Caron and University Corporation for Atmospheric Research/Unidata
+ * See LICENSE for license information.
+ */
+package ucar.units;
+
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Parsing the unit strings typical of dataset opens, and getting a converter to the first unit of the same kind,
+ * from 1 to 64 threads at once. With the {@link UnitCache} disabled every call runs the parser.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class UnitParseBenchmark {
+  private static final String[] specs = {"K", "degC", "m/s", "m s-1", "kg m-2 s-1", "Pa", "hPa", "millibar", "percent",
+      "1", "degrees_north", "degrees_east", "W m-2", "g/kg", "hours since 1970-01-01 00:00:00",
+      "seconds since 2021-06-01T00:00:00Z", "days since 1900-1-1", "km", "mm/hr", "kg/kg"};
+
+  @State(Scope.Benchmark)
+  public static class Shared {
+    /** Maximum size of the UnitCache, 0 disables it. */
+    @Param({"0", "1000"})
+    public int cacheSize;
+
+    final Unit[] targets = new Unit[specs.length];
+
+    @Setup(Level.Trial)
+    public void setup() throws UnitException {
+      UnitCache.init(cacheSize);
+      UnitFormat format = UnitFormatManager.instance();
+      // convert each unit to the first unit in specs it is compatible with
+      for (int i = 0; i < specs.length; i++) {
+        Unit unit = format.parse(specs[i]);
+        targets[i] = unit;
+        for (int j = 0; j < i; j++) {
+          if (unit.isCompatible(targets[j])) {
+            targets[i] = targets[j];
+            break;
+          }
+        }
+      }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+      System.out.printf("%nparse cache: %s%nconverter cache: %s%n", UnitCache.getParseStats(),
+          UnitCache.getConverterStats());
+      UnitCache.init(1000);
+    }
+  }
+
+  @State(Scope.Thread)
+  public static class PerThread {
+    int next;
+  }
+
+  private static double parseAndConvert(Shared shared, PerThread thread) throws UnitException {
+    int i = thread.next;
+    thread.next = (i + 1) % specs.length;
+    Unit unit = UnitFormatManager.instance().parse(specs[i]);
+    return unit.getConverterTo(shared.targets[i]).convert(1.0);
+  }
+
+  @Benchmark
+  @Threads(1)
+  public double threads01(Shared shared, PerThread thread) throws UnitException {
+    return parseAndConvert(shared, thread);
+  }
+
+  @Benchmark
+  @Threads(4)
+  public double threads04(Shared shared, PerThread thread) throws UnitException {
+    return parseAndConvert(shared, thread);
+  }
+
+  @Benchmark
+  @Threads(16)
+  public double threads16(Shared shared, PerThread thread) throws UnitException {
+    return parseAndConvert(shared, thread);
+  }
+
+  @Benchmark
+  @Threads(64)
+  public double threads64(Shared shared, PerThread thread) throws UnitException {
+    return parseAndConvert(shared, thread);
+  }
+}
@@ -90,6 +90,11 @@ public class BufrCdmIndex {
       indexBuilder.setStart(config.getStart());
       indexBuilder.setEnd(config.getEnd());
       indexBuilder.setNobs(config.getNobs());
+      if (config.getMessageTypes() != null) {
+        indexBuilder.addAllTypes(config.getMessageTypes().toProto());
+        indexBuilder.addAllTablePos(config.getMessageTypes().getTablePositions());
+        indexBuilder.setFileLength(config.getFileLength());
+      }
 
       Map<String, BufrConfig.StationCheck> smaps = config.getStationMap();
       if (smaps != null) {
@@ -132,6 +137,11 @@ public class BufrCdmIndex {
       indexBuilder.setStart(index.start);
       indexBuilder.setEnd(index.end);
       indexBuilder.setNobs(index.nobs);
+      if (index.types != null) {
+        indexBuilder.addAllTypes(index.types);
+        indexBuilder.addAllTablePos(index.tablePositions);
+        indexBuilder.setFileLength(index.fileLength);
+      }
 
       if (index.stations != null) {
         for (BufrCdmIndexProto.Station s : index.stations) {
@@ -211,6 +221,9 @@ public class BufrCdmIndex {
   public List<BufrCdmIndexProto.Station> stations;
   public long start, end;
   public long nobs;
+  public List<BufrCdmIndexProto.MessageType> types;
+  public List<Long> tablePositions;
+  public long fileLength;
 
   protected boolean readIndex(RandomAccessFile raf) {
     this.idxFilename = raf.getLocation();
@@ -248,6 +261,9 @@ public class BufrCdmIndex {
       start = proto.getStart();
       end = proto.getEnd();
       nobs = proto.getNobs();
+      types = proto.getTypesList();
+      tablePositions = proto.getTablePosList();
+      fileLength = proto.getFileLength();
 
       // showProtoRoot(root);
 
@@ -272,6 +288,11 @@ public class BufrCdmIndex {
         count += s.getCount();
       f.format("  # stations obs=%d%n", count);
     }
+    if (types != null) {
+      for (BufrCdmIndexProto.MessageType type : types)
+        f.format("  type %s hash=0x%x nmessages=%d nobs=%d%n", type.getName(), type.getHash(), type.getPosCount(),
+            type.getNobs());
+    }
 
   }
 
@@ -52,6 +52,8 @@ public class BufrConfig {
   private Map<String, StationCheck> map;
   private long start = Long.MAX_VALUE;
   private long end = Long.MIN_VALUE;
+  private MessageTypeIndex messageTypes;
+  private long fileLength;
 
   private BufrConfig(RandomAccessFile raf) {
     this.filename = raf.getLocation();
@@ -109,6 +111,16 @@ public class BufrConfig {
     return countObs;
   }
 
+  /** The types of data messages found by scanEntireFile(), or null if made from a single message. */
+  public MessageTypeIndex getMessageTypes() {
+    return messageTypes;
+  }
+
+  /** The length of the file scanned by scanEntireFile(). */
+  public long getFileLength() {
+    return fileLength;
+  }
+
   ////////////////////////////////////////////////////////////////////////////
 
   private void merge(Element iospParam) {
@@ -200,7 +212,10 @@ public class BufrConfig {
       featureType = guessFeatureType(standardFields);
       hasDate = standardFields.hasTime();
 
+      fileLength = raf.length();
       ncd = NetcdfFiles.open(raf.getLocation()); // LOOK opening another raf
+      BufrIosp iosp = (BufrIosp) ncd.sendIospMessage(NetcdfFile.IOSP_MESSAGE_GET_IOSP);
+      messageTypes = iosp.getMessageTypes();
       Attribute centerAtt = ncd.findAttribute(BufrIosp.centerId);
       int center = (centerAtt == null) ? 0 : centerAtt.getNumericValue().intValue();
 
@@ -4,11 +4,15 @@
  */
 package ucar.nc2.iosp.bufr;
 
+import com.google.common.base.Preconditions;
+import java.io.File;
 import java.io.IOException;
 import java.util.Formatter;
-import java.util.HashSet;
 import java.util.List;
 import java.util.Optional;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import javax.annotation.Nullable;
 import org.jdom2.Element;
 import ucar.ma2.Array;
 import ucar.ma2.ArraySequence;
@@ -22,11 +26,15 @@ import ucar.nc2.Sequence;
 import ucar.nc2.Structure;
 import ucar.nc2.Variable;
 import ucar.nc2.constants.DataFormatType;
+import ucar.nc2.ft.point.bufr.BufrCdmIndex;
 import ucar.nc2.iosp.AbstractIOServiceProvider;
 import ucar.nc2.util.CancelTask;
 import ucar.unidata.io.RandomAccessFile;
 
-/** IOSP for BUFR data - using the preprocessor. */
+/**
+ * IOSP for BUFR data - using the preprocessor.
+ * Each type of data message in the file is a Sequence in the root group, see {@link MessageTypeIndex}.
+ */
 public class BufrIosp extends AbstractIOServiceProvider {
   private static final org.slf4j.Logger log = org.slf4j.LoggerFactory.getLogger(BufrIosp.class);
 
@@ -41,10 +49,64 @@ public class BufrIosp extends AbstractIOServiceProvider {
     debugIter = debugFlag.isSet("Bufr/iter");
   }
 
+  // System property name for -D flag
+  private static final String DECODETHREADS_PROPERTY = "unidata.bufr.decode.threads";
+
+  // maximum number of messages decoded at the same time, when iterating over the observations of a file.
+  protected static volatile int maxConcurrentDecodes = readMaxConcurrentDecodes();
+
+  private static Executor executor;
+  private static boolean executorSet;
+
+  private static int readMaxConcurrentDecodes() {
+    int nthreads = Runtime.getRuntime().availableProcessors();
+    String prop = System.getProperty(DECODETHREADS_PROPERTY);
+    if (prop != null) {
+      try {
+        int size = Integer.parseInt(prop);
+        if (size < 0)
+          log.warn(String.format("-D%s must be >= 0", DECODETHREADS_PROPERTY));
+        else
+          nthreads = size;
+      } catch (NumberFormatException nfe) {
+        log.warn(String.format("-D%s is not an integer", DECODETHREADS_PROPERTY));
+      }
+    }
+    return nthreads;
+  }
+
+  /**
+   * Set the Executor used to decode the messages of a file concurrently when iterating over its observations,
+   * shared by all BUFR files. Set to null to decode on the calling thread. If never set, a work stealing pool of
+   * -Dunidata.bufr.decode.threads threads is used. The messages are returned in file order in either case.
+   */
+  public static synchronized void setExecutor(@Nullable Executor exec) {
+    executor = exec;
+    executorSet = true;
+  }
+
+  /**
+   * Set the maximum number of messages decoded ahead of the one being iterated over. Default is
+   * -Dunidata.bufr.decode.threads, or the number of processors. Set to 0 or 1 to decode them one at a time.
+   */
+  public static void setMaxConcurrentDecodes(int max) {
+    Preconditions.checkArgument(max >= 0, "maxConcurrentDecodes must be >= 0");
+    maxConcurrentDecodes = max;
+  }
+
+  @Nullable
+  protected static synchronized Executor getExecutor() {
+    if (!executorSet && maxConcurrentDecodes > 1) {
+      executor = Executors.newWorkStealingPool(maxConcurrentDecodes);
+      executorSet = true;
+    }
+    return executor;
+  }
+
   Sequence obsStructure;
-  Message protoMessage; // prototypical message: all messages in the file must be the same.
+  Message protoMessage; // prototypical message of the obs Sequence
   MessageScanner scanner;
-  HashSet<Integer> messHash;
+  MessageTypeIndex messageTypes;
   boolean isSingle;
   BufrConfig config;
   Element iospParam;
@@ -59,12 +121,15 @@ public class BufrIosp extends AbstractIOServiceProvider {
     super.open(raf, rootGroup.getNcfile(), cancelTask);
 
     scanner = new MessageScanner(raf);
-    // TODO We have a problem - we havent finished building but we need to read the first message to use as the
-    // protoMessage.
-    // TODO Possible only trouble when theres an EmbeddedTable?
-    protoMessage = scanner.getFirstDataMessage();
-    if (protoMessage == null)
+    messageTypes = readMessageTypesFromIndex(raf);
+    if (messageTypes == null) {
+      scanner.reset();
+      messageTypes = MessageTypeIndex.scan(scanner, raf.getLocation());
+    }
+    if (messageTypes == null)
       throw new IOException("No data messages in the file= " + raf.getLocation());
+
+    protoMessage = messageTypes.getTypes().get(0).proto;
     if (!protoMessage.isTablesComplete())
       throw new IllegalStateException("BUFR file has incomplete tables");
 
@@ -73,14 +138,45 @@ public class BufrIosp extends AbstractIOServiceProvider {
 
     // this fills the netcdf object
     new BufrIospBuilder(protoMessage, config, rootGroup, raf.getLocation());
+    for (MessageTypeIndex.MessageType type : messageTypes.getTypes().subList(1, messageTypes.getTypes().size())) {
+      BufrConfig typeConfig = BufrConfig.openFromMessage(raf, type.proto, null);
+      new BufrIospBuilder(type.proto, typeConfig, rootGroup, raf.getLocation(), type.getName());
+    }
     isSingle = false;
   }
 
+  // The message types stored in an up-to-date BufrCdmIndex, or null if there is none.
+  @Nullable
+  private MessageTypeIndex readMessageTypesFromIndex(RandomAccessFile raf) throws IOException {
+    File bufrFile = new File(raf.getLocation());
+    File idxFile = BufrCdmIndex.calcIndexFile(raf.getLocation());
+    if (idxFile == null || idxFile.lastModified() < bufrFile.lastModified())
+      return null;
+
+    try {
+      BufrCdmIndex index = BufrCdmIndex.readIndex(idxFile.getPath());
+      if (index.types == null || index.types.isEmpty() || index.fileLength != raf.length())
+        return null;
+      MessageTypeIndex result = MessageTypeIndex.fromProto(index.types, index.tablePositions);
+      if (result.readProtoMessages(scanner))
+        return result;
+      log.warn("BufrCdmIndex {} does not match {}; scanning the file", idxFile.getPath(), raf.getLocation());
+    } catch (Exception e) {
+      log.warn("Error reading BufrCdmIndex {}; scanning the file", idxFile.getPath(), e);
+    }
+    // start over, without the tables read from the index
+    scanner = new MessageScanner(raf);
+    return null;
+  }
+
   @Override
   public void buildFinish(NetcdfFile ncfile) {
     obsStructure = (Sequence) ncfile.findVariable(obsRecordName);
     // The proto DataDescriptor must have a link to the Sequence object to read nested Sequences.
-    connectSequences(obsStructure.getVariables(), protoMessage.getRootDataDescriptor().getSubKeys());
+    for (MessageTypeIndex.MessageType type : messageTypes.getTypes()) {
+      Sequence seq = (Sequence) ncfile.findVariable(type.getName());
+      connectSequences(seq.getVariables(), type.proto.getRootDataDescriptor().getSubKeys());
+    }
   }
 
   static void connectSequences(List<Variable> variables, List<DataDescriptor> dataDescriptors) {
@@ -141,6 +237,12 @@ public class BufrIosp extends AbstractIOServiceProvider {
     return config;
   }
 
+  /** The types of data messages in the file, each read as its own Sequence. Null if opened on a single message. */
+  @Nullable
+  public MessageTypeIndex getMessageTypes() {
+    return messageTypes;
+  }
+
   public Element getElem() {
     return iospParam;
   }
@@ -150,24 +252,77 @@ public class BufrIosp extends AbstractIOServiceProvider {
   @Override
   public Array readData(Variable v2, Section section) {
     findRootSequence();
-    return new ArraySequence(obsStructure.makeStructureMembers(), new SeqIter(), nelems);
+    MessageTypeIndex.MessageType type = findMessageType(v2);
+    Sequence seq = findSequence(type);
+    return new ArraySequence(seq.makeStructureMembers(), new SeqIter(seq, type), type.nelems);
   }
 
   @Override
   public StructureDataIterator getStructureIterator(Structure s, int bufferSize) {
     findRootSequence();
-    return isSingle ? new SeqIterSingle() : new SeqIter();
+    if (isSingle)
+      return new SeqIterSingle();
+    MessageTypeIndex.MessageType type = findMessageType(s);
+    return new SeqIter(findSequence(type), type);
   }
 
   private void findRootSequence() {
     this.obsStructure = (Sequence) this.ncfile.findVariable(BufrIosp.obsRecordName);
   }
 
+  // The message type read by the Sequence v.
+  MessageTypeIndex.MessageType findMessageType(Variable v) {
+    MessageTypeIndex.MessageType type = messageTypes.findType(v.getShortName());
+    return (type == null) ? messageTypes.getTypes().get(0) : type;
+  }
+
+  Sequence findSequence(MessageTypeIndex.MessageType type) {
+    return (Sequence) this.ncfile.findVariable(type.getName());
+  }
+
+  // Finds the messages of one type, seeking to each in turn.
+  class MessageTypeSource implements MessageReadAhead.Source {
+    private final MessageTypeIndex.MessageType type;
+    private int next;
+
+    MessageTypeSource(MessageTypeIndex.MessageType type) {
+      this.type = type;
+    }
+
+    @Override
+    @Nullable
+    public Message next() throws IOException {
+      while (next < type.getNumberMessages()) {
+        long pos = type.getMessagePosition(next++);
+        Message m = scanner.readMessage(pos);
+        if (m == null || !type.proto.equals(m)) {
+          log.warn("File {} does not have a BUFR message of type {} at pos {}; skipping", raf.getLocation(),
+              type.getName(), pos);
+          continue;
+        }
+        return m;
+      }
+      return null;
+    }
+
+    void reset() {
+      next = 0;
+    }
+  }
+
   private class SeqIter implements StructureDataIterator {
+    private final Sequence seq;
+    private final MessageTypeIndex.MessageType type;
+    private final MessageTypeSource source;
+    private final MessageReadAhead<ArrayStructure> messages;
     StructureDataIterator currIter;
     int recnum;
 
-    SeqIter() {
+    SeqIter(Sequence seq, MessageTypeIndex.MessageType type) {
+      this.seq = seq;
+      this.type = type;
+      this.source = new MessageTypeSource(type);
+      messages = new MessageReadAhead<>(raf, source, this::readMessage, getExecutor(), maxConcurrentDecodes);
       reset();
     }
 
@@ -175,7 +330,8 @@ public class BufrIosp extends AbstractIOServiceProvider {
     public StructureDataIterator reset() {
       recnum = 0;
       currIter = null;
-      scanner.reset();
+      source.reset();
+      messages.reset();
       return this;
     }
 
@@ -184,7 +340,7 @@ public class BufrIosp extends AbstractIOServiceProvider {
       if (currIter == null) {
         currIter = readNextMessage();
         if (currIter == null) {
-          nelems = recnum;
+          type.nelems = recnum;
           return false;
         }
       }
@@ -204,40 +360,18 @@ public class BufrIosp extends AbstractIOServiceProvider {
     }
 
     private StructureDataIterator readNextMessage() throws IOException {
-      if (!scanner.hasNext())
-        return null;
-      Message m = scanner.next();
-      if (m == null) {
-        log.warn("BUFR scanner hasNext() true but next() null!");
-        return null;
-      }
-      if (m.containsBufrTable()) // data messages only
-        return readNextMessage();
-
-      // mixed messages
-      if (!protoMessage.equals(m)) {
-        if (messHash == null)
-          messHash = new HashSet<>(20);
-        if (!messHash.contains(m.hashCode())) {
-          log.warn("File " + raf.getLocation() + " has different BUFR message types hash=" + protoMessage.hashCode()
-              + "; skipping");
-          messHash.add(m.hashCode());
-        }
-        return readNextMessage();
-      }
-
-      ArrayStructure as = readMessage(m);
-      return as.getStructureDataIterator();
+      ArrayStructure as = messages.next();
+      return (as == null) ? null : as.getStructureDataIterator();
     }
 
-    private ArrayStructure readMessage(Message m) throws IOException {
+    private ArrayStructure readMessage(Message m, RandomAccessFile raf) throws IOException {
       ArrayStructure as;
       if (m.dds.isCompressed()) {
         MessageCompressedDataReader reader = new MessageCompressedDataReader();
-        as = reader.readEntireMessage(obsStructure, protoMessage, m, raf, null);
+        as = reader.readEntireMessage(seq, type.proto, m, raf, null);
       } else {
         MessageUncompressedDataReader reader = new MessageUncompressedDataReader();
-        as = reader.readEntireMessage(obsStructure, protoMessage, m, raf, null);
+        as = reader.readEntireMessage(seq, type.proto, m, raf, null);
       }
       return as;
     }
@@ -252,6 +386,7 @@ public class BufrIosp extends AbstractIOServiceProvider {
       if (currIter != null)
         currIter.close();
       currIter = null;
+      messages.reset();
       if (debugIter)
         System.out.printf("BUFR read recnum %d%n", recnum);
     }
@@ -327,6 +462,8 @@ public class BufrIosp extends AbstractIOServiceProvider {
     protoMessage.dump(ff);
     ff.format("%n");
     config.show(ff);
+    if (messageTypes != null)
+      messageTypes.show(ff);
     return ff.toString();
   }
 
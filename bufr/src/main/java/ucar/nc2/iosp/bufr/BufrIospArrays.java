@@ -6,11 +6,11 @@ package ucar.nc2.iosp.bufr;
 
 import java.io.IOException;
 import java.util.Formatter;
-import java.util.HashSet;
 import java.util.Iterator;
 import ucar.array.StructureData;
 import ucar.array.StructureDataArray;
 import ucar.nc2.Sequence;
+import ucar.unidata.io.RandomAccessFile;
 
 /** IOSP for BUFR data - using the preprocessor. */
 public class BufrIospArrays extends BufrIosp {
@@ -20,7 +20,10 @@ public class BufrIospArrays extends BufrIosp {
   @Override
   public Iterator<ucar.array.StructureData> getStructureDataArrayIterator(Sequence s, int bufferSize) {
     findRootSequence();
-    return isSingle ? new SeqIterSingleArray() : new SeqIterArray();
+    if (isSingle)
+      return new SeqIterSingleArray();
+    MessageTypeIndex.MessageType type = findMessageType(s);
+    return new SeqIterArray(findSequence(type), type);
   }
 
   private void findRootSequence() {
@@ -28,11 +31,17 @@ public class BufrIospArrays extends BufrIosp {
   }
 
   private class SeqIterArray implements Iterator<ucar.array.StructureData> {
+    private final Sequence seq;
+    private final MessageTypeIndex.MessageType type;
+    private final MessageReadAhead<StructureDataArray> messages;
     Iterator<StructureData> currIter;
     int recnum;
 
-    SeqIterArray() {
-      scanner.reset();
+    SeqIterArray(Sequence seq, MessageTypeIndex.MessageType type) {
+      this.seq = seq;
+      this.type = type;
+      messages = new MessageReadAhead<>(raf, new MessageTypeSource(type), this::readMessage, getExecutor(),
+          maxConcurrentDecodes);
     }
 
     @Override
@@ -44,7 +53,7 @@ public class BufrIospArrays extends BufrIosp {
           e.printStackTrace();
         }
         if (currIter == null) {
-          nelems = recnum;
+          type.nelems = recnum;
           return false;
         }
       }
@@ -68,45 +77,19 @@ public class BufrIospArrays extends BufrIosp {
     }
 
     private Iterator<StructureData> readNextMessage() throws IOException {
-      if (!scanner.hasNext()) {
-        return null;
-      }
-      Message m = scanner.next();
-      if (m == null) {
-        log.warn("BUFR scanner hasNext() true but next() null!");
-        return null;
-      }
-      if (m.containsBufrTable()) { // data messages only
-        return readNextMessage();
-      }
-
-      // mixed messages
-      if (!protoMessage.equals(m)) {
-        if (messHash == null) {
-          messHash = new HashSet<>(20);
-        }
-        if (!messHash.contains(m.hashCode())) {
-          log.warn("File " + raf.getLocation() + " has different BUFR message types hash=" + protoMessage.hashCode()
-              + "; skipping");
-          messHash.add(m.hashCode());
-        }
-        return readNextMessage();
-      }
-
-      StructureDataArray as = readMessage(m);
-      return as.iterator();
+      StructureDataArray as = messages.next();
+      return (as == null) ? null : as.iterator();
     }
 
-    private StructureDataArray readMessage(Message m) throws IOException {
+    private StructureDataArray readMessage(Message m, RandomAccessFile raf) throws IOException {
       Formatter f = new Formatter();
       StructureDataArray as;
       try {
         if (m.dds.isCompressed()) {
-          MessageArrayCompressedReader comp = new MessageArrayCompressedReader(obsStructure, protoMessage, m, raf, f);
+          MessageArrayCompressedReader comp = new MessageArrayCompressedReader(seq, type.proto, m, raf, f);
           as = comp.readEntireMessage();
         } else {
-          MessageArrayUncompressedReader uncomp =
-              new MessageArrayUncompressedReader(obsStructure, protoMessage, m, raf, f);
+          MessageArrayUncompressedReader uncomp = new MessageArrayUncompressedReader(seq, type.proto, m, raf, f);
           as = uncomp.readEntireMessage();
         }
       } catch (Throwable t) {
@@ -47,18 +47,7 @@ class BufrIospBuilder {
       atts.addAttribute(CF.FEATURE_TYPE, bufrConfig.getFeatureType().toString());
     }
     atts.addAttribute("location", location);
-
-    atts.addAttribute("BUFR:categoryName", proto.getLookup().getCategoryName());
-    atts.addAttribute("BUFR:subCategoryName", proto.getLookup().getSubCategoryName());
-    atts.addAttribute("BUFR:centerName", proto.getLookup().getCenterName());
-    atts.addAttribute("BUFR:category", proto.ids.getCategory());
-    atts.addAttribute("BUFR:subCategory", proto.ids.getSubCategory());
-    atts.addAttribute("BUFR:localSubCategory", proto.ids.getLocalSubCategory());
-    atts.addAttribute(BufrIosp.centerId, proto.ids.getCenterId());
-    atts.addAttribute("BUFR:subCenter", proto.ids.getSubCenterId());
-    atts.addAttribute("BUFR:table", proto.ids.getMasterTableId());
-    atts.addAttribute("BUFR:tableVersion", proto.ids.getMasterTableVersion());
-    atts.addAttribute("BUFR:localTableVersion", proto.ids.getLocalTableVersion());
+    addMessageTypeAttributes(atts, proto);
     atts.addAttribute("Conventions", "BUFR/CDM");
     atts.addAttribute("BUFR:edition", proto.is.getBufrEdition());
 
@@ -75,6 +64,51 @@ class BufrIospBuilder {
     }
   }
 
+  /**
+   * Add another type of message in the file as its own Sequence, with the attributes of the message type.
+   *
+   * @param proto message of this type
+   * @param bufrConfig made from proto
+   * @param root add Sequence to this group
+   * @param name name of the Sequence
+   */
+  BufrIospBuilder(Message proto, BufrConfig bufrConfig, Group.Builder root, String location, String name) {
+    this.rootGroup = root;
+    this.recordStructure = Sequence.builder().setName(name);
+    this.rootGroup.addVariable(recordStructure);
+
+    AttributeContainerMutable atts = recordStructure.getAttributeContainer();
+    if (bufrConfig.getFeatureType() != null) {
+      atts.addAttribute(CF.FEATURE_TYPE, bufrConfig.getFeatureType().toString());
+    }
+    addMessageTypeAttributes(atts, proto);
+    atts.addAttribute("BUFR:edition", proto.is.getBufrEdition());
+    String header = proto.getHeader();
+    if (header != null && !header.isEmpty()) {
+      atts.addAttribute("WMO_Header", header);
+    }
+
+    makeObsRecord(bufrConfig);
+    String coordS = coordinates.toString();
+    if (!coordS.isEmpty()) {
+      recordStructure.addAttribute(new Attribute("coordinates", coordS));
+    }
+  }
+
+  private static void addMessageTypeAttributes(AttributeContainerMutable atts, Message proto) {
+    atts.addAttribute("BUFR:categoryName", proto.getLookup().getCategoryName());
+    atts.addAttribute("BUFR:subCategoryName", proto.getLookup().getSubCategoryName());
+    atts.addAttribute("BUFR:centerName", proto.getLookup().getCenterName());
+    atts.addAttribute("BUFR:category", proto.ids.getCategory());
+    atts.addAttribute("BUFR:subCategory", proto.ids.getSubCategory());
+    atts.addAttribute("BUFR:localSubCategory", proto.ids.getLocalSubCategory());
+    atts.addAttribute(BufrIosp.centerId, proto.ids.getCenterId());
+    atts.addAttribute("BUFR:subCenter", proto.ids.getSubCenterId());
+    atts.addAttribute("BUFR:table", proto.ids.getMasterTableId());
+    atts.addAttribute("BUFR:tableVersion", proto.ids.getMasterTableVersion());
+    atts.addAttribute("BUFR:localTableVersion", proto.ids.getLocalTableVersion());
+  }
+
   Sequence.Builder getObsStructure() {
     return recordStructure;
   }
@@ -4,6 +4,9 @@
  */
 package ucar.nc2.iosp.bufr;
 
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.Map;
 import java.util.Objects;
 import ucar.nc2.Sequence;
 import ucar.nc2.iosp.bufr.tables.TableC;
@@ -176,6 +179,17 @@ public class DataDescriptor {
     AssociatedField(int nbits) {
       this.nbits = nbits;
     }
+
+    AssociatedField copy(Map<Object, Object> copies) {
+      AssociatedField result = (AssociatedField) copies.get(this);
+      if (result == null) {
+        result = new AssociatedField(nbits);
+        result.nfields = nfields;
+        result.dataFldName = dataFldName;
+        copies.put(this, result);
+      }
+      return result;
+    }
   }
 
   public List<DataDescriptor> getSubKeys() {
@@ -278,6 +292,58 @@ public class DataDescriptor {
     }
   }
 
+  /**
+   * Make a deep copy of the tree rooted here, for another message with the same descriptors and tables.
+   * AssociatedField and DataPresentIndicator objects shared within this tree are shared within the copy.
+   */
+  DataDescriptor copyTree() {
+    return copy(new IdentityHashMap<>());
+  }
+
+  // copies maps each original object to its copy
+  DataDescriptor copy(Map<Object, Object> copies) {
+    DataDescriptor result = (DataDescriptor) copies.get(this);
+    if (result != null)
+      return result;
+    result = new DataDescriptor();
+    copies.put(this, result);
+
+    result.fxy = fxy;
+    result.f = f;
+    result.x = x;
+    result.y = y;
+    result.name = name;
+    result.units = units;
+    result.desc = desc;
+    result.source = source;
+    result.localOverride = localOverride;
+    result.bad = bad;
+    result.scale = scale;
+    result.refVal = refVal;
+    result.bitWidth = bitWidth;
+    result.type = type;
+    result.replication = replication;
+    result.replicationCountSize = replicationCountSize;
+    result.repetitionCountSize = repetitionCountSize;
+    result.refersTo = refersTo;
+    result.refersToName = refersToName;
+    result.total_nbytesCDM = total_nbytesCDM;
+    result.isVarLength = isVarLength;
+    result.isBad = isBad;
+    result.total_nbits = total_nbits;
+
+    if (subKeys != null) {
+      result.subKeys = new ArrayList<>(subKeys.size());
+      for (DataDescriptor subKey : subKeys)
+        result.subKeys.add(subKey.copy(copies));
+    }
+    if (assField != null)
+      result.assField = assField.copy(copies);
+    if (dpi != null)
+      result.dpi = dpi.copy(copies);
+    return result;
+  }
+
   ///////////////////////////////////////////////////////////////////////////////////////////////
   private int total_nbytesCDM;
 
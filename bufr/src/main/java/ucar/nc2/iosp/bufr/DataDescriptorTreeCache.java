@@ -0,0 +1,125 @@
+/*
+ * Copyright (c) 1998-2021 John Caron and University Corporation for Atmospheric Research/Unidata
+ * See LICENSE for license information.
+ */
+package ucar.nc2.iosp.bufr;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheStats;
+import com.google.common.collect.ImmutableList;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.ExecutionException;
+import javax.annotation.concurrent.ThreadSafe;
+
+/**
+ * A cache of constructed DataDescriptor trees, shared by all messages in all files.
+ * Messages in a feed mostly repeat a few data descriptor sections, and expanding Table D and applying the Table C
+ * operators for every message is a large part of decoding it. Trees are keyed by the list of descriptors and the
+ * tables used to look them up. Each message gets its own copy of the tree, since the IOSP renames the fields of the
+ * tree and links them to its Sequences. Messages using embedded tables are not cached.
+ * The maximum number of trees may be set with -Dunidata.bufr.treecache.size, 0 disables the cache.
+ */
+@ThreadSafe
+public class DataDescriptorTreeCache {
+  private static final org.slf4j.Logger log = org.slf4j.LoggerFactory.getLogger(DataDescriptorTreeCache.class);
+
+  // System property name for -D flag
+  private static final String CACHESIZE_PROPERTY = "unidata.bufr.treecache.size";
+  private static final int DEFAULT_CACHESIZE = 1000;
+
+  private static DataDescriptorTreeCache instance = new DataDescriptorTreeCache(readCacheSize());
+
+  private static int readCacheSize() {
+    String prop = System.getProperty(CACHESIZE_PROPERTY);
+    if (prop != null) {
+      try {
+        int size = Integer.parseInt(prop);
+        if (size >= 0)
+          return size;
+        log.warn(String.format("-D%s must be >= 0", CACHESIZE_PROPERTY));
+      } catch (NumberFormatException nfe) {
+        log.warn(String.format("-D%s is not an integer", CACHESIZE_PROPERTY));
+      }
+    }
+    return DEFAULT_CACHESIZE;
+  }
+
+  static synchronized DataDescriptorTreeCache getInstance() {
+    return instance;
+  }
+
+  /**
+   * Replace the shared cache with an empty one. Call this after changing the BUFR tables that are in use.
+   *
+   * @param maxTrees maximum number of trees, 0 disables the cache.
+   */
+  public static synchronized void init(int maxTrees) {
+    instance = new DataDescriptorTreeCache(maxTrees);
+  }
+
+  /** Statistics of the shared cache. */
+  public static CacheStats getStats() {
+    return getInstance().cache.stats();
+  }
+
+  ////////////////////////////////////////////////////////////////////////////////////////////
+
+  private final int maxTrees;
+  private final Cache<Key, DataDescriptor> cache;
+
+  private DataDescriptorTreeCache(int maxTrees) {
+    this.maxTrees = maxTrees;
+    this.cache = CacheBuilder.newBuilder().maximumSize(maxTrees).recordStats().build();
+  }
+
+  /** Get a new copy of the DataDescriptor tree for this lookup and data description section. */
+  DataDescriptor getRootDataDescriptor(BufrTableLookup lookup, BufrDataDescriptionSection dds) {
+    if (maxTrees == 0)
+      return new DataDescriptorTreeConstructor().factory(lookup, dds);
+    try {
+      // the cached tree itself is never handed out
+      return cache.get(new Key(lookup, dds), () -> new DataDescriptorTreeConstructor().factory(lookup, dds))
+          .copyTree();
+    } catch (ExecutionException e) {
+      throw new RuntimeException(e.getCause());
+    }
+  }
+
+  private static class Key {
+    private final int bufrEdition, center, subCenter, masterId, masterVersion, localVersion, category;
+    private final List<Short> descriptors;
+    private final int hashCode;
+
+    Key(BufrTableLookup lookup, BufrDataDescriptionSection dds) {
+      this.bufrEdition = lookup.getBufrEdition();
+      this.center = lookup.getCenter();
+      this.subCenter = lookup.getSubCenter();
+      this.masterId = lookup.getMasterTableId();
+      this.masterVersion = lookup.getMasterTableVersion();
+      this.localVersion = lookup.getLocalTableVersion();
+      this.category = lookup.getCategory();
+      this.descriptors = ImmutableList.copyOf(dds.getDataDescriptors());
+      this.hashCode = Objects.hash(bufrEdition, center, subCenter, masterId, masterVersion, localVersion, category,
+          descriptors);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+      if (this == o)
+        return true;
+      if (o == null || getClass() != o.getClass())
+        return false;
+      Key key = (Key) o;
+      return bufrEdition == key.bufrEdition && center == key.center && subCenter == key.subCenter
+          && masterId == key.masterId && masterVersion == key.masterVersion && localVersion == key.localVersion
+          && category == key.category && descriptors.equals(key.descriptors);
+    }
+
+    @Override
+    public int hashCode() {
+      return hashCode;
+    }
+  }
+}
@@ -8,6 +8,7 @@ import ucar.nc2.iosp.bufr.tables.TableD;
 import java.util.List;
 import java.util.ArrayList;
 import java.util.Iterator;
+import java.util.Map;
 
 /**
  * Convert a list of data descriptors to a tree of DataDescriptor objects.
@@ -471,6 +472,21 @@ public class DataDescriptorTreeConstructor {
       linearize(tree);
     }
 
+    private DataPresentIndicator() {}
+
+    DataPresentIndicator copy(Map<Object, Object> copies) {
+      DataPresentIndicator result = (DataPresentIndicator) copies.get(this);
+      if (result == null) {
+        result = new DataPresentIndicator();
+        copies.put(this, result);
+        result.dataPresent = dataPresent.copy(copies);
+        result.linear = new ArrayList<>(linear.size());
+        for (DataDescriptor dd : linear)
+          result.linear.add(dd.copy(copies));
+      }
+      return result;
+    }
+
     int getNfields() {
       return dataPresent.replication;
     }
@@ -28,6 +28,7 @@ public class Message {
   private RandomAccessFile raf;
   private BufrTableLookup lookup;
   private DataDescriptor root;
+  private boolean embeddedTables; // lookup uses tables from the file
 
   private String header; // wmo header
   private long startPos; // starting pos in raf
@@ -47,8 +48,26 @@ public class Message {
     lookup = BufrTableLookup.factory(this);
   }
 
+  // a copy of the message m, reading its data section from raf
+  Message(Message m, RandomAccessFile raf, BufrDataSection dataSection) {
+    this.raf = raf;
+    this.is = m.is;
+    this.ids = m.ids;
+    this.dds = m.dds;
+    this.dataSection = dataSection;
+    this.lookup = m.lookup;
+    this.embeddedTables = m.embeddedTables;
+    this.header = m.header;
+    this.startPos = m.startPos;
+  }
+
   void setTableLookup(TableLookup lookup) {
     this.lookup.setTableLookup(lookup);
+    this.embeddedTables = true;
+  }
+
+  RandomAccessFile getRandomAccessFile() {
+    return raf;
   }
 
   public void close() throws IOException {
@@ -120,8 +139,10 @@ public class Message {
    * @return root DataDescriptor
    */
   public DataDescriptor getRootDataDescriptor() {
-    if (root == null)
-      root = new DataDescriptorTreeConstructor().factory(lookup, dds);
+    if (root == null) {
+      root = embeddedTables ? new DataDescriptorTreeConstructor().factory(lookup, dds)
+          : DataDescriptorTreeCache.getInstance().getRootDataDescriptor(lookup, dds);
+    }
     return root;
   }
 
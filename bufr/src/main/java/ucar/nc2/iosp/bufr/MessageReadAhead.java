@@ -0,0 +1,124 @@
+/*
+ * Copyright (c) 1998-2021 John Caron and University Corporation for Atmospheric Research/Unidata
+ * See LICENSE for license information.
+ */
+package ucar.nc2.iosp.bufr;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayDeque;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import javax.annotation.Nullable;
+import ucar.unidata.io.InMemoryRandomAccessFile;
+import ucar.unidata.io.RandomAccessFile;
+
+/**
+ * Decodes a sequence of BUFR messages, returning the results in the order of the messages.
+ * With an Executor, up to maxAhead messages are decoded on it while the caller uses the current result.
+ * The messages are always found on the calling thread, which owns the file. The data section of a message that is
+ * decoded on another thread is first read into memory on the calling thread.
+ */
+class MessageReadAhead<T> {
+
+  interface Source {
+    /** The next message to decode, or null when there are no more. */
+    @Nullable
+    Message next() throws IOException;
+  }
+
+  interface Decoder<T> {
+    T decode(Message m, RandomAccessFile raf) throws IOException;
+  }
+
+  private final RandomAccessFile raf;
+  private final Source source;
+  private final Decoder<T> decoder;
+  @Nullable
+  private final Executor executor;
+  private final int maxAhead;
+  private final ArrayDeque<CompletableFuture<T>> pending = new ArrayDeque<>();
+  private boolean done;
+
+  /**
+   * Constructor.
+   *
+   * @param raf the file the messages are in.
+   * @param source finds the messages in raf.
+   * @param decoder decodes a message.
+   * @param executor decode on this, or if null, on the calling thread.
+   * @param maxAhead maximum number of messages decoded or waiting to be used; if less than 2, decode on the calling
+   *        thread.
+   */
+  MessageReadAhead(RandomAccessFile raf, Source source, Decoder<T> decoder, @Nullable Executor executor,
+      int maxAhead) {
+    this.raf = raf;
+    this.source = source;
+    this.decoder = decoder;
+    this.executor = maxAhead > 1 ? executor : null;
+    this.maxAhead = maxAhead;
+  }
+
+  /** The decoded next message, or null when there are no more. */
+  @Nullable
+  T next() throws IOException {
+    if (executor == null) {
+      Message m = source.next();
+      return (m == null) ? null : decoder.decode(m, raf);
+    }
+
+    while (!done && pending.size() < maxAhead) {
+      Message m = source.next();
+      if (m == null) {
+        done = true;
+        break;
+      }
+      Message inMemory = readDataSection(m);
+      pending.add(CompletableFuture.supplyAsync(() -> decodeInMemory(inMemory), executor));
+    }
+
+    CompletableFuture<T> result = pending.poll();
+    if (result == null)
+      return null;
+    try {
+      return result.join();
+    } catch (CompletionException e) {
+      Throwable cause = e.getCause();
+      if (cause instanceof UncheckedIOException)
+        throw ((UncheckedIOException) cause).getCause();
+      if (cause instanceof RuntimeException)
+        throw (RuntimeException) cause;
+      if (cause instanceof Error)
+        throw (Error) cause;
+      throw new IOException(cause);
+    }
+  }
+
+  /** Discard the messages read ahead, and start again from the source's current position. */
+  void reset() {
+    pending.forEach(f -> f.cancel(false));
+    pending.clear();
+    done = false;
+  }
+
+  // a copy of m whose data section starts at 0 of an in-memory file.
+  private Message readDataSection(Message m) throws IOException {
+    long dataPos = m.dataSection.getDataPos();
+    int dataLength = m.dataSection.getDataLength();
+    // include the end section, in case the data runs over by a byte
+    byte[] data = new byte[(int) Math.min(dataLength + 4, raf.length() - dataPos)];
+    raf.seek(dataPos);
+    raf.readFully(data);
+    InMemoryRandomAccessFile memRaf = new InMemoryRandomAccessFile(raf.getLocation(), data);
+    return new Message(m, memRaf, new BufrDataSection(0, dataLength));
+  }
+
+  private T decodeInMemory(Message m) {
+    try {
+      return decoder.decode(m, m.getRandomAccessFile());
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+  }
+}
@@ -194,6 +194,19 @@ public class MessageScanner {
     }
   }
 
+  /**
+   * Read the message that starts at pos, as found by next() in an earlier scan of the file.
+   * The message has no WMO header. Embedded tables already read by this scanner are used.
+   *
+   * @param pos starting position of the message, see Message.getStartPos()
+   * @return the message, or null if there is not a valid message at pos
+   */
+  public Message readMessage(long pos) throws IOException {
+    header = new byte[0];
+    raf.seek(pos);
+    return next();
+  }
+
   public TableLookup getTableLookup() throws IOException {
     while (hasNext()) {
       next();
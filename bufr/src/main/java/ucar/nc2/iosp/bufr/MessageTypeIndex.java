@@ -0,0 +1,274 @@
+/*
+ * Copyright (c) 1998-2021 John Caron and University Corporation for Atmospheric Research/Unidata
+ * See LICENSE for license information.
+ */
+package ucar.nc2.iosp.bufr;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.primitives.Longs;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Formatter;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import javax.annotation.Nullable;
+import ucar.nc2.ft.point.bufr.BufrCdmIndexProto;
+
+/**
+ * The data messages of a BUFR file grouped by type, from one scan of the file.
+ * Messages are the same type when they are equal, that is, have the same data descriptors, center and category.
+ * Each type is read as its own Sequence: the type of the first non-empty data message is "obs", the others are named
+ * "obs_" followed by the hex of their Message.hashCode(). Reading a type seeks only to its own messages.
+ * The index may be stored in the BufrCdmIndex (ncx) file, so the file does not need to be scanned when it is opened.
+ */
+public class MessageTypeIndex {
+  private static final org.slf4j.Logger log = org.slf4j.LoggerFactory.getLogger(MessageTypeIndex.class);
+
+  /** The messages of one type. */
+  public static class MessageType {
+    private String name;
+    private final int hash;
+    private final String header;
+    private long[] positions = new long[16];
+    private int nmessages;
+    private long nobs;
+
+    // the first non-empty message, used to make the Sequence and to read the other messages
+    Message proto;
+    int nelems = -1;
+
+    private MessageType(Message proto) {
+      this.proto = proto;
+      this.hash = proto.hashCode();
+      this.header = proto.getHeader() == null ? "" : proto.getHeader();
+    }
+
+    private MessageType(BufrCdmIndexProto.MessageType type) {
+      this.name = type.getName();
+      this.hash = type.getHash();
+      this.header = type.getHeader();
+      this.positions = Longs.toArray(type.getPosList());
+      this.nmessages = positions.length;
+      this.nobs = type.getNobs();
+    }
+
+    private void add(Message m) {
+      if (nmessages == positions.length) {
+        positions = Arrays.copyOf(positions, 2 * nmessages);
+      }
+      positions[nmessages++] = m.getStartPos();
+      nobs += m.getNumberDatasets();
+      if (proto.getNumberDatasets() == 0 && m.getNumberDatasets() > 0) {
+        proto = m;
+      }
+    }
+
+    /** The name of the Sequence for this type. */
+    public String getName() {
+      return name;
+    }
+
+    /** The Message.hashCode() of this type. */
+    public int getHash() {
+      return hash;
+    }
+
+    /** The WMO header of the first message of this type. */
+    public String getHeader() {
+      return header;
+    }
+
+    /** The number of messages. */
+    public int getNumberMessages() {
+      return nmessages;
+    }
+
+    /** The starting position of the ith message in the file. */
+    public long getMessagePosition(int i) {
+      return positions[i];
+    }
+
+    /** The number of observations (data subsets) in all the messages. */
+    public long getNumberObs() {
+      return nobs;
+    }
+
+    BufrCdmIndexProto.MessageType toProto() {
+      BufrCdmIndexProto.MessageType.Builder builder = BufrCdmIndexProto.MessageType.newBuilder();
+      builder.setName(name);
+      builder.setHash(hash);
+      builder.setHeader(header);
+      for (int i = 0; i < nmessages; i++) {
+        builder.addPos(positions[i]);
+      }
+      builder.setNobs(nobs);
+      return builder.build();
+    }
+  }
+
+  /**
+   * Scan all the messages of a file.
+   *
+   * @param scanner scans the file, from the start
+   * @param location of the file, for messages
+   * @return the index, or null if there are no non-empty data messages.
+   */
+  @Nullable
+  static MessageTypeIndex scan(MessageScanner scanner, String location) throws IOException {
+    List<MessageType> types = new ArrayList<>();
+    List<Long> tablePositions = new ArrayList<>();
+    MessageType primary = null;
+    MessageType last = null;
+
+    while (scanner.hasNext()) {
+      Message m = scanner.next();
+      if (m == null)
+        continue;
+      if (m.containsBufrTable()) {
+        tablePositions.add(m.getStartPos());
+        continue;
+      }
+
+      // consecutive messages are usually the same type
+      MessageType type = (last != null && last.proto.equals(m)) ? last : null;
+      if (type == null) {
+        for (MessageType t : types) {
+          if (t.proto.equals(m)) {
+            type = t;
+            break;
+          }
+        }
+      }
+      if (type == null) {
+        type = new MessageType(m);
+        types.add(type);
+      }
+      type.add(m);
+      last = type;
+      if (primary == null && m.getNumberDatasets() > 0) {
+        primary = type;
+      }
+    }
+    if (primary == null)
+      return null;
+
+    // the primary type first
+    List<MessageType> result = new ArrayList<>();
+    result.add(primary);
+    for (MessageType type : types) {
+      if (type == primary || type.nobs == 0)
+        continue;
+      if (!type.proto.isTablesComplete()) {
+        log.warn("File {} has BUFR message type hash={} with incomplete tables; skipping", location, type.hash);
+        continue;
+      }
+      result.add(type);
+    }
+    nameTypes(result);
+    return new MessageTypeIndex(result, Longs.toArray(tablePositions));
+  }
+
+  private static void nameTypes(List<MessageType> types) {
+    Set<String> names = new HashSet<>();
+    for (MessageType type : types) {
+      String name = names.isEmpty() ? BufrIosp.obsRecordName
+          : String.format("%s_%s", BufrIosp.obsRecordName, Integer.toHexString(type.hash));
+      // different types may have the same hash
+      String unique = name;
+      for (int count = 2; names.contains(unique); count++) {
+        unique = name + "_" + count;
+      }
+      type.name = unique;
+      names.add(unique);
+    }
+  }
+
+  /**
+   * Make the index from the types stored in a BufrCdmIndex, without the proto messages.
+   * Call readProtoMessages() before using it to read the file.
+   */
+  public static MessageTypeIndex fromProto(List<BufrCdmIndexProto.MessageType> types, List<Long> tablePositions) {
+    List<MessageType> result = new ArrayList<>();
+    for (BufrCdmIndexProto.MessageType type : types) {
+      result.add(new MessageType(type));
+    }
+    return new MessageTypeIndex(result, Longs.toArray(tablePositions));
+  }
+
+  ////////////////////////////////////////////////////////////////////////////////////////////
+
+  private final ImmutableList<MessageType> types;
+  private final long[] tablePositions;
+
+  private MessageTypeIndex(List<MessageType> types, long[] tablePositions) {
+    this.types = ImmutableList.copyOf(types);
+    this.tablePositions = tablePositions;
+  }
+
+  /** The message types, the primary ("obs") type first. */
+  public ImmutableList<MessageType> getTypes() {
+    return types;
+  }
+
+  @Nullable
+  public MessageType findType(String name) {
+    for (MessageType type : types) {
+      if (type.name.equals(name))
+        return type;
+    }
+    return null;
+  }
+
+  /** The starting positions of the messages with embedded BUFR tables. */
+  public List<Long> getTablePositions() {
+    return Longs.asList(tablePositions);
+  }
+
+  public List<BufrCdmIndexProto.MessageType> toProto() {
+    List<BufrCdmIndexProto.MessageType> result = new ArrayList<>();
+    for (MessageType type : types) {
+      result.add(type.toProto());
+    }
+    return result;
+  }
+
+  /**
+   * Read the embedded tables and the proto message of each type, for an index made by fromProto().
+   *
+   * @return false if the file does not match the index.
+   */
+  boolean readProtoMessages(MessageScanner scanner) throws IOException {
+    for (long pos : tablePositions) {
+      Message m = scanner.readMessage(pos);
+      if (m == null || !m.containsBufrTable())
+        return false;
+    }
+    for (MessageType type : types) {
+      Message proto = null;
+      for (int i = 0; i < type.nmessages && proto == null; i++) {
+        Message m = scanner.readMessage(type.positions[i]);
+        if (m == null || m.containsBufrTable())
+          return false;
+        if (m.getNumberDatasets() > 0)
+          proto = m;
+      }
+      if (proto == null || proto.hashCode() != type.hash)
+        return false;
+      proto.setHeader(type.header);
+      type.proto = proto;
+    }
+    return true;
+  }
+
+  public void show(Formatter f) {
+    f.format("%nBUFR message types%n");
+    for (MessageType type : types) {
+      f.format("  %s hash=0x%x nmessages=%d nobs=%d header=%s%n", type.name, type.hash, type.nmessages, type.nobs,
+          type.header);
+    }
+    if (tablePositions.length > 0)
+      f.format("  %d messages with embedded tables%n", tablePositions.length);
+  }
+}
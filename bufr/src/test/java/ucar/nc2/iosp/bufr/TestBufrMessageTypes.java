@@ -0,0 +1,152 @@
+/*
+ * Copyright (c) 1998-2021 John Caron and University Corporation for Atmospheric Research/Unidata
+ * See LICENSE for license information.
+ */
+package ucar.nc2.iosp.bufr;
+
+import static com.google.common.truth.Truth.assertThat;
+import static com.google.common.truth.Truth.assertWithMessage;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.Formatter;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import ucar.ma2.StructureDataIterator;
+import ucar.nc2.NetcdfFile;
+import ucar.nc2.NetcdfFiles;
+import ucar.nc2.Sequence;
+import ucar.nc2.ft.point.bufr.BufrCdmIndex;
+import ucar.nc2.internal.util.CompareArrayToMa2;
+import ucar.unidata.io.RandomAccessFile;
+
+/** Test reading a file with more than one type of BUFR message. */
+public class TestBufrMessageTypes {
+  private static final String radiosonde = "src/test/data/RadiosondeStationData.bufr";
+  private static final String test1 = "src/test/data/test1.bufr";
+
+  @Rule
+  public TemporaryFolder tempFolder = new TemporaryFolder();
+
+  // a file with the messages of the files, in order
+  private String concat(String... filenames) throws IOException {
+    File result = tempFolder.newFile();
+    try (FileOutputStream out = new FileOutputStream(result)) {
+      for (String filename : filenames) {
+        out.write(Files.readAllBytes(Paths.get(filename)));
+      }
+    }
+    return result.getPath();
+  }
+
+  private String mixed() throws IOException {
+    return concat(radiosonde, test1, radiosonde, test1, radiosonde);
+  }
+
+  @Test
+  public void testSequencePerType() throws IOException {
+    String mixed = mixed();
+    String radiosondes = concat(radiosonde, radiosonde, radiosonde);
+    String test1s = concat(test1, test1);
+
+    try (NetcdfFile ncfile = NetcdfFiles.open(mixed)) {
+      MessageTypeIndex types = getMessageTypes(ncfile);
+      assertThat(types.getTypes()).hasSize(2);
+      MessageTypeIndex.MessageType obs = types.getTypes().get(0);
+      MessageTypeIndex.MessageType other = types.getTypes().get(1);
+      assertThat(obs.getName()).isEqualTo(BufrIosp.obsRecordName);
+      assertThat(other.getName()).isEqualTo(BufrIosp.obsRecordName + "_" + Integer.toHexString(other.getHash()));
+      assertThat(obs.getNumberMessages()).isEqualTo(3);
+      assertThat(other.getNumberMessages()).isEqualTo(2);
+
+      Sequence otherSeq = (Sequence) ncfile.findVariable(other.getName());
+      assertThat((Object) otherSeq).isNotNull();
+      assertThat(otherSeq.findAttributeString("BUFR:categoryName", null)).isNotNull();
+
+      compareSequences(ncfile, obs.getName(), radiosondes, obs.getNumberObs());
+      compareSequences(ncfile, other.getName(), test1s, other.getNumberObs());
+    }
+  }
+
+  // the Sequence in ncfile is the same as the obs Sequence of the single type file.
+  private void compareSequences(NetcdfFile ncfile, String name, String singleType, long nobs) throws IOException {
+    try (NetcdfFile single = NetcdfFiles.open(singleType)) {
+      Sequence seq = (Sequence) ncfile.findVariable(name);
+      Sequence singleSeq = (Sequence) single.findVariable(BufrIosp.obsRecordName);
+      assertThat(getMessageTypes(single).getTypes().get(0).getNumberObs()).isEqualTo(nobs);
+
+      Formatter f = new Formatter();
+      assertWithMessage(f.toString())
+          .that(CompareArrayToMa2.compareSequence(f, name, seq.getStructureIterator(), singleSeq.iterator())).isTrue();
+      f = new Formatter();
+      assertWithMessage(f.toString())
+          .that(CompareArrayToMa2.compareSequence(f, name, singleSeq.getStructureIterator(), seq.iterator())).isTrue();
+
+      int count = 0;
+      StructureDataIterator iter = seq.getStructureIterator();
+      while (iter.hasNext()) {
+        iter.next();
+        count++;
+      }
+      assertThat(count).isEqualTo(nobs);
+    }
+  }
+
+  @Test
+  public void testIndex() throws IOException {
+    String mixed = mixed();
+    File idxFile = new File(mixed + BufrCdmIndex.NCX_IDX);
+    try (RandomAccessFile raf = new RandomAccessFile(mixed, "r")) {
+      BufrConfig config = BufrConfig.scanEntireFile(raf);
+      assertThat(config.getMessageTypes().getTypes()).hasSize(2);
+      assertThat(BufrCdmIndex.writeIndex(mixed, config, idxFile)).isTrue();
+    }
+    assertThat(BufrCdmIndex.calcIndexFile(mixed)).isEqualTo(idxFile);
+
+    BufrCdmIndex index = BufrCdmIndex.readIndex(idxFile.getPath());
+    assertThat(index.types).hasSize(2);
+    assertThat(index.fileLength).isEqualTo(new File(mixed).length());
+
+    try (NetcdfFile fromIndex = NetcdfFiles.open(mixed)) {
+      MessageTypeIndex types = getMessageTypes(fromIndex);
+      assertThat(types.toProto()).containsExactlyElementsIn(index.types).inOrder();
+      for (MessageTypeIndex.MessageType type : types.getTypes()) {
+        assertThat(type.proto).isNotNull();
+        assertThat(type.proto.hashCode()).isEqualTo(type.getHash());
+        Sequence seq = (Sequence) fromIndex.findVariable(type.getName());
+        int count = 0;
+        StructureDataIterator iter = seq.getStructureIterator();
+        while (iter.hasNext()) {
+          iter.next();
+          count++;
+        }
+        assertThat(count).isEqualTo(type.getNumberObs());
+      }
+    }
+  }
+
+  @Test
+  public void testStaleIndexIsIgnored() throws IOException {
+    String mixed = mixed();
+    File idxFile = new File(mixed + BufrCdmIndex.NCX_IDX);
+    try (RandomAccessFile raf = new RandomAccessFile(radiosonde, "r")) {
+      // an index of a different file
+      assertThat(BufrCdmIndex.writeIndex(mixed, BufrConfig.scanEntireFile(raf), idxFile)).isTrue();
+    }
+
+    try (NetcdfFile ncfile = NetcdfFiles.open(mixed)) {
+      MessageTypeIndex types = getMessageTypes(ncfile);
+      assertThat(types.getTypes()).hasSize(2);
+      assertThat(types.getTypes().get(0).getNumberMessages()).isEqualTo(3);
+    }
+  }
+
+  private static MessageTypeIndex getMessageTypes(NetcdfFile ncfile) {
+    BufrIosp iosp = (BufrIosp) ncfile.sendIospMessage(NetcdfFile.IOSP_MESSAGE_GET_IOSP);
+    return iosp.getMessageTypes();
+  }
+}
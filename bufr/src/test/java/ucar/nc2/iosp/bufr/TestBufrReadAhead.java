@@ -0,0 +1,166 @@
+/*
+ * Copyright (c) 1998-2021 John Caron and University Corporation for Atmospheric Research/Unidata
+ * See LICENSE for license information.
+ */
+package ucar.nc2.iosp.bufr;
+
+import static com.google.common.truth.Truth.assertThat;
+import static com.google.common.truth.Truth.assertWithMessage;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Formatter;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Random;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+import org.junit.rules.TemporaryFolder;
+import ucar.ma2.StructureDataIterator;
+import ucar.nc2.NetcdfFile;
+import ucar.nc2.NetcdfFiles;
+import ucar.nc2.Sequence;
+import ucar.nc2.internal.util.CompareArrayToMa2;
+import ucar.unidata.io.RandomAccessFile;
+import ucar.unidata.util.test.TestDir;
+import ucar.unidata.util.test.category.NeedsCdmUnitTest;
+
+/** Test decoding the messages of a BUFR file concurrently, and the DataDescriptorTreeCache. */
+public class TestBufrReadAhead {
+  private static final int NCOPIES = 12;
+
+  @Rule
+  public TemporaryFolder tempFolder = new TemporaryFolder();
+
+  private int saveMaxConcurrentDecodes;
+
+  @Before
+  public void saveConcurrency() {
+    saveMaxConcurrentDecodes = BufrIosp.maxConcurrentDecodes;
+  }
+
+  @After
+  public void restoreConcurrency() {
+    BufrIosp.setMaxConcurrentDecodes(saveMaxConcurrentDecodes);
+  }
+
+  // a file with NCOPIES of the messages in filename
+  private String makeCopies(String filename) throws IOException {
+    byte[] bytes = Files.readAllBytes(Paths.get(filename));
+    File copies = tempFolder.newFile();
+    try (FileOutputStream out = new FileOutputStream(copies)) {
+      for (int i = 0; i < NCOPIES; i++) {
+        out.write(bytes);
+      }
+    }
+    return copies.getPath();
+  }
+
+  @Test
+  public void testOrder() throws IOException {
+    String filename = makeCopies("src/test/data/RadiosondeStationData.bufr");
+    Random random = new Random(123);
+    BufrIosp.setMaxConcurrentDecodes(4);
+
+    List<Long> expected = new ArrayList<>();
+    try (RandomAccessFile raf = new RandomAccessFile(filename, "r")) {
+      MessageScanner scanner = new MessageScanner(raf);
+      while (scanner.hasNext()) {
+        expected.add(scanner.next().getStartPos());
+      }
+      assertThat(expected).hasSize(NCOPIES);
+
+      scanner.reset();
+      MessageReadAhead<Long> readAhead =
+          new MessageReadAhead<>(raf, () -> scanner.hasNext() ? scanner.next() : null, (m, mraf) -> {
+            assertThat(mraf).isNotSameInstanceAs(raf);
+            assertThat(m.getNumberDatasets()).isEqualTo(1);
+            try {
+              Thread.sleep(random.nextInt(20));
+            } catch (InterruptedException e) {
+              throw new IOException(e);
+            }
+            return m.getStartPos();
+          }, BufrIosp.getExecutor(), 4);
+
+      List<Long> result = new ArrayList<>();
+      Long startPos;
+      while ((startPos = readAhead.next()) != null) {
+        result.add(startPos);
+      }
+      assertThat(result).containsExactlyElementsIn(expected).inOrder();
+    }
+  }
+
+  @Test
+  public void testUncompressed() throws IOException {
+    compareConcurrentToSequential(makeCopies("src/test/data/RadiosondeStationData.bufr"));
+  }
+
+  @Test
+  @Category(NeedsCdmUnitTest.class)
+  public void testFeed() throws IOException {
+    compareConcurrentToSequential(TestDir.cdmUnitTestDir + "formats/bufr/userExamples/5900.20030601.rass");
+  }
+
+  // compare the ma2 and array decoders, with one of them reading concurrently.
+  private void compareConcurrentToSequential(String filename) throws IOException {
+    try (NetcdfFile ncfile1 = NetcdfFiles.open(filename); NetcdfFile ncfile2 = NetcdfFiles.open(filename)) {
+      Sequence obs1 = (Sequence) ncfile1.findVariable(BufrIosp.obsRecordName);
+      Sequence obs2 = (Sequence) ncfile2.findVariable(BufrIosp.obsRecordName);
+
+      BufrIosp.setMaxConcurrentDecodes(1);
+      StructureDataIterator sequential = obs1.getStructureIterator();
+      BufrIosp.setMaxConcurrentDecodes(4);
+      Iterator<ucar.array.StructureData> concurrent = obs2.iterator();
+      Formatter f = new Formatter();
+      assertWithMessage(f.toString()).that(CompareArrayToMa2.compareSequence(f, "obs", sequential, concurrent))
+          .isTrue();
+      assertThat(sequential.hasNext()).isFalse();
+      assertThat(concurrent.hasNext()).isFalse();
+
+      StructureDataIterator concurrentMa2 = obs1.getStructureIterator();
+      BufrIosp.setMaxConcurrentDecodes(1);
+      Iterator<ucar.array.StructureData> sequentialArray = obs2.iterator();
+      f = new Formatter();
+      assertWithMessage(f.toString())
+          .that(CompareArrayToMa2.compareSequence(f, "obs", concurrentMa2, sequentialArray)).isTrue();
+    }
+  }
+
+  @Test
+  public void testTreeCache() throws IOException {
+    String filename = makeCopies("src/test/data/RadiosondeStationData.bufr");
+    DataDescriptorTreeCache.init(100);
+    try (RandomAccessFile raf = new RandomAccessFile(filename, "r")) {
+      MessageScanner scanner = new MessageScanner(raf);
+      List<Message> messages = new ArrayList<>();
+      while (scanner.hasNext()) {
+        messages.add(scanner.next());
+      }
+      assertThat(messages).hasSize(NCOPIES);
+
+      DataDescriptor root0 = messages.get(0).getRootDataDescriptor();
+      for (Message m : messages) {
+        DataDescriptor root = m.getRootDataDescriptor();
+        assertThat(root.hashCode2()).isEqualTo(root0.hashCode2());
+        assertThat(m.isBitCountOk()).isTrue();
+        if (m != messages.get(0)) {
+          assertThat(root).isNotSameInstanceAs(root0);
+          assertThat(root.getSubKeys().get(0)).isNotSameInstanceAs(root0.getSubKeys().get(0));
+        }
+      }
+      assertThat(DataDescriptorTreeCache.getStats().missCount()).isEqualTo(1);
+      assertThat(DataDescriptorTreeCache.getStats().hitCount()).isEqualTo(NCOPIES - 1);
+    } finally {
+      DataDescriptorTreeCache.init(1000);
+    }
+  }
+}
@@ -6,6 +6,9 @@ package ucar.array;
 
 import com.google.common.base.Objects;
 import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.PrimitiveIterator;
+import java.util.function.DoubleConsumer;
 import javax.annotation.concurrent.Immutable;
 
 /** Superclass for implementations of multidimensional arrays. */
@@ -32,6 +35,130 @@ public abstract class Array<T> implements Iterable<T> {
    */
   public abstract T get(Index index);
 
+  /**
+   * Get the element indicated by the list of multidimensional indices as a double, without boxing.
+   * Unsigned integers are converted as unsigned.
+   *
+   * @param index list of indices, one for each dimension.
+   * @throws UnsupportedOperationException if the ArrayType is not numeric.
+   */
+  public double getDouble(int... index) {
+    return storageDouble(indexFn.get(index));
+  }
+
+  /** Get the element indicated by Index as a double, without boxing. */
+  public double getDouble(Index index) {
+    return getDouble(index.getCurrentIndex());
+  }
+
+  /**
+   * Get the element as a double, without boxing.
+   *
+   * @param elem the element number, in canonical order, 0 &le; elem &lt; length().
+   */
+  public double getDouble(long elem) {
+    return storageDouble(indexFn.storageIndex(elem));
+  }
+
+  /**
+   * Get the element indicated by the list of multidimensional indices as a float, without boxing.
+   * Unsigned integers are converted as unsigned.
+   *
+   * @param index list of indices, one for each dimension.
+   * @throws UnsupportedOperationException if the ArrayType is not numeric.
+   */
+  public float getFloat(int... index) {
+    return storageFloat(indexFn.get(index));
+  }
+
+  /** Get the element indicated by Index as a float, without boxing. */
+  public float getFloat(Index index) {
+    return getFloat(index.getCurrentIndex());
+  }
+
+  /**
+   * Get the element as a float, without boxing.
+   *
+   * @param elem the element number, in canonical order, 0 &le; elem &lt; length().
+   */
+  public float getFloat(long elem) {
+    return storageFloat(indexFn.storageIndex(elem));
+  }
+
+  /**
+   * Iterates in canonical order over all the elements of a numeric Array as doubles, without boxing.
+   *
+   * @throws UnsupportedOperationException if the ArrayType is not numeric.
+   */
+  public PrimitiveIterator.OfDouble doubleIterator() {
+    checkNumeric();
+    return new DoubleIterator();
+  }
+
+  /**
+   * Call the action on all the elements of a numeric Array as doubles, in canonical order, without boxing.
+   *
+   * @throws UnsupportedOperationException if the ArrayType is not numeric.
+   */
+  public void forEachDouble(DoubleConsumer action) {
+    checkNumeric();
+    if (indexFn.isCanonicalOrder()) {
+      int n = (int) length();
+      for (int elem = 0; elem < n; elem++) {
+        action.accept(storageDouble(elem));
+      }
+    } else {
+      PrimitiveIterator.OfInt iter = indexFn.storageIterator();
+      while (iter.hasNext()) {
+        action.accept(storageDouble(iter.nextInt()));
+      }
+    }
+  }
+
+  /**
+   * Copy all the elements of a numeric Array in canonical order into dest, starting at destPos.
+   *
+   * @throws UnsupportedOperationException if the ArrayType is not numeric.
+   * @throws IndexOutOfBoundsException if dest does not have room for length() values.
+   */
+  public void copyTo(double[] dest, int destPos) {
+    checkNumeric();
+    checkCopy(dest.length, destPos);
+    int n = (int) length();
+    if (indexFn.isCanonicalOrder()) {
+      for (int elem = 0; elem < n; elem++) {
+        dest[destPos + elem] = storageDouble(elem);
+      }
+    } else {
+      PrimitiveIterator.OfInt iter = indexFn.storageIterator();
+      for (int count = 0; count < n; count++) {
+        dest[destPos + count] = storageDouble(iter.nextInt());
+      }
+    }
+  }
+
+  /**
+   * Copy all the elements of a numeric Array in canonical order into dest, starting at destPos.
+   *
+   * @throws UnsupportedOperationException if the ArrayType is not numeric.
+   * @throws IndexOutOfBoundsException if dest does not have room for length() values.
+   */
+  public void copyTo(float[] dest, int destPos) {
+    checkNumeric();
+    checkCopy(dest.length, destPos);
+    int n = (int) length();
+    if (indexFn.isCanonicalOrder()) {
+      for (int elem = 0; elem < n; elem++) {
+        dest[destPos + elem] = storageFloat(elem);
+      }
+    } else {
+      PrimitiveIterator.OfInt iter = indexFn.storageIterator();
+      for (int count = 0; count < n; count++) {
+        dest[destPos + count] = storageFloat(iter.nextInt());
+      }
+    }
+  }
+
   /** Get the first element of the Array */
   public T getScalar() {
     return this.get(this.getIndex());
@@ -131,6 +258,29 @@ public abstract class Array<T> implements Iterable<T> {
 
   abstract void arraycopy(int srcPos, Object dest, int destPos, long length);
 
+  /** Get the element at the given index of the underlying storage as a double. Numeric types override. */
+  double storageDouble(int storageIndex) {
+    throw new UnsupportedOperationException("Array of type " + arrayType + " is not numeric");
+  }
+
+  /** Get the element at the given index of the underlying storage as a float. */
+  float storageFloat(int storageIndex) {
+    return (float) storageDouble(storageIndex);
+  }
+
+  private void checkNumeric() {
+    if (!arrayType.isNumeric()) {
+      throw new UnsupportedOperationException("Array of type " + arrayType + " is not numeric");
+    }
+  }
+
+  void checkCopy(int destLength, int destPos) {
+    if (destPos < 0 || destLength - destPos < length()) {
+      throw new IndexOutOfBoundsException(
+          String.format("dest length %d from %d has no room for %d values", destLength, destPos, length()));
+    }
+  }
+
   /** Get underlying storage. */
   abstract Storage<T> storage();
 
@@ -147,5 +297,27 @@ public abstract class Array<T> implements Iterable<T> {
    */
   abstract Array<T> createView(IndexFn view);
 
+  // iterates over a numeric Array as doubles
+  private class DoubleIterator implements PrimitiveIterator.OfDouble {
+    private final PrimitiveIterator.OfInt storageIter = indexFn.isCanonicalOrder() ? null : indexFn.storageIterator();
+    private final long n = length();
+    private int count = 0;
+
+    @Override
+    public boolean hasNext() {
+      return count < n;
+    }
+
+    @Override
+    public double nextDouble() {
+      if (count >= n) {
+        throw new NoSuchElementException();
+      }
+      int storageIndex = (storageIter == null) ? count : storageIter.nextInt();
+      count++;
+      return storageDouble(storageIndex);
+    }
+  }
+
 }
 
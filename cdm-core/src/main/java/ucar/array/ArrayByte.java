@@ -9,17 +9,20 @@ import com.google.common.base.Preconditions;
 import com.google.protobuf.ByteString;
 import java.nio.ByteBuffer;
 import java.util.Iterator;
+import javax.annotation.Nullable;
 import javax.annotation.concurrent.Immutable;
 
 /** Concrete implementation of Array specialized for Byte. */
 @Immutable
 final class ArrayByte extends Array<Byte> {
   private final Storage<Byte> storage;
+  private final byte[] values; // the primitive array of StorageS, else null
 
   /** Create an empty Array of type Byte and the given shape. */
   ArrayByte(ArrayType dtype, int[] shape) {
     super(dtype, shape);
     storage = new StorageS(new byte[(byte) indexFn.length()]);
+    this.values = primitiveArray(this.storage);
   }
 
   /** Create an Array of type Byte and the given shape and storage. */
@@ -27,6 +30,7 @@ final class ArrayByte extends Array<Byte> {
     super(dtype, shape);
     Preconditions.checkArgument(indexFn.length() <= storage.length());
     this.storage = storage;
+    this.values = primitiveArray(this.storage);
   }
 
   /** Create an Array of type Byte and the given indexFn and storage. */
@@ -34,6 +38,7 @@ final class ArrayByte extends Array<Byte> {
     super(dtype, indexFn);
     Preconditions.checkArgument(indexFn.length() <= storageD.length());
     this.storage = storageD;
+    this.values = primitiveArray(this.storage);
   }
 
   @Override
@@ -161,6 +166,17 @@ final class ArrayByte extends Array<Byte> {
     return Arrays.factory(ArrayType.STRING, outerShape, result);
   }
 
+  @Override
+  double storageDouble(int storageIndex) {
+    byte v = (values != null) ? values[storageIndex] : storage.get(storageIndex);
+    return arrayType.isUnsigned() ? Byte.toUnsignedInt(v) : v;
+  }
+
+  @Nullable
+  private static byte[] primitiveArray(Storage<?> storage) {
+    return (storage instanceof StorageS) ? ((StorageS) storage).storage : null;
+  }
+
   @Override
   Storage<Byte> storage() {
     return storage;
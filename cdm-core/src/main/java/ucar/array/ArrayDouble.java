@@ -10,17 +10,20 @@ import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Iterator;
 import java.util.List;
+import javax.annotation.Nullable;
 import javax.annotation.concurrent.Immutable;
 
 /** Concrete implementation of Array specialized for doubles. */
 @Immutable
 final class ArrayDouble extends ucar.array.Array<Double> {
   private final Storage<Double> storageD;
+  private final double[] values; // the primitive array of StorageD, else null
 
   /** Create an empty Array of type double and the given shape. */
   ArrayDouble(int[] shape) {
     super(ArrayType.DOUBLE, shape);
     storageD = new StorageD(new double[(int) indexFn.length()]);
+    this.values = primitiveArray(this.storageD);
   }
 
   /** Create an Array of type double and the given shape and storage. */
@@ -28,6 +31,7 @@ final class ArrayDouble extends ucar.array.Array<Double> {
     super(ArrayType.DOUBLE, shape);
     Preconditions.checkArgument(indexFn.length() <= storageD.length());
     this.storageD = storageD;
+    this.values = primitiveArray(this.storageD);
   }
 
   /** Create an Array of type double and the given indexFn and storage. */
@@ -35,6 +39,7 @@ final class ArrayDouble extends ucar.array.Array<Double> {
     super(ArrayType.DOUBLE, indexFn);
     Preconditions.checkArgument(indexFn.length() <= storageD.length());
     this.storageD = storageD;
+    this.values = primitiveArray(this.storageD);
   }
 
   @Override
@@ -71,6 +76,26 @@ final class ArrayDouble extends ucar.array.Array<Double> {
     }
   }
 
+  @Override
+  double storageDouble(int storageIndex) {
+    return (values != null) ? values[storageIndex] : storageD.get(storageIndex);
+  }
+
+  @Override
+  public void copyTo(double[] dest, int destPos) {
+    if (indexFn.isCanonicalOrder()) {
+      checkCopy(dest.length, destPos);
+      storageD.arraycopy(0, dest, destPos, length());
+    } else {
+      super.copyTo(dest, destPos);
+    }
+  }
+
+  @Nullable
+  private static double[] primitiveArray(Storage<?> storage) {
+    return (storage instanceof StorageD) ? ((StorageD) storage).storage : null;
+  }
+
   @Override
   Storage<Double> storage() {
     return storageD;
@@ -10,18 +10,21 @@ import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Iterator;
 import java.util.List;
+import javax.annotation.Nullable;
 import javax.annotation.concurrent.Immutable;
 
 /** Concrete implementation of Array specialized for floats. */
 @Immutable
 final class ArrayFloat extends Array<Float> {
   private final Storage<Float> storageF;
+  private final float[] values; // the primitive array of StorageF, else null
 
   // LOOK whats the point if you cant change the storage?
   /** Create an empty Array of type float and the given shape. */
   ArrayFloat(int[] shape) {
     super(ArrayType.FLOAT, shape);
     storageF = new StorageF(new float[(int) indexFn.length()]);
+    this.values = primitiveArray(this.storageF);
   }
 
   /** Create an Array of type float and the given shape and storage. */
@@ -29,6 +32,7 @@ final class ArrayFloat extends Array<Float> {
     super(ArrayType.FLOAT, shape);
     Preconditions.checkArgument(indexFn.length() <= storageF.length());
     this.storageF = storageF;
+    this.values = primitiveArray(this.storageF);
   }
 
   /** Create an Array of type float and the given indexFn and storage. */
@@ -36,6 +40,7 @@ final class ArrayFloat extends Array<Float> {
     super(ArrayType.FLOAT, indexFn);
     Preconditions.checkArgument(indexFn.length() <= storageF.length());
     this.storageF = storageF;
+    this.values = primitiveArray(this.storageF);
   }
 
   @Override
@@ -72,6 +77,31 @@ final class ArrayFloat extends Array<Float> {
     }
   }
 
+  @Override
+  double storageDouble(int storageIndex) {
+    return (values != null) ? values[storageIndex] : storageF.get(storageIndex);
+  }
+
+  @Override
+  float storageFloat(int storageIndex) {
+    return (values != null) ? values[storageIndex] : storageF.get(storageIndex);
+  }
+
+  @Override
+  public void copyTo(float[] dest, int destPos) {
+    if (indexFn.isCanonicalOrder()) {
+      checkCopy(dest.length, destPos);
+      storageF.arraycopy(0, dest, destPos, length());
+    } else {
+      super.copyTo(dest, destPos);
+    }
+  }
+
+  @Nullable
+  private static float[] primitiveArray(Storage<?> storage) {
+    return (storage instanceof StorageF) ? ((StorageF) storage).storage : null;
+  }
+
   @Override
   Storage<Float> storage() {
     return storageF;
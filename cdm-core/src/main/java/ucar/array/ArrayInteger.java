@@ -6,17 +6,20 @@ package ucar.array;
 
 import com.google.common.base.Preconditions;
 import java.util.Iterator;
+import javax.annotation.Nullable;
 import javax.annotation.concurrent.Immutable;
 
 /** Concrete implementation of Array specialized for Integer. */
 @Immutable
 class ArrayInteger extends Array<Integer> {
   private final Storage<Integer> storage;
+  private final int[] values; // the primitive array of StorageS, else null
 
   /** Create an empty Array of type Integer and the given shape. */
   ArrayInteger(ArrayType dtype, int[] shape) {
     super(dtype, shape);
     storage = new StorageS(new int[(int) indexFn.length()]);
+    this.values = primitiveArray(this.storage);
   }
 
   /** Create an Array of type Integer and the given shape and storage. */
@@ -26,6 +29,7 @@ class ArrayInteger extends Array<Integer> {
       throw new IllegalArgumentException(String.format("shape %d > storage %d", indexFn.length(), storage.length()));
     }
     this.storage = storage;
+    this.values = primitiveArray(this.storage);
   }
 
   /** Create an Array of type Integer and the given indexFn and storage. */
@@ -33,6 +37,7 @@ class ArrayInteger extends Array<Integer> {
     super(dtype, indexFn);
     Preconditions.checkArgument(indexFn.length() <= storageD.length());
     this.storage = storageD;
+    this.values = primitiveArray(this.storage);
   }
 
   @Override
@@ -69,6 +74,17 @@ class ArrayInteger extends Array<Integer> {
     }
   }
 
+  @Override
+  double storageDouble(int storageIndex) {
+    int v = (values != null) ? values[storageIndex] : storage.get(storageIndex);
+    return arrayType.isUnsigned() ? Integer.toUnsignedLong(v) : v;
+  }
+
+  @Nullable
+  private static int[] primitiveArray(Storage<?> storage) {
+    return (storage instanceof StorageS) ? ((StorageS) storage).storage : null;
+  }
+
   @Override
   Storage<Integer> storage() {
     return storage;
@@ -6,17 +6,20 @@ package ucar.array;
 
 import com.google.common.base.Preconditions;
 import java.util.Iterator;
+import javax.annotation.Nullable;
 import javax.annotation.concurrent.Immutable;
 
 /** Concrete implementation of Array specialized for Long. */
 @Immutable
 final class ArrayLong extends Array<Long> {
   private final Storage<Long> storage;
+  private final long[] values; // the primitive array of StorageS, else null
 
   /** Create an empty Array of type Long and the given shape. */
   ArrayLong(ArrayType dtype, int[] shape) {
     super(dtype, shape);
     storage = new StorageS(new long[(int) indexFn.length()]);
+    this.values = primitiveArray(this.storage);
   }
 
   /** Create an Array of type Long and the given shape and storage. */
@@ -24,6 +27,7 @@ final class ArrayLong extends Array<Long> {
     super(dtype, shape);
     Preconditions.checkArgument(indexFn.length() <= storage.length());
     this.storage = storage;
+    this.values = primitiveArray(this.storage);
   }
 
   /** Create an Array of type Long and the given indexFn and storage. */
@@ -31,6 +35,7 @@ final class ArrayLong extends Array<Long> {
     super(dtype, indexFn);
     Preconditions.checkArgument(indexFn.length() <= storageD.length());
     this.storage = storageD;
+    this.values = primitiveArray(this.storage);
   }
 
   @Override
@@ -67,6 +72,22 @@ final class ArrayLong extends Array<Long> {
     }
   }
 
+  @Override
+  double storageDouble(int storageIndex) {
+    long v = (values != null) ? values[storageIndex] : storage.get(storageIndex);
+    return arrayType.isUnsigned() ? unsignedToDouble(v) : v;
+  }
+
+  @Nullable
+  private static long[] primitiveArray(Storage<?> storage) {
+    return (storage instanceof StorageS) ? ((StorageS) storage).storage : null;
+  }
+
+  private static double unsignedToDouble(long v) {
+    // halve, keeping the low bit so that the result is correctly rounded
+    return (v >= 0) ? v : (double) ((v >>> 1) | (v & 1)) * 2;
+  }
+
   @Override
   Storage<Long> storage() {
     return storage;
@@ -6,17 +6,20 @@ package ucar.array;
 
 import com.google.common.base.Preconditions;
 import java.util.Iterator;
+import javax.annotation.Nullable;
 import javax.annotation.concurrent.Immutable;
 
 /** Concrete implementation of Array specialized for Short. */
 @Immutable
 final class ArrayShort extends Array<Short> {
   private final Storage<Short> storage;
+  private final short[] values; // the primitive array of StorageS, else null
 
   /** Create an empty Array of type Short and the given shape. */
   ArrayShort(ArrayType dtype, int[] shape) {
     super(dtype, shape);
     storage = new StorageS(new short[(int) indexFn.length()]);
+    this.values = primitiveArray(this.storage);
   }
 
   /** Create an Array of type Short and the given shape and storage. */
@@ -24,6 +27,7 @@ final class ArrayShort extends Array<Short> {
     super(dtype, shape);
     Preconditions.checkArgument(indexFn.length() <= storage.length());
     this.storage = storage;
+    this.values = primitiveArray(this.storage);
   }
 
   /** Create an Array of type Short and the given indexFn and storage. */
@@ -31,6 +35,7 @@ final class ArrayShort extends Array<Short> {
     super(dtype, indexFn);
     Preconditions.checkArgument(indexFn.length() <= storageD.length());
     this.storage = storageD;
+    this.values = primitiveArray(this.storage);
   }
 
   @Override
@@ -67,6 +72,17 @@ final class ArrayShort extends Array<Short> {
     }
   }
 
+  @Override
+  double storageDouble(int storageIndex) {
+    short v = (values != null) ? values[storageIndex] : storage.get(storageIndex);
+    return arrayType.isUnsigned() ? Short.toUnsignedInt(v) : v;
+  }
+
+  @Nullable
+  private static short[] primitiveArray(Storage<?> storage) {
+    return (storage instanceof StorageS) ? ((StorageS) storage).storage : null;
+  }
+
   @Override
   Storage<Short> storage() {
     return storage;
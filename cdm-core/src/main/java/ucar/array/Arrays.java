@@ -182,50 +182,64 @@ public class Arrays {
     if (size > Integer.MAX_VALUE) {
       throw new OutOfMemoryError();
     }
-    Object all;
+    Object all = makePrimitiveArray(dataType, (int) size);
 
+    int start = 0;
+    for (Array<?> dataArray : dataArrays) {
+      dataArray.arraycopy(0, all, start, dataArray.length());
+      start += dataArray.length();
+    }
+    return all;
+  }
+
+  /**
+   * Make a java primitive array, or java array of String, to be used as the storage of an Array of the given type.
+   * Use with {@link #arraycopy(Array, Object, int)} and {@link #factory(ArrayType, int[], Object)} to assemble an
+   * Array from pieces.
+   *
+   * @param dataType data type of the Array. Not Vlens or Structures.
+   * @param size number of elements.
+   */
+  public static Object makePrimitiveArray(ArrayType dataType, int size) {
     switch (dataType) {
+      case OPAQUE:
+      case BOOLEAN:
       case BYTE:
+      case CHAR:
       case ENUM1:
       case UBYTE:
-        all = new byte[(int) size];
-        break;
-      case CHAR:
-        all = new char[(int) size];
-        break;
+        return new byte[size];
       case DOUBLE:
-        all = new double[(int) size];
-        break;
+        return new double[size];
       case FLOAT:
-        all = new float[(int) size];
-        break;
+        return new float[size];
       case INT:
       case ENUM4:
       case UINT:
-        all = new int[(int) size];
-        break;
+        return new int[size];
       case LONG:
       case ULONG:
-        all = new long[(int) size];
-        break;
+        return new long[size];
       case SHORT:
       case ENUM2:
       case USHORT:
-        all = new short[(int) size];
-        break;
+        return new short[size];
       case STRING:
-        all = new String[(int) size];
-        break;
+        return new String[size];
       default:
         throw new RuntimeException(" ArrayType " + dataType);
     }
+  }
 
-    int start = 0;
-    for (Array<?> dataArray : dataArrays) {
-      dataArray.arraycopy(0, all, start, dataArray.length());
-      start += dataArray.length();
-    }
-    return all;
+  /**
+   * Copy all the elements of src in canonical order into dest, starting at destPos.
+   *
+   * @param src copy from this Array.
+   * @param dest made by {@link #makePrimitiveArray(ArrayType, int)} with the ArrayType of src.
+   * @param destPos starting position in dest.
+   */
+  public static void arraycopy(Array<?> src, Object dest, int destPos) {
+    src.arraycopy(0, dest, destPos, src.length());
   }
 
   // The only advantage over copying AFAICT is that it can handle arrays > 2G. as long as its broken up into
@@ -7,6 +7,8 @@ package ucar.array;
 import com.google.common.base.Preconditions;
 import java.util.HashSet;
 import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.PrimitiveIterator;
 import java.util.Set;
 import javax.annotation.concurrent.Immutable;
 
@@ -109,6 +111,31 @@ final class IndexFn implements Iterable<Integer> {
     return shape.length > 0 && shape[shape.length - 1] < 0;
   }
 
+  /**
+   * Get the 1-d index into the backing store of the element, without allocating.
+   *
+   * @param elem the element number, in canonical order.
+   */
+  int storageIndex(long elem) {
+    if (elem < 0 || elem >= length) {
+      throw new IllegalArgumentException(String.format("IndexFn.storageIndex(%d) not inside of length %d", elem, length));
+    }
+    if (canonicalOrder) {
+      return (int) elem;
+    }
+    int result = offset;
+    for (int dim = rank - 1; dim >= 0; dim--) {
+      result += (int) (elem % shape[dim]) * stride[dim];
+      elem /= shape[dim];
+    }
+    return result;
+  }
+
+  /** Iterates over the 1-d indices into the backing store, in canonical order, without boxing. Not for vlen. */
+  PrimitiveIterator.OfInt storageIterator() {
+    return new StorageIndexIterator();
+  }
+
   /**
    * Create a new Index based on current one, except
    * flip the index so that it runs from shape[index]-1 to 0.
@@ -389,6 +416,36 @@ final class IndexFn implements Iterable<Integer> {
     return odometer;
   }
 
+  // Like Odometer, but updates the 1-d index incrementally.
+  private final class StorageIndexIterator implements PrimitiveIterator.OfInt {
+    private final int[] current = new int[rank];
+    private long count = 0;
+    private int nextIndex = offset;
+
+    @Override
+    public boolean hasNext() {
+      return count < length;
+    }
+
+    @Override
+    public int nextInt() {
+      if (count >= length) {
+        throw new NoSuchElementException();
+      }
+      int result = nextIndex;
+      count++;
+      for (int digit = rank - 1; digit >= 0; digit--) {
+        if (++current[digit] < shape[digit]) {
+          nextIndex += stride[digit];
+          break;
+        }
+        current[digit] = 0; // carry
+        nextIndex -= stride[digit] * (shape[digit] - 1);
+      }
+      return result;
+    }
+  }
+
   private class Odometer implements Iterator<Integer> {
     private final long nelems;
     private final int[] current;
@@ -590,6 +590,32 @@ public class NetcdfFiles {
 
   //////////////////////////////////////////////////////////////////////////////////////////////////////
 
+  /**
+   * Open a local file (read only) by memory mapping it, instead of reading through a buffer.
+   * Use for large files that are read many times. To map all large local files opened through open(), use
+   * {@link ucar.unidata.io.RandomAccessFile#setMemoryMapThreshold}.
+   *
+   * @param location location of the file, must be a local file, with a file: prefix or no prefix.
+   * @param cancelTask allow task to be cancelled; may be null.
+   * @return a NetcdfFile that reads from the memory mapped file
+   * @throws IOException if error
+   */
+  public static NetcdfFile openMapped(String location, ucar.nc2.util.CancelTask cancelTask) throws IOException {
+    String filename = StringUtil2.replace(location.trim(), '\\', "/");
+    if (filename.startsWith("file:")) {
+      filename = StringUtil2.unescape(filename.substring(5));
+    }
+    ucar.unidata.io.RandomAccessFile raf = new ucar.unidata.io.MappedRandomAccessFile(filename);
+    try {
+      return open(raf, location, cancelTask, null);
+    } catch (Throwable t) {
+      raf.close();
+      throw t;
+    }
+  }
+
+  //////////////////////////////////////////////////////////////////////////////////////////////////////
+
   /**
    * Read a local CDM file into memory. All reads are then done from memory.
    *
@@ -1,16 +1,37 @@
 package ucar.nc2.ft.point;
 
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
 import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
 import java.io.IOException;
+import java.nio.ByteBuffer;
 import java.util.*;
+import javax.annotation.Nullable;
 import com.google.common.base.Preconditions;
+import ucar.ma2.ArrayStructureBB;
+import ucar.ma2.StructureData;
+import ucar.ma2.StructureMembers;
 import ucar.nc2.constants.FeatureType;
+import ucar.nc2.ft.DsgFeatureCollection;
 import ucar.nc2.ft.FeatureDatasetFactoryManager;
 import ucar.nc2.ft.FeatureDatasetPoint;
 import ucar.nc2.ft.PointFeatureIterator;
+import ucar.nc2.ft.point.remote.PointStream;
+import ucar.nc2.ft.point.remote.PointStreamProto;
 import ucar.nc2.units.DateUnit;
 
 /**
+ * Sorts StationPointFeatures with a Comparator. Features that compare equal are kept in the order they were added.
+ * <p>
+ * By default all features are kept in memory. When constructed with a memory budget, the features are kept in memory
+ * until their estimated size exceeds the budget; they are then sorted and written ("spilled") to a temporary file
+ * as a sorted run, using the PointStream encoding. getPointFeatureIterator() merges the runs and the features still
+ * in memory, reading each run sequentially. Call close() to delete the temporary files.
  *
  * @author cwardgar
  * @since 2014/08/21
@@ -18,11 +39,28 @@ import ucar.nc2.units.DateUnit;
 // This class ought to be a PointFeatureCollection, by extending PointCollectionImpl.
 // However, we do not have the timeUnit and altUnits that the constructor requires. Does it really need
 // that info? Can't it calculate it from one of its features? That interface may need to be re-thought.
-public class SortingStationPointFeatureCache {
+public class SortingStationPointFeatureCache implements Closeable {
   public static final Comparator<StationPointFeature> stationNameComparator =
       Comparator.comparing(pointFeat -> pointFeat.getAsStationFeature().getStation().getName());
 
-  private final SortedMap<StationPointFeature, List<StationPointFeature>> inMemCache;
+  private final Comparator<StationPointFeature> comp;
+  private final long maxBytesInMemory;
+  @Nullable
+  private final File tempDir;
+
+  private final List<StationPointFeature> inMemCache = new ArrayList<>();
+  private boolean inMemSorted = true;
+
+  // spilled runs, in the order written
+  private final List<Run> runs = new ArrayList<>();
+  private final List<Merger> openMergers = new ArrayList<>();
+  private long spilledBytes;
+  private long spilledFeatures;
+
+  // the first copy of each station's features, used to decode spilled features
+  private final Map<String, Integer> stationIndex = new HashMap<>();
+  private final List<StationPointFeature> stationProtos = new ArrayList<>();
+  private StructureMembers spillMembers;
 
   private volatile StationFeatureCopyFactory stationFeatCopyFactory;
 
@@ -32,13 +70,29 @@ public class SortingStationPointFeatureCache {
 
   // We're going to init stationFeatCopyFactory using the first feat that's add()ed.
   public SortingStationPointFeatureCache(Comparator<StationPointFeature> comp) {
-    this.inMemCache = new TreeMap<>(Preconditions.checkNotNull(comp, "comp == null"));
+    this(comp, Long.MAX_VALUE, null);
     // stationFeatCopyFactory remains null.
   }
 
+  /**
+   * Sort with bounded memory.
+   *
+   * @param comp sort features with this
+   * @param maxBytesInMemory approximate maximum bytes of features to keep in memory before spilling a sorted run to
+   *        disk. Long.MAX_VALUE means never spill.
+   * @param tempDir directory for the temporary files, or null to use java.io.tmpdir
+   */
+  public SortingStationPointFeatureCache(Comparator<StationPointFeature> comp, long maxBytesInMemory,
+      @Nullable File tempDir) {
+    Preconditions.checkArgument(maxBytesInMemory > 0, "maxBytesInMemory must be > 0");
+    this.comp = Preconditions.checkNotNull(comp, "comp == null");
+    this.maxBytesInMemory = maxBytesInMemory;
+    this.tempDir = tempDir;
+  }
+
   public SortingStationPointFeatureCache(Comparator<StationPointFeature> comp, StationPointFeature proto,
       DateUnit dateUnit) throws IOException {
-    this.inMemCache = new TreeMap<>(Preconditions.checkNotNull(comp, "comp == null"));
+    this(comp);
 
     if (proto != null && dateUnit != null) {
       this.stationFeatCopyFactory = new StationFeatureCopyFactory(proto);
@@ -47,11 +101,20 @@ public class SortingStationPointFeatureCache {
 
   public void add(StationPointFeature feat) throws IOException {
     Preconditions.checkNotNull(feat, "feat == null");
-    StationPointFeature featCopy = getStationFeatureCopyFactory(feat).deepCopy(feat);
+    StationFeatureCopyFactory factory = getStationFeatureCopyFactory(feat);
+    StationPointFeature featCopy = factory.deepCopy(feat);
 
-    List<StationPointFeature> bucket = inMemCache.computeIfAbsent(featCopy, k -> new LinkedList<>());
+    String stationName = featCopy.getAsStationFeature().getStation().getName();
+    if (!stationIndex.containsKey(stationName)) {
+      stationIndex.put(stationName, stationProtos.size());
+      stationProtos.add(featCopy);
+    }
 
-    bucket.add(featCopy);
+    if (!inMemCache.isEmpty() && (inMemCache.size() + 1) * (long) factory.getSizeInBytes() > maxBytesInMemory) {
+      spill();
+    }
+    inMemCache.add(featCopy);
+    inMemSorted = false;
   }
 
   public void addAll(File datasetFile) throws IOException {
@@ -71,6 +134,21 @@ public class SortingStationPointFeatureCache {
     }
   }
 
+  /** Number of sorted runs written to disk. */
+  public int getSpilledRuns() {
+    return runs.size();
+  }
+
+  /** Number of features written to disk. */
+  public long getSpilledFeatures() {
+    return spilledFeatures;
+  }
+
+  /** Number of bytes written to disk. */
+  public long getSpilledBytes() {
+    return spilledBytes;
+  }
+
   // Double-check idiom for lazy initialization of instance fields. See Effective Java 2nd Ed, p. 283.
   private StationFeatureCopyFactory getStationFeatureCopyFactory(StationPointFeature proto) throws IOException {
     if (stationFeatCopyFactory == null) {
@@ -89,31 +167,75 @@ public class SortingStationPointFeatureCache {
     return new StationFeatureCopyFactory(proto);
   }
 
+  private void sortInMemory() {
+    if (!inMemSorted) {
+      inMemCache.sort(comp); // stable
+      inMemSorted = true;
+    }
+  }
+
+  // Each feature is written as: station index (int), size (int), PointStreamProto.PointFeature bytes
+  private void spill() throws IOException {
+    sortInMemory();
+    File file = File.createTempFile("sortedRun", ".bin", tempDir);
+    file.deleteOnExit();
+    Run run = new Run(file, inMemCache.size());
+    runs.add(run);
+
+    try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file), 64000))) {
+      for (StationPointFeature feat : inMemCache) {
+        byte[] b = PointStream.encodePointFeature(feat).toByteArray();
+        out.writeInt(stationIndex.get(feat.getAsStationFeature().getStation().getName()));
+        out.writeInt(b.length);
+        out.write(b);
+      }
+      spilledBytes += out.size();
+    }
+    spilledFeatures += inMemCache.size();
+    inMemCache.clear();
+  }
+
   // TODO: Once this method is called, prohibit any further additions to cache.
   public PointFeatureIterator getPointFeatureIterator() {
-    return new PointIteratorAdapter(new Iter());
+    sortInMemory();
+    if (runs.isEmpty()) {
+      return new PointIteratorAdapter(new Iter());
+    }
+
+    Merger merger = new Merger();
+    return new PointIteratorAdapter(merger) {
+      @Override
+      public void close() {
+        super.close();
+        merger.close();
+      }
+    };
+  }
+
+  /** Delete the temporary files. */
+  @Override
+  public void close() {
+    for (Merger merger : new ArrayList<>(openMergers)) {
+      merger.close();
+    }
+    for (Run run : runs) {
+      if (!run.file.delete()) {
+        run.file.deleteOnExit();
+      }
+    }
+    runs.clear();
   }
 
   private class Iter implements Iterator<StationPointFeature> {
-    private final Iterator<List<StationPointFeature>> bucketsIter;
-    private Iterator<StationPointFeature> featsIter;
+    private final Iterator<StationPointFeature> featsIter;
 
     public Iter() {
-      this.bucketsIter = inMemCache.values().iterator();
+      this.featsIter = inMemCache.iterator();
     }
 
     @Override
     public boolean hasNext() { // Method is idempotent.
-      while (featsIter == null || !featsIter.hasNext()) {
-        if (!bucketsIter.hasNext()) {
-          return false;
-        } else {
-          featsIter = bucketsIter.next().iterator();
-        }
-      }
-
-      assert featsIter != null && featsIter.hasNext();
-      return true;
+      return featsIter.hasNext();
     }
 
     @Override
@@ -130,4 +252,169 @@ public class SortingStationPointFeatureCache {
       throw new UnsupportedOperationException("Operation not supported by this iterator.");
     }
   }
+
+  private static class Run {
+    final File file;
+    final int nfeatures;
+
+    Run(File file, int nfeatures) {
+      this.file = file;
+      this.nfeatures = nfeatures;
+    }
+  }
+
+  // The current feature of one sorted run; runs added earlier have a lower order, to keep the sort stable.
+  private static class Cursor {
+    final int order;
+    final Iterator<StationPointFeature> iter;
+    StationPointFeature current;
+
+    Cursor(int order, Iterator<StationPointFeature> iter) {
+      this.order = order;
+      this.iter = iter;
+      this.current = iter.next();
+    }
+  }
+
+  // k-way merge of the spilled runs and the features in memory.
+  private class Merger implements Iterator<StationPointFeature>, Closeable {
+    private final PriorityQueue<Cursor> queue;
+    private final List<RunReader> readers = new ArrayList<>();
+
+    Merger() {
+      Comparator<Cursor> byFeature = (c1, c2) -> comp.compare(c1.current, c2.current);
+      this.queue = new PriorityQueue<>(byFeature.thenComparingInt(c -> c.order));
+      openMergers.add(this);
+      try {
+        for (int order = 0; order < runs.size(); order++) {
+          RunReader reader = new RunReader(runs.get(order));
+          readers.add(reader);
+          queue.add(new Cursor(order, reader));
+        }
+      } catch (IOException e) {
+        close();
+        throw new RuntimeException(e);
+      }
+      if (!inMemCache.isEmpty()) {
+        queue.add(new Cursor(runs.size(), inMemCache.iterator()));
+      }
+    }
+
+    @Override
+    public boolean hasNext() {
+      return !queue.isEmpty();
+    }
+
+    @Override
+    public StationPointFeature next() {
+      Cursor cursor = queue.poll();
+      if (cursor == null) {
+        throw new NoSuchElementException("There are no more elements.");
+      }
+      StationPointFeature result = cursor.current;
+      if (cursor.iter.hasNext()) {
+        cursor.current = cursor.iter.next();
+        queue.add(cursor);
+      }
+      return result;
+    }
+
+    @Override
+    public void close() {
+      for (RunReader reader : readers) {
+        reader.close();
+      }
+      readers.clear();
+      openMergers.remove(this);
+    }
+  }
+
+  // Reads a spilled run sequentially.
+  private class RunReader implements Iterator<StationPointFeature>, Closeable {
+    private final DataInputStream in;
+    private int remaining;
+
+    RunReader(Run run) throws IOException {
+      this.in = new DataInputStream(new BufferedInputStream(new FileInputStream(run.file), 64000));
+      this.remaining = run.nfeatures;
+    }
+
+    @Override
+    public boolean hasNext() {
+      return remaining > 0;
+    }
+
+    @Override
+    public StationPointFeature next() {
+      if (remaining <= 0) {
+        throw new NoSuchElementException("There are no more elements.");
+      }
+      try {
+        StationPointFeature proto = stationProtos.get(in.readInt());
+        byte[] b = new byte[in.readInt()];
+        in.readFully(b);
+        remaining--;
+        if (remaining == 0) {
+          close();
+        }
+        return decode(proto, PointStreamProto.PointFeature.parseFrom(b));
+      } catch (IOException e) {
+        throw new RuntimeException(e);
+      }
+    }
+
+    @Override
+    public void close() {
+      try {
+        in.close();
+      } catch (IOException e) {
+        // ignore
+      }
+    }
+  }
+
+  // makes a StationPointFeature from the protobuf message, as PointStream.ProtobufPointFeatureMaker does.
+  private StationPointFeature decode(StationPointFeature proto, PointStreamProto.PointFeature pfp)
+      throws IOException {
+    if (spillMembers == null) {
+      StructureMembers sm = proto.getFeatureData().getStructureMembers().toBuilder(false).build();
+      ArrayStructureBB.setOffsets(sm);
+      spillMembers = sm;
+    }
+    ByteBuffer bb = ByteBuffer.wrap(pfp.getData().toByteArray());
+    ArrayStructureBB asbb = new ArrayStructureBB(spillMembers, new int[] {1}, bb, 0);
+    for (String s : pfp.getSdataList()) {
+      asbb.addObjectToHeap(s);
+    }
+    PointStreamProto.Location locp = pfp.getLoc();
+    return new SpilledStationPointFeature(proto.getFeatureCollection(), proto.getAsStationFeature(), locp.getTime(),
+        locp.getNomTime(), asbb.getStructureData(0));
+  }
+
+  private static class SpilledStationPointFeature extends PointFeatureImpl implements StationPointFeature {
+    private final StationFeature sf;
+    private final StructureData data;
+
+    SpilledStationPointFeature(DsgFeatureCollection dsg, StationFeature sf, double obsTime, double nomTime,
+        StructureData data) {
+      super(dsg, sf.getStation(), obsTime, nomTime, dsg.getTimeUnit());
+      this.sf = sf;
+      this.data = data;
+    }
+
+    @Override
+    public StructureData getDataAll() {
+      return data;
+    }
+
+    @Override
+    public StructureData getFeatureData() {
+      return data;
+    }
+
+    @Override
+    public StationFeature getAsStationFeature() {
+      return sf;
+    }
+  }
 }
@@ -7,14 +7,16 @@ package ucar.nc2.ft2.coverage.adapter;
 import ucar.nc2.dataset.CoordinateAxis2D;
 import ucar.ma2.ArrayDouble;
 import ucar.ma2.MAMath;
+import ucar.unidata.geoloc.CurvilinearGridIndex;
 
 /**
  * fork ucar.nc2.dt.grid.GridCoordinate2D for adaption of GridCoverage
  *
  * 2D Coordinate System has lat(x,y) and lon(x,y).
  * This class implements finding the index (i,j) from (lat, lon) coord.
- * This is for "one-off" computation, not a systematic lookup table for all points in a pixel array.
- * Hueristic search of the 2D space for the cell that contains the point.
+ * findCoordElement() uses a CurvilinearGridIndex, made on first use, so repeated lookups are fast.
+ * The heuristic search of the 2D space for the cell that contains the point is used only for a best guess
+ * when the point is not in the grid.
  *
  * @author caron
  * @since Jul 10, 2009
@@ -27,6 +29,7 @@ public class GeoGridCoordinate2D {
   private final int nrows, ncols;
   private ArrayDouble.D2 latEdge, lonEdge;
   private MAMath.MinMax latMinMax, lonMinMax;
+  private CurvilinearGridIndex index;
 
   GeoGridCoordinate2D(CoordinateAxis2D latCoord, CoordinateAxis2D lonCoord) {
     this.latCoord = latCoord;
@@ -40,7 +43,7 @@ public class GeoGridCoordinate2D {
     ncols = shape[1];
   }
 
-  private void findBounds() {
+  private synchronized void findBounds() {
     if (lonMinMax != null)
       return;
 
@@ -86,10 +89,31 @@ public class GeoGridCoordinate2D {
     return false;
   }
 
+  /**
+   * Find the index for the given lat,lon point.
+   *
+   * @param wantLat lat of point
+   * @param wantLon lon of point
+   * @param rectIndex return (row,col) index, or best guess here. may not be null
+   *
+   * @return false if not in the grid.
+   */
   public boolean findCoordElement(double wantLat, double wantLon, int[] rectIndex) {
+    if (getCurvilinearIndex().findCoordElement(wantLat, wantLon, rectIndex))
+      return true;
     return findCoordElementNoForce(wantLat, wantLon, rectIndex);
   }
 
+  /** The spatial index of the grid cells, made on first use. Use for batch lookups. */
+  public synchronized CurvilinearGridIndex getCurvilinearIndex() {
+    if (index == null) {
+      findBounds();
+      index = CurvilinearGridIndex.fromEdges(nrows, ncols, (double[]) latEdge.get1DJavaArray(double.class),
+          (double[]) lonEdge.get1DJavaArray(double.class));
+    }
+    return index;
+  }
+
 
   /**
    * Find the best index for the given lat,lon point.
@@ -39,10 +39,8 @@ import ucar.nc2.ft2.coverage.HorizCoordSys;
 import ucar.nc2.ft2.coverage.SubsetParams;
 import ucar.nc2.calendar.CalendarDate;
 import ucar.nc2.write.NetcdfFormatWriter;
-import ucar.unidata.geoloc.LatLonPoint;
 import ucar.unidata.geoloc.LatLonRect;
 import ucar.unidata.geoloc.Projection;
-import ucar.unidata.geoloc.ProjectionPoint;
 import ucar.unidata.geoloc.projection.LatLonProjection;
 
 /**
@@ -466,15 +464,14 @@ public class CFGridCoverageWriter {
     double[] latData = new double[numX * numY];
     double[] lonData = new double[numX * numY];
 
-    // create the data
+    // create the data: fill in the x, y of each point, then convert in place
     for (int i = 0; i < numY; i++) {
       for (int j = 0; j < numX; j++) {
-        ProjectionPoint projPoint = ProjectionPoint.create(xData[j], yData[i]);
-        LatLonPoint latlonPoint = proj.projToLatLon(projPoint);
-        latData[i * numX + j] = latlonPoint.getLatitude();
-        lonData[i * numX + j] = latlonPoint.getLongitude();
+        latData[i * numX + j] = xData[j];
+        lonData[i * numX + j] = yData[i];
       }
     }
+    proj.projToLatLonParallel(latData, lonData, latData, lonData);
 
     Variable latVar = writer.findVariable("lat");
     assert latVar != null : "We should have added lat var in addLatLon2D().";
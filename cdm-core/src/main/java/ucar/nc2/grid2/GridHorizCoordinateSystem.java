@@ -293,7 +293,10 @@ public class GridHorizCoordinateSystem {
   }
 
   // LOOK needed?
-  /** From the (x,y) projection point, find the indices and coordinates of the horizontal 2D grid. */
+  /**
+   * From the (x,y) projection point, find the indices and coordinates of the horizontal 2D grid.
+   * For a curvilinear grid, the projection coordinates are lon, lat, see GridHorizCurvilinear.
+   */
   public Optional<CoordReturn> findXYindexFromCoord(double x, double y) {
     CoordReturn result = new CoordReturn();
 
@@ -11,6 +11,7 @@ import ucar.array.Array;
 import ucar.array.ArrayType;
 import ucar.array.Arrays;
 import ucar.array.MinMax;
+import ucar.unidata.geoloc.CurvilinearGridIndex;
 import ucar.unidata.geoloc.LatLonPoint;
 import ucar.unidata.geoloc.LatLonPoints;
 import ucar.unidata.geoloc.LatLonRect;
@@ -19,11 +20,17 @@ import ucar.unidata.geoloc.ProjectionPoint;
 import ucar.unidata.geoloc.ProjectionRect;
 import ucar.unidata.geoloc.projection.Curvilinear;
 
+import java.util.Optional;
+
+/** A GridHorizCoordinateSystem with 2D lat/lon coordinates. The x and y axes are the indices into the 2D arrays. */
 public class GridHorizCurvilinear extends GridHorizCoordinateSystem {
+  private final Array<Number> latdata;
+  private final Array<Number> londata;
   private final Array<Double> latedge;
   private final Array<Double> lonedge;
   private LatLonRect llbb;
   private ProjectionRect mapArea;
+  private CurvilinearGridIndex index;
 
   public static GridHorizCurvilinear create(GridAxisPoint xaxis, GridAxisPoint yaxis, Array<Number> latdata,
       Array<Number> londata) {
@@ -40,6 +47,8 @@ public class GridHorizCurvilinear extends GridHorizCoordinateSystem {
   private GridHorizCurvilinear(GridAxisPoint xaxis, GridAxisPoint yaxis, Projection projection, Array<Number> latdata,
       Array<Number> londata) {
     super(xaxis, yaxis, projection);
+    this.latdata = latdata;
+    this.londata = londata;
     this.latedge = makeEdges(latdata);
     this.lonedge = makeEdges(londata);
   }
@@ -83,11 +92,50 @@ public class GridHorizCurvilinear extends GridHorizCoordinateSystem {
     return mapArea;
   }
 
+  /**
+   * From the (x,y) projection point, find the indices of the grid cell that contains it, and the lon, lat of the cell
+   * midpoint. The projection coordinates are those of getBoundingBox(), a LatLonProjection, so x is the longitude in
+   * any range and y the latitude.
+   */
+  @Override
+  public Optional<CoordReturn> findXYindexFromCoord(double x, double y) {
+    LatLonPoint latlon = projToLatLon(x, y);
+    CurvilinearGridIndex cellIndex = getCurvilinearIndex();
+    int cell = cellIndex.findCell(latlon.getLatitude(), latlon.getLongitude());
+    if (cell < 0) {
+      return Optional.empty();
+    }
+    CoordReturn result = new CoordReturn();
+    result.yindex = cell / cellIndex.getNcols();
+    result.xindex = cell % cellIndex.getNcols();
+    result.xcoord = londata.get(result.yindex, result.xindex).doubleValue();
+    result.ycoord = latdata.get(result.yindex, result.xindex).doubleValue();
+    return Optional.of(result);
+  }
+
+  /** The spatial index of the grid cells, made on first use. Use for batch lookups of (lat, lon) points. */
+  public synchronized CurvilinearGridIndex getCurvilinearIndex() {
+    if (index == null) {
+      int[] shape = latedge.getShape();
+      double[] lats = new double[(int) latedge.length()];
+      double[] lons = new double[(int) lonedge.length()];
+      latedge.copyTo(lats, 0);
+      lonedge.copyTo(lons, 0);
+      index = CurvilinearGridIndex.fromEdges(shape[0] - 1, shape[1] - 1, lats, lons);
+    }
+    return index;
+  }
+
   // from LatLonProjection
   private ProjectionPoint latLonToProj(LatLonPoint latlon, double centerLon) {
     return ProjectionPoint.create(LatLonPoints.lonNormal(latlon.getLongitude(), centerLon), latlon.getLatitude());
   }
 
+  // from LatLonProjection
+  private LatLonPoint projToLatLon(double x, double y) {
+    return LatLonPoint.create(y, x);
+  }
+
   @Override
   public Iterable<CoordBounds> bounds() {
     return () -> new BoundsIterator(getXHorizAxis().getNominalSize(), getYHorizAxis().getNominalSize());
@@ -0,0 +1,243 @@
+/*
+ * Copyright (c) 1998-2021 John Caron and University Corporation for Atmospheric Research/Unidata
+ * See LICENSE for license information.
+ */
+package ucar.nc2.grid2;
+
+import com.google.common.collect.ImmutableList;
+import ucar.array.Array;
+import ucar.array.ArrayType;
+import ucar.array.Arrays;
+import ucar.array.InvalidRangeException;
+import ucar.array.Range;
+import ucar.nc2.calendar.CalendarDate;
+import ucar.nc2.calendar.CalendarDateRange;
+import ucar.unidata.geoloc.CurvilinearGridIndex;
+import ucar.unidata.geoloc.LatLonPoint;
+import ucar.unidata.geoloc.ProjectionRect;
+
+import javax.annotation.Nullable;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Formatter;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * Reads the time series of a Grid at a set of points.
+ * The points are located in the horizontal grid once, then grouped by vertical coordinate. Each group is read
+ * with a single horizontal subset that covers all of its points, so each GRIB record or netCDF chunk is read once,
+ * instead of once for every point. When that subset is larger than maxReadBytes, it is read in blocks of times.
+ */
+class GridPointReader {
+  private static final String[] horizKeys =
+      {GridSubset.latlonBB, GridSubset.projBB, GridSubset.horizStride, GridSubset.latlonPoint};
+  private static final String[] timeKeys = {GridSubset.time, GridSubset.timePresent, GridSubset.timeLatest,
+      GridSubset.timeAll, GridSubset.timePoint, GridSubset.timeIntv, GridSubset.timeOffset, GridSubset.timeOffsetIntv,
+      GridSubset.timeOffsetAll, GridSubset.timeOffsetFirst, GridSubset.timeRange};
+
+  private final Grid grid;
+  private final Map<String, Object> req;
+  private final ImmutableList<LatLonPoint> points;
+  @Nullable
+  private final List<Double> vertCoords;
+  private final long maxReadBytes;
+
+  // the horizontal indices of the points in the Grid, -1 if outside
+  private final int[] yindex;
+  private final int[] xindex;
+
+  private List<CalendarDate> times;
+  private int ntimes;
+  private double[] result; // [npoints, ntimes]
+
+  GridPointReader(Grid grid, Map<String, Object> req, List<LatLonPoint> points, @Nullable List<Double> vertCoords,
+      long maxReadBytes) {
+    this.grid = grid;
+    this.req = new HashMap<>(req);
+    for (String key : horizKeys) {
+      this.req.remove(key);
+    }
+    this.points = ImmutableList.copyOf(points);
+    this.vertCoords = vertCoords;
+    this.maxReadBytes = maxReadBytes;
+    this.yindex = new int[points.size()];
+    this.xindex = new int[points.size()];
+  }
+
+  GridPointSeries read() throws IOException, InvalidRangeException {
+    locatePoints(grid.getHorizCoordinateSystem());
+
+    // the times do not depend on the vertical or horizontal subset
+    MaterializedCoordinateSystem mcs = subset(req);
+    GridTimeCoordinateSystem tcs = mcs.getTimeCoordSystem();
+    if (tcs == null) {
+      times = ImmutableList.of();
+      ntimes = 1;
+    } else {
+      times = tcs.getTimesForRuntime(0);
+      ntimes = (int) Arrays.computeSize(tcs.getMaterializedShape().stream().mapToInt(i -> i).toArray());
+      if (times.size() != ntimes) {
+        throw new IllegalArgumentException(
+            String.format("Grid %s: must select a single runtime to read points", grid.getName()));
+      }
+    }
+    result = new double[points.size() * ntimes];
+    java.util.Arrays.fill(result, Double.NaN);
+
+    // group the points by vertical coordinate, preserving the order
+    Map<Double, List<Integer>> groups = new LinkedHashMap<>();
+    for (int pt = 0; pt < points.size(); pt++) {
+      if (yindex[pt] >= 0) {
+        Double vert = vertCoords == null ? null : vertCoords.get(pt);
+        groups.computeIfAbsent(vert, k -> new ArrayList<>()).add(pt);
+      }
+    }
+    for (Map.Entry<Double, List<Integer>> group : groups.entrySet()) {
+      readGroup(group.getKey(), group.getValue());
+    }
+
+    return GridPointSeries.create(grid.getName(), points, ImmutableList.copyOf(times),
+        Arrays.factory(ArrayType.DOUBLE, new int[] {points.size(), ntimes}, result));
+  }
+
+  private void locatePoints(GridHorizCoordinateSystem hcs) {
+    int npts = points.size();
+    double[] lats = new double[npts];
+    double[] lons = new double[npts];
+    for (int pt = 0; pt < npts; pt++) {
+      lats[pt] = points.get(pt).getLatitude();
+      lons[pt] = points.get(pt).getLongitude();
+    }
+
+    if (hcs instanceof GridHorizCurvilinear) {
+      CurvilinearGridIndex index = ((GridHorizCurvilinear) hcs).getCurvilinearIndex();
+      int[] cells = index.findCells(lats, lons);
+      for (int pt = 0; pt < npts; pt++) {
+        yindex[pt] = cells[pt] < 0 ? -1 : cells[pt] / index.getNcols();
+        xindex[pt] = cells[pt] < 0 ? -1 : cells[pt] % index.getNcols();
+      }
+      return;
+    }
+
+    double[] x = lons;
+    double[] y = lats;
+    if (!hcs.isLatLon()) {
+      x = new double[npts];
+      y = new double[npts];
+      hcs.getProjection().latLonToProj(lats, lons, x, y);
+    }
+    for (int pt = 0; pt < npts; pt++) {
+      yindex[pt] = -1;
+      xindex[pt] = -1;
+      if (Double.isNaN(x[pt]) || Double.isNaN(y[pt]) || Double.isInfinite(x[pt]) || Double.isInfinite(y[pt])) {
+        continue;
+      }
+      final int ptf = pt;
+      hcs.findXYindexFromCoord(x[pt], y[pt]).ifPresent(coord -> {
+        yindex[ptf] = coord.yindex;
+        xindex[ptf] = coord.xindex;
+      });
+    }
+  }
+
+  private void readGroup(@Nullable Double vert, List<Integer> group) throws IOException, InvalidRangeException {
+    Map<String, Object> groupReq = new HashMap<>(req);
+    if (vert != null) {
+      groupReq.put(GridSubset.vertPoint, vert);
+    }
+
+    // the horizontal subset covering the points of this group
+    GridHorizCoordinateSystem hcs = grid.getHorizCoordinateSystem();
+    if (!(hcs instanceof GridHorizCurvilinear)) {
+      int ymin = Integer.MAX_VALUE, ymax = -1, xmin = Integer.MAX_VALUE, xmax = -1;
+      for (int pt : group) {
+        ymin = Math.min(ymin, yindex[pt]);
+        ymax = Math.max(ymax, yindex[pt]);
+        xmin = Math.min(xmin, xindex[pt]);
+        xmax = Math.max(xmax, xindex[pt]);
+      }
+      GridAxisPoint xaxis = hcs.getXHorizAxis();
+      GridAxisPoint yaxis = hcs.getYHorizAxis();
+      groupReq.put(GridSubset.projBB, new ProjectionRect(xaxis.getCoordMidpoint(xmin), yaxis.getCoordMidpoint(ymin),
+          xaxis.getCoordMidpoint(xmax), yaxis.getCoordMidpoint(ymax)));
+    }
+
+    MaterializedCoordinateSystem mcs = subset(groupReq);
+    if (mcs.getEnsembleAxis() != null && mcs.getEnsembleAxis().getNominalSize() > 1) {
+      throw new IllegalArgumentException(
+          String.format("Grid %s: must select a single ensemble member to read points", grid.getName()));
+    }
+    if (mcs.getVerticalAxis() != null && mcs.getVerticalAxis().getNominalSize() > 1) {
+      throw new IllegalArgumentException(
+          String.format("Grid %s: must select a single vertical level to read points", grid.getName()));
+    }
+    List<Integer> horizShape = mcs.getHorizCoordinateSystem().getShape();
+    long horizBytes = (long) horizShape.get(0) * horizShape.get(1) * grid.getArrayType().getSize();
+
+    int blockSize = ntimes;
+    if (ntimes > 1 && horizBytes * ntimes > maxReadBytes && isAscending(times)) {
+      blockSize = (int) Math.max(1, maxReadBytes / horizBytes);
+    }
+    if (blockSize == ntimes) {
+      readBlock(new GridSubset(groupReq), group, 0);
+      return;
+    }
+
+    for (String key : timeKeys) {
+      groupReq.remove(key);
+    }
+    for (int start = 0; start < ntimes; start += blockSize) {
+      int end = Math.min(start + blockSize, ntimes) - 1;
+      GridSubset blockSubset = new GridSubset(groupReq);
+      blockSubset.setTimeRange(CalendarDateRange.of(times.get(start), times.get(end)));
+      readBlock(blockSubset, group, start);
+    }
+  }
+
+  private void readBlock(GridSubset subset, List<Integer> group, int timeStart)
+      throws IOException, InvalidRangeException {
+    GridReferencedArray geoArray = grid.readData(subset);
+    MaterializedCoordinateSystem mcs = geoArray.getMaterializedCoordinateSystem();
+    List<Range> horizRanges = mcs.getHorizCoordinateSystem().getSubsetRanges();
+    List<Integer> horizShape = mcs.getHorizCoordinateSystem().getShape();
+    int ny = horizShape.get(0);
+    int nx = horizShape.get(1);
+    int nt = (int) (geoArray.data().length() / ((long) ny * nx));
+    if (timeStart + nt > ntimes) {
+      throw new IllegalStateException(String.format("Grid %s: read %d times, expected %d", grid.getName(),
+          timeStart + nt, ntimes));
+    }
+    Array<Number> data = Arrays.reshape(geoArray.data(), new int[] {nt, ny, nx});
+
+    for (int pt : group) {
+      int y = horizRanges.get(0).index(yindex[pt]);
+      int x = horizRanges.get(1).index(xindex[pt]);
+      for (int t = 0; t < nt; t++) {
+        double val = data.get(t, y, x).doubleValue();
+        result[pt * ntimes + timeStart + t] = grid.isMissing(val) ? Double.NaN : val;
+      }
+    }
+  }
+
+  private MaterializedCoordinateSystem subset(Map<String, Object> subsetReq) throws InvalidRangeException {
+    Formatter errlog = new Formatter();
+    Optional<MaterializedCoordinateSystem> opt = grid.getCoordinateSystem().subset(new GridSubset(subsetReq), errlog);
+    if (opt.isEmpty()) {
+      throw new InvalidRangeException(errlog.toString());
+    }
+    return opt.get();
+  }
+
+  private static boolean isAscending(List<CalendarDate> times) {
+    for (int i = 1; i < times.size(); i++) {
+      if (!times.get(i).isAfter(times.get(i - 1))) {
+        return false;
+      }
+    }
+    return true;
+  }
+}
@@ -0,0 +1,35 @@
+/*
+ * Copyright (c) 1998-2021 John Caron and University Corporation for Atmospheric Research/Unidata
+ * See LICENSE for license information.
+ */
+package ucar.nc2.grid2;
+
+import com.google.auto.value.AutoValue;
+import com.google.common.collect.ImmutableList;
+import ucar.array.Array;
+import ucar.nc2.calendar.CalendarDate;
+import ucar.unidata.geoloc.LatLonPoint;
+
+/**
+ * The time series of a Grid at a set of points, from {@link GridReader#readPoints()}.
+ * The data has shape [npoints, ntimes]. Points outside the grid, and missing values, are NaN.
+ */
+@AutoValue
+public abstract class GridPointSeries {
+  public abstract String gridName();
+
+  /** The requested points, in the order of the first dimension of data(). */
+  public abstract ImmutableList<LatLonPoint> points();
+
+  /** The times, in the order of the second dimension of data(). Empty if the Grid has no time coordinate. */
+  public abstract ImmutableList<CalendarDate> times();
+
+  /** data[npoints, ntimes]. */
+  public abstract Array<Double> data();
+
+  public static GridPointSeries create(String gridName, ImmutableList<LatLonPoint> points,
+      ImmutableList<CalendarDate> times, Array<Double> data) {
+    return new AutoValue_GridPointSeries(gridName, points, times, data);
+  }
+
+}
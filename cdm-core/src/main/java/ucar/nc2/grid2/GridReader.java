@@ -7,17 +7,24 @@ package ucar.nc2.grid2;
 
 import com.google.common.base.Preconditions;
 import ucar.nc2.calendar.CalendarDate;
+import ucar.nc2.calendar.CalendarDateRange;
+import ucar.unidata.geoloc.LatLonPoint;
 import ucar.unidata.geoloc.LatLonRect;
 import ucar.unidata.geoloc.ProjectionRect;
 
+import javax.annotation.Nullable;
 import java.io.IOException;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 
 /** Fluent Api for creating subset parameters. LOOK incomplete. */
 public class GridReader {
   private final Grid grid;
   private final Map<String, Object> req = new HashMap<>();
+  private List<LatLonPoint> points;
+  private List<Double> pointVertCoords;
+  private long maxReadBytes = 100 * 1000 * 1000;
 
   public GridReader(Grid grid) {
     this.grid = grid;
@@ -28,6 +35,11 @@ public class GridReader {
     return this;
   }
 
+  public GridReader setTimeRange(CalendarDateRange dateRange) {
+    req.put(GridSubset.timeRange, dateRange);
+    return this;
+  }
+
   public GridReader setTimePresent() {
     req.put(GridSubset.timePresent, true);
     return this;
@@ -97,10 +109,51 @@ public class GridReader {
     return this;
   }
 
+  /** Set the points for readPoints(). */
+  public GridReader setLatLonPoints(List<LatLonPoint> points) {
+    return setLatLonPoints(points, null);
+  }
+
+  /**
+   * Set the points for readPoints(), each with its own vertical coordinate.
+   *
+   * @param points the lat/lon points.
+   * @param vertCoords the vertical coordinate of each point, same size as points. A null element, or a null list,
+   *        means use setVertCoord(), which is needed only if the Grid has more than one vertical level.
+   */
+  public GridReader setLatLonPoints(List<LatLonPoint> points, @Nullable List<Double> vertCoords) {
+    Preconditions.checkNotNull(points);
+    Preconditions.checkArgument(vertCoords == null || vertCoords.size() == points.size(),
+        "vertCoords must be the same size as points");
+    this.points = points;
+    this.pointVertCoords = vertCoords;
+    return this;
+  }
+
+  /** Maximum size of the data read at once by readPoints(); larger subsets are read in blocks of times. */
+  public GridReader setMaxReadBytes(long maxReadBytes) {
+    Preconditions.checkArgument(maxReadBytes > 0);
+    this.maxReadBytes = maxReadBytes;
+    return this;
+  }
+
   public GridReferencedArray read() throws IOException, ucar.array.InvalidRangeException {
     return this.grid.readData(new GridSubset(req));
   }
 
+  /**
+   * Read the time series at the points set by setLatLonPoints(), for the times selected by the time parameters,
+   * eg setTimeRange(). Each GRIB record or netCDF chunk needed is read once, not once for each point.
+   * A single ensemble member and vertical level must be selected, if the Grid has more than one.
+   * The horizontal subset parameters are ignored.
+   *
+   * @return the data as [npoints, ntimes], NaN for points outside the grid and missing values.
+   */
+  public GridPointSeries readPoints() throws IOException, ucar.array.InvalidRangeException {
+    Preconditions.checkState(points != null, "must call setLatLonPoints() before readPoints()");
+    return new GridPointReader(grid, req, points, pointVertCoords, maxReadBytes).read();
+  }
+
   @Override
   public String toString() {
     return req.toString();
@@ -37,7 +37,7 @@ public class GridSubset {
   public static final String timeOffsetFirst = "timeOffsetFirst"; // value = Boolean LOOK deprecated I think
 
   public static final String time = "time"; // value = CalendarDate
-  public static final String timeRange = "timeRange"; // value = CalendarDateRange LOOK unimplemented
+  public static final String timeRange = "timeRange"; // value = CalendarDateRange
   public static final String timeLatest = "timeLatest"; // value = Boolean
   public static final String timePresent = "timePresent"; // value = Boolean
   public static final String timeStride = "timeStride"; // value = Integer LOOK is this needed?
@@ -5,8 +5,11 @@
 package ucar.nc2.internal.dataset;
 
 import java.util.Set;
-
+import java.util.function.DoubleConsumer;
+import java.util.stream.IntStream;
+import javax.annotation.Nullable;
 import ucar.array.ArrayType;
+import ucar.array.Arrays;
 import ucar.array.ArraysConvert;
 import ucar.ma2.DataType;
 import ucar.ma2.IndexIterator;
@@ -16,6 +19,11 @@ import ucar.nc2.dataset.VariableDS;
 
 /** Does enhancemnets to a VariableDS' data. */
 public class DataEnhancer {
+  // Arrays with at least this many elements are converted in parallel, in chunks of PARALLEL_CHUNK. Not final for
+  // testing.
+  static int parallelThreshold = 4 * 1024 * 1024;
+  private static final int PARALLEL_CHUNK = 256 * 1024;
+
   private final VariableDS variableDS;
   private final ArrayType dataType;
   private final ArrayType orgDataType;
@@ -58,10 +66,149 @@ public class DataEnhancer {
     return result;
   }
 
-  // TODO
+  /**
+   * Same as convert(ucar.ma2.Array, Set), for ucar.array.Array. When the result is float or double, the unsigned
+   * conversion, scale/offset and missing value conversions are done in one pass over the data, without going through
+   * ucar.ma2.
+   */
   public ucar.array.Array<?> convertArray(ucar.array.Array<?> data, Set<Enhance> enhancements) {
+    if (!(enhancements.contains(Enhance.ConvertEnums)
+        && (dataType.isEnum() || (orgDataType != null && orgDataType.isEnum()))) && !variableDS.isVariableLength()) {
+      ucar.array.Array<?> result = convertNumeric(data, enhancements.contains(Enhance.ConvertUnsigned),
+          enhancements.contains(Enhance.ApplyScaleOffset), enhancements.contains(Enhance.ConvertMissing));
+      if (result != null) {
+        return result;
+      }
+    }
     ucar.ma2.Array ma2 = ArraysConvert.convertFromArray(data);
     return ArraysConvert.convertToArray(convert(ma2, enhancements));
   }
 
+  // Follows EnhanceScaleMissingUnsignedImpl.convert(). Returns null if the result is not float or double.
+  @Nullable
+  private ucar.array.Array<?> convertNumeric(ucar.array.Array<?> data, boolean convertUnsigned,
+      boolean applyScaleOffset, boolean convertMissing) {
+    ArrayType inType = data.getArrayType();
+    if (!inType.isNumeric() || data.isVlen()) {
+      return null;
+    }
+    if (!convertUnsigned && !applyScaleOffset && !convertMissing) {
+      return data; // Nothing to do!
+    }
+    EnhanceScaleMissingUnsignedImpl proxy = scaleMissingUnsignedProxy;
+    if (proxy.getSignedness() == DataType.Signedness.SIGNED) {
+      convertUnsigned = false;
+    }
+    if (!proxy.hasScaleOffset()) {
+      applyScaleOffset = false;
+    }
+
+    DataType outType = inType.getDataType();
+    if (convertUnsigned) {
+      outType = proxy.getUnsignedConversionType();
+    }
+    if (applyScaleOffset) {
+      outType = proxy.getScaledOffsetType();
+    }
+    if (outType != DataType.FLOAT && outType != DataType.DOUBLE) {
+      return null;
+    }
+    // values that are NaN stay NaN, so only need to look for missing if there is missing data
+    convertMissing = convertMissing && proxy.hasMissing();
+
+    // Array.getDouble() converts according to the ArrayType, which may differ from the signedness wanted here.
+    boolean toUnsigned = convertUnsigned && inType.isIntegral() && !inType.isUnsigned();
+    boolean toSigned = !convertUnsigned && inType.isUnsigned();
+    if ((toUnsigned || toSigned) && inType.getSize() > 4) {
+      return null; // not exact for 64 bit integers
+    }
+
+    Converter converter = new Converter(proxy, toUnsigned, toSigned, inType.getSize() * 8, applyScaleOffset,
+        convertMissing);
+    int n = (int) data.length();
+    if (outType == DataType.FLOAT) {
+      float[] result = new float[n];
+      converter.convert(data, null, result);
+      return Arrays.factory(ArrayType.FLOAT, data.getShape(), result);
+    } else {
+      double[] result = new double[n];
+      converter.convert(data, result, null);
+      return Arrays.factory(ArrayType.DOUBLE, data.getShape(), result);
+    }
+  }
+
+  /** Fused unsigned, scale/offset and missing value conversion of each value. */
+  private static final class Converter {
+    private final EnhanceScaleMissingUnsignedImpl proxy;
+    private final boolean toUnsigned;
+    private final boolean toSigned;
+    private final double range; // 2^bits of the integer type
+    private final boolean applyScaleOffset;
+    private final double scale;
+    private final double offset;
+    private final boolean convertMissing;
+
+    private Converter(EnhanceScaleMissingUnsignedImpl proxy, boolean toUnsigned, boolean toSigned, int bits,
+        boolean applyScaleOffset, boolean convertMissing) {
+      this.proxy = proxy;
+      this.toUnsigned = toUnsigned;
+      this.toSigned = toSigned;
+      this.range = Math.scalb(1.0, bits);
+      this.applyScaleOffset = applyScaleOffset;
+      this.scale = proxy.getScaleFactor();
+      this.offset = proxy.getOffset();
+      this.convertMissing = convertMissing;
+    }
+
+    private double convert(double value) {
+      if (toUnsigned && value < 0) {
+        value += range;
+      } else if (toSigned && value >= range / 2) {
+        value -= range;
+      }
+      if (applyScaleOffset) {
+        value = scale * value + offset;
+      }
+      if (convertMissing && proxy.isMissing(value)) {
+        value = Double.NaN;
+      }
+      return value;
+    }
+
+    // Convert all of the data into resultD or resultF, whichever is not null.
+    private void convert(ucar.array.Array<?> data, @Nullable double[] resultD, @Nullable float[] resultF) {
+      int n = (int) data.length();
+      if (n < parallelThreshold) {
+        data.forEachDouble(new DoubleConsumer() {
+          int count = 0;
+
+          @Override
+          public void accept(double value) {
+            store(convert(value), count++, resultD, resultF);
+          }
+        });
+      } else {
+        int nchunks = (n + PARALLEL_CHUNK - 1) / PARALLEL_CHUNK;
+        IntStream.range(0, nchunks).parallel().forEach(chunk -> convert(data, chunk * PARALLEL_CHUNK,
+            Math.min(n, (chunk + 1) * PARALLEL_CHUNK), resultD, resultF));
+      }
+    }
+
+    // Convert the elements start to end (exclusive), in canonical order.
+    private void convert(ucar.array.Array<?> data, int start, int end, @Nullable double[] resultD,
+        @Nullable float[] resultF) {
+      for (int elem = start; elem < end; elem++) {
+        store(convert(data.getDouble((long) elem)), elem, resultD, resultF);
+      }
+    }
+
+    private static void store(double value, int index, @Nullable double[] resultD, @Nullable float[] resultF) {
+      if (resultD != null) {
+        resultD[index] = value;
+      } else {
+        resultF[index] = (float) value;
+      }
+    }
+  }
+
 }
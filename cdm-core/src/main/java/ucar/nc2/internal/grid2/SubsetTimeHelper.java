@@ -6,13 +6,18 @@
 package ucar.nc2.internal.grid2;
 
 import com.google.common.math.DoubleMath;
+import ucar.array.InvalidRangeException;
+import ucar.array.Range;
 import ucar.nc2.calendar.CalendarDate;
+import ucar.nc2.calendar.CalendarDateRange;
 import ucar.nc2.grid2.GridSubset;
 import ucar.nc2.grid2.GridAxis;
+import ucar.nc2.grid2.GridAxisInterval;
 import ucar.nc2.grid2.GridAxisPoint;
 import ucar.nc2.grid2.GridTimeCoordinateSystem;
 
 import java.util.Formatter;
+import java.util.List;
 import java.util.Optional;
 
 /**
@@ -40,6 +45,8 @@ public class SubsetTimeHelper {
    * Request the times closest to the present time.
    * 5. **timeStride**
    * Request every nth time value. Use with time to request where to start. why needed ??
+   * 6. **timeRange**
+   * Request all times within the CalendarDateRange.
    * timeClosest? timeInInterval?
    */
 
@@ -58,6 +65,11 @@ public class SubsetTimeHelper {
       return timeOffsetAxis.subset(GridSubset.create().setTimeOffsetCoord(wantOffset), errlog);
     }
 
+    CalendarDateRange wantRange = params.getTimeRange();
+    if (wantRange != null) {
+      return subsetTimeRange(timeOffsetAxis, tcs.getTimesForRuntime(0), wantRange, errlog);
+    }
+
     // timeOffset, timeOffsetIntv, timeLatest
     return timeOffsetAxis.subset(params, errlog);
   }
@@ -137,6 +149,12 @@ public class SubsetTimeHelper {
       }
     }
 
+    // timeRange: all the times of this runtime that are in the range
+    CalendarDateRange wantRange = params.getTimeRange();
+    if (wantRange != null) {
+      return subsetTimeRange(timeOffsetAxis, tcs.getTimesForRuntime(runIdx), wantRange, errlog);
+    }
+
     // LOOK otherwise, can use the GridAxis to do the subsetting
     return timeOffsetAxis.subset(params, errlog);
 
@@ -169,6 +187,41 @@ public class SubsetTimeHelper {
      */
   }
 
+  // times are the dates of the timeOffsetAxis coordinates, assumed ascending.
+  private static Optional<? extends GridAxis<?>> subsetTimeRange(GridAxis<?> timeOffsetAxis, List<CalendarDate> times,
+      CalendarDateRange wantRange, Formatter errlog) {
+    int first = -1;
+    int last = -1;
+    for (int idx = 0; idx < times.size(); idx++) {
+      if (wantRange.includes(times.get(idx))) {
+        if (first < 0) {
+          first = idx;
+        }
+        last = idx;
+      }
+    }
+    if (first < 0) {
+      errlog.format("No times in range = %s%n", wantRange);
+      return Optional.empty();
+    }
+    if (first == 0 && last == timeOffsetAxis.getNominalSize() - 1) {
+      return Optional.of(timeOffsetAxis);
+    }
+
+    try {
+      Range range = new Range(timeOffsetAxis.getName(), first, last);
+      if (timeOffsetAxis instanceof GridAxisInterval) {
+        SubsetIntervalHelper helper = new SubsetIntervalHelper((GridAxisInterval) timeOffsetAxis);
+        return Optional.of(helper.makeSubsetByIndex(range).build());
+      } else {
+        return Optional.of(((GridAxisPoint) timeOffsetAxis).toBuilder().subsetWithRange(range).build());
+      }
+    } catch (InvalidRangeException e) {
+      errlog.format("%s", e.getMessage());
+      return Optional.empty();
+    }
+  }
+
   private static int search(GridAxis<?> time, double want) {
     if (time.getNominalSize() == 1) {
       return DoubleMath.fuzzyEquals(want, time.getCoordMidpoint(0), 1.0e-8) ? 0 : -1;
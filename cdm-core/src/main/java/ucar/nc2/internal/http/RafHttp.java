@@ -42,6 +42,7 @@ public final class RafHttp extends RemoteRandomAccessFile {
 
   private HttpClient session;
   private long total_length;
+  private String versionTag; // ETag or Last-Modified, if the server sent one
 
   public RafHttp(String url) throws IOException {
     this(url, httpBufferSize, httpMaxCacheSize);
@@ -77,6 +78,9 @@ public final class RafHttp extends RemoteRandomAccessFile {
       throw new IOException("Server has malformed Content-Length header");
     }
 
+    this.versionTag =
+        responseHeaders.firstValue("ETag").or(() -> responseHeaders.firstValue("Last-Modified")).orElse(null);
+
     /*
      * Some HTTP server report 0 bytes length.
      * Do the Range bytes test if the server is reporting 0 bytes length
@@ -190,6 +194,11 @@ public final class RafHttp extends RemoteRandomAccessFile {
     return Math.max(fileLength, dataEnd);
   }
 
+  @Override
+  protected String getVersionTag() {
+    return (versionTag != null) ? total_length + ":" + versionTag : Long.toString(total_length);
+  }
+
   /**
    * Always returns {@code 0L}, as we cannot easily determine the last time that a remote file was modified.
    *
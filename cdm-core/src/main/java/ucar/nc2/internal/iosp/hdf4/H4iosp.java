@@ -8,6 +8,7 @@ import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.UncheckedIOException;
 import java.nio.ByteBuffer;
 import java.nio.charset.Charset;
 import java.util.List;
@@ -175,7 +176,11 @@ public class H4iosp extends AbstractIOServiceProvider {
       } else if (vinfo.isChunked) {
         LayoutBBTiled.DataChunkIterator chunkIterator = new H4CompressedChunkIterator(vinfo);
         LayoutBB layout = new LayoutBBTiled(chunkIterator, vinfo.chunkSize, v.getElementSize(), section);
-        return IospHelper.readDataFill(layout, dataType, vinfo.fillValue);
+        try {
+          return IospHelper.readDataFill(layout, dataType, vinfo.fillValue);
+        } catch (UncheckedIOException e) {
+          throw e.getCause(); // reading or decoding a chunk failed
+        }
       }
     }
     throw new IllegalStateException();
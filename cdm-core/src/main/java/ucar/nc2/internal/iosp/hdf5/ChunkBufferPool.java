@@ -0,0 +1,73 @@
+/*
+ * Copyright (c) 1998-2021 John Caron and University Corporation for Atmospheric Research/Unidata
+ * See LICENSE for license information.
+ */
+package ucar.nc2.internal.iosp.hdf5;
+
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicLong;
+import javax.annotation.concurrent.ThreadSafe;
+
+/**
+ * Pools the chunk sized byte arrays used when decoding filtered HDF5 chunks.
+ * All chunks of a variable have the same decoded size, so arrays are pooled by exact length.
+ * The total size of the pooled arrays is bounded, anything over the limit is left to the garbage collector.
+ */
+@ThreadSafe
+class ChunkBufferPool {
+  // System property names for -D flag
+  private static final String POOLSIZE_PROPERTY = "unidata.h5iosp.bufferpool.size";
+  private static final long DEFAULT_POOLSIZE = 64 * 1000 * 1000;
+
+  static final ChunkBufferPool instance = new ChunkBufferPool(readPoolSize());
+
+  private static long readPoolSize() {
+    String prop = System.getProperty(POOLSIZE_PROPERTY);
+    if (prop != null) {
+      try {
+        long size = Long.parseLong(prop);
+        if (size >= 0)
+          return size;
+        H5iosp.log.warn(String.format("-D%s must be >= 0", POOLSIZE_PROPERTY));
+      } catch (NumberFormatException nfe) {
+        H5iosp.log.warn(String.format("-D%s is not an integer", POOLSIZE_PROPERTY));
+      }
+    }
+    return DEFAULT_POOLSIZE;
+  }
+
+  private final long maxBytes;
+  private final AtomicLong pooledBytes = new AtomicLong();
+  private final ConcurrentHashMap<Integer, Queue<byte[]>> arrays = new ConcurrentHashMap<>();
+
+  ChunkBufferPool(long maxBytes) {
+    this.maxBytes = maxBytes;
+  }
+
+  /** Get a byte array of exactly the given length; the contents are undefined. */
+  byte[] acquire(int size) {
+    Queue<byte[]> queue = arrays.get(size);
+    byte[] result = (queue == null) ? null : queue.poll();
+    if (result == null)
+      return new byte[size];
+    pooledBytes.addAndGet(-size);
+    return result;
+  }
+
+  /** Return an array to the pool. The caller must not use it afterwards. */
+  void release(byte[] array) {
+    int size = array.length;
+    if (size == 0 || pooledBytes.addAndGet(size) > maxBytes) {
+      pooledBytes.addAndGet(-size);
+      return;
+    }
+    arrays.computeIfAbsent(size, k -> new ConcurrentLinkedQueue<>()).offer(array);
+  }
+
+  /** Number of bytes currently held in the pool. */
+  long getPooledBytes() {
+    return pooledBytes.get();
+  }
+}
@@ -0,0 +1,220 @@
+/*
+ * Copyright (c) 1998-2021 John Caron and University Corporation for Atmospheric Research/Unidata
+ * See LICENSE for license information.
+ */
+package ucar.nc2.internal.iosp.hdf5;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheStats;
+import com.google.common.cache.RemovalNotification;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.Arrays;
+import java.util.Formatter;
+import java.util.Objects;
+import java.util.concurrent.atomic.AtomicInteger;
+import javax.annotation.Nullable;
+import javax.annotation.concurrent.ThreadSafe;
+
+/**
+ * A cache of decoded (uncompressed and unfiltered) HDF5 chunks, shared by all open files.
+ * Similar to the HDF5 library's raw data chunk cache (rdcc), but bounded by the total bytes of all files.
+ * Entries are keyed by (file location, last modified, variable data address, chunk offset), and evicted LRU.
+ * The size in bytes may be set with -Dunidata.h5iosp.chunkcache.size, 0 disables the cache.
+ * Caching may be turned off for a single file with {@link H5iosp#IOSP_MESSAGE_CHUNK_CACHE_OFF}, or a file may be given
+ * a cache of its own size by sending it one made with {@link #create}.
+ * <p/>
+ * Readers hold an {@link Entry} while they use its buffer. A pooled buffer goes back to its ChunkBufferPool once it
+ * has been evicted and released by all its readers.
+ */
+@ThreadSafe
+public class H5chunkCache {
+  // System property name for -D flag
+  private static final String CACHESIZE_PROPERTY = "unidata.h5iosp.chunkcache.size";
+  private static final long DEFAULT_CACHESIZE = 64 * 1000 * 1000;
+
+  private static H5chunkCache instance = new H5chunkCache(readCacheSize());
+
+  private static long readCacheSize() {
+    String prop = System.getProperty(CACHESIZE_PROPERTY);
+    if (prop != null) {
+      try {
+        long size = Long.parseLong(prop);
+        if (size >= 0)
+          return size;
+        H5iosp.log.warn(String.format("-D%s must be >= 0", CACHESIZE_PROPERTY));
+      } catch (NumberFormatException nfe) {
+        H5iosp.log.warn(String.format("-D%s is not an integer", CACHESIZE_PROPERTY));
+      }
+    }
+    return DEFAULT_CACHESIZE;
+  }
+
+  /** The shared cache, or null if caching is disabled. */
+  @Nullable
+  public static synchronized H5chunkCache getInstance() {
+    return instance.maxBytes > 0 ? instance : null;
+  }
+
+  /**
+   * Replace the shared cache with an empty one of the given size. Files already being read keep the old one.
+   *
+   * @param maxBytes maximum total bytes of the decoded chunks, 0 disables the cache.
+   */
+  public static synchronized void init(long maxBytes) {
+    instance = new H5chunkCache(maxBytes);
+  }
+
+  /**
+   * Make a cache that is not shared, to be sent to a file with {@link ucar.nc2.NetcdfFile#sendIospMessage}.
+   *
+   * @param maxBytes maximum total bytes of the decoded chunks, 0 disables caching for the files that use it.
+   */
+  public static H5chunkCache create(long maxBytes) {
+    return new H5chunkCache(maxBytes);
+  }
+
+  ////////////////////////////////////////////////////////////////////////////////////////////
+
+  private final long maxBytes;
+  private final Cache<Key, Entry> cache;
+
+  private H5chunkCache(long maxBytes) {
+    this.maxBytes = maxBytes;
+    this.cache = CacheBuilder.newBuilder().maximumWeight(Math.max(maxBytes, 1))
+        .weigher((Key key, Entry entry) -> entry.bb.capacity())
+        .removalListener((RemovalNotification<Key, Entry> removed) -> removed.getValue().release()).recordStats()
+        .build();
+  }
+
+  /**
+   * Find a decoded chunk.
+   *
+   * @return the chunk, which the caller must {@link Entry#release} when done; or null if not in the cache.
+   */
+  @Nullable
+  Entry get(Key key) {
+    Entry entry = cache.getIfPresent(key);
+    return (entry != null && entry.retain()) ? entry : null;
+  }
+
+  /** Whether a decoded chunk is in the cache, without counting a hit or miss. */
+  boolean contains(Key key) {
+    return cache.asMap().containsKey(key);
+  }
+
+  /**
+   * Add a decoded chunk. The ByteBuffer contents must not be modified afterwards.
+   *
+   * @param pool return the buffer's array to this pool when it is no longer used; may be null.
+   * @return the chunk, which the caller must {@link Entry#release} when done.
+   */
+  Entry put(Key key, ByteBuffer bb, @Nullable ChunkBufferPool pool) {
+    Entry entry = new Entry(bb, pool);
+    entry.retain();
+    cache.put(key, entry);
+    return entry;
+  }
+
+  /** Remove all entries. */
+  public void clear() {
+    cache.invalidateAll();
+  }
+
+  /** Maximum total bytes of the decoded chunks. */
+  public long getMaxBytes() {
+    return maxBytes;
+  }
+
+  /** Number of chunks in the cache. */
+  public long getSize() {
+    return cache.size();
+  }
+
+  public long getHitCount() {
+    return cache.stats().hitCount();
+  }
+
+  public long getMissCount() {
+    return cache.stats().missCount();
+  }
+
+  public CacheStats getStats() {
+    return cache.stats();
+  }
+
+  public void showStats(Formatter f) {
+    CacheStats stats = cache.stats();
+    f.format("H5chunkCache maxBytes=%d nchunks=%d hits=%d misses=%d hitRate=%f evictions=%d%n", maxBytes,
+        cache.size(), stats.hitCount(), stats.missCount(), stats.hitRate(), stats.evictionCount());
+  }
+
+  /** A decoded chunk, counting the cache and the readers that use it. */
+  static class Entry {
+    private final ByteBuffer bb;
+    @Nullable
+    private final ChunkBufferPool pool;
+    private final AtomicInteger refs = new AtomicInteger(1); // held by the cache
+
+    private Entry(ByteBuffer bb, @Nullable ChunkBufferPool pool) {
+      this.bb = bb;
+      this.pool = pool;
+    }
+
+    /** A new view of the chunk with its own position, in the given byte order. */
+    ByteBuffer getByteBuffer(ByteOrder byteOrder) {
+      return bb.duplicate().order(byteOrder);
+    }
+
+    // fails if the buffer has already gone back to the pool
+    private boolean retain() {
+      while (true) {
+        int n = refs.get();
+        if (n == 0)
+          return false;
+        if (refs.compareAndSet(n, n + 1))
+          return true;
+      }
+    }
+
+    /** Done with the buffer; views of it must not be used afterwards. */
+    void release() {
+      if (refs.decrementAndGet() == 0 && pool != null)
+        pool.release(bb.array());
+    }
+  }
+
+  /** Identifies a chunk of a variable in a file. */
+  static class Key {
+    private final String location;
+    private final long lastModified;
+    private final long dataPos;
+    private final int[] offset;
+    private final int hashCode;
+
+    Key(String location, long lastModified, long dataPos, int[] offset) {
+      this.location = location;
+      this.lastModified = lastModified;
+      this.dataPos = dataPos;
+      this.offset = offset;
+      this.hashCode = Objects.hash(location, lastModified, dataPos, Arrays.hashCode(offset));
+    }
+
+    @Override
+    public boolean equals(Object o) {
+      if (this == o)
+        return true;
+      if (o == null || getClass() != o.getClass())
+        return false;
+      Key key = (Key) o;
+      return lastModified == key.lastModified && dataPos == key.dataPos && location.equals(key.location)
+          && Arrays.equals(offset, key.offset);
+    }
+
+    @Override
+    public int hashCode() {
+      return hashCode;
+    }
+  }
+}
@@ -7,6 +7,7 @@ package ucar.nc2.internal.iosp.hdf5;
 import static ucar.nc2.NetcdfFile.IOSP_MESSAGE_GET_NETCDF_FILE_FORMAT;
 
 import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.nio.ByteBuffer;
 import java.nio.ByteOrder;
 import java.nio.charset.Charset;
@@ -40,6 +41,12 @@ import javax.annotation.Nullable;
 /** HDF5 I/O */
 public class H5iosp extends AbstractIOServiceProvider {
   public static final String IOSP_MESSAGE_INCLUDE_ORIGINAL_ATTRIBUTES = "IncludeOrgAttributes";
+  /** Use the shared H5chunkCache for this file (the default). */
+  public static final String IOSP_MESSAGE_CHUNK_CACHE_ON = "ChunkCacheOn";
+  /** Do not use the shared H5chunkCache for this file, eg if its chunks are read only once. */
+  public static final String IOSP_MESSAGE_CHUNK_CACHE_OFF = "ChunkCacheOff";
+  /** Returns the H5chunkCache used by this file, or null if caching is disabled. */
+  public static final String IOSP_MESSAGE_CHUNK_CACHE = "ChunkCache";
 
   static final int VLEN_T_SIZE = 16; // Appears to be no way to compute on the fly.
 
@@ -107,6 +114,8 @@ public class H5iosp extends AbstractIOServiceProvider {
   H5header header;
   boolean isEos;
   boolean includeOriginalAttributes;
+  boolean useChunkCache = true;
+  private H5chunkCache chunkCache; // this file's own cache, or null to use the shared one
   private Charset valueCharset;
 
   @Override
@@ -134,6 +143,23 @@ public class H5iosp extends AbstractIOServiceProvider {
     if (message instanceof Charset) {
       setValueCharset((Charset) message);
     }
+    if (message instanceof H5chunkCache) { // a cache of its own size, see H5chunkCache.create
+      chunkCache = (H5chunkCache) message;
+      useChunkCache = true;
+      return null;
+    }
+    if (message.equals(IOSP_MESSAGE_CHUNK_CACHE_ON)) {
+      chunkCache = null;
+      useChunkCache = true;
+      return null;
+    }
+    if (message.equals(IOSP_MESSAGE_CHUNK_CACHE_OFF)) {
+      useChunkCache = false;
+      return null;
+    }
+    if (message.equals(IOSP_MESSAGE_CHUNK_CACHE)) {
+      return getChunkCache();
+    }
     if (message.equals(IOSP_MESSAGE_GET_NETCDF_FILE_FORMAT)) {
       if (!header.isNetcdf4()) {
         return null;
@@ -167,6 +193,15 @@ public class H5iosp extends AbstractIOServiceProvider {
     return header;
   }
 
+  @Nullable
+  H5chunkCache getChunkCache() {
+    if (!useChunkCache)
+      return null;
+    if (chunkCache == null)
+      return H5chunkCache.getInstance();
+    return chunkCache.getMaxBytes() > 0 ? chunkCache : null;
+  }
+
   public Array readData(Variable v2, Section section) throws IOException, InvalidRangeException {
     H5header.Vinfo vinfo = (H5header.Vinfo) v2.getSPobject();
     if (debugRead)
@@ -193,11 +228,15 @@ public class H5iosp extends AbstractIOServiceProvider {
         System.out.println("read variable filtered " + v2.getFullName() + " vinfo = " + vinfo);
       assert vinfo.isChunked;
       ByteOrder bo = vinfo.typeInfo.endian;
-      layout = new H5tiledLayoutBB(v2, wantSection, raf, vinfo.mfp.getFilters(), bo);
-      if (vinfo.typeInfo.isVString) {
-        data = readFilteredStringData((LayoutBB) layout);
-      } else {
-        data = IospHelper.readDataFill((LayoutBB) layout, v2.getDataType(), vinfo.getFillValue());
+      layout = new H5tiledLayoutBB(v2, wantSection, raf, vinfo.mfp.getFilters(), bo, getChunkCache());
+      try {
+        if (vinfo.typeInfo.isVString) {
+          data = readFilteredStringData((LayoutBB) layout);
+        } else {
+          data = IospHelper.readDataFill((LayoutBB) layout, v2.getDataType(), vinfo.getFillValue());
+        }
+      } catch (UncheckedIOException e) {
+        throw e.getCause(); // reading or decoding a chunk failed
       }
 
     } else { // normal case
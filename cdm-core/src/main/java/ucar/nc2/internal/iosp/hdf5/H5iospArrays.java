@@ -6,6 +6,7 @@ package ucar.nc2.internal.iosp.hdf5;
 
 import com.google.common.base.Preconditions;
 import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.nio.ByteBuffer;
 import java.nio.ByteOrder;
 
@@ -85,11 +86,15 @@ public class H5iospArrays extends H5iosp {
         assert vinfo.isChunked;
         ByteOrder bo = vinfo.typeInfo.endian;
         Section oldSection = ArraysConvert.convertSection(wantSection);
-        layout = new H5tiledLayoutBB(v2, oldSection, raf, vinfo.mfp.getFilters(), bo);
-        if (vinfo.typeInfo.isVString) {
-          data = readFilteredStringData((LayoutBB) layout);
-        } else {
-          data = IospHelper.readDataFill((LayoutBB) layout, v2.getDataType(), vinfo.getFillValue());
+        layout = new H5tiledLayoutBB(v2, oldSection, raf, vinfo.mfp.getFilters(), bo, getChunkCache());
+        try {
+          if (vinfo.typeInfo.isVString) {
+            data = readFilteredStringData((LayoutBB) layout);
+          } else {
+            data = IospHelper.readDataFill((LayoutBB) layout, v2.getDataType(), vinfo.getFillValue());
+          }
+        } catch (UncheckedIOException e) {
+          throw e.getCause(); // reading or decoding a chunk failed
         }
 
       } else { // normal case
@@ -7,20 +7,29 @@ package ucar.nc2.internal.iosp.hdf5;
 import com.google.common.base.Preconditions;
 import com.google.common.primitives.Ints;
 import com.google.common.primitives.Longs;
-import java.io.ByteArrayInputStream;
-import java.io.ByteArrayOutputStream;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
 import java.io.IOException;
 import java.nio.ByteBuffer;
 import java.nio.ByteOrder;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import javax.annotation.Nullable;
 import ucar.ma2.DataType;
 import ucar.ma2.InvalidRangeException;
 import ucar.ma2.Section;
 import ucar.nc2.Variable;
 import ucar.nc2.internal.iosp.hdf5.H5objects.Filter;
+import ucar.nc2.internal.iosp.hdf5.filter.H5filters;
 import ucar.nc2.iosp.LayoutBB;
 import ucar.nc2.iosp.LayoutBBTiled;
-import ucar.nc2.util.IO;
+import ucar.nc2.iosp.hdf5.spi.H5filter;
+import ucar.nc2.iosp.hdf5.spi.H5filterProvider;
 import ucar.unidata.io.RandomAccessFile;
+import ucar.unidata.io.RemoteRandomAccessFile;
 
 /**
  * Iterator to read/write subsets of an array.
@@ -28,29 +37,82 @@ import ucar.unidata.io.RandomAccessFile;
  * Assumes that the data is stored in chunks, indexed by a Btree.
  * Used for filtered data
  * Had to split from old H5tiledLayoutBB because need to use H5headerNew.Vinfo.
+ * <p/>
+ * The chunks are read on the calling thread, and decoded ahead of time on a shared, bounded Executor.
+ * The number of decoding threads may be set with -Dunidata.h5iosp.decode.threads, 0 or 1 decodes on the
+ * calling thread. Decoded chunk buffers are pooled, see ChunkBufferPool; those in the H5chunkCache go back to the
+ * pool once they are evicted.
+ * The chunks of a remote file are read in batches with {@link RandomAccessFile#readVectored}, which fetches them
+ * concurrently.
+ * The filter decoders are found with H5filters, which may load them with the ServiceLoader. A filter without a decoder
+ * only fails the read of a chunk that it was applied to, so chunks that skipped an optional filter can still be read.
  * 
  * @author caron
  */
 public class H5tiledLayoutBB implements LayoutBB {
   static boolean debugFilter;
 
-  private static final int DEFAULTZIPBUFFERSIZE = 512;
   // System property name for -D flag
-  private static final String INFLATEBUFFERSIZE_PROPERTY = "unidata.h5iosp.inflate.buffersize";
+  private static final String DECODETHREADS_PROPERTY = "unidata.h5iosp.decode.threads";
+  private static final int decodeThreads = readDecodeThreads();
+  private static final int VECTORED_CHUNKS = 16; // max number of chunks of a remote file read at once
+  private static Executor executor;
+  private static boolean executorSet;
   private static boolean debug;
 
+  private static int readDecodeThreads() {
+    int nthreads = Math.min(Runtime.getRuntime().availableProcessors(), 8);
+    String prop = System.getProperty(DECODETHREADS_PROPERTY);
+    if (prop != null) {
+      try {
+        int size = Integer.parseInt(prop);
+        if (size < 0)
+          H5iosp.log.warn(String.format("-D%s must be >= 0", DECODETHREADS_PROPERTY));
+        else
+          nthreads = size;
+      } catch (NumberFormatException nfe) {
+        H5iosp.log.warn(String.format("-D%s is not an integer", DECODETHREADS_PROPERTY));
+      }
+    }
+    return nthreads;
+  }
+
+  /**
+   * Set the Executor used to decode chunks, shared by all files. Set to null to decode on the calling thread.
+   * If never set, a daemon thread pool of -Dunidata.h5iosp.decode.threads threads is used.
+   */
+  public static synchronized void setExecutor(@Nullable Executor exec) {
+    executor = exec;
+    executorSet = true;
+  }
+
+  @Nullable
+  private static synchronized Executor getExecutor() {
+    if (!executorSet && decodeThreads > 1) {
+      executor = Executors.newFixedThreadPool(decodeThreads,
+          new ThreadFactoryBuilder().setNameFormat("H5chunkDecode-%d").setDaemon(true).build());
+      executorSet = true;
+    }
+    return executor;
+  }
+
   private final LayoutBBTiled delegate;
 
   private final RandomAccessFile raf;
   private final Filter[] filters;
+  private final H5filter[] decoders; // same order as filters, null if there is no decoder
+  private final String varName;
   private final ByteOrder byteOrder;
 
   private final Section want;
   private final int[] chunkSize; // from the StorageLayout message (exclude the elemSize)
   private final int elemSize; // last dimension of the StorageLayout message
   private final int nChunkDims;
-
-  private int inflatebuffersize = DEFAULTZIPBUFFERSIZE;
+  private final int chunkBytes; // size of a decoded chunk in bytes
+  private final ChunkBufferPool pool = ChunkBufferPool.instance;
+  private final H5chunkCache cache; // may be null
+  private final long lastModified; // part of the cache key
+  private final long dataPos; // part of the cache key
 
   /**
    * Constructor.
@@ -65,6 +127,22 @@ public class H5tiledLayoutBB implements LayoutBB {
    */
   public H5tiledLayoutBB(Variable v2, Section wantSection, RandomAccessFile raf, Filter[] filters, ByteOrder byteOrder)
       throws InvalidRangeException, IOException {
+    this(v2, wantSection, raf, filters, byteOrder, null);
+  }
+
+  /**
+   * Constructor that uses a cache of decoded chunks.
+   *
+   * @param v2 Variable to index over; assumes that vinfo is the data object
+   * @param wantSection the wanted section of data, contains a List of Range objects. must be complete
+   * @param raf the RandomAccessFile
+   * @param filters set of filters that have been applied to the data
+   * @param cache find decoded chunks here, and add them; may be null.
+   * @throws InvalidRangeException if section invalid for this variable
+   * @throws IOException on io error
+   */
+  public H5tiledLayoutBB(Variable v2, Section wantSection, RandomAccessFile raf, Filter[] filters, ByteOrder byteOrder,
+      @Nullable H5chunkCache cache) throws InvalidRangeException, IOException {
     wantSection = Section.fill(wantSection, v2.getShape());
 
     H5header.Vinfo vinfo = (H5header.Vinfo) v2.getSPobject();
@@ -74,7 +152,17 @@ public class H5tiledLayoutBB implements LayoutBB {
 
     this.raf = raf;
     this.filters = filters;
+    this.decoders = new H5filter[filters.length];
+    for (int i = 0; i < filters.length; i++) {
+      H5filterProvider provider = H5filters.find(filters[i].id);
+      if (provider != null)
+        decoders[i] = provider.create(filters[i].data);
+    }
+    this.varName = v2.getFullName();
     this.byteOrder = byteOrder;
+    this.cache = cache;
+    this.lastModified = (cache == null) ? 0 : raf.getLastModified();
+    this.dataPos = vinfo.dataPos;
 
     // we have to translate the want section into the same rank as the storageSize, in order to be able to call
     // Section.intersect(). It appears that storageSize (actually msl.chunkSize) may have an extra dimension, reletive
@@ -91,25 +179,15 @@ public class H5tiledLayoutBB implements LayoutBB {
     this.chunkSize = new int[nChunkDims];
     System.arraycopy(vinfo.storageSize, 0, chunkSize, 0, nChunkDims);
     this.elemSize = vinfo.storageSize[vinfo.storageSize.length - 1]; // last one is always the elements size
+    long nbytes = 1;
+    for (int size : vinfo.storageSize)
+      nbytes *= size;
+    this.chunkBytes = (int) Math.min(nbytes, DataChunk.MAX_ARRAY_LEN);
 
     // create the data chunk iterator
     DataBTree.DataChunkIterator iter = vinfo.btree.getDataChunkIteratorFilter(this.want);
     DataChunkIterator dcIter = new DataChunkIterator(iter);
-    delegate = new LayoutBBTiled(dcIter, chunkSize, elemSize, this.want);
-
-    if (System.getProperty(INFLATEBUFFERSIZE_PROPERTY) != null) {
-      try {
-        int size = Integer.parseInt(System.getProperty(INFLATEBUFFERSIZE_PROPERTY));
-        if (size <= 0)
-          H5iosp.log.warn(String.format("-D%s must be > 0", INFLATEBUFFERSIZE_PROPERTY));
-        else
-          this.inflatebuffersize = size;
-      } catch (NumberFormatException nfe) {
-        H5iosp.log.warn(String.format("-D%s is not an integer", INFLATEBUFFERSIZE_PROPERTY));
-      }
-    }
-    if (debugFilter)
-      System.out.printf("inflate buffer size -D%s = %d%n", INFLATEBUFFERSIZE_PROPERTY, this.inflatebuffersize);
+    delegate = new LayoutBBTiled(dcIter, chunkSize, elemSize, this.want, getExecutor(), Math.max(decodeThreads, 2));
 
     if (debug)
       System.out.println(" H5tiledLayout: " + this);
@@ -147,17 +225,57 @@ public class H5tiledLayoutBB implements LayoutBB {
 
   private class DataChunkIterator implements LayoutBBTiled.DataChunkIterator {
     DataBTree.DataChunkIterator delegate;
+    private final boolean vectored; // read the chunks in batches
+    private final ArrayDeque<DataChunk> batch = new ArrayDeque<>();
+    private long wantNelems; // number of wanted elements in the chunks not yet batched
 
     DataChunkIterator(DataBTree.DataChunkIterator delegate) {
       this.delegate = delegate;
+      this.vectored = raf instanceof RemoteRandomAccessFile;
+      this.wantNelems = want.computeSize();
     }
 
     public boolean hasNext() {
-      return delegate.hasNext();
+      return !batch.isEmpty() || delegate.hasNext();
     }
 
     public LayoutBBTiled.DataChunk next() throws IOException {
-      return new DataChunk(delegate.next());
+      if (vectored && batch.isEmpty())
+        readBatch();
+      return batch.isEmpty() ? new DataChunk(delegate.next()) : batch.poll();
+    }
+
+    // Read the raw bytes of the next intersecting chunks that are not in the cache, with one vectored read.
+    // Stop once the batched chunks cover the wanted section, so the btree is not read further than needed.
+    private void readBatch() throws IOException {
+      List<DataChunk> toRead = new ArrayList<>();
+      while (delegate.hasNext() && wantNelems > 0 && toRead.size() < VECTORED_CHUNKS) {
+        DataChunk dataChunk = new DataChunk(delegate.next());
+        batch.add(dataChunk);
+        try {
+          Section dataSection = new Section(dataChunk.getOffset(), chunkSize);
+          if (!dataSection.intersects(want))
+            continue;
+          wantNelems -= dataSection.intersect(want).computeSize();
+        } catch (InvalidRangeException e) {
+          throw new IOException(e);
+        }
+        if (!dataChunk.isCached())
+          toRead.add(dataChunk);
+      }
+      if (toRead.isEmpty())
+        return;
+
+      long[] positions = new long[toRead.size()];
+      byte[][] raw = new byte[toRead.size()][];
+      for (int i = 0; i < positions.length; i++) {
+        positions[i] = toRead.get(i).delegate.filePos;
+        raw[i] = new byte[toRead.get(i).delegate.size];
+      }
+      raf.readVectored(positions, raw);
+      for (int i = 0; i < positions.length; i++) {
+        toRead.get(i).raw = raw[i];
+      }
     }
   }
 
@@ -166,6 +284,9 @@ public class H5tiledLayoutBB implements LayoutBB {
     private static final int MAX_ARRAY_LEN = Integer.MAX_VALUE - 8;
 
     DataBTree.DataChunk delegate;
+    H5chunkCache.Key cacheKey;
+    H5chunkCache.Entry cacheEntry; // holds the cached buffer until it is released
+    byte[] raw; // read with the other chunks of a batch, see DataChunkIterator
 
     DataChunk(DataBTree.DataChunk delegate) {
       this.delegate = delegate;
@@ -200,122 +321,120 @@ public class H5tiledLayoutBB implements LayoutBB {
       return offset;
     }
 
+    @Override
     public ByteBuffer getByteBuffer() throws IOException {
+      ByteBuffer cached = getCached();
+      return (cached != null) ? cached : decodeAndCache(readChunk());
+    }
+
+    @Override
+    public Callable<ByteBuffer> readRaw() throws IOException {
+      ByteBuffer cached = getCached();
+      if (cached != null)
+        return () -> cached;
+      byte[] raw = readChunk();
+      return () -> decodeAndCache(raw);
+    }
+
+    @Override
+    public void release(ByteBuffer bb) {
+      if (cacheEntry != null) { // cached buffers are shared
+        cacheEntry.release();
+        cacheEntry = null;
+      } else {
+        free(bb.array());
+      }
+    }
+
+    @Nullable
+    private ByteBuffer getCached() {
+      if (cache == null)
+        return null;
+      cacheEntry = cache.get(getCacheKey());
+      return (cacheEntry == null) ? null : cacheEntry.getByteBuffer(byteOrder);
+    }
+
+    private boolean isCached() {
+      return cache != null && cache.contains(getCacheKey());
+    }
+
+    private H5chunkCache.Key getCacheKey() {
+      if (cacheKey == null)
+        cacheKey = new H5chunkCache.Key(raf.getLocation(), lastModified, dataPos, delegate.offset);
+      return cacheKey;
+    }
+
+    private ByteBuffer decodeAndCache(byte[] raw) throws IOException {
+      ByteBuffer result = decode(raw);
+      if (cache != null) {
+        cacheEntry = cache.put(cacheKey, result, (result.array().length == chunkBytes) ? pool : null);
+        result = cacheEntry.getByteBuffer(byteOrder);
+      }
+      return result;
+    }
+
+    private byte[] readChunk() throws IOException {
+      if (raw != null) {
+        byte[] data = raw;
+        raw = null;
+        return data;
+      }
+      byte[] data = new byte[delegate.size];
+      raf.seek(delegate.filePos);
+      raf.readFully(data);
+      return data;
+    }
+
+    private ByteBuffer decode(byte[] raw) throws IOException {
       try {
-        // read the data
-        byte[] data = new byte[delegate.size];
-        raf.seek(delegate.filePos);
-        raf.readFully(data);
+        ByteBuffer data = ByteBuffer.wrap(raw);
 
-        // apply filters backwards
+        // apply filters backwards, each decodes into a pooled chunk sized array
         for (int i = filters.length - 1; i >= 0; i--) {
-          Filter f = filters[i];
           if (isBitSet(delegate.filterMask, i)) {
             if (debug)
               System.out.println("skip for chunk " + delegate);
             continue;
           }
-          if (f.id == 1) {
-            data = inflate(data);
-          } else if (f.id == 2) {
-            data = shuffle(data, f.data[0]);
-          } else if (f.id == 3) {
-            data = checkfletcher32(data);
-            /*
-             * } else if (f.id == 307) {
-             * data = unbzip2(data);
-             */
-          } else
-            throw new RuntimeException("Unknown filter type=" + f.id);
+          if (decoders[i] == null)
+            throw new IOException(
+                String.format("Unknown HDF5 filter id=%d name=%s in variable %s", filters[i].id, filters[i].name, varName));
+          byte[] out = allocate(chunkBytes);
+          ByteBuffer result = decoders[i].decode(data, ByteBuffer.wrap(out));
+          if (debug || debugFilter)
+            System.out.printf(" %s bytes in= %d bytes out= %d%n", filters[i].name, data.remaining(), result.remaining());
+          if (result.array() != out)
+            free(out);
+          if (result.array() != data.array())
+            free(data.array());
+          data = result;
         }
 
-        ByteBuffer result = ByteBuffer.wrap(data);
-        result.order(byteOrder);
-        return result;
+        if (data.arrayOffset() != 0 || data.position() != 0) { // the Layout and the pool need the whole array
+          byte[] copy = allocate(data.remaining());
+          data.get(copy);
+          data = ByteBuffer.wrap(copy);
+        }
+        data.order(byteOrder);
+        return data;
       } catch (OutOfMemoryError e) {
         Error oom = new OutOfMemoryError("Ran out of memory trying to read HDF5 filtered chunk. Either increase the "
             + "JVM's heap size (use the -Xmx switch) or reduce the size of the dataset's chunks (use nccopy -c).");
         oom.initCause(e); // OutOfMemoryError lacks a constructor with a cause parameter.
         throw oom;
+      } catch (IOException e) {
+        throw new IOException(String.format("Failed to decode HDF5 chunk %s: %s", delegate, e.getMessage()), e);
       }
     }
 
-    /**
-     * inflate data
-     *
-     * @param compressed compressed data
-     * @return uncompressed data
-     * @throws IOException on I/O error
-     */
-    private byte[] inflate(byte[] compressed) throws IOException {
-      // run it through the Inflator
-      ByteArrayInputStream in = new ByteArrayInputStream(compressed);
-      java.util.zip.Inflater inflater = new java.util.zip.Inflater();
-      java.util.zip.InflaterInputStream inflatestream =
-          new java.util.zip.InflaterInputStream(in, inflater, inflatebuffersize);
-      int len = Math.min(8 * compressed.length, MAX_ARRAY_LEN);
-      ByteArrayOutputStream out = new ByteArrayOutputStream(len); // Fixes KXL-349288
-      IO.copyB(inflatestream, out, len);
-
-      byte[] uncomp = out.toByteArray();
-      if (debug || debugFilter)
-        System.out.println(" inflate bytes in= " + compressed.length + " bytes out= " + uncomp.length);
-      return uncomp;
-    }
-
-    /*
-     * private byte[] unbzip2(byte[] compressed) throws IOException {
-     * int max = 20 * compressed.length;
-     * byte[] buffer = new byte[max];
-     * ByteArrayOutputStream out = new ByteArrayOutputStream(20 * compressed.length);
-     * ByteArrayInputStream in = new ByteArrayInputStream(compressed);
-     * try (org.itadaki.bzip2.BZip2InputStream bzIn = new org.itadaki.bzip2.BZip2InputStream(in, false)) {
-     * int bytesRead;
-     * int totRead = 0;
-     * while ((bytesRead = bzIn.read (buffer)) != -1) {
-     * out.write (buffer, 0, bytesRead) ; // LOOK unneeded copy
-     * totRead += bytesRead;
-     * }
-     * out.close();
-     * //System.out.printf("unbzip2=%d%n", totRead);
-     * } catch (Exception e) {
-     * e.printStackTrace();
-     * }
-     * 
-     * return out.toByteArray();
-     * }
-     */
-
-    // just strip off the 4-byte fletcher32 checksum at the end
-    private byte[] checkfletcher32(byte[] org) {
-      byte[] result = new byte[org.length - 4];
-      System.arraycopy(org, 0, result, 0, result.length);
-      if (debug)
-        System.out.println(" checkfletcher32 bytes in= " + org.length + " bytes out= " + result.length);
-      return result;
+    // use the pool only for chunk sized arrays, other sizes are unlikely to be reused
+    private byte[] allocate(int size) {
+      return (size == chunkBytes) ? pool.acquire(size) : new byte[size];
     }
 
-    private byte[] shuffle(byte[] data, int n) {
-      if (debug)
-        System.out.println(" shuffle bytes in= " + data.length + " n= " + n);
-
-      assert data.length % n == 0;
-      if (n <= 1)
-        return data;
-
-      int m = data.length / n;
-      int[] count = new int[n];
-      for (int k = 0; k < n; k++)
-        count[k] = k * m;
-
-      byte[] result = new byte[data.length];
-      for (int i = 0; i < m; i++) {
-        for (int j = 0; j < n; j++) {
-          result[i * n + j] = data[i + count[j]];
-        }
-      }
-
-      return result;
+    private void free(byte[] data) {
+      if (data.length == chunkBytes)
+        pool.release(data);
     }
 
     boolean isBitSet(int val, int bitno) {
@@ -0,0 +1,311 @@
+/*
+ * Copyright (c) 1998-2021 John Caron and University Corporation for Atmospheric Research/Unidata
+ * See LICENSE for license information.
+ */
+package ucar.nc2.internal.iosp.hdf5.filter;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import ucar.nc2.iosp.hdf5.spi.H5filter;
+import ucar.nc2.iosp.hdf5.spi.H5filterProvider;
+
+/**
+ * The Blosc filter, id 32001. Each chunk is a Blosc (version 1) buffer: a 16 byte header, followed by the block
+ * offsets and the compressed blocks. Supports the blosclz, lz4, lz4hc, snappy, zlib and zstd codecs,
+ * with byte shuffle or bit shuffle. See https://github.com/Blosc/c-blosc/blob/master/README_CHUNK_FORMAT.rst
+ */
+class Blosc implements H5filter {
+  static final Blosc instance = new Blosc();
+
+  private static final int HEADER_SIZE = 16;
+  private static final int DOSHUFFLE = 0x01;
+  private static final int MEMCPYED = 0x02;
+  private static final int DOBITSHUFFLE = 0x04;
+  private static final int DONT_SPLIT = 0x10;
+  private static final int MAX_SPLITS = 16;
+  private static final int MIN_BUFFERSIZE = 128;
+
+  @Override
+  public ByteBuffer decode(ByteBuffer in, ByteBuffer out) throws IOException {
+    ByteBuffer src = in.slice().order(ByteOrder.LITTLE_ENDIAN);
+    if (src.remaining() < HEADER_SIZE)
+      throw new IOException("Blosc chunk is too short");
+    int version = src.get(0) & 0xff;
+    int flags = src.get(2) & 0xff;
+    int typesize = src.get(3) & 0xff;
+    int nbytes = src.getInt(4);
+    int blocksize = src.getInt(8);
+    int cbytes = src.getInt(12);
+    if (nbytes < 0 || cbytes > src.remaining() || typesize == 0 || (nbytes > 0 && blocksize <= 0))
+      throw new IOException(String.format("Invalid Blosc header nbytes=%d blocksize=%d cbytes=%d typesize=%d", nbytes,
+          blocksize, cbytes, typesize));
+
+    if (out.capacity() < nbytes)
+      out = ByteBuffer.allocate(nbytes);
+    out.limit(nbytes);
+    byte[] dest = out.array();
+    int destPos = out.arrayOffset();
+    byte[] srcArray = src.array();
+    int srcPos = src.arrayOffset();
+
+    if ((flags & MEMCPYED) != 0) {
+      if (HEADER_SIZE + nbytes > cbytes)
+        throw new IOException("Blosc chunk is truncated");
+      System.arraycopy(srcArray, srcPos + HEADER_SIZE, dest, destPos, nbytes);
+      return out;
+    }
+
+    boolean shuffle = (flags & DOBITSHUFFLE) == 0 && (flags & DOSHUFFLE) != 0 && typesize > 1;
+    boolean bitshuffle = (flags & DOBITSHUFFLE) != 0;
+    int codec = flags >>> 5;
+    int nblocks = nbytes / blocksize;
+    int leftover = nbytes % blocksize;
+    if (leftover > 0)
+      nblocks++;
+    byte[] tmp = (shuffle || bitshuffle) ? new byte[blocksize] : null;
+
+    for (int j = 0; j < nblocks; j++) {
+      boolean leftoverBlock = (j == nblocks - 1) && (leftover > 0);
+      int bsize = leftoverBlock ? leftover : blocksize;
+      int start = src.getInt(HEADER_SIZE + 4 * j);
+      if (start < HEADER_SIZE || start > cbytes)
+        throw new IOException("Invalid Blosc block start " + start);
+
+      byte[] blockDest = (tmp != null) ? tmp : dest;
+      int blockDestPos = (tmp != null) ? 0 : destPos + j * blocksize;
+      int nsplits = ((flags & DONT_SPLIT) == 0 && typesize <= MAX_SPLITS && (bsize / typesize) >= MIN_BUFFERSIZE
+          && !leftoverBlock) ? typesize : 1;
+      int neblock = bsize / nsplits;
+      int pos = start;
+      for (int k = 0; k < nsplits; k++) {
+        if (pos + 4 > cbytes)
+          throw new IOException("Blosc chunk is truncated");
+        int csize = src.getInt(pos);
+        pos += 4;
+        if (csize < 0 || pos + csize > cbytes)
+          throw new IOException("Blosc chunk is truncated");
+        int n;
+        if (csize == neblock) {
+          System.arraycopy(srcArray, srcPos + pos, blockDest, blockDestPos, neblock);
+          n = neblock;
+        } else {
+          n = decompress(codec, srcArray, srcPos + pos, csize, blockDest, blockDestPos, neblock);
+        }
+        if (n != neblock)
+          throw new IOException("Blosc split decoded to " + n + " bytes, expected " + neblock);
+        pos += csize;
+        blockDestPos += neblock;
+      }
+
+      if (shuffle) {
+        Shuffle.unshuffle(tmp, 0, dest, destPos + j * blocksize, bsize, typesize);
+      } else if (bitshuffle) {
+        bitunshuffle(version, typesize, bsize, tmp, dest, destPos + j * blocksize);
+      }
+    }
+    return out;
+  }
+
+  private static int decompress(int codec, byte[] src, int srcPos, int srcLen, byte[] dest, int destPos, int destLen)
+      throws IOException {
+    switch (codec) {
+      case 0:
+        return blosclzDecompress(src, srcPos, srcLen, dest, destPos, destLen);
+      case 1: // lz4 and lz4hc
+        return Lz4.decompressBlock(src, srcPos, srcLen, dest, destPos, destLen);
+      case 2:
+        return snappyDecompress(src, srcPos, srcLen, dest, destPos, destLen);
+      case 3:
+      case 4: {
+        ByteOutput out = new ByteOutput(ByteBuffer.wrap(dest, destPos, destLen).slice());
+        if (codec == 3)
+          Deflate.inflate(ByteBuffer.wrap(src, srcPos, srcLen), out);
+        else
+          ZstdDecoder.decompress(src, srcPos, srcLen, out);
+        return out.pos - destPos; // if too big, out.buf is a copy, and the caller fails on the length
+      }
+      default:
+        throw new IOException("Unsupported Blosc codec " + codec);
+    }
+  }
+
+  /**
+   * Decompress a BloscLZ stream, a variant of FastLZ with 13 bit distances, and 16 bit extended distances.
+   *
+   * @return number of bytes written to dest.
+   */
+  static int blosclzDecompress(byte[] src, int srcPos, int srcLen, byte[] dest, int destPos, int destLen)
+      throws IOException {
+    final int MAX_DISTANCE = 8191;
+    if (srcLen == 0)
+      return 0;
+    int ip = srcPos;
+    int ipEnd = srcPos + srcLen;
+    int op = destPos;
+    int opEnd = destPos + destLen;
+    try {
+      int ctrl = src[ip++] & 31;
+      while (true) {
+        if (ctrl >= 32) { // match
+          int len = (ctrl >>> 5) - 1;
+          int ofs = (ctrl & 31) << 8;
+          if (len == 7 - 1) {
+            int code;
+            do {
+              code = src[ip++] & 0xff;
+              len += code;
+            } while (code == 255);
+          }
+          int code = src[ip++] & 0xff;
+          len += 3;
+          int ref = op - ofs - code - 1;
+          if (code == 255 && ofs == (31 << 8)) { // 16 bit distance
+            ofs = ((src[ip] & 0xff) << 8) + (src[ip + 1] & 0xff);
+            ip += 2;
+            ref = op - ofs - MAX_DISTANCE - 1;
+          }
+          if (op + len > opEnd || ref < destPos)
+            throw new IOException("Corrupt BloscLZ stream: bad match");
+          for (int i = 0; i < len; i++)
+            dest[op++] = dest[ref++];
+        } else { // literal run
+          int len = ctrl + 1;
+          if (op + len > opEnd || ip + len > ipEnd)
+            throw new IOException("Corrupt BloscLZ stream: literals overflow");
+          System.arraycopy(src, ip, dest, op, len);
+          ip += len;
+          op += len;
+        }
+        if (ip >= ipEnd)
+          break;
+        ctrl = src[ip++] & 0xff;
+      }
+    } catch (ArrayIndexOutOfBoundsException e) {
+      throw new IOException("Corrupt BloscLZ stream: truncated", e);
+    }
+    return op - destPos;
+  }
+
+  /**
+   * Decompress a Snappy block (https://github.com/google/snappy/blob/main/format_description.txt).
+   *
+   * @return number of bytes written to dest.
+   */
+  static int snappyDecompress(byte[] src, int srcPos, int srcLen, byte[] dest, int destPos, int destLen)
+      throws IOException {
+    int ip = srcPos;
+    int ipEnd = srcPos + srcLen;
+    int op = destPos;
+    try {
+      // varint decoded length
+      long length = 0;
+      int shift = 0;
+      int b;
+      do {
+        b = src[ip++] & 0xff;
+        length |= (long) (b & 0x7f) << shift;
+        shift += 7;
+      } while ((b & 0x80) != 0 && shift < 35);
+      if (length > destLen)
+        throw new IOException("Snappy block is larger than expected: " + length);
+      int opEnd = destPos + (int) length;
+
+      while (ip < ipEnd) {
+        int tag = src[ip++] & 0xff;
+        int len;
+        int offset;
+        switch (tag & 3) {
+          case 0: // literal
+            len = tag >>> 2;
+            if (len >= 60) {
+              int nbytes = len - 59;
+              len = 0;
+              for (int i = 0; i < nbytes; i++)
+                len |= (src[ip++] & 0xff) << (8 * i);
+            }
+            len++;
+            if (len <= 0 || op + len > opEnd || ip + len > ipEnd)
+              throw new IOException("Corrupt Snappy block: literals overflow");
+            System.arraycopy(src, ip, dest, op, len);
+            ip += len;
+            op += len;
+            continue;
+          case 1:
+            len = 4 + ((tag >>> 2) & 7);
+            offset = ((tag >>> 5) << 8) | (src[ip++] & 0xff);
+            break;
+          case 2:
+            len = (tag >>> 2) + 1;
+            offset = (src[ip] & 0xff) | ((src[ip + 1] & 0xff) << 8);
+            ip += 2;
+            break;
+          default:
+            len = (tag >>> 2) + 1;
+            offset = (src[ip] & 0xff) | ((src[ip + 1] & 0xff) << 8) | ((src[ip + 2] & 0xff) << 16)
+                | ((src[ip + 3] & 0xff) << 24);
+            ip += 4;
+        }
+        int ref = op - offset;
+        if (offset <= 0 || ref < destPos || op + len > opEnd)
+          throw new IOException("Corrupt Snappy block: bad copy");
+        for (int i = 0; i < len; i++)
+          dest[op++] = dest[ref++];
+      }
+    } catch (ArrayIndexOutOfBoundsException e) {
+      throw new IOException("Corrupt Snappy block: truncated", e);
+    }
+    return op - destPos;
+  }
+
+  /**
+   * Undo the bitshuffle transform of one block: bit i of byte b of element k is stored in bit (k % 8) of
+   * byte ((b * 8 + i) * nelems + k) / 8. Only a multiple of 8 elements are shuffled, the leftover bytes are copied.
+   */
+  static void bitunshuffle(int version, int typesize, int blocksize, byte[] src, byte[] dest, int destPos) {
+    int nelems = blocksize / typesize;
+    if (version == 2 && (nelems % 8) != 0) { // format version 2 did not shuffle partial blocks
+      System.arraycopy(src, 0, dest, destPos, blocksize);
+      return;
+    }
+    nelems -= nelems % 8;
+    int rowBytes = nelems / 8; // bytes in one bit row
+    for (int b = 0; b < typesize; b++) {
+      for (int i = 0; i < 8; i++) {
+        int row = (b * 8 + i) * rowBytes;
+        for (int r = 0; r < rowBytes; r++) {
+          int bits = src[row + r] & 0xff;
+          if (bits == 0 && i != 0)
+            continue;
+          int to = destPos + (r * 8) * typesize + b;
+          for (int k = 0; k < 8; k++) {
+            if (i == 0) // first bit of this byte: initialize
+              dest[to] = (byte) ((bits >>> k) & 1);
+            else
+              dest[to] |= (byte) (((bits >>> k) & 1) << i);
+            to += typesize;
+          }
+        }
+      }
+    }
+    int offset = nelems * typesize;
+    System.arraycopy(src, offset, dest, destPos + offset, blocksize - offset);
+  }
+
+  public static class Provider implements H5filterProvider {
+    @Override
+    public int getId() {
+      return 32001;
+    }
+
+    @Override
+    public String getName() {
+      return "blosc";
+    }
+
+    @Override
+    public H5filter create(int[] clientData) {
+      return instance;
+    }
+  }
+}
@@ -0,0 +1,67 @@
+/*
+ * Copyright (c) 1998-2021 John Caron and University Corporation for Atmospheric Research/Unidata
+ * See LICENSE for license information.
+ */
+package ucar.nc2.internal.iosp.hdf5.filter;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+/** Decoded bytes, written into the caller supplied buffer until it is full, then into a larger array. */
+class ByteOutput {
+  // Copied from ArrayList.
+  private static final int MAX_ARRAY_LEN = Integer.MAX_VALUE - 8;
+
+  private final int start;
+  byte[] buf;
+  int pos;
+  int limit; // end of the usable part of buf
+
+  ByteOutput(ByteBuffer out) {
+    this.buf = out.array();
+    this.pos = out.arrayOffset();
+    this.start = pos;
+    this.limit = pos + out.capacity();
+  }
+
+  /** Make room for n more bytes. */
+  void ensure(int n) throws IOException {
+    long need = (long) pos + n;
+    if (need <= limit)
+      return;
+    if (need > MAX_ARRAY_LEN)
+      throw new IOException("Decoded chunk is larger than the maximum length of a byte array");
+    byte[] bigger = new byte[(int) Math.min(Math.max(need, 2L * limit), MAX_ARRAY_LEN)];
+    System.arraycopy(buf, 0, bigger, 0, pos);
+    buf = bigger;
+    limit = buf.length;
+  }
+
+  void write(byte b) throws IOException {
+    ensure(1);
+    buf[pos++] = b;
+  }
+
+  /** Copy length bytes starting distance bytes back from the end of the output; they may overlap. */
+  void copyMatch(int distance, int length) throws IOException {
+    if (distance <= 0 || distance > pos - start)
+      throw new IOException("Invalid match distance " + distance);
+    ensure(length);
+    int from = pos - distance;
+    if (distance >= length) {
+      System.arraycopy(buf, from, buf, pos, length);
+    } else {
+      for (int i = 0; i < length; i++)
+        buf[pos + i] = buf[from + i];
+    }
+    pos += length;
+  }
+
+  /** The decoded bytes. */
+  ByteBuffer result() {
+    ByteBuffer bb = ByteBuffer.wrap(buf);
+    bb.position(start);
+    bb.limit(pos);
+    return bb.slice();
+  }
+}
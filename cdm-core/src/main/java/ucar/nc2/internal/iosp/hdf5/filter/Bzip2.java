@@ -0,0 +1,53 @@
+/*
+ * Copyright (c) 1998-2021 John Caron and University Corporation for Atmospheric Research/Unidata
+ * See LICENSE for license information.
+ */
+package ucar.nc2.internal.iosp.hdf5.filter;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import ucar.nc2.iosp.hdf5.spi.H5filter;
+import ucar.nc2.iosp.hdf5.spi.H5filterProvider;
+import ucar.unidata.io.bzip2.BZip2ReadException;
+import ucar.unidata.io.bzip2.CBZip2InputStream;
+
+/** The bzip2 filter, id 307. Each chunk is a complete bzip2 stream. */
+class Bzip2 implements H5filter {
+  static final Bzip2 instance = new Bzip2();
+
+  @Override
+  public ByteBuffer decode(ByteBuffer in, ByteBuffer out) throws IOException {
+    if (in.remaining() < 2 || in.get(in.position()) != 'B' || in.get(in.position() + 1) != 'Z')
+      throw new IOException("Not a bzip2 stream");
+    ByteArrayInputStream bin = new ByteArrayInputStream(in.array(), in.arrayOffset() + in.position() + 2,
+        in.remaining() - 2); // the stream starts after the "BZ" magic
+    ByteOutput result = new ByteOutput(out);
+    try {
+      CBZip2InputStream bzip = new CBZip2InputStream(bin);
+      int b;
+      while ((b = bzip.read()) != -1)
+        result.write((byte) b);
+    } catch (BZip2ReadException e) {
+      throw new IOException(e.getMessage(), e);
+    }
+    return result.result();
+  }
+
+  public static class Provider implements H5filterProvider {
+    @Override
+    public int getId() {
+      return 307;
+    }
+
+    @Override
+    public String getName() {
+      return "bzip2";
+    }
+
+    @Override
+    public H5filter create(int[] clientData) {
+      return instance;
+    }
+  }
+}
@@ -0,0 +1,87 @@
+/*
+ * Copyright (c) 1998-2021 John Caron and University Corporation for Atmospheric Research/Unidata
+ * See LICENSE for license information.
+ */
+package ucar.nc2.internal.iosp.hdf5.filter;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+import ucar.nc2.iosp.hdf5.spi.H5filter;
+import ucar.nc2.iosp.hdf5.spi.H5filterProvider;
+
+/** The deflate (zlib) filter, id 1. Inflaters are pooled. */
+class Deflate implements H5filter {
+  private static final int MAX_INFLATERS = 4 * Runtime.getRuntime().availableProcessors();
+  private static final Queue<Inflater> inflaters = new ConcurrentLinkedQueue<>();
+  private static final AtomicInteger ninflaters = new AtomicInteger();
+  static final Deflate instance = new Deflate();
+
+  /** Get an Inflater in its initial state. */
+  static Inflater acquireInflater() {
+    Inflater inflater = inflaters.poll();
+    if (inflater == null)
+      return new Inflater();
+    ninflaters.decrementAndGet();
+    return inflater;
+  }
+
+  /** Return an Inflater to the pool. The caller must not use it afterwards. */
+  static void releaseInflater(Inflater inflater) {
+    if (ninflaters.incrementAndGet() > MAX_INFLATERS) {
+      ninflaters.decrementAndGet();
+      inflater.end();
+      return;
+    }
+    inflater.reset();
+    inflaters.offer(inflater);
+  }
+
+  /** Inflate a zlib stream from in to out. */
+  static void inflate(ByteBuffer in, ByteOutput out) throws IOException {
+    Inflater inflater = acquireInflater();
+    try {
+      inflater.setInput(in.array(), in.arrayOffset() + in.position(), in.remaining());
+      while (!inflater.finished()) {
+        if (out.pos == out.limit) // larger than a chunk: should not happen, but dont fail
+          out.ensure(1);
+        int n = inflater.inflate(out.buf, out.pos, out.limit - out.pos);
+        if (n == 0 && !inflater.finished() && (inflater.needsInput() || inflater.needsDictionary()))
+          throw new IOException("Unexpected end of ZLIB input stream");
+        out.pos += n;
+      }
+    } catch (DataFormatException e) {
+      throw new IOException(e.getMessage(), e);
+    } finally {
+      releaseInflater(inflater);
+    }
+  }
+
+  @Override
+  public ByteBuffer decode(ByteBuffer in, ByteBuffer out) throws IOException {
+    ByteOutput result = new ByteOutput(out);
+    inflate(in, result);
+    return result.result();
+  }
+
+  public static class Provider implements H5filterProvider {
+    @Override
+    public int getId() {
+      return 1;
+    }
+
+    @Override
+    public String getName() {
+      return "deflate";
+    }
+
+    @Override
+    public H5filter create(int[] clientData) {
+      return instance;
+    }
+  }
+}
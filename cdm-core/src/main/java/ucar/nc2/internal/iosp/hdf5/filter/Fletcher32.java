@@ -0,0 +1,40 @@
+/*
+ * Copyright (c) 1998-2021 John Caron and University Corporation for Atmospheric Research/Unidata
+ * See LICENSE for license information.
+ */
+package ucar.nc2.internal.iosp.hdf5.filter;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import ucar.nc2.iosp.hdf5.spi.H5filter;
+import ucar.nc2.iosp.hdf5.spi.H5filterProvider;
+
+/** The fletcher32 checksum filter, id 3. The checksum is not checked, just stripped off, without a copy. */
+class Fletcher32 implements H5filter {
+  static final Fletcher32 instance = new Fletcher32();
+
+  @Override
+  public ByteBuffer decode(ByteBuffer in, ByteBuffer out) throws IOException {
+    if (in.remaining() < 4)
+      throw new IOException("fletcher32 chunk is too short");
+    in.limit(in.limit() - 4);
+    return in;
+  }
+
+  public static class Provider implements H5filterProvider {
+    @Override
+    public int getId() {
+      return 3;
+    }
+
+    @Override
+    public String getName() {
+      return "fletcher32";
+    }
+
+    @Override
+    public H5filter create(int[] clientData) {
+      return instance;
+    }
+  }
+}
@@ -0,0 +1,61 @@
+/*
+ * Copyright (c) 1998-2021 John Caron and University Corporation for Atmospheric Research/Unidata
+ * See LICENSE for license information.
+ */
+package ucar.nc2.internal.iosp.hdf5.filter;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.ServiceLoader;
+import javax.annotation.Nullable;
+import ucar.nc2.iosp.hdf5.spi.H5filterProvider;
+
+/**
+ * Finds the decoder for an HDF5 filter id.
+ * Explicitly registered providers are tried first, then those found by the ServiceLoader, then the built-in ones.
+ * So a provider on the classpath may replace a built-in decoder, eg with one that calls a native library.
+ * If the ServiceLoader finds several providers for the same id, the first one is used.
+ */
+public class H5filters {
+  private static final Map<Integer, H5filterProvider> registered = new HashMap<>();
+  private static final Map<Integer, H5filterProvider> builtin = new HashMap<>();
+  private static Map<Integer, H5filterProvider> loaded; // lazy
+
+  static {
+    addBuiltin(new Deflate.Provider());
+    addBuiltin(new Shuffle.Provider());
+    addBuiltin(new Fletcher32.Provider());
+    addBuiltin(new Bzip2.Provider());
+    addBuiltin(new Lz4.Provider());
+    addBuiltin(new Zstd.Provider());
+    addBuiltin(new Blosc.Provider());
+  }
+
+  private static void addBuiltin(H5filterProvider provider) {
+    builtin.put(provider.getId(), provider);
+  }
+
+  private H5filters() {}
+
+  /** Register a provider, which is used in preference to any other for its filter id. */
+  public static synchronized void register(H5filterProvider provider) {
+    registered.put(provider.getId(), provider);
+  }
+
+  /** Find the provider for a filter id, or null if there is none. */
+  @Nullable
+  public static synchronized H5filterProvider find(int id) {
+    H5filterProvider result = registered.get(id);
+    if (result == null) {
+      if (loaded == null) {
+        loaded = new HashMap<>();
+        for (H5filterProvider provider : ServiceLoader.load(H5filterProvider.class))
+          loaded.putIfAbsent(provider.getId(), provider);
+      }
+      result = loaded.get(id);
+    }
+    if (result == null)
+      result = builtin.get(id);
+    return result;
+  }
+}
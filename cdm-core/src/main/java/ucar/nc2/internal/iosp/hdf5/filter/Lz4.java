@@ -0,0 +1,137 @@
+/*
+ * Copyright (c) 1998-2021 John Caron and University Corporation for Atmospheric Research/Unidata
+ * See LICENSE for license information.
+ */
+package ucar.nc2.internal.iosp.hdf5.filter;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import ucar.nc2.iosp.hdf5.spi.H5filter;
+import ucar.nc2.iosp.hdf5.spi.H5filterProvider;
+
+/**
+ * The LZ4 filter, id 32004. A chunk is the big endian decoded size (8 bytes) and block size (4 bytes),
+ * followed by the blocks, each with its big endian compressed size (4 bytes).
+ * A block whose compressed size equals its decoded size is stored uncompressed.
+ */
+class Lz4 implements H5filter {
+  static final Lz4 instance = new Lz4();
+
+  /**
+   * Decompress one LZ4 block (https://github.com/lz4/lz4/blob/dev/doc/lz4_Block_format.md).
+   *
+   * @return number of bytes written to dest.
+   */
+  static int decompressBlock(byte[] src, int srcPos, int srcLen, byte[] dest, int destPos, int destLen)
+      throws IOException {
+    int ip = srcPos;
+    int ipEnd = srcPos + srcLen;
+    int op = destPos;
+    int opEnd = destPos + destLen;
+    try {
+      while (ip < ipEnd) {
+        int token = src[ip++] & 0xff;
+
+        // literals
+        int litLen = token >>> 4;
+        if (litLen == 15) {
+          int b;
+          do {
+            b = src[ip++] & 0xff;
+            litLen += b;
+          } while (b == 255);
+        }
+        if (ip + litLen > ipEnd || op + litLen > opEnd)
+          throw new IOException("Corrupt LZ4 block: literals overflow");
+        System.arraycopy(src, ip, dest, op, litLen);
+        ip += litLen;
+        op += litLen;
+        if (ip == ipEnd) // the last sequence has only literals
+          break;
+
+        // match
+        int offset = (src[ip] & 0xff) | ((src[ip + 1] & 0xff) << 8);
+        ip += 2;
+        int matchLen = token & 0x0f;
+        if (matchLen == 15) {
+          int b;
+          do {
+            b = src[ip++] & 0xff;
+            matchLen += b;
+          } while (b == 255);
+        }
+        matchLen += 4;
+        int from = op - offset;
+        if (offset == 0 || from < destPos || op + matchLen > opEnd)
+          throw new IOException("Corrupt LZ4 block: bad match");
+        if (offset >= matchLen) {
+          System.arraycopy(dest, from, dest, op, matchLen);
+          op += matchLen;
+        } else {
+          for (int i = 0; i < matchLen; i++)
+            dest[op++] = dest[from++];
+        }
+      }
+    } catch (ArrayIndexOutOfBoundsException e) {
+      throw new IOException("Corrupt LZ4 block: truncated", e);
+    }
+    return op - destPos;
+  }
+
+  @Override
+  public ByteBuffer decode(ByteBuffer in, ByteBuffer out) throws IOException {
+    if (in.remaining() < 12)
+      throw new IOException("LZ4 chunk is too short");
+    byte[] src = in.array();
+    int ip = in.arrayOffset() + in.position();
+    int ipEnd = ip + in.remaining();
+    long total = ByteBuffer.wrap(src, ip, 12).getLong(); // big endian
+    int blockSize = ByteBuffer.wrap(src, ip + 8, 4).getInt();
+    ip += 12;
+    if (total < 0 || total > Integer.MAX_VALUE - 8 || (blockSize <= 0 && total > 0))
+      throw new IOException("Invalid LZ4 chunk header total=" + total + " blockSize=" + blockSize);
+    if (out.capacity() < total)
+      out = ByteBuffer.allocate((int) total);
+    byte[] dest = out.array();
+    int op = out.arrayOffset();
+    int opEnd = op + (int) total;
+
+    while (op < opEnd) {
+      if (ip + 4 > ipEnd)
+        throw new IOException("LZ4 chunk is truncated");
+      int compSize = ByteBuffer.wrap(src, ip, 4).getInt();
+      ip += 4;
+      int size = Math.min(blockSize, opEnd - op);
+      if (compSize < 0 || ip + compSize > ipEnd)
+        throw new IOException("LZ4 chunk is truncated");
+      if (compSize == size) {
+        System.arraycopy(src, ip, dest, op, size);
+      } else {
+        int n = decompressBlock(src, ip, compSize, dest, op, size);
+        if (n != size)
+          throw new IOException("LZ4 block decoded to " + n + " bytes, expected " + size);
+      }
+      ip += compSize;
+      op += size;
+    }
+    out.limit((int) total);
+    return out;
+  }
+
+  public static class Provider implements H5filterProvider {
+    @Override
+    public int getId() {
+      return 32004;
+    }
+
+    @Override
+    public String getName() {
+      return "lz4";
+    }
+
+    @Override
+    public H5filter create(int[] clientData) {
+      return instance;
+    }
+  }
+}
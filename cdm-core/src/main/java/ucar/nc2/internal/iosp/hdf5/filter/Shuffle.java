@@ -0,0 +1,67 @@
+/*
+ * Copyright (c) 1998-2021 John Caron and University Corporation for Atmospheric Research/Unidata
+ * See LICENSE for license information.
+ */
+package ucar.nc2.internal.iosp.hdf5.filter;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import ucar.nc2.iosp.hdf5.spi.H5filter;
+import ucar.nc2.iosp.hdf5.spi.H5filterProvider;
+
+/** The byte shuffle filter, id 2. The client data is the element size. */
+class Shuffle implements H5filter {
+  private final int elemSize;
+
+  Shuffle(int elemSize) {
+    this.elemSize = elemSize;
+  }
+
+  /**
+   * Unshuffle len bytes: byte j of element i is stored at j * (len / n) + i.
+   * Leftover bytes at the end (len not a multiple of n) are not shuffled.
+   */
+  static void unshuffle(byte[] src, int srcPos, byte[] dest, int destPos, int len, int n) {
+    int m = len / n;
+    for (int j = 0; j < n; j++) {
+      int from = srcPos + j * m;
+      int to = destPos + j;
+      for (int i = 0; i < m; i++) {
+        dest[to] = src[from + i];
+        to += n;
+      }
+    }
+    System.arraycopy(src, srcPos + m * n, dest, destPos + m * n, len - m * n);
+  }
+
+  @Override
+  public ByteBuffer decode(ByteBuffer in, ByteBuffer out) {
+    if (elemSize <= 1)
+      return in;
+    int len = in.remaining();
+    if (out.capacity() < len)
+      out = ByteBuffer.allocate(len);
+    unshuffle(in.array(), in.arrayOffset() + in.position(), out.array(), out.arrayOffset(), len, elemSize);
+    out.limit(len);
+    return out;
+  }
+
+  public static class Provider implements H5filterProvider {
+    @Override
+    public int getId() {
+      return 2;
+    }
+
+    @Override
+    public String getName() {
+      return "shuffle";
+    }
+
+    @Override
+    public H5filter create(int[] clientData) throws IOException {
+      if (clientData.length < 1)
+        throw new IOException("shuffle filter must have the element size");
+      return new Shuffle(clientData[0]);
+    }
+  }
+}
@@ -0,0 +1,39 @@
+/*
+ * Copyright (c) 1998-2021 John Caron and University Corporation for Atmospheric Research/Unidata
+ * See LICENSE for license information.
+ */
+package ucar.nc2.internal.iosp.hdf5.filter;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import ucar.nc2.iosp.hdf5.spi.H5filter;
+import ucar.nc2.iosp.hdf5.spi.H5filterProvider;
+
+/** The Zstandard filter, id 32015. Each chunk is a zstd frame. */
+class Zstd implements H5filter {
+  static final Zstd instance = new Zstd();
+
+  @Override
+  public ByteBuffer decode(ByteBuffer in, ByteBuffer out) throws IOException {
+    ByteOutput result = new ByteOutput(out);
+    ZstdDecoder.decompress(in.array(), in.arrayOffset() + in.position(), in.remaining(), result);
+    return result.result();
+  }
+
+  public static class Provider implements H5filterProvider {
+    @Override
+    public int getId() {
+      return 32015;
+    }
+
+    @Override
+    public String getName() {
+      return "zstd";
+    }
+
+    @Override
+    public H5filter create(int[] clientData) {
+      return instance;
+    }
+  }
+}
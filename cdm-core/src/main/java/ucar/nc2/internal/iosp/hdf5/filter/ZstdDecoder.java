@@ -0,0 +1,724 @@
+/*
+ * Copyright (c) 1998-2021 John Caron and University Corporation for Atmospheric Research/Unidata
+ * See LICENSE for license information.
+ */
+package ucar.nc2.internal.iosp.hdf5.filter;
+
+import java.io.IOException;
+import java.util.Arrays;
+
+/**
+ * Decompress Zstandard frames, following RFC 8878 (https://datatracker.ietf.org/doc/html/rfc8878).
+ * Dictionaries are not supported, and checksums are not checked. Not thread safe, use one per stream.
+ */
+class ZstdDecoder {
+  private static final int MAGIC = 0xFD2FB528;
+  private static final int SKIPPABLE_MAGIC = 0x184D2A50; // low 4 bits are any value
+  private static final int MAX_BLOCK_SIZE = 128 * 1024;
+
+  // literal length codes
+  private static final int[] LL_BASE = {0, 1, 2, 3, 4, 5, 6, 7, 8, 9, 10, 11, 12, 13, 14, 15, 16, 18, 20, 22, 24, 28,
+      32, 40, 48, 64, 128, 256, 512, 1024, 2048, 4096, 8192, 16384, 32768, 65536};
+  private static final int[] LL_BITS =
+      {0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 1, 1, 1, 1, 2, 2, 3, 3, 4, 6, 7, 8, 9, 10, 11, 12, 13, 14, 15, 16};
+  private static final short[] LL_DEFAULT = {4, 3, 2, 2, 2, 2, 2, 2, 2, 2, 2, 2, 2, 1, 1, 1, 2, 2, 2, 2, 2, 2, 2, 2, 2,
+      3, 2, 1, 1, 1, 1, 1, -1, -1, -1, -1};
+
+  // match length codes
+  private static final int[] ML_BASE = {3, 4, 5, 6, 7, 8, 9, 10, 11, 12, 13, 14, 15, 16, 17, 18, 19, 20, 21, 22, 23,
+      24, 25, 26, 27, 28, 29, 30, 31, 32, 33, 34, 35, 37, 39, 41, 43, 47, 51, 59, 67, 83, 99, 131, 259, 515, 1027, 2051,
+      4099, 8195, 16387, 32771, 65539};
+  private static final int[] ML_BITS = {0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0,
+      0, 0, 0, 0, 0, 0, 1, 1, 1, 1, 2, 2, 3, 3, 4, 4, 5, 7, 8, 9, 10, 11, 12, 13, 14, 15, 16};
+  private static final short[] ML_DEFAULT = {1, 4, 3, 2, 2, 2, 2, 2, 2, 1, 1, 1, 1, 1, 1, 1, 1, 1, 1, 1, 1, 1, 1, 1, 1,
+      1, 1, 1, 1, 1, 1, 1, 1, 1, 1, 1, 1, 1, 1, 1, 1, 1, 1, 1, 1, 1, -1, -1, -1, -1, -1, -1, -1};
+
+  // offset codes
+  private static final short[] OF_DEFAULT =
+      {1, 1, 1, 1, 1, 1, 2, 2, 2, 1, 1, 1, 1, 1, 1, 1, 1, 1, 1, 1, 1, 1, 1, 1, -1, -1, -1, -1, -1};
+
+  private static final FseTable LL_PREDEFINED = FseTable.buildUnchecked(LL_DEFAULT, 6);
+  private static final FseTable ML_PREDEFINED = FseTable.buildUnchecked(ML_DEFAULT, 6);
+  private static final FseTable OF_PREDEFINED = FseTable.buildUnchecked(OF_DEFAULT, 5);
+
+  /** Decompress all the frames in src[pos, pos+len) into out. */
+  static void decompress(byte[] src, int pos, int len, ByteOutput out) throws IOException {
+    try {
+      new ZstdDecoder(src, out).decompressFrames(pos, pos + len);
+    } catch (ArrayIndexOutOfBoundsException e) {
+      throw new IOException("Corrupt zstd stream: truncated", e);
+    }
+  }
+
+  ////////////////////////////////////////////////////////////////////////////////
+
+  private final byte[] src;
+  private final ByteOutput out;
+
+  // the state of a frame, carried from one block to the next
+  private final int[] rep = new int[3];
+  private FseTable llTable, ofTable, mlTable;
+  private HuffmanTable huffTable;
+  private byte[] literals = new byte[0];
+  private int nliterals;
+
+  private ZstdDecoder(byte[] src, ByteOutput out) {
+    this.src = src;
+    this.out = out;
+  }
+
+  private void decompressFrames(int ip, int ipEnd) throws IOException {
+    if (ip >= ipEnd)
+      throw new IOException("Empty zstd stream");
+    while (ip < ipEnd) {
+      int magic = readIntLE(ip);
+      if ((magic & 0xFFFFFFF0) == SKIPPABLE_MAGIC) {
+        ip += 8 + readIntLE(ip + 4);
+        continue;
+      }
+      if (magic != MAGIC)
+        throw new IOException(String.format("Not a zstd frame, magic=%x", magic));
+      ip = decompressFrame(ip + 4, ipEnd);
+    }
+  }
+
+  private int decompressFrame(int ip, int ipEnd) throws IOException {
+    int descriptor = src[ip++] & 0xff;
+    int fcsFlag = descriptor >>> 6;
+    boolean singleSegment = (descriptor & 0x20) != 0;
+    boolean hasChecksum = (descriptor & 0x04) != 0;
+    int dictFlag = descriptor & 0x03;
+    if ((descriptor & 0x08) != 0)
+      throw new IOException("Corrupt zstd frame: reserved bit is set");
+    if (!singleSegment)
+      ip++; // window descriptor: the whole frame is kept in memory
+    if (dictFlag != 0) {
+      int dictSize = (dictFlag == 3) ? 4 : dictFlag;
+      long dictId = 0;
+      for (int i = 0; i < dictSize; i++)
+        dictId |= (src[ip + i] & 0xffL) << (8 * i);
+      ip += dictSize;
+      if (dictId != 0)
+        throw new IOException("zstd dictionaries are not supported");
+    }
+    int fcsSize = (fcsFlag == 0) ? (singleSegment ? 1 : 0) : 1 << fcsFlag;
+    if (fcsSize > 0) {
+      long contentSize = 0;
+      for (int i = 0; i < fcsSize; i++)
+        contentSize |= (src[ip + i] & 0xffL) << (8 * i);
+      if (fcsSize == 2)
+        contentSize += 256;
+      ip += fcsSize;
+      if (contentSize < 0 || contentSize > Integer.MAX_VALUE)
+        throw new IOException("zstd frame is too large, content size=" + contentSize);
+      out.ensure((int) contentSize);
+    }
+
+    rep[0] = 1;
+    rep[1] = 4;
+    rep[2] = 8;
+    llTable = ofTable = mlTable = null;
+    huffTable = null;
+
+    boolean last;
+    do {
+      int header = (src[ip] & 0xff) | ((src[ip + 1] & 0xff) << 8) | ((src[ip + 2] & 0xff) << 16);
+      ip += 3;
+      last = (header & 1) != 0;
+      int type = (header >>> 1) & 3;
+      int size = header >>> 3;
+      switch (type) {
+        case 0: // raw
+          checkInput(ip + size, ipEnd);
+          out.ensure(size);
+          System.arraycopy(src, ip, out.buf, out.pos, size);
+          out.pos += size;
+          ip += size;
+          break;
+        case 1: // RLE
+          checkInput(ip + 1, ipEnd);
+          out.ensure(size);
+          Arrays.fill(out.buf, out.pos, out.pos + size, src[ip]);
+          out.pos += size;
+          ip++;
+          break;
+        case 2: // compressed
+          checkInput(ip + size, ipEnd);
+          decompressBlock(ip, ip + size);
+          ip += size;
+          break;
+        default:
+          throw new IOException("Corrupt zstd frame: reserved block type");
+      }
+    } while (!last);
+
+    if (hasChecksum)
+      ip += 4;
+    checkInput(ip, ipEnd);
+    return ip;
+  }
+
+  private void decompressBlock(int ip, int blockEnd) throws IOException {
+    ip = decodeLiterals(ip, blockEnd);
+    decodeSequences(ip, blockEnd);
+  }
+
+  /** Decode the literals section into literals, return the start of the sequences section. */
+  private int decodeLiterals(int ip, int blockEnd) throws IOException {
+    int b0 = src[ip] & 0xff;
+    int type = b0 & 3;
+    int sizeFormat = (b0 >>> 2) & 3;
+    int regenSize;
+    int compSize = 0;
+    int nstreams = 1;
+
+    if (type <= 1) { // raw or RLE
+      switch (sizeFormat) {
+        case 1:
+          regenSize = (b0 >>> 4) + ((src[ip + 1] & 0xff) << 4);
+          ip += 2;
+          break;
+        case 3:
+          regenSize = (b0 >>> 4) + ((src[ip + 1] & 0xff) << 4) + ((src[ip + 2] & 0xff) << 12);
+          ip += 3;
+          break;
+        default:
+          regenSize = b0 >>> 3;
+          ip += 1;
+      }
+    } else { // compressed or treeless
+      if (sizeFormat <= 1) {
+        int v = b0 | ((src[ip + 1] & 0xff) << 8) | ((src[ip + 2] & 0xff) << 16);
+        regenSize = (v >>> 4) & 0x3FF;
+        compSize = (v >>> 14) & 0x3FF;
+        nstreams = (sizeFormat == 0) ? 1 : 4;
+        ip += 3;
+      } else if (sizeFormat == 2) {
+        int v = readIntLE(ip);
+        regenSize = (v >>> 4) & 0x3FFF;
+        compSize = v >>> 18;
+        nstreams = 4;
+        ip += 4;
+      } else {
+        long v = (readIntLE(ip) & 0xffffffffL) | ((src[ip + 4] & 0xffL) << 32);
+        regenSize = (int) ((v >>> 4) & 0x3FFFF);
+        compSize = (int) ((v >>> 22) & 0x3FFFF);
+        nstreams = 4;
+        ip += 5;
+      }
+    }
+    if (regenSize > MAX_BLOCK_SIZE)
+      throw new IOException("Corrupt zstd block: too many literals " + regenSize);
+    if (literals.length < regenSize)
+      literals = new byte[Math.max(regenSize, Math.min(2 * literals.length, MAX_BLOCK_SIZE))];
+    nliterals = regenSize;
+
+    switch (type) {
+      case 0:
+        checkInput(ip + regenSize, blockEnd);
+        System.arraycopy(src, ip, literals, 0, regenSize);
+        return ip + regenSize;
+      case 1:
+        Arrays.fill(literals, 0, regenSize, src[ip]);
+        return ip + 1;
+      default:
+        int end = ip + compSize;
+        checkInput(end, blockEnd);
+        if (type == 2) {
+          ip = readHuffmanTable(ip, end);
+        } else if (huffTable == null) {
+          throw new IOException("Corrupt zstd block: treeless literals without a previous Huffman table");
+        }
+        if (nstreams == 1) {
+          huffTable.decodeStream(src, ip, end, literals, 0, regenSize);
+        } else {
+          int size1 = readShortLE(ip);
+          int size2 = readShortLE(ip + 2);
+          int size3 = readShortLE(ip + 4);
+          int start1 = ip + 6;
+          int start2 = start1 + size1;
+          int start3 = start2 + size2;
+          int start4 = start3 + size3;
+          checkInput(start4, end);
+          int segment = (regenSize + 3) / 4;
+          if (3 * segment > regenSize)
+            throw new IOException("Corrupt zstd block: too few literals for 4 streams");
+          huffTable.decodeStream(src, start1, start2, literals, 0, segment);
+          huffTable.decodeStream(src, start2, start3, literals, segment, segment);
+          huffTable.decodeStream(src, start3, start4, literals, 2 * segment, segment);
+          huffTable.decodeStream(src, start4, end, literals, 3 * segment, regenSize - 3 * segment);
+        }
+        return end;
+    }
+  }
+
+  /** Read a Huffman tree description, return the start of the streams. */
+  private int readHuffmanTable(int ip, int end) throws IOException {
+    int header = src[ip++] & 0xff;
+    byte[] weights = new byte[256];
+    int nweights;
+    if (header >= 128) { // 4 bit weights
+      nweights = header - 127;
+      int nbytes = (nweights + 1) / 2;
+      checkInput(ip + nbytes, end);
+      for (int i = 0; i < nweights; i++) {
+        int b = src[ip + i / 2] & 0xff;
+        weights[i] = (byte) ((i % 2 == 0) ? b >>> 4 : b & 0x0f);
+      }
+      ip += nbytes;
+    } else { // FSE compressed weights, with 2 interleaved states
+      int wend = ip + header;
+      checkInput(wend, end);
+      short[] norm = new short[256];
+      ForwardBits fb = new ForwardBits(src, ip, wend);
+      int log = readFseDistribution(fb, norm, 255, 6);
+      FseTable table = FseTable.build(norm, log);
+      BackwardBits br = new BackwardBits(src, ip + fb.bytesUsed(), wend);
+      int state1 = (int) br.read(log);
+      int state2 = (int) br.read(log);
+      nweights = 0;
+      while (true) {
+        if (nweights > 253)
+          throw new IOException("Corrupt zstd Huffman weights");
+        weights[nweights++] = (byte) table.symbol[state1];
+        state1 = table.update(state1, br);
+        if (br.overflowed()) {
+          weights[nweights++] = (byte) table.symbol[state2];
+          break;
+        }
+        weights[nweights++] = (byte) table.symbol[state2];
+        state2 = table.update(state2, br);
+        if (br.overflowed()) {
+          weights[nweights++] = (byte) table.symbol[state1];
+          break;
+        }
+      }
+      ip = wend;
+    }
+    huffTable = HuffmanTable.build(weights, nweights);
+    return ip;
+  }
+
+  private void decodeSequences(int ip, int blockEnd) throws IOException {
+    int nseq = 0;
+    if (ip < blockEnd) {
+      int b0 = src[ip++] & 0xff;
+      if (b0 < 128) {
+        nseq = b0;
+      } else if (b0 < 255) {
+        nseq = ((b0 - 128) << 8) + (src[ip++] & 0xff);
+      } else {
+        nseq = (src[ip] & 0xff) + ((src[ip + 1] & 0xff) << 8) + 0x7F00;
+        ip += 2;
+      }
+    }
+    int litPos = 0;
+
+    if (nseq > 0) {
+      int modes = src[ip++] & 0xff;
+      if ((modes & 3) != 0)
+        throw new IOException("Corrupt zstd block: reserved bits set in symbol compression modes");
+      ip = selectTable(ip, blockEnd, modes >>> 6, 0);
+      ip = selectTable(ip, blockEnd, (modes >>> 4) & 3, 1);
+      ip = selectTable(ip, blockEnd, (modes >>> 2) & 3, 2);
+
+      BackwardBits br = new BackwardBits(src, ip, blockEnd);
+      int llState = (int) br.read(llTable.log);
+      int ofState = (int) br.read(ofTable.log);
+      int mlState = (int) br.read(mlTable.log);
+
+      for (int i = 0; i < nseq; i++) {
+        int ofCode = ofTable.symbol[ofState];
+        int mlCode = mlTable.symbol[mlState];
+        int llCode = llTable.symbol[llState];
+        if (ofCode > 31)
+          throw new IOException("Corrupt zstd block: offset code " + ofCode);
+
+        long ofValue = (1L << ofCode) + br.read(ofCode);
+        int matchLen = ML_BASE[mlCode] + (int) br.read(ML_BITS[mlCode]);
+        int litLen = LL_BASE[llCode] + (int) br.read(LL_BITS[llCode]);
+
+        int offset;
+        if (ofValue > 3) {
+          offset = (int) Math.min(ofValue - 3, Integer.MAX_VALUE);
+          rep[2] = rep[1];
+          rep[1] = rep[0];
+          rep[0] = offset;
+        } else {
+          int index = (int) ofValue - 1 + (litLen == 0 ? 1 : 0);
+          if (index == 0) {
+            offset = rep[0];
+          } else {
+            offset = (index == 3) ? rep[0] - 1 : rep[index];
+            if (offset == 0)
+              offset = 1;
+            if (index != 1)
+              rep[2] = rep[1];
+            rep[1] = rep[0];
+            rep[0] = offset;
+          }
+        }
+
+        if (i < nseq - 1) {
+          llState = llTable.update(llState, br);
+          mlState = mlTable.update(mlState, br);
+          ofState = ofTable.update(ofState, br);
+        }
+
+        // execute the sequence
+        if (litPos + litLen > nliterals)
+          throw new IOException("Corrupt zstd block: literals overflow");
+        out.ensure(litLen);
+        System.arraycopy(literals, litPos, out.buf, out.pos, litLen);
+        out.pos += litLen;
+        litPos += litLen;
+        out.copyMatch(offset, matchLen);
+      }
+      if (br.bitsRemaining() != 0)
+        throw new IOException("Corrupt zstd block: sequences bitstream not fully consumed");
+    }
+
+    // the remaining literals
+    int n = nliterals - litPos;
+    out.ensure(n);
+    System.arraycopy(literals, litPos, out.buf, out.pos, n);
+    out.pos += n;
+  }
+
+  // which: 0 = literal lengths, 1 = offsets, 2 = match lengths
+  private int selectTable(int ip, int blockEnd, int mode, int which) throws IOException {
+    int maxSymbol = (which == 0) ? 35 : (which == 1) ? 31 : 52;
+    int maxLog = (which == 1) ? 8 : 9;
+    FseTable table;
+    switch (mode) {
+      case 0:
+        table = (which == 0) ? LL_PREDEFINED : (which == 1) ? OF_PREDEFINED : ML_PREDEFINED;
+        break;
+      case 1:
+        int symbol = src[ip++] & 0xff;
+        if (symbol > maxSymbol)
+          throw new IOException("Corrupt zstd block: RLE symbol " + symbol);
+        table = FseTable.rle(symbol);
+        break;
+      case 2:
+        short[] norm = new short[maxSymbol + 1];
+        ForwardBits fb = new ForwardBits(src, ip, blockEnd);
+        int log = readFseDistribution(fb, norm, maxSymbol, maxLog);
+        table = FseTable.build(norm, log);
+        ip += fb.bytesUsed();
+        break;
+      default:
+        table = (which == 0) ? llTable : (which == 1) ? ofTable : mlTable;
+        if (table == null)
+          throw new IOException("Corrupt zstd block: repeat mode without a previous table");
+    }
+    if (which == 0)
+      llTable = table;
+    else if (which == 1)
+      ofTable = table;
+    else
+      mlTable = table;
+    return ip;
+  }
+
+  /** Read an FSE table description into norm, return the accuracy log. */
+  private static int readFseDistribution(ForwardBits fb, short[] norm, int maxSymbol, int maxLog)
+      throws IOException {
+    int log = (int) fb.read(4) + 5;
+    if (log > maxLog)
+      throw new IOException("Corrupt zstd FSE table: accuracy log " + log);
+    int remaining = (1 << log) + 1;
+    int threshold = 1 << log;
+    int nbits = log + 1;
+    int symbol = 0;
+    boolean previous0 = false;
+    while (remaining > 1 && symbol <= maxSymbol) {
+      if (previous0) {
+        int n0 = symbol;
+        while (fb.peek(16) == 0xFFFF) {
+          n0 += 24;
+          fb.skip(16);
+        }
+        while (fb.peek(2) == 3) {
+          n0 += 3;
+          fb.skip(2);
+        }
+        n0 += (int) fb.read(2);
+        if (n0 > maxSymbol)
+          throw new IOException("Corrupt zstd FSE table: too many symbols");
+        while (symbol < n0)
+          norm[symbol++] = 0;
+      }
+      int max = (2 * threshold - 1) - remaining;
+      int count = (int) fb.peek(nbits - 1);
+      if (count < max) {
+        fb.skip(nbits - 1);
+      } else {
+        count = (int) fb.read(nbits);
+        if (count >= threshold)
+          count -= max;
+      }
+      count--;
+      remaining -= Math.abs(count);
+      norm[symbol++] = (short) count;
+      previous0 = (count == 0);
+      while (remaining < threshold) {
+        nbits--;
+        threshold >>= 1;
+      }
+    }
+    if (remaining != 1 || fb.overflowed())
+      throw new IOException("Corrupt zstd FSE table");
+    while (symbol < norm.length)
+      norm[symbol++] = 0;
+    return log;
+  }
+
+  private void checkInput(int pos, int end) throws IOException {
+    if (pos > end)
+      throw new IOException("Corrupt zstd stream: truncated");
+  }
+
+  private int readIntLE(int pos) {
+    return (src[pos] & 0xff) | ((src[pos + 1] & 0xff) << 8) | ((src[pos + 2] & 0xff) << 16)
+        | ((src[pos + 3] & 0xff) << 24);
+  }
+
+  private int readShortLE(int pos) {
+    return (src[pos] & 0xff) | ((src[pos + 1] & 0xff) << 8);
+  }
+
+  private static int highBit(int v) {
+    return 31 - Integer.numberOfLeadingZeros(v);
+  }
+
+  ////////////////////////////////////////////////////////////////////////////////
+
+  /** An FSE decoding table. */
+  private static class FseTable {
+    final int log;
+    final int[] symbol;
+    final int[] nbits;
+    final int[] base;
+
+    private FseTable(int log) {
+      this.log = log;
+      int size = 1 << log;
+      this.symbol = new int[size];
+      this.nbits = new int[size];
+      this.base = new int[size];
+    }
+
+    static FseTable rle(int symbol) {
+      FseTable table = new FseTable(0);
+      table.symbol[0] = symbol;
+      return table;
+    }
+
+    static FseTable build(short[] norm, int log) throws IOException {
+      FseTable table = new FseTable(log);
+      int size = 1 << log;
+      int high = size - 1;
+      int[] next = new int[norm.length];
+      for (int s = 0; s < norm.length; s++) {
+        if (norm[s] == -1) {
+          table.symbol[high--] = s;
+          next[s] = 1;
+        } else {
+          next[s] = norm[s];
+        }
+      }
+      int step = (size >>> 1) + (size >>> 3) + 3;
+      int mask = size - 1;
+      int pos = 0;
+      for (int s = 0; s < norm.length; s++) {
+        for (int i = 0; i < norm[s]; i++) {
+          table.symbol[pos] = s;
+          do {
+            pos = (pos + step) & mask;
+          } while (pos > high);
+        }
+      }
+      if (pos != 0)
+        throw new IOException("Corrupt zstd FSE table: probabilities do not add up");
+      for (int u = 0; u < size; u++) {
+        int state = next[table.symbol[u]]++;
+        int nb = log - highBit(state);
+        table.nbits[u] = nb;
+        table.base[u] = (state << nb) - size;
+      }
+      return table;
+    }
+
+    static FseTable buildUnchecked(short[] norm, int log) {
+      try {
+        return build(norm, log);
+      } catch (IOException e) {
+        throw new IllegalStateException(e);
+      }
+    }
+
+    int update(int state, BackwardBits br) {
+      return base[state] + (int) br.read(nbits[state]);
+    }
+  }
+
+  /** A Huffman decoding table, indexed by the next maxBits bits. */
+  private static class HuffmanTable {
+    final int maxBits;
+    final byte[] symbol;
+    final byte[] nbits;
+
+    private HuffmanTable(int maxBits) {
+      this.maxBits = maxBits;
+      this.symbol = new byte[1 << maxBits];
+      this.nbits = new byte[1 << maxBits];
+    }
+
+    static HuffmanTable build(byte[] weights, int nweights) throws IOException {
+      int sum = 0;
+      for (int i = 0; i < nweights; i++) {
+        if (weights[i] > 11)
+          throw new IOException("Corrupt zstd Huffman weight " + weights[i]);
+        if (weights[i] > 0)
+          sum += 1 << (weights[i] - 1);
+      }
+      if (sum == 0)
+        throw new IOException("Corrupt zstd Huffman weights: all zero");
+      int maxBits = highBit(sum) + 1;
+      int rest = (1 << maxBits) - sum;
+      if (maxBits > 11 || Integer.bitCount(rest) != 1)
+        throw new IOException("Corrupt zstd Huffman weights");
+      weights[nweights] = (byte) (highBit(rest) + 1); // the last weight is implied
+      int nsymbols = nweights + 1;
+
+      HuffmanTable table = new HuffmanTable(maxBits);
+      int[] rankStart = new int[maxBits + 2];
+      int[] rankCount = new int[maxBits + 2];
+      for (int s = 0; s < nsymbols; s++)
+        rankCount[weights[s]]++;
+      int next = 0;
+      for (int w = 1; w <= maxBits; w++) {
+        rankStart[w] = next;
+        next += rankCount[w] << (w - 1);
+      }
+      for (int s = 0; s < nsymbols; s++) {
+        int w = weights[s];
+        if (w == 0)
+          continue;
+        int len = 1 << (w - 1);
+        int start = rankStart[w];
+        for (int i = start; i < start + len; i++) {
+          table.symbol[i] = (byte) s;
+          table.nbits[i] = (byte) (maxBits + 1 - w);
+        }
+        rankStart[w] += len;
+      }
+      return table;
+    }
+
+    void decodeStream(byte[] src, int start, int end, byte[] dest, int destPos, int count) throws IOException {
+      BackwardBits br = new BackwardBits(src, start, end);
+      for (int i = 0; i < count; i++) {
+        int index = (int) br.peek(maxBits);
+        dest[destPos + i] = symbol[index];
+        br.skip(nbits[index]);
+      }
+      if (br.bitsRemaining() != 0)
+        throw new IOException("Corrupt zstd Huffman stream: not fully consumed");
+    }
+  }
+
+  /** Reads bits from the end of a bitstream towards the start, which begins after the highest set bit. */
+  private static class BackwardBits {
+    private final byte[] b;
+    private final int start;
+    private final int end;
+    private int bitPos; // number of unread bits
+
+    BackwardBits(byte[] b, int start, int end) throws IOException {
+      if (end <= start || b[end - 1] == 0)
+        throw new IOException("Corrupt zstd bitstream");
+      this.b = b;
+      this.start = start;
+      this.end = end;
+      this.bitPos = (end - 1 - start) * 8 + highBit(b[end - 1] & 0xff);
+    }
+
+    long peek(int n) {
+      return get(bitPos - n, n);
+    }
+
+    void skip(int n) {
+      bitPos -= n;
+    }
+
+    long read(int n) {
+      long v = get(bitPos - n, n);
+      bitPos -= n;
+      return v;
+    }
+
+    boolean overflowed() {
+      return bitPos < 0;
+    }
+
+    int bitsRemaining() {
+      return bitPos;
+    }
+
+    // bits [pos, pos+n), bits before the start are zero
+    private long get(int pos, int n) {
+      if (n == 0)
+        return 0;
+      if (pos < 0)
+        return (pos + n <= 0) ? 0 : get(0, pos + n) << -pos;
+      return bits(b, start + (pos >>> 3), end, pos & 7, n);
+    }
+  }
+
+  /** Reads bits from the start of a bitstream forwards. */
+  private static class ForwardBits {
+    private final byte[] b;
+    private final int start;
+    private final int end;
+    private int bitPos; // number of bits read
+
+    ForwardBits(byte[] b, int start, int end) {
+      this.b = b;
+      this.start = start;
+      this.end = end;
+    }
+
+    long peek(int n) {
+      return bits(b, start + (bitPos >>> 3), end, bitPos & 7, n);
+    }
+
+    void skip(int n) {
+      bitPos += n;
+    }
+
+    long read(int n) {
+      long v = peek(n);
+      bitPos += n;
+      return v;
+    }
+
+    boolean overflowed() {
+      return start + bytesUsed() > end;
+    }
+
+    int bytesUsed() {
+      return (bitPos + 7) >>> 3;
+    }
+  }
+
+  // n <= 56 little endian bits, starting at bit shift of b[pos]; bytes at or past end are zero
+  private static long bits(byte[] b, int pos, int end, int shift, int n) {
+    long v = 0;
+    int nbytes = Math.min(8, end - pos);
+    for (int k = 0; k < nbytes; k++)
+      v |= (b[pos + k] & 0xffL) << (8 * k);
+    return (v >>> shift) & ((1L << n) - 1);
+  }
+}
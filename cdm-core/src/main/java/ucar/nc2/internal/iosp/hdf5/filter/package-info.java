@@ -0,0 +1,9 @@
+/*
+ * Copyright (c) 1998-2021 John Caron and University Corporation for Atmospheric Research/Unidata
+ * See LICENSE for license information.
+ */
+
+/**
+ * Pure java decoders for HDF-5 filters.
+ */
+package ucar.nc2.internal.iosp.hdf5.filter;
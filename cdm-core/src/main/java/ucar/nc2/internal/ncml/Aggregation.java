@@ -3,6 +3,7 @@
  */
 package ucar.nc2.internal.ncml;
 
+import com.google.common.base.Preconditions;
 import org.jdom2.Element;
 import thredds.inventory.DateExtractor;
 import thredds.inventory.DateExtractorFromName;
@@ -18,6 +19,8 @@ import java.io.FileNotFoundException;
 import java.io.IOException;
 import java.util.*;
 import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import javax.annotation.Nullable;
 
 /**
  * Superclass for NcML Aggregation Builders.
@@ -52,11 +55,65 @@ public abstract class Aggregation {
     // cache else clobber ncml 7/31/2014
   }
 
-  // experimental multithreading
+  // System property name for -D flag
+  private static final String READTHREADS_PROPERTY = "unidata.ncml.aggregation.threads";
+
+  // maximum number of nested datasets read at the same time, for one read of an aggregation variable.
+  protected static volatile int maxConcurrentReads = readMaxConcurrentReads();
+
   protected static Executor executor;
+  private static boolean executorSet;
+
+  private static int readMaxConcurrentReads() {
+    int nthreads = Runtime.getRuntime().availableProcessors();
+    String prop = System.getProperty(READTHREADS_PROPERTY);
+    if (prop != null) {
+      try {
+        int size = Integer.parseInt(prop);
+        if (size < 0)
+          logger.warn(String.format("-D%s must be >= 0", READTHREADS_PROPERTY));
+        else
+          nthreads = size;
+      } catch (NumberFormatException nfe) {
+        logger.warn(String.format("-D%s is not an integer", READTHREADS_PROPERTY));
+      }
+    }
+    return nthreads;
+  }
 
-  public static void setExecutor(Executor exec) {
+  /**
+   * Set the Executor used to read the nested datasets of outer (joinExisting, joinNew) aggregations concurrently,
+   * shared by all aggregations. Set to null to read on the calling thread. If never set, a work stealing pool of
+   * -Dunidata.ncml.aggregation.threads threads is used. In either case, at most that many nested datasets are read
+   * at the same time for one read of an aggregation variable.
+   */
+  public static synchronized void setExecutor(@Nullable Executor exec) {
     executor = exec;
+    executorSet = true;
+  }
+
+  /** Go back to the default Executor, made when next needed. Used by tests that set their own. */
+  static synchronized void resetExecutor() {
+    executor = null;
+    executorSet = false;
+  }
+
+  /**
+   * Set the maximum number of nested datasets read at the same time, for one read of an aggregation variable.
+   * Default is -Dunidata.ncml.aggregation.threads, or the number of processors. Set to 0 or 1 to read them one at a time.
+   */
+  public static void setMaxConcurrentReads(int max) {
+    Preconditions.checkArgument(max >= 0, "maxConcurrentReads must be >= 0");
+    maxConcurrentReads = max;
+  }
+
+  @Nullable
+  protected static synchronized Executor getExecutor() {
+    if (!executorSet && maxConcurrentReads > 1) {
+      executor = Executors.newWorkStealingPool(maxConcurrentReads);
+      executorSet = true;
+    }
+    return executor;
   }
 
   public static void setTypicalDatasetMode(String mode) {
@@ -12,10 +12,10 @@ import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.StringTokenizer;
-import java.util.concurrent.Callable;
-import java.util.concurrent.CompletionService;
-import java.util.concurrent.ExecutionException;
-import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
 import thredds.inventory.MFile;
 import ucar.array.ArrayType;
 import ucar.ma2.Array;
@@ -343,40 +343,37 @@ abstract class AggregationOuter extends Aggregation implements ProxyReader {
     // return readAggCoord(mainv, section, cancelTask);
 
     Array sectionData = Array.factory(dtype, section.getShape());
-    int destPos = 0;
 
     List<Range> ranges = section.getRanges();
     Range joinRange = section.getRange(0);
-    List<Range> nestedSection = new ArrayList<>(ranges); // get copy
     List<Range> innerSection = ranges.subList(1, ranges.size());
+    long innerSize = new Section(innerSection).computeSize();
 
     if (debug)
       System.out.println("   agg wants range=" + mainv.getFullName() + "(" + joinRange + ")");
 
-    // LOOK: could multithread here
-    List<AggDataset> nestedDatasets = getDatasets();
-    for (AggDataset nested : nestedDatasets) {
+    // only the nested datasets that intersect the section
+    List<NestedRead> nestedReads = new ArrayList<>();
+    long destPos = 0;
+    for (AggDataset nested : getDatasets()) {
       AggDatasetOuter dod = (AggDatasetOuter) nested;
       Range nestedJoinRange = dod.getNestedJoinRange(joinRange);
       if (nestedJoinRange == null)
         continue;
 
-      Array varData;
+      List<Range> nestedSection;
       if ((type == Type.joinNew) || (type == Type.forecastModelRunCollection)) {
-        varData = dod.read(mainv, cancelTask, innerSection);
+        nestedSection = innerSection;
       } else {
+        nestedSection = new ArrayList<>(ranges); // get copy
         nestedSection.set(0, nestedJoinRange);
-        varData = dod.read(mainv, cancelTask, nestedSection);
       }
-
-      if ((cancelTask != null) && cancelTask.isCancel())
-        return null;
-      varData = MAMath.convert(varData, dtype); // just in case it need to be converted
-
-      Array.arraycopy(varData, 0, sectionData, destPos, (int) varData.getSize());
-      destPos += varData.getSize();
+      nestedReads.add(new NestedRead(dod, nestedSection, (int) destPos));
+      destPos += nestedJoinRange.length() * innerSize;
     }
 
+    if (!readNested(mainv, nestedReads, sectionData, dtype, cancelTask))
+      return null;
     return sectionData;
   }
 
@@ -417,75 +414,108 @@ abstract class AggregationOuter extends Aggregation implements ProxyReader {
     // return readAggCoord(mainv, cancelTask);
 
     Array allData = Array.factory(dtype, mainv.getShape());
-    int destPos = 0;
-
-    List<AggDataset> nestedDatasets = getDatasets();
-    if (executor != null) {
-      CompletionService<Result> completionService = new ExecutorCompletionService<>(executor);
-
-      int count = 0;
-      for (AggDataset vnested : nestedDatasets)
-        completionService.submit(new ReaderTask(vnested, mainv, cancelTask, count++));
+    int[] shape = mainv.getShape();
+    long innerSize = shape[0] == 0 ? 0 : mainv.getSize() / shape[0];
 
-      try {
-        int n = nestedDatasets.size();
-        for (int i = 0; i < n; ++i) {
-          Result r = completionService.take().get();
-          if (r != null) {
-            r.data = MAMath.convert(r.data, dtype); // just in case it needs to be converted
-            int size = (int) r.data.getSize();
-            Array.arraycopy(r.data, 0, allData, size * r.index, size);
-          }
-        }
-      } catch (InterruptedException e) {
-        Thread.currentThread().interrupt();
-      } catch (ExecutionException e) {
-        throw new IOException(e.getMessage());
-      }
-
-    } else {
-
-      for (AggDataset vnested : nestedDatasets) {
-        Array varData = vnested.read(mainv, cancelTask);
-        if ((cancelTask != null) && cancelTask.isCancel())
-          return null;
-        varData = MAMath.convert(varData, dtype); // just in case it need to be converted
-
-        Array.arraycopy(varData, 0, allData, destPos, (int) varData.getSize());
-        destPos += varData.getSize();
-      }
+    List<NestedRead> nestedReads = new ArrayList<>();
+    for (AggDataset nested : getDatasets()) {
+      AggDatasetOuter dod = (AggDatasetOuter) nested;
+      nestedReads.add(new NestedRead(dod, null, (int) (dod.aggStart * innerSize)));
     }
 
+    try {
+      if (!readNested(mainv, nestedReads, allData, dtype, cancelTask))
+        return null;
+    } catch (InvalidRangeException e) {
+      throw new IllegalStateException(e); // cant happen, no section
+    }
     return allData;
   }
 
-  private static class ReaderTask implements Callable<Result> {
-    AggDataset ds;
-    Variable mainv;
-    CancelTask cancelTask;
-    int index;
+  // One nested dataset to read, and where its data goes in the result.
+  private static class NestedRead {
+    final AggDatasetOuter dataset;
+    @Nullable
+    final List<Range> section; // null means all
+    final int destPos;
 
-    ReaderTask(AggDataset ds, Variable mainv, CancelTask cancelTask, int index) {
-      this.ds = ds;
-      this.mainv = mainv;
-      this.cancelTask = cancelTask;
-      this.index = index;
+    NestedRead(AggDatasetOuter dataset, @Nullable List<Range> section, int destPos) {
+      this.dataset = dataset;
+      this.section = section;
+      this.destPos = destPos;
     }
 
-    public Result call() throws Exception {
-      Array data = ds.read(mainv, cancelTask);
-      return new Result(data, index);
+    void readInto(Variable mainv, Array result, DataType dtype, CancelTask cancelTask)
+        throws IOException, InvalidRangeException {
+      Array varData = (section == null) ? dataset.read(mainv, cancelTask) : dataset.read(mainv, cancelTask, section);
+      if (varData == null) // cancelled
+        return;
+      if (varData.getDataType() != dtype)
+        varData = MAMath.convert(varData, dtype); // just in case it needs to be converted
+      Array.arraycopy(varData, 0, result, destPos, (int) varData.getSize());
     }
   }
 
-  private static class Result {
-    Array data;
-    int index;
-
-    Result(Array data, int index) {
-      this.data = data;
-      this.index = index;
-    }
+  /**
+   * Read the nested datasets into result. Up to maxConcurrentReads of them are read at the same time, using the
+   * calling thread and the Executor. Each one is copied to its own part of result as soon as it is read.
+   *
+   * @return false if cancelled
+   */
+  private boolean readNested(Variable mainv, List<NestedRead> nestedReads, Array result, DataType dtype,
+      CancelTask cancelTask) throws IOException, InvalidRangeException {
+    int n = nestedReads.size();
+    Executor exec = getExecutor();
+    int nhelpers = Math.min(n, maxConcurrentReads) - 1;
+    if (exec == null || nhelpers < 1) {
+      for (NestedRead nestedRead : nestedReads) {
+        nestedRead.readInto(mainv, result, dtype, cancelTask);
+        if ((cancelTask != null) && cancelTask.isCancel())
+          return false;
+      }
+      return true;
+    }
+
+    // the helpers and the calling thread take the next unread dataset until there are none left.
+    // only wait for the datasets that have been taken, so its ok if a helper never gets to run.
+    AtomicInteger next = new AtomicInteger();
+    CountDownLatch done = new CountDownLatch(n);
+    AtomicReference<Throwable> failure = new AtomicReference<>();
+    Runnable worker = () -> {
+      int i;
+      while ((i = next.getAndIncrement()) < n) {
+        try {
+          if (failure.get() == null && (cancelTask == null || !cancelTask.isCancel()))
+            nestedReads.get(i).readInto(mainv, result, dtype, cancelTask);
+        } catch (Throwable t) {
+          failure.compareAndSet(null, t);
+        } finally {
+          done.countDown();
+        }
+      }
+    };
+    for (int i = 0; i < nhelpers; i++) {
+      exec.execute(worker);
+    }
+    worker.run();
+
+    try {
+      done.await();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new IOException("Interrupted reading " + mainv.getFullName(), e);
+    }
+
+    Throwable t = failure.get();
+    if (t instanceof IOException)
+      throw (IOException) t;
+    if (t instanceof InvalidRangeException)
+      throw (InvalidRangeException) t;
+    if (t instanceof RuntimeException)
+      throw (RuntimeException) t;
+    if (t instanceof Error)
+      throw (Error) t;
+    return (cancelTask == null) || !cancelTask.isCancel();
   }
 
   @Override
@@ -5,6 +5,7 @@
 package ucar.nc2.iosp;
 
 import ucar.array.ArrayType;
+import ucar.unidata.io.MappedRandomAccessFile;
 import ucar.unidata.io.PositioningDataInputStream;
 import ucar.unidata.io.RandomAccessFile;
 import java.io.IOException;
@@ -52,6 +53,7 @@ public class IospArrayHelper {
   /**
    * Read data subset from RandomAccessFile, place in given primitive array.
    * Reading is controlled by the Layout object.
+   * The chunks of a memory mapped file are converted straight from the mapped region.
    *
    * @param raf read from here.
    * @param layout handles skipping around in the file.
@@ -67,6 +69,10 @@ public class IospArrayHelper {
     if (showLayoutTypes)
       System.out.println("***RAF LayoutType=" + layout.getClass().getName());
 
+    if (raf instanceof MappedRandomAccessFile && ArrayType != ArrayType.STRING) {
+      return readDataMapped((MappedRandomAccessFile) raf, layout, ArrayType, arr, byteOrder, convertChar);
+    }
+
     if (ArrayType.getPrimitiveClass() == Byte.class || ArrayType == ArrayType.CHAR) {
       byte[] pa = (byte[]) arr;
       while (layout.hasNext()) {
@@ -160,6 +166,43 @@ public class IospArrayHelper {
     throw new IllegalStateException("unknown type= " + ArrayType);
   }
 
+  // Convert each chunk from a view of the mapped region, without copying it through the file buffer.
+  private static Object readDataMapped(MappedRandomAccessFile raf, Layout layout, ArrayType arrayType, Object arr,
+      ByteOrder byteOrder, boolean convertChar) throws IOException {
+    int elemBytes = (arrayType == ArrayType.STRUCTURE) ? layout.getElemSize() : arrayType.getSize();
+    raf.order(byteOrder);
+    ByteOrder order = raf.getByteOrder();
+    Class<?> primitive = arrayType.getPrimitiveClass();
+    while (layout.hasNext()) {
+      Layout.Chunk chunk = layout.next();
+      if (chunk == null)
+        continue;
+      int destElem = (int) chunk.getDestElem();
+      int nelems = chunk.getNelems();
+      ByteBuffer bb = raf.getByteBuffer(chunk.getSrcPos(), nelems * elemBytes).order(order);
+      if (arrayType == ArrayType.STRUCTURE || primitive == Byte.class || arrayType == ArrayType.CHAR) {
+        bb.get((byte[]) arr, destElem * elemBytes, nelems * elemBytes);
+      } else if (primitive == Short.class) {
+        bb.asShortBuffer().get((short[]) arr, destElem, nelems);
+      } else if (primitive == Integer.class) {
+        bb.asIntBuffer().get((int[]) arr, destElem, nelems);
+      } else if (arrayType == ArrayType.FLOAT) {
+        bb.asFloatBuffer().get((float[]) arr, destElem, nelems);
+      } else if (arrayType == ArrayType.DOUBLE) {
+        bb.asDoubleBuffer().get((double[]) arr, destElem, nelems);
+      } else if (primitive == Long.class) {
+        bb.asLongBuffer().get((long[]) arr, destElem, nelems);
+      } else {
+        throw new IllegalStateException("unknown type= " + arrayType);
+      }
+      raf.seek(chunk.getSrcPos() + (long) nelems * elemBytes); // leave the file pointer where the buffered reads would
+    }
+
+    if (convertChar && arrayType == ArrayType.CHAR)
+      return convertByteToChar((byte[]) arr);
+    return arr;
+  }
+
   /**
    * Read data subset from PositioningDataInputStream, create primitive array of size Layout.getTotalNelems.
    * Reading is controlled by the Layout object.
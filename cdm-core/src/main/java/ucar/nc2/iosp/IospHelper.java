@@ -8,8 +8,10 @@ import java.nio.charset.StandardCharsets;
 
 import ucar.array.ArrayType;
 import ucar.nc2.internal.io.Streams;
+import ucar.unidata.io.MappedRandomAccessFile;
 import ucar.unidata.io.RandomAccessFile;
 import ucar.unidata.io.PositioningDataInputStream;
+import ucar.unidata.io.RemoteRandomAccessFile;
 import ucar.ma2.*;
 import ucar.nc2.ParsedSectionSpec;
 import ucar.nc2.Variable;
@@ -60,6 +62,8 @@ public class IospHelper {
   /**
    * Read data subset from RandomAccessFile, place in given primitive array.
    * Reading is controlled by the Layout object.
+   * The chunks of a remote file are fetched concurrently with {@link RandomAccessFile#readVectored}, in batches.
+   * The chunks of a memory mapped file are converted straight from the mapped region.
    *
    * @param raf read from here.
    * @param layout handles skipping around in the file.
@@ -75,6 +79,13 @@ public class IospHelper {
     if (showLayoutTypes)
       System.out.println("***RAF LayoutType=" + layout.getClass().getName());
 
+    if (raf instanceof RemoteRandomAccessFile && dataType != DataType.STRING) {
+      return readDataVectored(raf, layout, dataType, arr, byteOrder, convertChar);
+    }
+    if (raf instanceof MappedRandomAccessFile && dataType != DataType.STRING) {
+      return readDataMapped((MappedRandomAccessFile) raf, layout, dataType, arr, byteOrder, convertChar);
+    }
+
     if (dataType.getPrimitiveClassType() == byte.class || dataType == DataType.CHAR) {
       byte[] pa = (byte[]) arr;
       while (layout.hasNext()) {
@@ -168,6 +179,164 @@ public class IospHelper {
     throw new IllegalStateException("unknown type= " + dataType);
   }
 
+  // The ranges of a vectored read are at most this many bytes, so a few large buffers are not allocated at once.
+  // A chunk that is bigger is read through the file buffer instead.
+  private static final int MAX_VECTORED_RANGE = 4 * 1000 * 1000;
+  // The ranges are read in batches of at most this many bytes.
+  private static final int MAX_VECTORED_BATCH = 32 * 1000 * 1000;
+
+  // Read the chunks of the layout with vectored reads. Chunks less than a buffer apart in the file are merged
+  // into one range, as the buffered reads would do.
+  private static Object readDataVectored(RandomAccessFile raf, Layout layout, DataType dataType, Object arr,
+      ByteOrder byteOrder, boolean convertChar) throws IOException {
+    int elemBytes = (dataType == DataType.STRUCTURE) ? layout.getElemSize() : dataType.getSize();
+    raf.order(byteOrder);
+    VectoredBatch batch = new VectoredBatch(raf, dataType, elemBytes, arr);
+    while (layout.hasNext()) {
+      Layout.Chunk chunk = layout.next();
+      if (chunk == null)
+        continue;
+      if ((long) chunk.getNelems() * elemBytes > MAX_VECTORED_RANGE) {
+        readChunk(raf, chunk, dataType, elemBytes, arr);
+        continue;
+      }
+      batch.add(chunk);
+      if (batch.nbytes >= MAX_VECTORED_BATCH)
+        batch.read();
+    }
+    batch.read();
+
+    if (convertChar && dataType == DataType.CHAR)
+      return convertByteToChar((byte[]) arr);
+    return arr;
+  }
+
+  // The chunks of a vectored read that have not been read yet, and the merged ranges of the file that hold them.
+  private static class VectoredBatch {
+    private final RandomAccessFile raf;
+    private final DataType dataType;
+    private final int elemBytes;
+    private final Object arr;
+    private final int maxGap;
+    private final List<long[]> chunks = new ArrayList<>(); // srcPos, destElem, nelems, range
+    private final List<long[]> ranges = new ArrayList<>(); // start, end
+    private long nbytes; // total size of the ranges
+
+    VectoredBatch(RandomAccessFile raf, DataType dataType, int elemBytes, Object arr) {
+      this.raf = raf;
+      this.dataType = dataType;
+      this.elemBytes = elemBytes;
+      this.arr = arr;
+      this.maxGap = raf.getBufferSize();
+    }
+
+    void add(Layout.Chunk chunk) {
+      long pos = chunk.getSrcPos();
+      long end = pos + (long) chunk.getNelems() * elemBytes;
+      long[] range = ranges.isEmpty() ? null : ranges.get(ranges.size() - 1);
+      if (range == null || pos < range[0] || pos - range[1] > maxGap
+          || Math.max(range[1], end) - range[0] > MAX_VECTORED_RANGE) {
+        range = new long[] {pos, end};
+        ranges.add(range);
+        nbytes += end - pos;
+      } else if (end > range[1]) {
+        nbytes += end - range[1];
+        range[1] = end;
+      }
+      chunks.add(new long[] {pos, chunk.getDestElem(), chunk.getNelems(), ranges.size() - 1});
+    }
+
+    void read() throws IOException {
+      if (ranges.isEmpty())
+        return;
+      long[] positions = new long[ranges.size()];
+      byte[][] dest = new byte[ranges.size()][];
+      for (int i = 0; i < positions.length; i++) {
+        positions[i] = ranges.get(i)[0];
+        dest[i] = new byte[(int) (ranges.get(i)[1] - positions[i])];
+      }
+      raf.readVectored(positions, dest);
+
+      ByteOrder order = raf.getByteOrder();
+      for (long[] chunk : chunks) {
+        int r = (int) chunk[3];
+        int destElem = (int) chunk[1];
+        int nelems = (int) chunk[2];
+        ByteBuffer bb = ByteBuffer.wrap(dest[r], (int) (chunk[0] - positions[r]), nelems * elemBytes).order(order);
+        copyChunk(bb, dataType, elemBytes, arr, destElem, nelems);
+      }
+      chunks.clear();
+      ranges.clear();
+      nbytes = 0;
+    }
+  }
+
+  // read one chunk through the file buffer, into the primitive array arr
+  private static void readChunk(RandomAccessFile raf, Layout.Chunk chunk, DataType dataType, int elemBytes,
+      Object arr) throws IOException {
+    int destElem = (int) chunk.getDestElem();
+    int nelems = chunk.getNelems();
+    raf.seek(chunk.getSrcPos());
+    Class<?> primitive = dataType.getPrimitiveClassType();
+    if (dataType == DataType.STRUCTURE || primitive == byte.class || dataType == DataType.CHAR) {
+      raf.readFully((byte[]) arr, destElem * elemBytes, nelems * elemBytes);
+    } else if (primitive == short.class) {
+      raf.readShort((short[]) arr, destElem, nelems);
+    } else if (primitive == int.class) {
+      raf.readInt((int[]) arr, destElem, nelems);
+    } else if (dataType == DataType.FLOAT) {
+      raf.readFloat((float[]) arr, destElem, nelems);
+    } else if (dataType == DataType.DOUBLE) {
+      raf.readDouble((double[]) arr, destElem, nelems);
+    } else if (primitive == long.class) {
+      raf.readLong((long[]) arr, destElem, nelems);
+    } else {
+      throw new IllegalStateException("unknown type= " + dataType);
+    }
+  }
+
+  // Convert each chunk from a view of the mapped region, without copying it through the file buffer.
+  private static Object readDataMapped(MappedRandomAccessFile raf, Layout layout, DataType dataType, Object arr,
+      ByteOrder byteOrder, boolean convertChar) throws IOException {
+    int elemBytes = (dataType == DataType.STRUCTURE) ? layout.getElemSize() : dataType.getSize();
+    raf.order(byteOrder);
+    ByteOrder order = raf.getByteOrder();
+    while (layout.hasNext()) {
+      Layout.Chunk chunk = layout.next();
+      if (chunk == null)
+        continue;
+      int nbytes = chunk.getNelems() * elemBytes;
+      ByteBuffer bb = raf.getByteBuffer(chunk.getSrcPos(), nbytes).order(order);
+      copyChunk(bb, dataType, elemBytes, arr, (int) chunk.getDestElem(), chunk.getNelems());
+      raf.seek(chunk.getSrcPos() + nbytes); // leave the file pointer where the buffered reads would
+    }
+
+    if (convertChar && dataType == DataType.CHAR)
+      return convertByteToChar((byte[]) arr);
+    return arr;
+  }
+
+  // copy nelems from bb into the primitive array arr starting at destElem
+  private static void copyChunk(ByteBuffer bb, DataType dataType, int elemBytes, Object arr, int destElem,
+      int nelems) {
+    Class<?> primitive = dataType.getPrimitiveClassType();
+    if (dataType == DataType.STRUCTURE || primitive == byte.class || dataType == DataType.CHAR) {
+      bb.get((byte[]) arr, destElem * elemBytes, nelems * elemBytes);
+    } else if (primitive == short.class) {
+      bb.asShortBuffer().get((short[]) arr, destElem, nelems);
+    } else if (primitive == int.class) {
+      bb.asIntBuffer().get((int[]) arr, destElem, nelems);
+    } else if (dataType == DataType.FLOAT) {
+      bb.asFloatBuffer().get((float[]) arr, destElem, nelems);
+    } else if (dataType == DataType.DOUBLE) {
+      bb.asDoubleBuffer().get((double[]) arr, destElem, nelems);
+    } else if (primitive == long.class) {
+      bb.asLongBuffer().get((long[]) arr, destElem, nelems);
+    } else {
+      throw new IllegalStateException("unknown type= " + dataType);
+    }
+  }
+
   /**
    * Read data subset from PositioningDataInputStream, create primitive array of size Layout.getTotalNelems.
    * Reading is controlled by the Layout object.
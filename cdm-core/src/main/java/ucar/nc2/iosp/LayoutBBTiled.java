@@ -7,7 +7,14 @@ package ucar.nc2.iosp;
 import ucar.ma2.InvalidRangeException;
 import ucar.ma2.Section;
 import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.nio.*;
+import java.util.ArrayDeque;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.FutureTask;
+import javax.annotation.Nullable;
 
 /**
  * For datasets where the data are stored in chunks, and must be processed, eg compressed or filtered.
@@ -15,6 +22,12 @@ import java.nio.*;
  * "Tiled" means that all chunks are assumed to be equal size.
  * Chunks do not necessarily cover the array, missing data is possible.
  * Used by HDF4 and HDF5.
+ * <p/>
+ * If an Executor is supplied, up to readAhead intersecting chunks are read on the calling thread and processed
+ * concurrently on the Executor, see {@link DataChunk#readRaw()}. The chunks are still returned in iteration order.
+ * <p/>
+ * An IOException reading or processing a chunk is thrown from hasNext() as an UncheckedIOException; the iteration
+ * never ends early. The iosp catches it and rethrows the cause.
  */
 public class LayoutBBTiled implements LayoutBB {
   private static final boolean debug = false, debugIntersection = false;
@@ -23,6 +36,9 @@ public class LayoutBBTiled implements LayoutBB {
   private final int[] chunkSize; // all chunks assumed to be the same size
   private final int elemSize;
   private final DataChunkIterator chunkIterator; // iterate across chunks
+  private final Executor executor; // may be null
+  private final int readAhead;
+  private final ArrayDeque<PendingChunk> pending = new ArrayDeque<>();
 
   // track the overall iteration
   private final long totalNelems;
@@ -30,6 +46,7 @@ public class LayoutBBTiled implements LayoutBB {
 
   private IndexChunkerTiled index; // iterate within a chunk
   private LayoutBBTiled.Chunk next;
+  private PendingChunk current; // the chunk that next is reading from
 
   /**
    * Constructor.
@@ -40,7 +57,24 @@ public class LayoutBBTiled implements LayoutBB {
    * @param wantSection the wanted section of data, contains a List of Range objects. Must be complete.
    */
   public LayoutBBTiled(DataChunkIterator chunkIterator, int[] chunkSize, int elemSize, Section wantSection) {
+    this(chunkIterator, chunkSize, elemSize, wantSection, null, 0);
+  }
+
+  /**
+   * Constructor that processes chunks concurrently.
+   *
+   * @param chunkIterator iterator over all data chunks
+   * @param chunkSize all chunks assumed to be the same size
+   * @param elemSize size of an element in bytes.
+   * @param wantSection the wanted section of data, contains a List of Range objects. Must be complete.
+   * @param executor process chunks on this Executor; if null, process chunks on the calling thread.
+   * @param readAhead maximum number of chunks in flight; if < 2, process chunks on the calling thread.
+   */
+  public LayoutBBTiled(DataChunkIterator chunkIterator, int[] chunkSize, int elemSize, Section wantSection,
+      @Nullable Executor executor, int readAhead) {
     this.chunkIterator = chunkIterator;
+    this.executor = (readAhead > 1) ? executor : null;
+    this.readAhead = readAhead;
     this.chunkSize = chunkSize;
     this.elemSize = elemSize;
     this.want = wantSection;
@@ -63,45 +97,33 @@ public class LayoutBBTiled implements LayoutBB {
 
   @Override
   public boolean hasNext() { // have to actually fetch the thing
-    if (totalNelemsDone >= totalNelems)
+    if (totalNelemsDone >= totalNelems) {
+      releaseCurrent();
       return false;
+    }
 
     if ((index == null) || !index.hasNext()) { // get new data node
+      releaseCurrent();
       try {
-        Section dataSection;
-        DataChunk dataChunk;
-
-        while (true) { // look for intersecting sections
-          if (!chunkIterator.hasNext()) {
-            next = null;
-            return false;
-          }
-
-          // get next dataChunk
-          try {
-            dataChunk = chunkIterator.next();
-          } catch (IOException e) {
-            e.printStackTrace();
-            next = null;
-            return false;
-          }
-
-          // make the dataSection for this chunk
-          dataSection = new Section(dataChunk.getOffset(), chunkSize);
-          if (debugIntersection)
-            System.out.println(" test intersecting: " + dataSection + " want: " + want);
-          if (dataSection.intersects(want)) // does it intersect ?
-            break;
+        PendingChunk pendingChunk = (executor == null) ? nextIntersecting() : nextPending();
+        if (pendingChunk == null) {
+          next = null;
+          return false;
         }
 
         if (debug)
-          System.out.println(
-              " found intersecting dataSection: " + dataSection + " intersect= " + dataSection.intersect(want));
-
-        index = new IndexChunkerTiled(dataSection, want); // new indexer into this chunk
-        next = new Chunk(dataChunk.getByteBuffer()); // this does the uncompression
-
-      } catch (InvalidRangeException | IOException e) {
+          System.out.println(" found intersecting dataSection: " + pendingChunk.dataSection + " intersect= "
+              + pendingChunk.dataSection.intersect(want));
+
+        index = new IndexChunkerTiled(pendingChunk.dataSection, want); // new indexer into this chunk
+        next = new Chunk(pendingChunk.getByteBuffer()); // this does the uncompression
+        current = pendingChunk;
+
+      } catch (IOException e) {
+        cancelPending();
+        throw new UncheckedIOException(e);
+      } catch (InvalidRangeException e) {
+        cancelPending();
         throw new IllegalStateException(e);
       }
     }
@@ -113,6 +135,54 @@ public class LayoutBBTiled implements LayoutBB {
     return true;
   }
 
+  // look for the next intersecting chunk, return null if there are no more.
+  @Nullable
+  private PendingChunk nextIntersecting() throws InvalidRangeException, IOException {
+    while (true) {
+      if (!chunkIterator.hasNext()) {
+        return null;
+      }
+
+      // get next dataChunk
+      DataChunk dataChunk = chunkIterator.next();
+
+      // make the dataSection for this chunk
+      Section dataSection = new Section(dataChunk.getOffset(), chunkSize);
+      if (debugIntersection)
+        System.out.println(" test intersecting: " + dataSection + " want: " + want);
+      if (dataSection.intersects(want)) // does it intersect ?
+        return new PendingChunk(dataChunk, dataSection);
+    }
+  }
+
+  // keep readAhead chunks in flight, return the oldest one.
+  @Nullable
+  private PendingChunk nextPending() throws InvalidRangeException, IOException {
+    while (pending.size() < readAhead) {
+      PendingChunk pendingChunk = nextIntersecting();
+      if (pendingChunk == null)
+        break;
+      pendingChunk.submit(executor);
+      pending.add(pendingChunk);
+    }
+    return pending.poll();
+  }
+
+  private void releaseCurrent() {
+    if (current != null) {
+      current.release();
+      current = null;
+    }
+  }
+
+  private void cancelPending() {
+    for (PendingChunk pendingChunk : pending) {
+      if (pendingChunk.task != null)
+        pendingChunk.task.cancel(false);
+    }
+    pending.clear();
+  }
+
   public LayoutBB.Chunk next() {
     return next;
   }
@@ -141,6 +211,66 @@ public class LayoutBBTiled implements LayoutBB {
     int[] getOffset();
 
     ByteBuffer getByteBuffer() throws IOException;
+
+    /**
+     * Do the I/O for this chunk on the calling thread, and return the remaining processing (eg uncompression),
+     * which may be run on another thread. The default does all the work in getByteBuffer().
+     */
+    default Callable<ByteBuffer> readRaw() throws IOException {
+      ByteBuffer bb = getByteBuffer();
+      return () -> bb;
+    }
+
+    /** Called when the ByteBuffer returned for this chunk is no longer in use, so its storage may be reused. */
+    default void release(ByteBuffer bb) {}
+  }
+
+  /** An intersecting DataChunk, whose ByteBuffer may be computed in the background. */
+  private static class PendingChunk {
+    private final DataChunk dataChunk;
+    private final Section dataSection;
+    private FutureTask<ByteBuffer> task;
+    private ByteBuffer bb;
+
+    PendingChunk(DataChunk dataChunk, Section dataSection) {
+      this.dataChunk = dataChunk;
+      this.dataSection = dataSection;
+    }
+
+    void submit(Executor executor) throws IOException {
+      task = new FutureTask<>(dataChunk.readRaw());
+      executor.execute(task);
+    }
+
+    ByteBuffer getByteBuffer() throws IOException {
+      if (task == null) {
+        bb = dataChunk.getByteBuffer();
+        return bb;
+      }
+      try {
+        bb = task.get();
+        return bb;
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        throw new IOException(e);
+      } catch (ExecutionException e) {
+        Throwable cause = e.getCause();
+        if (cause instanceof IOException)
+          throw (IOException) cause;
+        if (cause instanceof RuntimeException)
+          throw (RuntimeException) cause;
+        if (cause instanceof Error)
+          throw (Error) cause;
+        throw new IOException(cause);
+      }
+    }
+
+    void release() {
+      if (bb != null) {
+        dataChunk.release(bb);
+        bb = null;
+      }
+    }
   }
 
   /**
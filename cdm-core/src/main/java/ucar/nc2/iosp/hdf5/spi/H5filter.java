@@ -0,0 +1,30 @@
+/*
+ * Copyright (c) 1998-2021 John Caron and University Corporation for Atmospheric Research/Unidata
+ * See LICENSE for license information.
+ */
+package ucar.nc2.iosp.hdf5.spi;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import javax.annotation.concurrent.ThreadSafe;
+
+/**
+ * Decodes the chunks of one variable, reversing one HDF5 filter.
+ * The chunks of a variable may be decoded concurrently.
+ */
+@ThreadSafe
+public interface H5filter {
+
+  /**
+   * Decode one chunk. All buffers are heap buffers.
+   * Decode directly into out if it is large enough, to avoid extra copies.
+   *
+   * @param in the encoded bytes, from position to limit. The contents may be modified.
+   * @param out caller supplied buffer for the decoded bytes, with position 0 and limit equal to its capacity,
+   *        which is the size of a decoded chunk.
+   * @return the decoded bytes, from position to limit. Usually out; or in, if the filter can work in place;
+   *         or a new buffer, if out was too small.
+   * @throws IOException if the encoded bytes are not valid.
+   */
+  ByteBuffer decode(ByteBuffer in, ByteBuffer out) throws IOException;
+}
@@ -0,0 +1,30 @@
+/*
+ * Copyright (c) 1998-2021 John Caron and University Corporation for Atmospheric Research/Unidata
+ * See LICENSE for license information.
+ */
+package ucar.nc2.iosp.hdf5.spi;
+
+import java.io.IOException;
+
+/**
+ * A Service Provider of an HDF5 filter decoder, found with java.util.ServiceLoader.
+ * Register an implementation in META-INF/services/ucar.nc2.iosp.hdf5.spi.H5filterProvider.
+ * A provider found this way is used in place of the built-in decoder for the same filter id.
+ * Filter ids are assigned by the HDF Group, see https://portal.hdfgroup.org/display/support/Registered+Filter+Plugins
+ */
+public interface H5filterProvider {
+
+  /** The HDF5 filter id. */
+  int getId();
+
+  /** The filter name, for messages. */
+  String getName();
+
+  /**
+   * Create a decoder for one variable.
+   *
+   * @param clientData the client data values stored with the filter in the variable's filter pipeline message.
+   * @throws IOException if the client data is not valid for this filter.
+   */
+  H5filter create(int[] clientData) throws IOException;
+}
@@ -272,7 +272,11 @@ public class NetcdfFormatWriter implements Closeable {
   @Deprecated
   public void write(Variable v, int[] origin, ucar.ma2.Array values)
       throws IOException, ucar.ma2.InvalidRangeException {
-    spiw.writeData(v, new ucar.ma2.Section(origin, values.getShape()), values);
+    if (writeBehind != null) {
+      writeBehind.write(v, new ucar.ma2.Section(origin, values.getShape()), values);
+    } else {
+      spiw.writeData(v, new ucar.ma2.Section(origin, values.getShape()), values);
+    }
   }
 
   /**
@@ -345,6 +349,9 @@ public class NetcdfFormatWriter implements Closeable {
   @Deprecated
   public int appendStructureData(Structure s, ucar.ma2.StructureData sdata)
       throws IOException, ucar.ma2.InvalidRangeException {
+    if (writeBehind != null) {
+      writeBehind.flush(); // need the recnum
+    }
     return spiw.appendStructureData(s, sdata);
   }
 
@@ -363,21 +370,52 @@ public class NetcdfFormatWriter implements Closeable {
    * @throws IOException if I/O error
    */
   public void updateAttribute(Variable v2, Attribute att) throws IOException {
+    if (writeBehind != null) {
+      writeBehind.flush();
+    }
     spiw.updateAttribute(v2, att);
   }
 
-  /** Close the file. */
+  /**
+   * Wait until all pending asynchronous writes are done, and flush the file.
+   * 
+   * @throws IOException if I/O error, or if a pending write failed.
+   * @see Builder#setWriteBehind(int)
+   */
+  public void flush() throws IOException {
+    if (writeBehind != null) {
+      writeBehind.flush();
+    }
+    if (spiw instanceof N3iospWriter) {
+      ((N3iospWriter) spiw).flush();
+    }
+  }
+
+  /**
+   * Close the file. Any pending asynchronous writes are done first.
+   * 
+   * @throws IOException if I/O error, or if a pending write failed; the file is closed in either case.
+   */
   @Override
   public synchronized void close() throws IOException {
     if (!isClosed) {
-      spiw.close();
-      isClosed = true;
+      try {
+        if (writeBehind != null) {
+          writeBehind.close();
+        }
+      } finally {
+        spiw.close();
+        isClosed = true;
+      }
     }
   }
 
-  /** Abort writing to this file. The file is closed. */
+  /** Abort writing to this file. Any pending asynchronous writes are discarded. The file is closed. */
   public void abort() throws IOException {
     if (!isClosed) {
+      if (writeBehind != null) {
+        writeBehind.abort();
+      }
       spiw.close();
       isClosed = true;
     }
@@ -395,6 +433,8 @@ public class NetcdfFormatWriter implements Closeable {
   final boolean useJna;
   final NetcdfFile ncout;
   final IospFileWriter spiw;
+  @Nullable
+  final WriteBehind writeBehind;
 
   private boolean isClosed = false;
 
@@ -444,6 +484,7 @@ public class NetcdfFormatWriter implements Closeable {
       this.spiw = spi;
     }
 
+    this.writeBehind = builder.maxPendingWrites > 0 ? new WriteBehind(spiw, builder.maxPendingWrites) : null;
   }
 
   private IospFileWriter openJna(String className) {
@@ -483,6 +524,7 @@ public class NetcdfFormatWriter implements Closeable {
     Nc4Chunking chunker;
     boolean useJna;
     boolean isExisting;
+    int maxPendingWrites;
 
     NetcdfFileFormat format = NetcdfFileFormat.NETCDF3;
     IOServiceProvider iosp; // existing only
@@ -556,6 +598,21 @@ public class NetcdfFormatWriter implements Closeable {
       return self();
     }
 
+    /**
+     * Do the writes asynchronously, on a background thread, with at most maxPendingWrites waiting to be done.
+     * When the limit is reached, write() waits. Writes to the same Variable that are adjacent along its outer dimension,
+     * such as successive records, are merged into a single write. Default is 0, which writes on the calling thread.
+     * <p/>
+     * A write that fails is reported as an IOException by the next write(), flush() or close().
+     * Do not modify an Array after passing it to write(). The Variable and unlimited Dimension lengths are updated
+     * when the write is done, call flush() before using them.
+     */
+    public T setWriteBehind(int maxPendingWrites) {
+      Preconditions.checkArgument(maxPendingWrites >= 0);
+      this.maxPendingWrites = maxPendingWrites;
+      return self();
+    }
+
     /** Add a global attribute */
     public T addAttribute(Attribute att) {
       rootGroup.addAttribute(att);
@@ -0,0 +1,260 @@
+/*
+ * Copyright (c) 1998-2021 John Caron and University Corporation for Atmospheric Research/Unidata
+ * See LICENSE for license information.
+ */
+package ucar.nc2.write;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ThreadFactory;
+import javax.annotation.Nullable;
+import ucar.ma2.Array;
+import ucar.ma2.DataType;
+import ucar.ma2.InvalidRangeException;
+import ucar.ma2.Section;
+import ucar.nc2.Structure;
+import ucar.nc2.Variable;
+import ucar.nc2.internal.iosp.IospFileWriter;
+
+/**
+ * Does the writes of a NetcdfFormatWriter on a background thread, so the caller can go on computing the next data.
+ * At most maxPending writes are queued, after that the caller waits. Successive writes to the same Variable that are
+ * adjacent along the outer dimension (eg consecutive records) are merged into one write.
+ * A write that fails is reported on the next call to write(), flush() or close(); the writes queued after it are
+ * discarded.
+ */
+class WriteBehind {
+  private static final ThreadFactory threadFactory =
+      new ThreadFactoryBuilder().setNameFormat("NetcdfFormatWriter-%d").setDaemon(true).build();
+  private static final long maxMergeBytes = 8 * 1000 * 1000;
+  private static final Task STOP = new Task(null, null, null, null);
+
+  private final IospFileWriter spiw;
+  private final BlockingQueue<Task> queue;
+  private final Thread thread;
+  private volatile Throwable failure;
+  private boolean isClosed;
+
+  // written by the background thread, read after a barrier
+  private int nwrites;
+  private int nfileWrites;
+
+  WriteBehind(IospFileWriter spiw, int maxPending) {
+    this.spiw = spiw;
+    this.queue = new ArrayBlockingQueue<>(maxPending);
+    this.thread = threadFactory.newThread(this::run);
+    this.thread.start();
+  }
+
+  /**
+   * Queue a write, wait if the queue is full. The section is checked against the shape of the Variable before it is
+   * queued; an unlimited dimension may be written past its current length.
+   *
+   * @throws InvalidRangeException if the section does not fit in the Variable.
+   */
+  void write(Variable v, Section section, Array values) throws IOException, InvalidRangeException {
+    checkFailure();
+    int[] varShape = v.getShape();
+    for (int i = 0; i < varShape.length; i++) {
+      if (v.getDimension(i).isUnlimited()) {
+        varShape[i] = Integer.MAX_VALUE; // grows as records are written
+      }
+    }
+    String err = section.checkInRange(varShape);
+    if (err != null) {
+      throw new InvalidRangeException(err);
+    }
+    put(new Task(v, section, values, null));
+  }
+
+  /** Wait until all queued writes are done. */
+  void flush() throws IOException {
+    checkFailure();
+    CountDownLatch done = new CountDownLatch(1);
+    put(new Task(null, null, null, done));
+    try {
+      done.await();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new InterruptedIOException("interrupted waiting for writes to " + spiw.getOutputFile().getLocation());
+    }
+    checkFailure();
+  }
+
+  /** Finish the queued writes, then stop the background thread. Does not close the IospFileWriter. */
+  void close() throws IOException {
+    if (isClosed) {
+      return;
+    }
+    try {
+      flush();
+    } finally {
+      stop();
+    }
+  }
+
+  /** Discard the queued writes, then stop the background thread. Does not close the IospFileWriter. */
+  void abort() {
+    if (isClosed) {
+      return;
+    }
+    failure = new IOException("aborted");
+    queue.clear();
+    stop();
+  }
+
+  /** Number of writes, and number of writes to the IospFileWriter after merging. Only valid after flush(). */
+  int[] getWriteCounts() {
+    return new int[] {nwrites, nfileWrites};
+  }
+
+  private void stop() {
+    isClosed = true;
+    boolean interrupted = false;
+    while (thread.isAlive()) {
+      try {
+        if (queue.offer(STOP)) {
+          thread.join();
+        } else {
+          Thread.sleep(1);
+        }
+      } catch (InterruptedException e) {
+        interrupted = true;
+      }
+    }
+    if (interrupted) {
+      Thread.currentThread().interrupt();
+    }
+  }
+
+  private void put(Task task) throws IOException {
+    if (isClosed) {
+      throw new IOException("writer is closed");
+    }
+    try {
+      queue.put(task);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new InterruptedIOException("interrupted writing to " + spiw.getOutputFile().getLocation());
+    }
+  }
+
+  private void checkFailure() throws IOException {
+    Throwable t = failure;
+    if (t != null) {
+      throw new IOException("asynchronous write to " + spiw.getOutputFile().getLocation() + " failed", t);
+    }
+  }
+
+  ///////////////////////////////////////////////////////////////////////
+  // background thread
+
+  private void run() {
+    List<Task> batch = new ArrayList<>();
+    while (true) {
+      Task task;
+      try {
+        task = queue.take();
+      } catch (InterruptedException e) {
+        continue; // only stopped by STOP
+      }
+      if (task == STOP) {
+        return;
+      }
+      if (task.barrier != null) {
+        task.barrier.countDown();
+        continue;
+      }
+      if (failure != null) {
+        continue; // discard
+      }
+
+      batch.clear();
+      batch.add(task);
+      long nbytes = task.values.getSizeBytes();
+      Task next;
+      while ((next = queue.peek()) != null && task.canMerge(batch.get(batch.size() - 1), next)
+          && nbytes + next.values.getSizeBytes() <= maxMergeBytes) {
+        batch.add(queue.poll());
+        nbytes += next.values.getSizeBytes();
+      }
+
+      try {
+        writeBatch(batch);
+      } catch (Throwable t) {
+        failure = t;
+      }
+    }
+  }
+
+  private void writeBatch(List<Task> batch) throws Exception {
+    nwrites += batch.size();
+    nfileWrites++;
+    Task first = batch.get(0);
+    if (batch.size() == 1) {
+      spiw.writeData(first.v, first.section, first.values);
+      return;
+    }
+
+    int[] origin = first.section.getOrigin();
+    int[] shape = first.section.getShape();
+    shape[0] = 0;
+    for (Task task : batch) {
+      shape[0] += task.section.getShape(0);
+    }
+    Array merged = Array.factory(first.values.getDataType(), shape);
+    int destPos = 0;
+    for (Task task : batch) {
+      int size = (int) task.values.getSize();
+      Array.arraycopy(task.values, 0, merged, destPos, size);
+      destPos += size;
+    }
+    spiw.writeData(first.v, new Section(origin, shape), merged);
+  }
+
+  private static class Task {
+    final Variable v;
+    final Section section;
+    final Array values;
+    @Nullable
+    final CountDownLatch barrier;
+
+    Task(Variable v, Section section, Array values, @Nullable CountDownLatch barrier) {
+      this.v = v;
+      this.section = section;
+      this.values = values;
+      this.barrier = barrier;
+    }
+
+    // can next be written in the same call as last, which was merged with this?
+    boolean canMerge(Task last, Task next) {
+      if (next == STOP || next.barrier != null || next.v != v || v instanceof Structure || v.getRank() == 0) {
+        return false;
+      }
+      DataType dataType = values.getDataType();
+      if (next.values.getDataType() != dataType || dataType == DataType.STRUCTURE || dataType == DataType.SEQUENCE
+          || dataType == DataType.OPAQUE) {
+        return false;
+      }
+      int[] lastOrigin = last.section.getOrigin();
+      int[] lastShape = last.section.getShape();
+      int[] nextOrigin = next.section.getOrigin();
+      int[] nextShape = next.section.getShape();
+      if (nextOrigin[0] != lastOrigin[0] + lastShape[0]) {
+        return false;
+      }
+      for (int i = 1; i < lastShape.length; i++) {
+        if (nextOrigin[i] != lastOrigin[i] || nextShape[i] != lastShape[i]) {
+          return false;
+        }
+      }
+      return true;
+    }
+  }
+}
@@ -0,0 +1,296 @@
+/*
+ * Copyright (c) 1998-2021 John Caron and University Corporation for Atmospheric Research/Unidata
+ * See LICENSE for license information.
+ */
+package ucar.unidata.geoloc;
+
+import com.google.common.base.Preconditions;
+import javax.annotation.concurrent.Immutable;
+
+/**
+ * Finds the cell of a curvilinear grid that contains a lat/lon point.
+ * The grid cells are given by the 2D lat(row, col) and lon(row, col) edge arrays, of shape (nrows+1, ncols+1).
+ * The cells are put into a uniform lat/lon bucket grid, sized so that each bucket holds a few cells, so a lookup
+ * tests only the cells in one bucket, independent of the size of the grid.
+ * <p>
+ * Longitudes are compared modulo 360: the corners of each cell are made continuous across the dateline, and the
+ * point is normalized to each cell before testing, so grids that cross the dateline or wrap around the globe work.
+ * Cells with a missing (NaN) corner are never found.
+ * <p>
+ * Once made, this is immutable and may be shared by threads.
+ */
+@Immutable
+public class CurvilinearGridIndex {
+
+  /**
+   * Make an index from the cell edges.
+   *
+   * @param nrows number of rows of cells
+   * @param ncols number of columns of cells
+   * @param latEdge latitude of cell corners, row-major of shape (nrows+1, ncols+1)
+   * @param lonEdge longitude of cell corners, row-major of shape (nrows+1, ncols+1)
+   */
+  public static CurvilinearGridIndex fromEdges(int nrows, int ncols, double[] latEdge, double[] lonEdge) {
+    Preconditions.checkArgument(nrows > 0 && ncols > 0);
+    Preconditions.checkArgument(latEdge.length == (nrows + 1) * (ncols + 1), "latEdge must be (nrows+1, ncols+1)");
+    Preconditions.checkArgument(lonEdge.length == latEdge.length, "lonEdge must be (nrows+1, ncols+1)");
+    return new CurvilinearGridIndex(nrows, ncols, latEdge, lonEdge);
+  }
+
+  ////////////////////////////////////////////////////////////////////////////////////////////
+  private final int nrows, ncols;
+  private final double[] latEdge, lonEdge;
+  private final double refLon; // cell longitudes are normalized to [refLon - 180, refLon + 180] (approx)
+
+  // the bucket grid
+  private final double latMin, lonMin, latMax, lonMax;
+  private final int nlatBins, nlonBins;
+  private final double latScale, lonScale; // bins per degree
+  private final int[] bucketStart; // cells of bucket k are cells[bucketStart[k] : bucketStart[k+1]]
+  private final int[] cells; // cell = row * ncols + col, ascending within a bucket
+
+  private CurvilinearGridIndex(int nrows, int ncols, double[] latEdge, double[] lonEdge) {
+    this.nrows = nrows;
+    this.ncols = ncols;
+    this.latEdge = latEdge;
+    this.lonEdge = lonEdge;
+
+    // center the longitudes on the middle of the grid
+    int nedgeCols = ncols + 1;
+    double ref = lonEdge[(nrows / 2) * nedgeCols + ncols / 2];
+    if (Double.isNaN(ref)) {
+      ref = 0.0;
+      for (double lon : lonEdge) {
+        if (!Double.isNaN(lon)) {
+          ref = lon;
+          break;
+        }
+      }
+    }
+    this.refLon = ref;
+
+    // bounding box of all the cells
+    int ncells = nrows * ncols;
+    double[] bb = new double[4];
+    double latMin = Double.MAX_VALUE, latMax = -Double.MAX_VALUE;
+    double lonMin = Double.MAX_VALUE, lonMax = -Double.MAX_VALUE;
+    for (int cell = 0; cell < ncells; cell++) {
+      if (cellBounds(cell, bb)) {
+        latMin = Math.min(latMin, bb[0]);
+        latMax = Math.max(latMax, bb[1]);
+        lonMin = Math.min(lonMin, bb[2]);
+        lonMax = Math.max(lonMax, bb[3]);
+      }
+    }
+    if (latMin > latMax) { // all missing
+      latMin = latMax = lonMin = lonMax = 0.0;
+    }
+    this.latMin = latMin;
+    this.latMax = latMax;
+    this.lonMin = lonMin;
+    this.lonMax = lonMax;
+
+    // about one cell per bucket, with the buckets as square as the grid allows
+    double latSpan = Math.max(latMax - latMin, 1.0e-6);
+    double lonSpan = Math.max(lonMax - lonMin, 1.0e-6);
+    this.nlonBins = (int) Math.max(1, Math.min(ncells, Math.round(Math.sqrt(ncells * lonSpan / latSpan))));
+    this.nlatBins = (int) Math.max(1, Math.min(ncells, Math.round((double) ncells / nlonBins)));
+    this.latScale = nlatBins / latSpan;
+    this.lonScale = nlonBins / lonSpan;
+
+    // count the cells in each bucket, then fill
+    int nbuckets = nlatBins * nlonBins;
+    this.bucketStart = new int[nbuckets + 1];
+    for (int cell = 0; cell < ncells; cell++) {
+      if (cellBounds(cell, bb)) {
+        int lat0 = latBin(bb[0]), lat1 = latBin(bb[1]);
+        int lon0 = lonBin(bb[2]), lon1 = lonBin(bb[3]);
+        for (int i = lat0; i <= lat1; i++) {
+          for (int j = lon0; j <= lon1; j++) {
+            bucketStart[i * nlonBins + j + 1]++;
+          }
+        }
+      }
+    }
+    for (int k = 0; k < nbuckets; k++) {
+      bucketStart[k + 1] += bucketStart[k];
+    }
+    this.cells = new int[bucketStart[nbuckets]];
+    int[] next = new int[nbuckets];
+    System.arraycopy(bucketStart, 0, next, 0, nbuckets);
+    for (int cell = 0; cell < ncells; cell++) {
+      if (cellBounds(cell, bb)) {
+        int lat0 = latBin(bb[0]), lat1 = latBin(bb[1]);
+        int lon0 = lonBin(bb[2]), lon1 = lonBin(bb[3]);
+        for (int i = lat0; i <= lat1; i++) {
+          for (int j = lon0; j <= lon1; j++) {
+            cells[next[i * nlonBins + j]++] = cell;
+          }
+        }
+      }
+    }
+  }
+
+  public int getNrows() {
+    return nrows;
+  }
+
+  public int getNcols() {
+    return ncols;
+  }
+
+  /**
+   * Find the cell that contains the given point.
+   *
+   * @param wantLat lat of point
+   * @param wantLon lon of point, any range
+   * @return cell index = row * ncols + col, or -1 if the point is not in the grid.
+   */
+  public int findCell(double wantLat, double wantLon) {
+    if (Double.isNaN(wantLat) || Double.isNaN(wantLon) || wantLat < latMin || wantLat > latMax) {
+      return -1;
+    }
+    // cells near the seam may extend past refLon +/- 180
+    double lon = LatLonPoints.lonNormal(wantLon, refLon);
+    int cell = findCellInBucket(wantLat, wantLon, lon);
+    if (cell < 0 && lon + 360 <= lonMax) {
+      cell = findCellInBucket(wantLat, wantLon, lon + 360);
+    }
+    if (cell < 0 && lon - 360 >= lonMin) {
+      cell = findCellInBucket(wantLat, wantLon, lon - 360);
+    }
+    return cell;
+  }
+
+  /**
+   * Find the cell that contains the given point.
+   *
+   * @param wantLat lat of point
+   * @param wantLon lon of point, any range
+   * @param rectIndex return (row, col) index here, unchanged if not found. may not be null
+   * @return false if not in the grid.
+   */
+  public boolean findCoordElement(double wantLat, double wantLon, int[] rectIndex) {
+    int cell = findCell(wantLat, wantLon);
+    if (cell < 0) {
+      return false;
+    }
+    rectIndex[0] = cell / ncols;
+    rectIndex[1] = cell % ncols;
+    return true;
+  }
+
+  /**
+   * Find the cells that contain each of the given points.
+   *
+   * @param wantLat lat of points
+   * @param wantLon lon of points, same length as wantLat
+   * @return for each point, the cell index = row * ncols + col, or -1 if the point is not in the grid.
+   */
+  public int[] findCells(double[] wantLat, double[] wantLon) {
+    Preconditions.checkArgument(wantLat.length == wantLon.length, "lat and lon must have the same length");
+    int[] result = new int[wantLat.length];
+    for (int i = 0; i < wantLat.length; i++) {
+      result[i] = findCell(wantLat[i], wantLon[i]);
+    }
+    return result;
+  }
+
+  private int findCellInBucket(double wantLat, double wantLon, double normalLon) {
+    if (normalLon < lonMin || normalLon > lonMax) {
+      return -1;
+    }
+    int bucket = latBin(wantLat) * nlonBins + lonBin(normalLon);
+    for (int k = bucketStart[bucket]; k < bucketStart[bucket + 1]; k++) {
+      if (contains(cells[k], wantLat, wantLon)) {
+        return cells[k];
+      }
+    }
+    return -1;
+  }
+
+  private int latBin(double lat) {
+    return Math.max(0, Math.min(nlatBins - 1, (int) ((lat - latMin) * latScale)));
+  }
+
+  private int lonBin(double lon) {
+    return Math.max(0, Math.min(nlonBins - 1, (int) ((lon - lonMin) * lonScale)));
+  }
+
+  // corner k of cell, counterclockwise from (row, col): 0 = (row, col), 1 = (row, col+1), 2 = (row+1, col+1),
+  // 3 = (row+1, col)
+  private int corner(int cell, int k) {
+    int row = cell / ncols;
+    int col = cell % ncols;
+    int nedgeCols = ncols + 1;
+    switch (k) {
+      case 0:
+        return row * nedgeCols + col;
+      case 1:
+        return row * nedgeCols + col + 1;
+      case 2:
+        return (row + 1) * nedgeCols + col + 1;
+      default:
+        return (row + 1) * nedgeCols + col;
+    }
+  }
+
+  // bb = latMin, latMax, lonMin, lonMax of the cell, with continuous longitudes; false if a corner is missing
+  private boolean cellBounds(int cell, double[] bb) {
+    double lon0 = LatLonPoints.lonNormal(lonEdge[corner(cell, 0)], refLon);
+    bb[0] = bb[1] = latEdge[corner(cell, 0)];
+    bb[2] = bb[3] = lon0;
+    for (int k = 1; k < 4; k++) {
+      double lat = latEdge[corner(cell, k)];
+      double lon = LatLonPoints.lonNormal(lonEdge[corner(cell, k)], lon0);
+      bb[0] = Math.min(bb[0], lat);
+      bb[1] = Math.max(bb[1], lat);
+      bb[2] = Math.min(bb[2], lon);
+      bb[3] = Math.max(bb[3], lon);
+    }
+    return !Double.isNaN(bb[0] + bb[1] + bb[2] + bb[3]);
+  }
+
+  /*
+   * The point is inside a convex quadrilateral when, tracing around the corners, the signed areas of the triangles
+   * (p1 p2 p), (p2 p3 p), (p3 p4 p), (p4 p1 p) all have the same sign (see GridCoordinate2D). Points on an edge
+   * are inside.
+   */
+  private boolean contains(int cell, double wantLat, double wantLon) {
+    int c0 = corner(cell, 0);
+    int c1 = corner(cell, 1);
+    int c2 = corner(cell, 2);
+    int c3 = corner(cell, 3);
+
+    double x1 = lonEdge[c0];
+    double y1 = latEdge[c0];
+    double x2 = LatLonPoints.lonNormal(lonEdge[c1], x1);
+    double y2 = latEdge[c1];
+    double x3 = LatLonPoints.lonNormal(lonEdge[c2], x1);
+    double y3 = latEdge[c2];
+    double x4 = LatLonPoints.lonNormal(lonEdge[c3], x1);
+    double y4 = latEdge[c3];
+    double x = LatLonPoints.lonNormal(wantLon, x1);
+
+    if (wantLat < Math.min(Math.min(y1, y2), Math.min(y3, y4)) || wantLat > Math.max(Math.max(y1, y2), Math.max(y3, y4))
+        || x < Math.min(Math.min(x1, x2), Math.min(x3, x4)) || x > Math.max(Math.max(x1, x2), Math.max(x3, x4))) {
+      return false;
+    }
+
+    double d1 = det(x1, y1, x2, y2, x, wantLat);
+    double d2 = det(x2, y2, x3, y3, x, wantLat);
+    double d3 = det(x3, y3, x4, y4, x, wantLat);
+    double d4 = det(x4, y4, x1, y1, x, wantLat);
+    return (d1 >= 0 && d2 >= 0 && d3 >= 0 && d4 >= 0) || (d1 <= 0 && d2 <= 0 && d3 <= 0 && d4 <= 0);
+  }
+
+  private static double det(double x0, double y0, double x1, double y1, double x2, double y2) {
+    return x1 * y2 - y1 * x2 - x0 * y2 + y0 * x2 + x0 * y1 - y0 * x1;
+  }
+
+  @Override
+  public String toString() {
+    return String.format("CurvilinearGridIndex{%d x %d cells, lat=[%f,%f] lon=[%f,%f], %d x %d buckets, %d entries}",
+        nrows, ncols, latMin, latMax, lonMin, lonMax, nlatBins, nlonBins, cells.length);
+  }
+}
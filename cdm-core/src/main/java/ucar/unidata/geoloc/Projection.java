@@ -4,7 +4,9 @@
  */
 package ucar.unidata.geoloc;
 
+import com.google.common.base.Preconditions;
 import com.google.common.collect.ImmutableList;
+import java.util.stream.IntStream;
 import ucar.nc2.AttributeContainer;
 import ucar.unidata.util.Parameter;
 
@@ -41,6 +43,89 @@ public interface Projection {
   // LOOK can this be null?
   LatLonPoint projToLatLon(ProjectionPoint ppt);
 
+  /**
+   * Convert many lat, lon points to projection x, y, without making a LatLonPoint and ProjectionPoint for each point.
+   * Gives the same values as {@link #latLonToProj(double, double)} for each point.
+   * The output arrays may be the input arrays (x == lat, y == lon), to convert in place.
+   *
+   * @param lat latitudes in degrees
+   * @param lon longitudes in degrees
+   * @param x resulting projection x, same length as lat
+   * @param y resulting projection y, same length as lat
+   */
+  default void latLonToProj(double[] lat, double[] lon, double[] x, double[] y) {
+    checkBulkLengths(lat, lon, x, y);
+    latLonToProj(lat, lon, x, y, 0, lat.length);
+  }
+
+  /**
+   * Convert the lat, lon points with index start (inclusive) to end (exclusive) to projection x, y.
+   * Projections override this with a loop that does not make any objects.
+   */
+  default void latLonToProj(double[] lat, double[] lon, double[] x, double[] y, int start, int end) {
+    for (int i = start; i < end; i++) {
+      ProjectionPoint pt = latLonToProj(lat[i], lon[i]);
+      x[i] = pt.getX();
+      y[i] = pt.getY();
+    }
+  }
+
+  /**
+   * Same as {@link #latLonToProj(double[], double[], double[], double[])}, dividing the points among the threads of
+   * the common ForkJoinPool.
+   */
+  default void latLonToProjParallel(double[] lat, double[] lon, double[] x, double[] y) {
+    checkBulkLengths(lat, lon, x, y);
+    int n = lat.length;
+    int chunk = 16 * 1024;
+    IntStream.range(0, (n + chunk - 1) / chunk).parallel()
+        .forEach(c -> latLonToProj(lat, lon, x, y, c * chunk, Math.min(n, (c + 1) * chunk)));
+  }
+
+  /**
+   * Convert many projection x, y points to lat, lon, without making a ProjectionPoint and LatLonPoint for each point.
+   * Gives the same values as {@link #projToLatLon(double, double)} for each point.
+   * The output arrays may be the input arrays (lat == x, lon == y), to convert in place.
+   *
+   * @param x projection x
+   * @param y projection y
+   * @param lat resulting latitudes in degrees, same length as x
+   * @param lon resulting longitudes in degrees, same length as x
+   */
+  default void projToLatLon(double[] x, double[] y, double[] lat, double[] lon) {
+    checkBulkLengths(x, y, lat, lon);
+    projToLatLon(x, y, lat, lon, 0, x.length);
+  }
+
+  /**
+   * Convert the projection x, y points with index start (inclusive) to end (exclusive) to lat, lon.
+   * Projections override this with a loop that does not make any objects.
+   */
+  default void projToLatLon(double[] x, double[] y, double[] lat, double[] lon, int start, int end) {
+    for (int i = start; i < end; i++) {
+      LatLonPoint pt = projToLatLon(x[i], y[i]);
+      lat[i] = pt.getLatitude();
+      lon[i] = pt.getLongitude();
+    }
+  }
+
+  /**
+   * Same as {@link #projToLatLon(double[], double[], double[], double[])}, dividing the points among the threads of
+   * the common ForkJoinPool.
+   */
+  default void projToLatLonParallel(double[] x, double[] y, double[] lat, double[] lon) {
+    checkBulkLengths(x, y, lat, lon);
+    int n = x.length;
+    int chunk = 16 * 1024;
+    IntStream.range(0, (n + chunk - 1) / chunk).parallel()
+        .forEach(c -> projToLatLon(x, y, lat, lon, c * chunk, Math.min(n, (c + 1) * chunk)));
+  }
+
+  private static void checkBulkLengths(double[] in1, double[] in2, double[] out1, double[] out2) {
+    Preconditions.checkArgument(in2.length == in1.length && out1.length == in1.length && out2.length == in1.length,
+        "arrays must all have the same length");
+  }
+
   /**
    * Does the line between these two points cross the projection "seam", which
    * is a discontinuity in the function latlon <-> projection plane
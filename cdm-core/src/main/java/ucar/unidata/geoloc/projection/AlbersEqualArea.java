@@ -348,5 +348,34 @@ public class AlbersEqualArea extends AbstractProjection {
     return LatLonPoint.create(toLat, toLon);
   }
 
+  @Override
+  public void latLonToProj(double[] lat, double[] lon, double[] x, double[] y, int start, int end) {
+    for (int i = start; i < end; i++) {
+      double fromLat = Math.toRadians(LatLonPoints.latNormal(lat[i]));
+      double fromLon = Math.toRadians(LatLonPoints.lonNormal(lon[i]));
+      double rho = computeRho(fromLat);
+      double theta = computeTheta(fromLon);
+      x[i] = rho * Math.sin(theta) + falseEasting;
+      y[i] = rho0 - rho * Math.cos(theta) + falseNorthing;
+    }
+  }
+
+  @Override
+  public void projToLatLon(double[] x, double[] y, double[] lat, double[] lon, int start, int end) {
+    double sign = (n < 0) ? -1.0 : 1.0;
+    double rrho0 = sign * rho0;
+    for (int i = start; i < end; i++) {
+      double fromX = sign * (x[i] - falseEasting);
+      double fromY = sign * (y[i] - falseNorthing);
+      double yd = rrho0 - fromY;
+      double rho = sign * Math.sqrt(fromX * fromX + yd * yd);
+      double theta = Math.atan2(fromX, yd);
+      double toLat = Math.toDegrees(Math.asin((C - Math.pow((rho * n / earth_radius), 2)) / (2 * n)));
+      double toLon = Math.toDegrees(theta / n + lon0);
+      lat[i] = LatLonPoints.latNormal(toLat);
+      lon[i] = LatLonPoints.lonNormal(toLon);
+    }
+  }
+
 }
 
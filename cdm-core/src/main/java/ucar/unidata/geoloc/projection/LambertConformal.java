@@ -410,6 +410,44 @@ public class LambertConformal extends AbstractProjection {
     return LatLonPoint.create(toLat, toLon);
   }
 
+  @Override
+  public void latLonToProj(double[] lat, double[] lon, double[] x, double[] y, int start, int end) {
+    for (int i = start; i < end; i++) {
+      double fromLat = Math.toRadians(LatLonPoints.latNormal(lat[i]));
+      double dlon = LatLonPoints.lonNormal(LatLonPoints.lonNormal(lon[i]) - lon0Degrees);
+      double theta = n * Math.toRadians(dlon);
+      double tn = Math.pow(Math.tan(PI_OVER_4 + fromLat / 2), n);
+      double r = earthRadiusTimesF / tn;
+      x[i] = r * Math.sin(theta) + falseEasting;
+      y[i] = rho - r * Math.cos(theta) + falseNorthing;
+    }
+  }
+
+  @Override
+  public void projToLatLon(double[] x, double[] y, double[] lat, double[] lon, int start, int end) {
+    double sign = (n < 0) ? -1.0 : 1.0;
+    double rhop = sign * rho;
+    double toLatAtCenter = (n < 0.0) ? -90.0 : 90.0;
+    for (int i = start; i < end; i++) {
+      double fromX = sign * (x[i] - falseEasting);
+      double fromY = sign * (y[i] - falseNorthing);
+      double yd = (rhop - fromY);
+      double theta = Math.atan2(fromX, yd);
+      double r = sign * Math.sqrt(fromX * fromX + yd * yd);
+
+      double toLon = Math.toDegrees(theta / n + lon0);
+      double toLat;
+      if (Math.abs(r) < TOLERANCE) {
+        toLat = toLatAtCenter;
+      } else {
+        double rn = Math.pow(earthRadiusTimesF / r, 1 / n);
+        toLat = Math.toDegrees(2.0 * Math.atan(rn) - Math.PI / 2);
+      }
+      lat[i] = LatLonPoints.latNormal(toLat);
+      lon[i] = LatLonPoints.lonNormal(toLon);
+    }
+  }
+
 }
 
 
@@ -112,6 +112,26 @@ public class LatLonProjection extends AbstractProjection {
     return LatLonPoint.create(world.getX(), world.getY());
   }
 
+  @Override
+  public void latLonToProj(double[] lat, double[] lon, double[] x, double[] y, int start, int end) {
+    for (int i = start; i < end; i++) {
+      double fromLat = LatLonPoints.latNormal(lat[i]);
+      double fromLon = LatLonPoints.lonNormal(lon[i]);
+      x[i] = LatLonPoints.lonNormal(fromLon, centerLon);
+      y[i] = fromLat;
+    }
+  }
+
+  @Override
+  public void projToLatLon(double[] x, double[] y, double[] lat, double[] lon, int start, int end) {
+    for (int i = start; i < end; i++) {
+      double fromX = x[i];
+      double fromY = y[i];
+      lat[i] = LatLonPoints.latNormal(fromX);
+      lon[i] = LatLonPoints.lonNormal(fromY);
+    }
+  }
+
   /** Get the center of the Longitude range. It is normalized to +/- 180. */
   public double getCenterLon() {
     return centerLon;
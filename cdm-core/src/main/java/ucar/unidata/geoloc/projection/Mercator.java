@@ -242,5 +242,33 @@ public class Mercator extends AbstractProjection {
     return LatLonPoint.create(toLat, toLon);
   }
 
+  @Override
+  public void latLonToProj(double[] lat, double[] lon, double[] x, double[] y, int start, int end) {
+    for (int i = start; i < end; i++) {
+      double fromLat = LatLonPoints.latNormal(lat[i]);
+      double fromLon = LatLonPoints.lonNormal(lon[i]);
+      if ((Math.abs(90.0 - Math.abs(fromLat))) < TOLERANCE) { // infinite projection
+        x[i] = Double.POSITIVE_INFINITY + falseEasting;
+        y[i] = Double.POSITIVE_INFINITY + falseNorthing;
+      } else {
+        x[i] = A * Math.toRadians(LatLonPoints.range180(fromLon - this.lon0)) + falseEasting;
+        y[i] = A * SpecialMathFunction.atanh(Math.sin(Math.toRadians(fromLat))) + falseNorthing;
+      }
+    }
+  }
+
+  @Override
+  public void projToLatLon(double[] x, double[] y, double[] lat, double[] lon, int start, int end) {
+    for (int i = start; i < end; i++) {
+      double fromX = x[i] - falseEasting;
+      double fromY = y[i] - falseNorthing;
+      double toLon = Math.toDegrees(fromX / A) + lon0;
+      double e = Math.exp(-fromY / A);
+      double toLat = Math.toDegrees(Math.PI / 2 - 2 * Math.atan(e)); // Snyder p 44
+      lat[i] = LatLonPoints.latNormal(toLat);
+      lon[i] = LatLonPoints.lonNormal(toLon);
+    }
+  }
+
 }
 
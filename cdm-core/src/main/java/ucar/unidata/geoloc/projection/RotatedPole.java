@@ -185,6 +185,61 @@ public class RotatedPole extends AbstractProjection {
     return LatLonPoint.create(lat, lon);
   }
 
+  @Override
+  public void latLonToProj(double[] lat, double[] lon, double[] x, double[] y, int start, int end) {
+    double z00 = rotZ[0][0], z01 = rotZ[0][1], z10 = rotZ[1][0], z11 = rotZ[1][1];
+    double y00 = rotY[0][0], y02 = rotY[0][2], y20 = rotY[2][0], y22 = rotY[2][2];
+    for (int i = start; i < end; i++) {
+      double lonRad = Math.toRadians(LatLonPoints.lonNormal(lon[i]));
+      double latRad = Math.toRadians(LatLonPoints.latNormal(lat[i]));
+
+      // Lon-lat pair to xyz coordinates on sphere with radius 1
+      double p0x = Math.cos(latRad) * Math.cos(lonRad);
+      double p0y = Math.cos(latRad) * Math.sin(lonRad);
+      double p0z = Math.sin(latRad);
+
+      // Rotate around Z-axis, then around Y-axis
+      double p1x = z00 * p0x + z01 * p0y;
+      double p1y = z10 * p0x + z11 * p0y;
+      double p2x = y00 * p1x + y02 * p0z;
+      double p2z = y20 * p1x + y22 * p0z;
+
+      x[i] = LatLonPoints.range180(Math.atan2(p1y, p2x) * DEG_PER_RAD);
+      y[i] = Math.asin(p2z) * DEG_PER_RAD;
+    }
+  }
+
+  @Override
+  public void projToLatLon(double[] x, double[] y, double[] lat, double[] lon, int start, int end) {
+    double z00 = rotZ[0][0], z01 = rotZ[0][1], z10 = rotZ[1][0], z11 = rotZ[1][1];
+    double y00 = rotY[0][0], y02 = rotY[0][2], y20 = rotY[2][0], y22 = rotY[2][2];
+    for (int i = start; i < end; i++) {
+      // "x" and "y" input for rotated pole coords are actually a lon-lat pair
+      double lonR = LatLonPoints.range180(x[i]);
+      double latR = y[i];
+      if (Math.abs(latR) > 90.) {
+        throw new IllegalArgumentException("ProjectionPoint y must be in range [-90,90].");
+      }
+
+      double lonRRad = Math.toRadians(lonR);
+      double latRRad = Math.toRadians(latR);
+
+      // Lon-lat pair to xyz coordinates on sphere with radius 1
+      double p0x = Math.cos(latRRad) * Math.cos(lonRRad);
+      double p0y = Math.cos(latRRad) * Math.sin(lonRRad);
+      double p0z = Math.sin(latRRad);
+
+      // Inverse rotate around Y-axis, then around Z-axis (using transpose of the matrices)
+      double p1x = y00 * p0x + y20 * p0z;
+      double p1z = y02 * p0x + y22 * p0z;
+      double p2x = z00 * p1x + z10 * p0y;
+      double p2y = z01 * p1x + z11 * p0y;
+
+      lat[i] = LatLonPoints.latNormal(Math.asin(p1z) * DEG_PER_RAD);
+      lon[i] = LatLonPoints.lonNormal(Math.atan2(p2y, p2x) * DEG_PER_RAD);
+    }
+  }
+
   public boolean crossSeam(ProjectionPoint pt1, ProjectionPoint pt2) {
     return Math.abs(pt1.getX() - pt2.getX()) > 270.0;
   }
@@ -387,4 +387,56 @@ public class Stereographic extends AbstractProjection {
     return LatLonPoint.create(toLat, toLon);
   }
 
+  @Override
+  public void latLonToProj(double[] lat, double[] lon, double[] x, double[] y, int start, int end) {
+    for (int i = start; i < end; i++) {
+      double latr = Math.toRadians(LatLonPoints.latNormal(lat[i]));
+      double lonr = Math.toRadians(LatLonPoints.lonNormal(lon[i]));
+      // keep away from the singular point
+      if ((Math.abs(latr + latt) <= TOLERANCE)) {
+        latr = -latt * (1.0 - TOLERANCE);
+      }
+
+      double sdlon = Math.sin(lonr - lont);
+      double cdlon = Math.cos(lonr - lont);
+      double sinlat = Math.sin(latr);
+      double coslat = Math.cos(latr);
+
+      double k = 2.0 * scale / (1.0 + sinlatt * sinlat + coslatt * coslat * cdlon);
+      x[i] = k * coslat * sdlon + falseEasting;
+      y[i] = k * (coslatt * sinlat - sinlatt * coslat * cdlon) + falseNorthing;
+    }
+  }
+
+  @Override
+  public void projToLatLon(double[] x, double[] y, double[] lat, double[] lon, int start, int end) {
+    for (int i = start; i < end; i++) {
+      double fromX = x[i] - falseEasting;
+      double fromY = y[i] - falseNorthing;
+      double phi, lam;
+
+      double rho = Math.sqrt(fromX * fromX + fromY * fromY);
+      double c = 2.0 * Math.atan2(rho, 2.0 * scale);
+      double sinc = Math.sin(c);
+      double cosc = Math.cos(c);
+
+      if (Math.abs(rho) < TOLERANCE) {
+        phi = latt;
+      } else {
+        phi = Math.asin(cosc * sinlatt + fromY * sinc * coslatt / rho);
+      }
+
+      if ((Math.abs(fromX) < TOLERANCE) && (Math.abs(fromY) < TOLERANCE)) {
+        lam = lont;
+      } else if (Math.abs(coslatt) < TOLERANCE) {
+        lam = lont + Math.atan2(fromX, ((latt > 0) ? -fromY : fromY));
+      } else {
+        lam = lont + Math.atan2(fromX * sinc, rho * coslatt * cosc - fromY * sinc * sinlatt);
+      }
+
+      lat[i] = LatLonPoints.latNormal(Math.toDegrees(phi));
+      lon[i] = LatLonPoints.lonNormal(Math.toDegrees(lam));
+    }
+  }
+
 }
@@ -278,6 +278,36 @@ public class TransverseMercator extends AbstractProjection {
     return LatLonPoint.create(toLat, toLon);
   }
 
+  @Override
+  public void latLonToProj(double[] lat, double[] lon, double[] x, double[] y, int start, int end) {
+    for (int i = start; i < end; i++) {
+      double lonr = Math.toRadians(LatLonPoints.lonNormal(lon[i]));
+      double latr = Math.toRadians(LatLonPoints.latNormal(lat[i]));
+      double dlon = lonr - lon0;
+      double b = Math.cos(latr) * Math.sin(dlon);
+
+      if ((Math.abs(Math.abs(b) - 1.0)) < TOLERANCE) { // infinite projection
+        x[i] = Double.POSITIVE_INFINITY + falseEasting;
+        y[i] = Double.POSITIVE_INFINITY + falseNorthing;
+      } else {
+        x[i] = scale * SpecialMathFunction.atanh(b) + falseEasting;
+        y[i] = scale * (Math.atan2(Math.tan(latr), Math.cos(dlon)) - lat0) + falseNorthing;
+      }
+    }
+  }
+
+  @Override
+  public void projToLatLon(double[] x, double[] y, double[] lat, double[] lon, int start, int end) {
+    for (int i = start; i < end; i++) {
+      double xs = (x[i] - falseEasting) / scale;
+      double d = (y[i] - falseNorthing) / scale + lat0;
+      double toLon = Math.toDegrees(lon0 + Math.atan2(Math.sinh(xs), Math.cos(d)));
+      double toLat = Math.toDegrees(Math.asin(Math.sin(d) / Math.cosh(xs)));
+      lat[i] = LatLonPoints.latNormal(toLat);
+      lon[i] = LatLonPoints.lonNormal(toLon);
+    }
+  }
+
   /**
    * Convert lat/lon coordinates to projection coordinates.
    *
@@ -234,6 +234,28 @@ public class Geostationary extends AbstractProjection {
     return LatLonPoint.create(lonlat[1], lonlat[0]);
   }
 
+  @Override
+  public void latLonToProj(double[] lat, double[] lon, double[] x, double[] y, int start, int end) {
+    boolean scaled = isGeoCoordinateScaled();
+    for (int i = start; i < end; i++) {
+      double[] satCoords = navigation.earthToSat(LatLonPoints.lonNormal(lon[i]), LatLonPoints.latNormal(lat[i]));
+      x[i] = scaled ? satCoords[0] / geoCoordinateScaleFactor : satCoords[0];
+      y[i] = scaled ? satCoords[1] / geoCoordinateScaleFactor : satCoords[1];
+    }
+  }
+
+  @Override
+  public void projToLatLon(double[] x, double[] y, double[] lat, double[] lon, int start, int end) {
+    boolean scaled = isGeoCoordinateScaled();
+    for (int i = start; i < end; i++) {
+      double fromX = scaled ? x[i] * geoCoordinateScaleFactor : x[i];
+      double fromY = scaled ? y[i] * geoCoordinateScaleFactor : y[i];
+      double[] lonlat = navigation.satToEarth(fromX, fromY);
+      lat[i] = LatLonPoints.latNormal(lonlat[1]);
+      lon[i] = LatLonPoints.lonNormal(lonlat[0]);
+    }
+  }
+
   @Override
   public boolean crossSeam(ProjectionPoint pt1, ProjectionPoint pt2) {
     // either point is infinite
@@ -343,6 +343,24 @@ public class MSGnavigation extends AbstractProjection {
     return pixcoord2geocoord(ppt.getX(), ppt.getY());
   }
 
+  @Override
+  public void latLonToProj(double[] lat, double[] lon, double[] x, double[] y, int start, int end) {
+    for (int i = start; i < end; i++) {
+      ProjectionPoint pt = geocoord2pixcoord(LatLonPoints.latNormal(lat[i]), LatLonPoints.lonNormal(lon[i]));
+      x[i] = pt.getX();
+      y[i] = pt.getY();
+    }
+  }
+
+  @Override
+  public void projToLatLon(double[] x, double[] y, double[] lat, double[] lon, int start, int end) {
+    for (int i = start; i < end; i++) {
+      LatLonPoint pt = pixcoord2geocoord(x[i], y[i]);
+      lat[i] = pt.getLatitude();
+      lon[i] = pt.getLongitude();
+    }
+  }
+
   @Override
   public boolean crossSeam(ProjectionPoint pt1, ProjectionPoint pt2) {
     // either point is infinite
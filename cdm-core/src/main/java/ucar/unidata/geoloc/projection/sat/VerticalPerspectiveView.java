@@ -273,6 +273,61 @@ public class VerticalPerspectiveView extends AbstractProjection {
     return LatLonPoint.create(toLat, toLon);
   }
 
+  @Override
+  public void latLonToProj(double[] lat, double[] lon, double[] x, double[] y, int start, int end) {
+    for (int i = start; i < end; i++) {
+      double fromLat = Math.toRadians(LatLonPoints.latNormal(lat[i]));
+      double lonDiff = Math.toRadians(LatLonPoints.lonNormal(LatLonPoints.lonNormal(lon[i]) - lon0Degrees));
+      double cosc = sinLat0 * Math.sin(fromLat) + cosLat0 * Math.cos(fromLat) * Math.cos(lonDiff);
+      double ksp = (P - 1.0) / (P - cosc);
+      if (cosc < 1.0 / P) {
+        x[i] = Double.POSITIVE_INFINITY;
+        y[i] = Double.POSITIVE_INFINITY;
+      } else {
+        x[i] = false_east + R * ksp * Math.cos(fromLat) * Math.sin(lonDiff);
+        y[i] = false_north + R * ksp * (cosLat0 * Math.sin(fromLat) - sinLat0 * Math.cos(fromLat) * Math.cos(lonDiff));
+      }
+    }
+  }
+
+  @Override
+  public void projToLatLon(double[] x, double[] y, double[] lat, double[] lon, int start, int end) {
+    double con = P - 1.0;
+    double com = P + 1.0;
+    for (int i = start; i < end; i++) {
+      double fromX = x[i] - false_east;
+      double fromY = y[i] - false_north;
+      double rho = Math.sqrt(fromX * fromX + fromY * fromY);
+      double r = rho / R;
+      double c = Math.asin((P - Math.sqrt(1.0 - (r * r * com) / con)) / (con / r + r / con));
+
+      double toLat, toLon = lon0;
+      double temp = 0;
+      if (Math.abs(rho) > TOLERANCE) {
+        toLat = Math.asin(Math.cos(c) * sinLat0 + (fromY * Math.sin(c) * cosLat0 / rho));
+        if (Math.abs(lat0 - PI_OVER_4) > TOLERANCE) { // not 90 or -90
+          temp = rho * cosLat0 * Math.cos(c) - fromY * sinLat0 * Math.sin(c);
+          toLon = lon0 + Math.atan(fromX * Math.sin(c) / temp);
+        } else if (Double.compare(lat0, PI_OVER_4) == 0) {
+          toLon = lon0 + Math.atan(fromX / -fromY);
+          temp = -fromY;
+        } else {
+          toLon = lon0 + Math.atan(fromX / fromY);
+          temp = fromY;
+        }
+      } else {
+        toLat = lat0;
+      }
+      toLat = Math.toDegrees(toLat);
+      toLon = Math.toDegrees(toLon);
+      if (temp < 0) {
+        toLon += 180;
+      }
+      lat[i] = LatLonPoints.latNormal(toLat);
+      lon[i] = LatLonPoints.lonNormal(LatLonPoints.lonNormal(toLon));
+    }
+  }
+
   /**
    * Create a ProjectionRect from the given LatLonRect.
    * Handles lat/lon points that do not intersect the projection panel.
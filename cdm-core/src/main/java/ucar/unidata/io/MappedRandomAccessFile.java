@@ -0,0 +1,228 @@
+/*
+ * Copyright (c) 1998-2021 John Caron and University Corporation for Atmospheric Research/Unidata
+ * See LICENSE for license information.
+ */
+package ucar.unidata.io;
+
+import com.google.common.base.Preconditions;
+import java.io.EOFException;
+import java.io.IOException;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+
+/**
+ * A read only RandomAccessFile for local files, that memory maps the file instead of copying it through a buffer.
+ * The file is mapped in segments of 1 GB, so that files larger than 2 GB can be mapped.
+ * Bulk reads of primitive arrays are converted straight from the mapped region, and {@link #getByteBuffer} returns
+ * a view of the mapped region without copying.
+ * <p/>
+ * Use for large local files that are read many times. Open directly, with NetcdfFiles.openMapped(), or for all
+ * files opened through {@link RandomAccessFile#acquire} with {@link RandomAccessFile#setMemoryMapThreshold}.
+ * Do not call write() methods.
+ * <p/>
+ * The mapping is released when the file is closed, rather than when the garbage collector gets to it, so views
+ * returned by {@link #getByteBuffer} must not be used after close().
+ */
+public class MappedRandomAccessFile extends RandomAccessFile {
+  private static final int DEFAULT_SEGMENT_SIZE = 1 << 30;
+  private static final int SEARCH_SIZE = 64 * 1024;
+  private static final org.slf4j.Logger log = org.slf4j.LoggerFactory.getLogger(MappedRandomAccessFile.class);
+
+  // sun.misc.Unsafe.invokeCleaner(ByteBuffer) unmaps a MappedByteBuffer, if available
+  private static final Object unsafe;
+  private static final Method invokeCleaner;
+
+  static {
+    Object theUnsafe = null;
+    Method cleaner = null;
+    try {
+      Class<?> unsafeClass = Class.forName("sun.misc.Unsafe");
+      Field field = unsafeClass.getDeclaredField("theUnsafe");
+      field.setAccessible(true);
+      theUnsafe = field.get(null);
+      cleaner = unsafeClass.getMethod("invokeCleaner", ByteBuffer.class);
+    } catch (ReflectiveOperationException | RuntimeException e) {
+      log.debug("Mapped files are unmapped by the garbage collector: {}", e.toString());
+    }
+    unsafe = theUnsafe;
+    invokeCleaner = cleaner;
+  }
+
+  private final int segmentSize;
+  private final long fileLength;
+  private MappedByteBuffer[] segments;
+
+  /**
+   * Constructor.
+   *
+   * @param location location of the local file
+   * @throws IOException on open error
+   */
+  public MappedRandomAccessFile(String location) throws IOException {
+    this(location, DEFAULT_SEGMENT_SIZE);
+  }
+
+  // allow tests to use small segments
+  MappedRandomAccessFile(String location, int segmentSize) throws IOException {
+    super(location, "r", 1); // the buffer is not used
+    Preconditions.checkArgument(segmentSize > 0);
+    this.segmentSize = segmentSize;
+    try {
+      this.fileChannel = file.getChannel();
+      this.fileLength = fileChannel.size();
+      int nsegments = (int) ((fileLength + segmentSize - 1) / segmentSize);
+      this.segments = new MappedByteBuffer[nsegments];
+      for (int i = 0; i < nsegments; i++) {
+        long start = (long) i * segmentSize;
+        segments[i] = fileChannel.map(FileChannel.MapMode.READ_ONLY, start, Math.min(segmentSize, fileLength - start));
+      }
+    } catch (IOException | RuntimeException e) {
+      file.close();
+      throw e;
+    }
+  }
+
+  @Override
+  public long length() {
+    return fileLength;
+  }
+
+  @Override
+  public void setBufferSize(int bufferSize) {
+    // do nothing
+  }
+
+  @Override
+  public synchronized void close() throws IOException {
+    super.close();
+    if (file == null && segments != null) { // really closed, not just released to the cache
+      MappedByteBuffer[] unmap = segments;
+      segments = null;
+      for (MappedByteBuffer segment : unmap) {
+        unmap(segment);
+      }
+    }
+  }
+
+  private static void unmap(MappedByteBuffer segment) {
+    if (invokeCleaner == null)
+      return;
+    try {
+      invokeCleaner.invoke(unsafe, segment);
+    } catch (ReflectiveOperationException | RuntimeException e) {
+      log.debug("Failed to unmap a segment: {}", e.toString());
+    }
+  }
+
+  @Override
+  public void seek(long pos) throws IOException {
+    if (pos < 0)
+      throw new java.io.IOException("Negative seek offset");
+    filePosition = pos;
+    endOfFile = pos >= fileLength;
+  }
+
+  @Override
+  public int read() {
+    if (filePosition >= fileLength) {
+      endOfFile = true;
+      return -1;
+    }
+    byte b = segments[(int) (filePosition / segmentSize)].get((int) (filePosition % segmentSize));
+    filePosition++;
+    return b & 0xff;
+  }
+
+  @Override
+  public int readBytes(byte[] b, int off, int len) {
+    if (len == 0)
+      return 0;
+    int n = read_(filePosition, b, off, len);
+    if (n < 0) {
+      endOfFile = true;
+      return -1;
+    }
+    filePosition += n;
+    return n;
+  }
+
+  @Override
+  protected int read_(long pos, byte[] b, int offset, int len) {
+    if (pos >= fileLength)
+      return -1;
+    len = (int) Math.min(len, fileLength - pos);
+    int done = 0;
+    while (done < len) {
+      ByteBuffer segment = segments[(int) (pos / segmentSize)].duplicate();
+      segment.position((int) (pos % segmentSize));
+      int n = Math.min(len - done, segment.remaining());
+      segment.get(b, offset + done, n);
+      pos += n;
+      done += n;
+    }
+    return len;
+  }
+
+  /** Returns a view of the mapped segment holding pos, up to the end of that segment. */
+  @Override
+  protected ByteBuffer readDirect(long pos, int nbytes) {
+    if (pos >= fileLength)
+      return null;
+    ByteBuffer segment = segments[(int) (pos / segmentSize)].duplicate();
+    int start = (int) (pos % segmentSize);
+    segment.position(start);
+    segment.limit(start + Math.min(nbytes, segment.remaining()));
+    return segment.slice();
+  }
+
+  /**
+   * Get nbytes starting at pos, without changing the file pointer. When the bytes lie in one mapped segment,
+   * as they nearly always do, this is a read only view of the mapped region, otherwise a copy.
+   *
+   * @param pos start here in the file
+   * @param nbytes number of bytes
+   * @return a read only ByteBuffer with position 0 and limit nbytes, in big endian order.
+   * @throws EOFException if the file is shorter than pos + nbytes.
+   */
+  public ByteBuffer getByteBuffer(long pos, int nbytes) throws EOFException {
+    if (pos < 0 || nbytes < 0 || pos + nbytes > fileLength)
+      throw new EOFException(
+          "Reading " + location + " at " + pos + " nbytes = " + nbytes + " file length = " + fileLength);
+    ByteBuffer result = readDirect(pos, nbytes);
+    if (result == null || result.remaining() < nbytes) {
+      byte[] copy = new byte[nbytes];
+      read_(pos, copy, 0, nbytes);
+      result = ByteBuffer.wrap(copy);
+    }
+    return result.asReadOnlyBuffer();
+  }
+
+  @Override
+  public boolean searchForward(KMPMatch match, int maxBytes) throws IOException {
+    long start = getFilePointer();
+    long last = (maxBytes < 0) ? fileLength : Math.min(fileLength, start + maxBytes);
+    int matchLen = match.getMatchLength();
+    byte[] window = new byte[Math.max(SEARCH_SIZE, 2 * matchLen)];
+
+    long pos = start;
+    while (pos < last) {
+      int n = (int) Math.min(window.length, last - pos);
+      read_(pos, window, 0, n);
+      int found = match.indexOf(window, 0, n);
+      if (found >= 0) {
+        seek(pos + found);
+        return true;
+      }
+      if (pos + n >= last)
+        break;
+      pos += n - matchLen + 1; // overlap, in case the match straddles windows
+    }
+
+    // failure
+    seek(last);
+    return false;
+  }
+}
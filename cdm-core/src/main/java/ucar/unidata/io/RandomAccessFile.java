@@ -8,6 +8,7 @@ import java.nio.charset.Charset;
 import java.nio.charset.StandardCharsets;
 import java.util.stream.Collectors;
 
+import com.google.common.base.Preconditions;
 import ucar.nc2.dataset.DatasetUrl;
 import ucar.nc2.util.CancelTask;
 import ucar.nc2.internal.cache.FileCache;
@@ -15,8 +16,10 @@ import ucar.nc2.internal.cache.FileCacheIF;
 import ucar.nc2.internal.cache.FileCacheable;
 import ucar.nc2.internal.cache.FileFactory;
 import ucar.unidata.util.StringUtil2;
+import javax.annotation.Nullable;
 import javax.annotation.concurrent.NotThreadSafe;
 import java.io.*;
+import java.nio.ByteBuffer;
 import java.nio.ByteOrder;
 import java.nio.channels.WritableByteChannel;
 import java.util.*;
@@ -48,11 +51,13 @@ import java.util.concurrent.atomic.AtomicLong;
  */
 @NotThreadSafe
 public class RandomAccessFile implements DataInput, DataOutput, FileCacheable, Closeable {
+  private static final org.slf4j.Logger log = org.slf4j.LoggerFactory.getLogger(RandomAccessFile.class);
 
   public static final int BIG_ENDIAN = 0;
   public static final int LITTLE_ENDIAN = 1;
 
   protected static final int defaultBufferSize = 8092; // The default buffer size, in bytes.
+  private static final int DIRECT_BUFFER_SIZE = 256 * 1024; // bulk reads larger than the buffer go through this
 
   ///////////////////////////////////////////////////////////////////////
   // debug leaks - keep track of open files
@@ -143,7 +148,7 @@ public class RandomAccessFile implements DataInput, DataOutput, FileCacheable, C
     public FileCacheable open(DatasetUrl durl, int buffer_size, CancelTask cancelTask, Object iospMessage)
         throws IOException {
       String location = StringUtil2.replace(durl.getTrueurl(), "\\", "/"); // canonicalize the name
-      RandomAccessFile result = new RandomAccessFile(location, "r", buffer_size);
+      RandomAccessFile result = openReadOnly(location, buffer_size);
       result.cacheState = 1; // in use
       return result;
     }
@@ -170,19 +175,67 @@ public class RandomAccessFile implements DataInput, DataOutput, FileCacheable, C
 
   public static RandomAccessFile acquire(String location) throws IOException {
     if (cache == null)
-      return new RandomAccessFile(location, "r");
+      return openReadOnly(location, defaultBufferSize);
     else
       return (RandomAccessFile) cache.acquire(factory, DatasetUrl.create(null, location));
   }
 
   public static RandomAccessFile acquire(String location, int buffer_size) throws IOException {
     if (cache == null)
-      return new RandomAccessFile(location, "r", buffer_size);
+      return openReadOnly(location, buffer_size);
     else
       return (RandomAccessFile) cache.acquire(factory, location, DatasetUrl.create(null, location), buffer_size, null,
           null);
   }
 
+  /////////////////////////////////////////////////////////////////////////////////////////////
+  // global policy for memory mapping local files opened through acquire()
+
+  // System property name for -D flag
+  private static final String MAPTHRESHOLD_PROPERTY = "unidata.raf.mapThreshold";
+  private static volatile long mapThreshold = readMapThreshold();
+
+  private static long readMapThreshold() {
+    String prop = System.getProperty(MAPTHRESHOLD_PROPERTY);
+    if (prop != null) {
+      try {
+        long size = Long.parseLong(prop);
+        if (size >= 0)
+          return size;
+        log.warn(String.format("-D%s must be >= 0", MAPTHRESHOLD_PROPERTY));
+      } catch (NumberFormatException nfe) {
+        log.warn(String.format("-D%s is not an integer", MAPTHRESHOLD_PROPERTY));
+      }
+    }
+    return Long.MAX_VALUE;
+  }
+
+  /**
+   * Local files at least this many bytes long are opened by acquire() as a {@link MappedRandomAccessFile}.
+   * Default is never, unless set with -Dunidata.raf.mapThreshold.
+   *
+   * @param nbytes minimum file length to memory map, 0 to map all files, Long.MAX_VALUE to map none.
+   */
+  public static void setMemoryMapThreshold(long nbytes) {
+    Preconditions.checkArgument(nbytes >= 0);
+    mapThreshold = nbytes;
+  }
+
+  /** Local files at least this many bytes long are opened by acquire() as a {@link MappedRandomAccessFile}. */
+  public static long getMemoryMapThreshold() {
+    return mapThreshold;
+  }
+
+  private static RandomAccessFile openReadOnly(String location, int buffer_size) throws IOException {
+    if (mapThreshold < Long.MAX_VALUE) {
+      File file = new File(location);
+      if (file.isFile() && file.length() >= mapThreshold) {
+        return new MappedRandomAccessFile(location);
+      }
+    }
+    return new RandomAccessFile(location, "r", buffer_size);
+  }
+
   public static void eject(String location) {
     if (cache != null)
       cache.eject(location);
@@ -206,6 +259,7 @@ public class RandomAccessFile implements DataInput, DataOutput, FileCacheable, C
    */
   protected java.io.RandomAccessFile file;
   protected java.nio.channels.FileChannel fileChannel;
+  private ByteBuffer directBuffer; // lazy, for bulk reads larger than the buffer
 
   /**
    * The offset in bytes from the file start, of the next read or
@@ -418,6 +472,7 @@ public class RandomAccessFile implements DataInput, DataOutput, FileCacheable, C
     // Close the underlying file object.
     file.close();
     file = null; // help the gc
+    directBuffer = null;
   }
 
   /** @deprecated do not use */
@@ -556,6 +611,11 @@ public class RandomAccessFile implements DataInput, DataOutput, FileCacheable, C
     this.bigEndian = bo.equals(ByteOrder.BIG_ENDIAN);
   }
 
+  /** The current endian mode, used by subsequent reads of short, int, float, double, long, char. */
+  public ByteOrder getByteOrder() {
+    return bigEndian ? ByteOrder.BIG_ENDIAN : ByteOrder.LITTLE_ENDIAN;
+  }
+
   /**
    * Copy the contents of the buffer to the disk.
    *
@@ -816,6 +876,29 @@ public class RandomAccessFile implements DataInput, DataOutput, FileCacheable, C
     }
   }
 
+  /**
+   * Read several ranges of the file, each into its own array: dest[i].length bytes starting at positions[i].
+   * This implementation reads the ranges one after another; remote files read them concurrently, so callers that
+   * know all the ranges they need, like the chunks of a variable, should read them with one call.
+   * The file pointer is not changed.
+   *
+   * This method is an extension not implemented in java.io.RandomAccessFile.
+   *
+   * @param positions start of each range in the file
+   * @param dest the bytes of each range are read into the array with the same index
+   * @throws EOFException if a range extends past the end of the file.
+   * @throws IOException if an I/O error occurs.
+   */
+  public void readVectored(long[] positions, byte[][] dest) throws IOException {
+    Preconditions.checkArgument(positions.length == dest.length, "positions and dest must have the same length");
+    long save = getFilePointer();
+    for (int i = 0; i < positions.length; i++) {
+      seek(positions[i]);
+      readFully(dest[i]);
+    }
+    seek(save);
+  }
+
   /**
    * Skips exactly <code>n</code> bytes of input.
    * This method blocks until all the bytes are skipped, the end of
@@ -1097,9 +1180,7 @@ public class RandomAccessFile implements DataInput, DataOutput, FileCacheable, C
    * @throws IOException on read error
    */
   public final void readShort(short[] pa, int start, int n) throws IOException {
-    for (int i = 0; i < n; i++) {
-      pa[start + i] = readShort();
-    }
+    readArray(2, start, n, (bb, pos, count) -> bb.asShortBuffer().get(pa, pos, count));
   }
 
   /**
@@ -1256,9 +1337,7 @@ public class RandomAccessFile implements DataInput, DataOutput, FileCacheable, C
    * @throws IOException on read error
    */
   public final void readInt(int[] pa, int start, int n) throws IOException {
-    for (int i = 0; i < n; i++) {
-      pa[start + i] = readInt();
-    }
+    readArray(4, start, n, (bb, pos, count) -> bb.asIntBuffer().get(pa, pos, count));
   }
 
   /**
@@ -1330,9 +1409,7 @@ public class RandomAccessFile implements DataInput, DataOutput, FileCacheable, C
    * @throws IOException on read error
    */
   public final void readLong(long[] pa, int start, int n) throws IOException {
-    for (int i = 0; i < n; i++) {
-      pa[start + i] = readLong();
-    }
+    readArray(8, start, n, (bb, pos, count) -> bb.asLongBuffer().get(pa, pos, count));
   }
 
 
@@ -1367,9 +1444,7 @@ public class RandomAccessFile implements DataInput, DataOutput, FileCacheable, C
    * @throws IOException on read error
    */
   public final void readFloat(float[] pa, int start, int n) throws IOException {
-    for (int i = 0; i < n; i++) {
-      pa[start + i] = Float.intBitsToFloat(readInt());
-    }
+    readArray(4, start, n, (bb, pos, count) -> bb.asFloatBuffer().get(pa, pos, count));
   }
 
 
@@ -1404,9 +1479,87 @@ public class RandomAccessFile implements DataInput, DataOutput, FileCacheable, C
    * @throws IOException on read error
    */
   public final void readDouble(double[] pa, int start, int n) throws IOException {
-    for (int i = 0; i < n; i++) {
-      pa[start + i] = Double.longBitsToDouble(readLong());
+    readArray(8, start, n, (bb, pos, count) -> bb.asDoubleBuffer().get(pa, pos, count));
+  }
+
+  /** Copies count elements from a ByteBuffer view into the destination array, starting at pos. */
+  private interface ArrayReader {
+    void read(ByteBuffer bb, int pos, int count);
+  }
+
+  /**
+   * Read n primitive values of elemSize bytes, in the current byte order.
+   * The values in the buffer are copied a whole window at a time through a ByteBuffer view. Once the buffer is used
+   * up, requests larger than the buffer are read with readDirect(), if the subclass supports it.
+   * A value that straddles the end of the buffer is read through readFully.
+   */
+  private void readArray(int elemSize, int start, int n, ArrayReader reader) throws IOException {
+    ByteOrder byteOrder = bigEndian ? ByteOrder.BIG_ENDIAN : ByteOrder.LITTLE_ENDIAN;
+    int done = 0;
+    while (done < n) {
+      int avail = (int) (dataEnd - filePosition);
+      int count = Math.min(avail / elemSize, n - done);
+      if (count > 0) {
+        ByteBuffer bb = ByteBuffer.wrap(buffer, (int) (filePosition - bufferStart), count * elemSize).order(byteOrder);
+        reader.read(bb, start + done, count);
+        filePosition += (long) count * elemSize;
+        done += count;
+        continue;
+      }
+
+      ByteBuffer direct = null;
+      if (avail <= 0 && (long) (n - done) * elemSize > buffer.length) {
+        direct = readDirect(filePosition, (int) Math.min((long) (n - done) * elemSize, Integer.MAX_VALUE - 7));
+      }
+      if (direct != null && direct.remaining() >= elemSize) {
+        count = direct.remaining() / elemSize;
+        reader.read(direct.order(byteOrder), start + done, count);
+        filePosition += (long) count * elemSize;
+        done += count;
+
+      } else {
+        byte[] value = new byte[elemSize];
+        readFully(value);
+        reader.read(ByteBuffer.wrap(value).order(byteOrder), start + done, 1);
+        done++;
+      }
+    }
+  }
+
+  /**
+   * Read up to nbytes starting at pos, bypassing the buffer, for bulk reads of primitive arrays that are larger than
+   * the buffer. The file pointer is not changed. This implementation reads from the FileChannel into a direct
+   * ByteBuffer of at most 256 KB, which is reused by the next call.
+   *
+   * @param pos start here in the file
+   * @param nbytes maximum number of bytes wanted; a multiple of the element size.
+   * @return a ByteBuffer whose remaining bytes start at pos, possibly fewer than nbytes, or null if direct reads are
+   *         not supported, in which case the read goes through the buffer.
+   * @throws IOException on io error
+   */
+  @Nullable
+  protected ByteBuffer readDirect(long pos, int nbytes) throws IOException {
+    if (file == null || extendMode)
+      return null;
+    nbytes = Math.min(nbytes, DIRECT_BUFFER_SIZE);
+    if (fileChannel == null)
+      fileChannel = file.getChannel();
+    if (directBuffer == null)
+      directBuffer = ByteBuffer.allocateDirect(DIRECT_BUFFER_SIZE);
+    directBuffer.clear().limit(nbytes);
+    while (directBuffer.hasRemaining()) {
+      int n = fileChannel.read(directBuffer, pos + directBuffer.position());
+      if (n < 0)
+        throw new EOFException("Reading " + location + " at " + pos + " file length = " + length());
+    }
+    if (debugAccess) {
+      if (showRead)
+        System.out.printf(" **readDirect %s = %d bytes at %d%n", location, nbytes, pos);
+      debug_nseeks.incrementAndGet();
+      debug_nbytes.addAndGet(nbytes);
     }
+    directBuffer.flip();
+    return directBuffer;
   }
 
   /**
@@ -0,0 +1,375 @@
+/*
+ * Copyright (c) 1998-2021 John Caron and University Corporation for Atmospheric Research/Unidata
+ * See LICENSE for license information.
+ */
+package ucar.unidata.io;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheStats;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Formatter;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import javax.annotation.Nullable;
+import javax.annotation.concurrent.ThreadSafe;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * A process-wide cache of blocks of remote files, shared by all RemoteRandomAccessFiles, so that the same object
+ * opened more than once, or from several threads, is fetched only once.
+ * Entries are keyed by (url, version, block size, block number), where the version is the ETag of the remote object
+ * if known, otherwise its length. The cache is bounded by the total bytes of the blocks, and evicted LRU.
+ * <p/>
+ * Adjacent missing blocks of one read are fetched with a single range request. When a file is read sequentially,
+ * the following blocks are fetched along with the missing ones, doubling the number each time up to 8 blocks.
+ * A block being fetched by one thread is waited for, not fetched again, by the others.
+ * <p/>
+ * The size in bytes may be set with -Ducar.unidata.io.remote.blockCacheSize, 0 disables the cache.
+ */
+@ThreadSafe
+public class RemoteBlockCache {
+  private static final Logger logger = LoggerFactory.getLogger(RemoteBlockCache.class);
+
+  // System property name for -D flag
+  private static final String CACHESIZE_PROPERTY = "ucar.unidata.io.remote.blockCacheSize";
+  private static final long DEFAULT_CACHESIZE = 64 * 1024 * 1024;
+  private static final int MAX_READAHEAD = 8; // blocks
+
+  private static RemoteBlockCache instance = new RemoteBlockCache(readCacheSize());
+
+  private static long readCacheSize() {
+    String prop = System.getProperty(CACHESIZE_PROPERTY);
+    if (prop != null) {
+      try {
+        long size = Long.parseLong(prop);
+        if (size >= 0)
+          return size;
+        logger.warn(String.format("-D%s must be >= 0", CACHESIZE_PROPERTY));
+      } catch (NumberFormatException nfe) {
+        logger.warn(String.format("-D%s is not an integer", CACHESIZE_PROPERTY));
+      }
+    }
+    return DEFAULT_CACHESIZE;
+  }
+
+  /** The shared cache, or null if caching is disabled. */
+  @Nullable
+  public static synchronized RemoteBlockCache getInstance() {
+    return instance.maxBytes > 0 ? instance : null;
+  }
+
+  /**
+   * Replace the shared cache with an empty one of the given size. Files already open keep the old one.
+   *
+   * @param maxBytes maximum total bytes of the cached blocks, 0 disables the cache.
+   */
+  public static synchronized void init(long maxBytes) {
+    instance = new RemoteBlockCache(maxBytes);
+  }
+
+  ////////////////////////////////////////////////////////////////////////////////////////////
+
+  private final long maxBytes;
+  private final Cache<Key, byte[]> cache;
+  private final ConcurrentHashMap<Key, CompletableFuture<byte[]>> loading = new ConcurrentHashMap<>();
+  private final AtomicLong remoteRequests = new AtomicLong();
+  private final AtomicLong remoteBytes = new AtomicLong();
+  private final AtomicLong prefetchedBlocks = new AtomicLong();
+
+  private RemoteBlockCache(long maxBytes) {
+    this.maxBytes = maxBytes;
+    this.cache = CacheBuilder.newBuilder().maximumWeight(Math.max(maxBytes, 1))
+        .weigher((Key key, byte[] block) -> block.length).recordStats().build();
+  }
+
+  /**
+   * Read from a remote file through the cache.
+   *
+   * @param file the remote file
+   * @param pos start here in the file
+   * @param buff put data into this buffer
+   * @param offset buffer offset
+   * @param len this number of bytes
+   * @return actual number of bytes read, or -1 if pos is at or past the end of the file
+   * @throws IOException on io error
+   */
+  int read(FileBlocks file, long pos, byte[] buff, int offset, int len) throws IOException {
+    return read(file, pos, buff, offset, len, true);
+  }
+
+  /**
+   * Read from a remote file through the cache.
+   *
+   * @param sequential track sequential access to read ahead. Reads on several threads at once must pass false.
+   */
+  int read(FileBlocks file, long pos, byte[] buff, int offset, int len, boolean sequential) throws IOException {
+    if (pos >= file.length)
+      return -1;
+    if (len <= 0)
+      return 0;
+    int want = (int) Math.min(len, file.length - pos);
+    int blockSize = file.blockSize;
+    long first = pos / blockSize;
+    long last = (pos + want - 1) / blockSize;
+    int readahead = sequential ? file.advance(first, last) : 0;
+
+    int nblocks = (int) (last - first + 1);
+    byte[][] blocks = new byte[nblocks][];
+    List<CompletableFuture<byte[]>> pending = new ArrayList<>(); // in the same order as the missing blocks
+    List<Long> claimed = new ArrayList<>(); // blocks that this thread fetches
+    List<CompletableFuture<byte[]>> claimedFutures = new ArrayList<>();
+
+    for (int i = 0; i < nblocks; i++) {
+      Key key = file.key(first + i);
+      blocks[i] = cache.getIfPresent(key);
+      if (blocks[i] == null) {
+        pending.add(claim(key, first + i, claimed, claimedFutures));
+      }
+    }
+
+    // read ahead only when going to the remote file anyway
+    if (!claimed.isEmpty()) {
+      long lastBlock = (file.length - 1) / blockSize;
+      for (long b = last + 1; b <= Math.min(last + readahead, lastBlock); b++) {
+        Key key = file.key(b);
+        int nclaimed = claimed.size();
+        if (cache.asMap().containsKey(key))
+          break;
+        claim(key, b, claimed, claimedFutures);
+        if (claimed.size() == nclaimed)
+          break; // have it already, or another thread is fetching it; keep the range contiguous
+        prefetchedBlocks.incrementAndGet();
+      }
+      fetch(file, claimed, claimedFutures);
+    }
+
+    int count = 0;
+    for (int i = 0; i < nblocks; i++) {
+      if (blocks[i] == null) {
+        blocks[i] = join(pending.get(count++));
+      }
+    }
+
+    // copy out
+    int done = 0;
+    for (int i = 0; i < nblocks && done < want; i++) {
+      int from = (int) (pos + done - (first + i) * blockSize);
+      int n = Math.min(blocks[i].length - from, want - done);
+      if (n <= 0)
+        break; // short block
+      System.arraycopy(blocks[i], from, buff, offset + done, n);
+      done += n;
+      if (from + n < blockSize && done < want)
+        break; // short block, the remote read was truncated
+    }
+    return done;
+  }
+
+  // Returns the future for this block: our own if we will fetch it, else the one of the thread fetching it.
+  private CompletableFuture<byte[]> claim(Key key, long block, List<Long> claimed,
+      List<CompletableFuture<byte[]>> claimedFutures) {
+    CompletableFuture<byte[]> future = new CompletableFuture<>();
+    CompletableFuture<byte[]> other = loading.putIfAbsent(key, future);
+    if (other != null)
+      return other;
+    byte[] data = cache.asMap().get(key); // it may have arrived in the meantime
+    if (data != null) {
+      loading.remove(key, future);
+      future.complete(data);
+      return future;
+    }
+    claimed.add(block);
+    claimedFutures.add(future);
+    return future;
+  }
+
+  // Fetch the claimed blocks, one range request for each run of adjacent blocks.
+  private void fetch(FileBlocks file, List<Long> claimed, List<CompletableFuture<byte[]>> futures)
+      throws IOException {
+    int blockSize = file.blockSize;
+    int n = claimed.size();
+    int i = 0;
+    try {
+      while (i < n) {
+        int j = i;
+        while (j + 1 < n && claimed.get(j + 1) == claimed.get(j) + 1)
+          j++;
+        long start = claimed.get(i) * blockSize;
+        long end = Math.min((claimed.get(j) + 1) * blockSize, file.length);
+        byte[] data = new byte[Math.toIntExact(end - start)];
+        int nread = readFully(file.remote, start, data);
+        remoteRequests.incrementAndGet();
+        remoteBytes.addAndGet(nread);
+
+        for (int k = i; k <= j; k++) {
+          int from = (k - i) * blockSize;
+          int expected = (int) Math.min(blockSize, end - start - from);
+          byte[] block = Arrays.copyOfRange(data, from, Math.max(from, Math.min(from + expected, nread)));
+          Key key = file.key(claimed.get(k));
+          if (block.length == expected) { // dont keep short reads
+            cache.put(key, block);
+          }
+          loading.remove(key, futures.get(k));
+          futures.get(k).complete(block);
+        }
+        i = j + 1;
+      }
+    } catch (IOException | RuntimeException e) {
+      for (int k = i; k < n; k++) {
+        loading.remove(file.key(claimed.get(k)), futures.get(k));
+        futures.get(k).completeExceptionally(e);
+      }
+      throw e;
+    }
+  }
+
+  private static int readFully(ReadableRemoteFile remote, long pos, byte[] data) throws IOException {
+    int done = 0;
+    while (done < data.length) {
+      int n = remote.readRemote(pos + done, data, done, data.length - done);
+      if (n <= 0)
+        break;
+      done += n;
+    }
+    return done;
+  }
+
+  private static byte[] join(CompletableFuture<byte[]> future) throws IOException {
+    try {
+      return future.join();
+    } catch (CompletionException e) {
+      if (e.getCause() instanceof IOException)
+        throw (IOException) e.getCause();
+      throw new IOException("Error obtaining data from the remote block cache", e.getCause());
+    }
+  }
+
+  /** Remove all entries. */
+  public void clear() {
+    cache.invalidateAll();
+  }
+
+  /** Maximum total bytes of the cached blocks. */
+  public long getMaxBytes() {
+    return maxBytes;
+  }
+
+  /** Number of blocks in the cache. */
+  public long getSize() {
+    return cache.size();
+  }
+
+  public long getHitCount() {
+    return cache.stats().hitCount();
+  }
+
+  public long getMissCount() {
+    return cache.stats().missCount();
+  }
+
+  /** Number of range requests made to remote files. */
+  public long getRemoteRequestCount() {
+    return remoteRequests.get();
+  }
+
+  /** Total bytes read from remote files. */
+  public long getRemoteBytes() {
+    return remoteBytes.get();
+  }
+
+  /** Number of blocks read ahead of sequential reads. */
+  public long getPrefetchCount() {
+    return prefetchedBlocks.get();
+  }
+
+  public CacheStats getStats() {
+    return cache.stats();
+  }
+
+  public void showStats(Formatter f) {
+    CacheStats stats = cache.stats();
+    f.format(
+        "RemoteBlockCache maxBytes=%d nblocks=%d hits=%d misses=%d hitRate=%f evictions=%d"
+            + " requests=%d bytes=%d prefetched=%d%n",
+        maxBytes, cache.size(), stats.hitCount(), stats.missCount(), stats.hitRate(), stats.evictionCount(),
+        remoteRequests.get(), remoteBytes.get(), prefetchedBlocks.get());
+  }
+
+  /**
+   * The blocks of one open remote file. Tracks sequential access for read ahead, so like the RandomAccessFile that
+   * owns it, must be used by one thread at a time.
+   */
+  static class FileBlocks {
+    private final ReadableRemoteFile remote;
+    private final String url;
+    private final String version;
+    private final int blockSize;
+    private final long length;
+    private long nextBlock; // one past the last block read, so reading from the start counts as sequential
+    private int readahead;
+
+    FileBlocks(ReadableRemoteFile remote, String url, String version, int blockSize, long length) {
+      this.remote = remote;
+      this.url = url;
+      this.version = version;
+      this.blockSize = blockSize;
+      this.length = length;
+    }
+
+    Key key(long block) {
+      return new Key(url, version, blockSize, block);
+    }
+
+    // Record a read of blocks first to last, return the number of blocks to read ahead.
+    private int advance(long first, long last) {
+      boolean contiguous = (first == nextBlock - 1) || (first == nextBlock);
+      if (!contiguous) {
+        readahead = 0;
+      } else if (last >= nextBlock) {
+        readahead = Math.min(Math.max(1, 2 * readahead), MAX_READAHEAD);
+      }
+      nextBlock = Math.max(last + 1, contiguous ? nextBlock : 0);
+      return readahead;
+    }
+  }
+
+  /** Identifies a block of a remote file. */
+  static class Key {
+    private final String url;
+    private final String version;
+    private final int blockSize;
+    private final long block;
+    private final int hashCode;
+
+    Key(String url, String version, int blockSize, long block) {
+      this.url = url;
+      this.version = version;
+      this.blockSize = blockSize;
+      this.block = block;
+      this.hashCode = Objects.hash(url, version, blockSize, block);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+      if (this == o)
+        return true;
+      if (o == null || getClass() != o.getClass())
+        return false;
+      Key key = (Key) o;
+      return blockSize == key.blockSize && block == key.block && url.equals(key.url) && version.equals(key.version);
+    }
+
+    @Override
+    public int hashCode() {
+      return hashCode;
+    }
+  }
+}
@@ -0,0 +1,195 @@
+/*
+ * Copyright (c) 1998-2021 John Caron and University Corporation for Atmospheric Research/Unidata
+ * See LICENSE for license information.
+ */
+package ucar.array;
+
+import static com.google.common.truth.Truth.assertThat;
+import static org.junit.Assert.fail;
+
+import com.google.common.collect.ImmutableList;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.PrimitiveIterator;
+import org.junit.Test;
+
+/** Test the primitive accessors of {@link Array} */
+public class TestArrayPrimitive {
+  private static final int[] shape = new int[] {2, 3, 4};
+
+  private static double[] values() {
+    double[] result = new double[24];
+    for (int i = 0; i < result.length; i++) {
+      result[i] = i * 1.5 - 7;
+    }
+    return result;
+  }
+
+  // the array and some views of it
+  private static List<Array<Double>> views(Array<Double> array) throws InvalidRangeException {
+    List<Array<Double>> result = new ArrayList<>();
+    result.add(array);
+    result.add(Arrays.flip(array, 1));
+    result.add(Arrays.transpose(array, 0, 2));
+    result.add(Arrays.permute(array, new int[] {2, 0, 1}));
+    result.add(Arrays.section(array, new Section("1,0:2:2,1:3")));
+    result.add(Arrays.reduce(Arrays.slice(array, 0, 1)));
+    return result;
+  }
+
+  // the boxed values, in canonical order
+  private static <T> double[] boxed(Array<T> array) {
+    double[] result = new double[(int) array.length()];
+    int count = 0;
+    for (T val : array) {
+      result[count++] = ((Number) val).doubleValue();
+    }
+    return result;
+  }
+
+  @Test
+  public void testDouble() throws InvalidRangeException {
+    Array<Double> array = Arrays.factory(ArrayType.DOUBLE, shape, values());
+    for (Array<Double> view : views(array)) {
+      checkAccessors(view, boxed(view));
+    }
+  }
+
+  @Test
+  public void testFloat() throws InvalidRangeException {
+    float[] values = new float[24];
+    for (int i = 0; i < values.length; i++) {
+      values[i] = i * 0.25f;
+    }
+    Array<Float> array = Arrays.factory(ArrayType.FLOAT, shape, values);
+    Array<Float> view = Arrays.flip(Arrays.transpose(array, 1, 2), 0);
+    checkAccessors(array, boxed(array));
+    checkAccessors(view, boxed(view));
+
+    float[] floats = new float[25];
+    view.copyTo(floats, 1);
+    int count = 1;
+    for (float val : view) {
+      assertThat(floats[count++]).isEqualTo(val);
+    }
+  }
+
+  @Test
+  public void testMultipleStorage() {
+    Array<Double> array1 = Arrays.factory(ArrayType.DOUBLE, new int[] {2, 2}, new double[] {1, 2, 3, 4});
+    Array<Double> array2 = Arrays.factory(ArrayType.DOUBLE, new int[] {1, 2}, new double[] {5, 6});
+    Array<Double> array = Arrays.factoryArrays(ArrayType.DOUBLE, new int[] {3, 2}, ImmutableList.of(array1, array2));
+    checkAccessors(array, new double[] {1, 2, 3, 4, 5, 6});
+    checkAccessors(Arrays.flip(array, 0), new double[] {5, 6, 3, 4, 1, 2});
+  }
+
+  @Test
+  public void testIntegral() {
+    Array<Byte> bytes = Arrays.factory(ArrayType.BYTE, new int[] {2, 2}, new byte[] {1, -1, 127, -128});
+    checkAccessors(bytes, new double[] {1, -1, 127, -128});
+    Array<Byte> ubytes = Arrays.factory(ArrayType.UBYTE, new int[] {2, 2}, new byte[] {1, -1, 127, -128});
+    checkAccessors(ubytes, new double[] {1, 255, 127, 128});
+    checkAccessors(Arrays.transpose(ubytes, 0, 1), new double[] {1, 127, 255, 128});
+
+    Array<Short> ushorts = Arrays.factory(ArrayType.USHORT, new int[] {2}, new short[] {-1, 2});
+    checkAccessors(ushorts, new double[] {65535, 2});
+    Array<Integer> uints = Arrays.factory(ArrayType.UINT, new int[] {2}, new int[] {-1, 2});
+    checkAccessors(uints, new double[] {4294967295.0, 2});
+    Array<Integer> ints = Arrays.factory(ArrayType.INT, new int[] {2}, new int[] {-1, 2});
+    checkAccessors(ints, new double[] {-1, 2});
+    Array<Long> ulongs = Arrays.factory(ArrayType.ULONG, new int[] {3}, new long[] {-1, 3, Long.MIN_VALUE + 1});
+    checkAccessors(ulongs, new double[] {0x1p64, 3, 0x1p63});
+  }
+
+  @Test
+  public void testNotNumeric() {
+    Array<String> strings = Arrays.factory(ArrayType.STRING, new int[] {2}, new String[] {"a", "b"});
+    try {
+      strings.getDouble(0);
+      fail();
+    } catch (UnsupportedOperationException e) {
+      // expected
+    }
+    try {
+      strings.forEachDouble(d -> {
+      });
+      fail();
+    } catch (UnsupportedOperationException e) {
+      // expected
+    }
+  }
+
+  @Test
+  public void testBounds() {
+    Array<Double> array = Arrays.factory(ArrayType.DOUBLE, shape, values());
+    try {
+      array.getDouble(24L);
+      fail();
+    } catch (IllegalArgumentException e) {
+      // expected
+    }
+    try {
+      array.copyTo(new double[30], 7);
+      fail();
+    } catch (IndexOutOfBoundsException e) {
+      // expected
+    }
+  }
+
+  private static <T> void checkAccessors(Array<T> array, double[] expected) {
+    int n = (int) array.length();
+    assertThat(n).isEqualTo(expected.length);
+
+    // by element
+    for (int elem = 0; elem < n; elem++) {
+      assertThat(array.getDouble((long) elem)).isEqualTo(expected[elem]);
+      assertThat(array.getFloat((long) elem)).isEqualTo((float) expected[elem]);
+    }
+
+    // by index
+    Index index = array.getIndex();
+    int[] current = new int[array.getRank()];
+    for (int elem = 0; elem < n; elem++) {
+      assertThat(array.getDouble(current)).isEqualTo(expected[elem]);
+      assertThat(array.getFloat(index.set(current))).isEqualTo((float) expected[elem]);
+      incr(current, array.getShape());
+    }
+
+    // iterator
+    PrimitiveIterator.OfDouble iter = array.doubleIterator();
+    for (int elem = 0; elem < n; elem++) {
+      assertThat(iter.hasNext()).isTrue();
+      assertThat(iter.nextDouble()).isEqualTo(expected[elem]);
+    }
+    assertThat(iter.hasNext()).isFalse();
+
+    // visitor
+    List<Double> visited = new ArrayList<>();
+    array.forEachDouble(visited::add);
+    assertThat(visited).hasSize(n);
+    for (int elem = 0; elem < n; elem++) {
+      assertThat(visited.get(elem)).isEqualTo(expected[elem]);
+    }
+
+    // bulk copy
+    double[] doubles = new double[n + 2];
+    array.copyTo(doubles, 2);
+    for (int elem = 0; elem < n; elem++) {
+      assertThat(doubles[elem + 2]).isEqualTo(expected[elem]);
+    }
+    float[] floats = new float[n];
+    array.copyTo(floats, 0);
+    for (int elem = 0; elem < n; elem++) {
+      assertThat(floats[elem]).isEqualTo((float) expected[elem]);
+    }
+  }
+
+  private static void incr(int[] current, int[] shape) {
+    for (int digit = current.length - 1; digit >= 0; digit--) {
+      if (++current[digit] < shape[digit]) {
+        return;
+      }
+      current[digit] = 0;
+    }
+  }
+}
@@ -12,7 +12,9 @@ import java.util.LinkedList;
 import java.util.List;
 import com.google.common.collect.Ordering;
 import org.junit.Assert;
+import org.junit.Rule;
 import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import ucar.ma2.DataType;
@@ -29,6 +31,9 @@ import ucar.nc2.calendar.CalendarDateUnit;
 public class SortingStationPointFeatureCacheTest {
   private static final Logger logger = LoggerFactory.getLogger(MethodHandles.lookup().lookupClass());
 
+  @Rule
+  public TemporaryFolder tempFolder = new TemporaryFolder();
+
   @Test
   public void test1() throws Exception {
     StructureMembers.Builder smb = StructureMembers.builder().setName("StationFeature");
@@ -120,4 +125,70 @@ public class SortingStationPointFeatureCacheTest {
       Assert.assertTrue(PointTestUtil.equals(pointIterExpected, pointIterActual));
     }
   }
+
+  @Test
+  public void testSpillToDisk() throws Exception {
+    Comparator<StationPointFeature> longestStationNameFirst =
+        Comparator.comparing((StationPointFeature feat) -> feat.getAsStationFeature().getStation().getName().length())
+            .reversed();
+    File tempDir = tempFolder.newFolder();
+
+    try (FeatureDatasetPoint fdInput = PointTestUtil.openPointDataset("cacheTestInput1.ncml");
+        FeatureDatasetPoint fdExpected = PointTestUtil.openPointDataset("cacheTestExpected1.ncml")) {
+      // keep only 1 feature in memory
+      try (SortingStationPointFeatureCache cache =
+          new SortingStationPointFeatureCache(longestStationNameFirst, 1, tempDir)) {
+        cache.addAll(fdInput);
+        Assert.assertTrue(cache.getSpilledRuns() > 1);
+        Assert.assertEquals(cache.getSpilledRuns(), cache.getSpilledFeatures());
+        Assert.assertTrue(cache.getSpilledBytes() > 0);
+        Assert.assertEquals(cache.getSpilledRuns(), tempDir.list().length);
+
+        // can iterate more than once
+        for (int i = 0; i < 2; i++) {
+          PointFeatureIterator pointIterExpected =
+              new FlattenedDatasetPointCollection(fdExpected).getPointFeatureIterator();
+          Assert.assertTrue(PointTestUtil.equals(pointIterExpected, cache.getPointFeatureIterator()));
+        }
+      }
+      Assert.assertEquals(0, tempDir.list().length);
+    }
+  }
+
+  @Test
+  public void testSpillIsStable() throws Exception {
+    StructureMembers.Builder smb = StructureMembers.builder().setName("StationFeature");
+    smb.addMemberString("name", null, null, "Foo", 3);
+    StructureData stationData = new StructureDataFromMember(smb.build());
+    StationFeature foo = new StationFeatureImpl("Foo", "Bar", "123", 30, 60, 5000, 4, stationData);
+    StationFeature quux = new StationFeatureImpl("Quux", "Baz", "456", -30, 160, 10, 4, stationData);
+
+    CalendarDateUnit timeUnit = CalendarDateUnit.fromUdunitString(null, "days since 1970-01-01").orElseThrow();
+    DsgFeatureCollection dummyDsg = new SimplePointFeatureCC("dummy", timeUnit, "m", FeatureType.STATION);
+
+    List<StationPointFeature> spfList = new ArrayList<>();
+    for (int i = 0; i < 50; i++) {
+      StationFeature stationFeat = (i * 7) % 3 == 0 ? quux : foo;
+      spfList.add(makeStationPointFeature(dummyDsg, stationFeat, timeUnit, i % 5, i, i * 1.5));
+    }
+
+    Comparator<StationPointFeature> obsTimeComp = Comparator.comparingDouble(StationPointFeature::getObservationTime);
+    SortingStationPointFeatureCache inMemory = new SortingStationPointFeatureCache(obsTimeComp);
+    try (SortingStationPointFeatureCache spilled =
+        new SortingStationPointFeatureCache(obsTimeComp, 1000, tempFolder.newFolder())) {
+      for (StationPointFeature stationPointFeat : spfList) {
+        inMemory.add(stationPointFeat);
+        spilled.add(stationPointFeat);
+      }
+      Assert.assertTrue(spilled.getSpilledRuns() > 2);
+      Assert.assertEquals(0, inMemory.getSpilledRuns());
+
+      List<StationPointFeature> expected = new ArrayList<>(spfList);
+      expected.sort(obsTimeComp); // stable
+      Assert.assertTrue(
+          PointTestUtil.equals(new PointIteratorAdapter(expected.iterator()), inMemory.getPointFeatureIterator()));
+      Assert.assertTrue(
+          PointTestUtil.equals(new PointIteratorAdapter(expected.iterator()), spilled.getPointFeatureIterator()));
+    }
+  }
 }
@@ -0,0 +1,140 @@
+/*
+ * Copyright (c) 1998-2021 John Caron and University Corporation for Atmospheric Research/Unidata
+ * See LICENSE for license information.
+ */
+package ucar.nc2.grid2;
+
+import org.junit.Test;
+import ucar.array.Array;
+import ucar.array.InvalidRangeException;
+import ucar.nc2.calendar.CalendarDate;
+import ucar.nc2.calendar.CalendarDateRange;
+import ucar.unidata.geoloc.LatLonPoint;
+import ucar.unidata.util.test.TestDir;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Formatter;
+import java.util.List;
+
+import static com.google.common.truth.Truth.assertThat;
+import static com.google.common.truth.Truth.assertWithMessage;
+
+/** Test {@link GridReader#readPoints()} */
+public class TestGridReaderPoints {
+  private static final String gfs = TestDir.cdmLocalTestDataDir + "ncml/fmrc/GFS_Puerto_Rico_191km_20090729_0000.nc";
+
+  @Test
+  public void testProjectionGrid() throws IOException, InvalidRangeException {
+    Formatter errlog = new Formatter();
+    try (GridDataset gridDataset = GridDatasetFactory.openGridDataset(gfs, errlog)) {
+      assertThat(gridDataset).isNotNull();
+      Grid grid = gridDataset.findGrid("Temperature_isobaric").orElseThrow();
+      assertThat(grid.getHorizCoordinateSystem().isLatLon()).isFalse();
+
+      int[][] cells = {{3, 5}, {20, 30}, {38, 44}, {0, 0}, {20, 31}};
+      List<LatLonPoint> points = makePoints(grid.getHorizCoordinateSystem(), cells);
+      points.add(LatLonPoint.create(-80.0, 0.0)); // outside
+
+      GridPointSeries series = grid.getReader().setVertCoord(700.0).setLatLonPoints(points).readPoints();
+      assertThat(series.gridName()).isEqualTo("Temperature_isobaric");
+      assertThat(series.points()).isEqualTo(points);
+      assertThat(series.times()).hasSize(20);
+      assertThat(series.data().getShape()).isEqualTo(new int[] {6, 20});
+      checkPoints(grid, series, cells, null, 700.0);
+
+      // read in blocks of 3 times
+      long horizBytes = 39 * 45 * 4;
+      GridPointSeries blocked =
+          grid.getReader().setVertCoord(700.0).setLatLonPoints(points).setMaxReadBytes(3 * horizBytes).readPoints();
+      assertThat(blocked.times()).isEqualTo(series.times());
+      checkEqual(blocked.data(), series.data());
+    }
+  }
+
+  @Test
+  public void testTimeRangeAndVertCoords() throws IOException, InvalidRangeException {
+    Formatter errlog = new Formatter();
+    try (GridDataset gridDataset = GridDatasetFactory.openGridDataset(gfs, errlog)) {
+      assertThat(gridDataset).isNotNull();
+      Grid grid = gridDataset.findGrid("Temperature_isobaric").orElseThrow();
+      List<CalendarDate> allTimes = grid.getTimeCoordinateSystem().getTimesForRuntime(0);
+
+      int[][] cells = {{3, 5}, {20, 30}, {38, 44}, {10, 10}};
+      List<LatLonPoint> points = makePoints(grid.getHorizCoordinateSystem(), cells);
+      List<Double> verts = Arrays.asList(500.0, 700.0, null, 500.0);
+      CalendarDateRange range = CalendarDateRange.of(allTimes.get(3), allTimes.get(7));
+
+      GridPointSeries series = grid.getReader().setTimeRange(range).setVertCoord(850.0)
+          .setLatLonPoints(points, verts).setMaxReadBytes(2 * 39 * 45 * 4).readPoints();
+      assertThat(series.times()).isEqualTo(allTimes.subList(3, 8));
+      assertThat(series.data().getShape()).isEqualTo(new int[] {4, 5});
+      checkPoints(grid, series, cells, verts, 850.0);
+    }
+  }
+
+  @Test
+  public void testLatLonGrid() throws IOException, InvalidRangeException {
+    String filename = TestDir.cdmLocalTestDataDir + "ncml/nested/TestNestedDirs.ncml";
+    Formatter errlog = new Formatter();
+    try (GridDataset gridDataset = GridDatasetFactory.openGridDataset(filename, errlog)) {
+      assertThat(gridDataset).isNotNull();
+      Grid grid = gridDataset.findGrid("CMu25h").orElseThrow();
+      assertThat(grid.getHorizCoordinateSystem().isLatLon()).isTrue();
+      List<CalendarDate> allTimes = grid.getTimeCoordinateSystem().getTimesForRuntime(0);
+
+      int[][] cells = {{0, 0}, {52, 51}, {20, 30}, {20, 31}};
+      List<LatLonPoint> points = makePoints(grid.getHorizCoordinateSystem(), cells);
+      CalendarDateRange range = CalendarDateRange.of(allTimes.get(1), allTimes.get(2));
+
+      GridPointSeries series = grid.getReader().setTimeRange(range).setLatLonPoints(points).readPoints();
+      assertThat(series.times()).isEqualTo(allTimes.subList(1, 3));
+      checkPoints(grid, series, cells, null, null);
+    }
+  }
+
+  private static List<LatLonPoint> makePoints(GridHorizCoordinateSystem hcs, int[][] cells) {
+    List<LatLonPoint> points = new ArrayList<>();
+    for (int[] cell : cells) {
+      points.add(hcs.getLatLon(cell[1], cell[0]));
+    }
+    return points;
+  }
+
+  // compare with reading one time at a time
+  private static void checkPoints(Grid grid, GridPointSeries series, int[][] cells, List<Double> verts,
+      Double defaultVert) throws IOException, InvalidRangeException {
+    Array<Double> data = series.data();
+    int npoints = series.points().size();
+    for (int t = 0; t < series.times().size(); t++) {
+      for (int pt = 0; pt < npoints; pt++) {
+        if (pt >= cells.length) {
+          assertThat(data.get(pt, t)).isNaN();
+          continue;
+        }
+        Double vert = verts != null && verts.get(pt) != null ? verts.get(pt) : defaultVert;
+        GridReader reader = grid.getReader().setTime(series.times().get(t));
+        if (vert != null) {
+          reader.setVertCoord(vert);
+        }
+        Array<Number> want = reader.read().data();
+        int[] index = new int[want.getRank()];
+        index[index.length - 2] = cells[pt][0];
+        index[index.length - 1] = cells[pt][1];
+        double wantVal = want.get(index).doubleValue();
+        assertWithMessage("point %s time %s", pt, t).that(data.get(pt, t)).isEqualTo(wantVal);
+      }
+    }
+  }
+
+  private static void checkEqual(Array<Double> data, Array<Double> expected) {
+    assertThat(data.getShape()).isEqualTo(expected.getShape());
+    int[] shape = data.getShape();
+    for (int pt = 0; pt < shape[0]; pt++) {
+      for (int t = 0; t < shape[1]; t++) {
+        assertThat(data.get(pt, t)).isEqualTo(expected.get(pt, t));
+      }
+    }
+  }
+}
@@ -0,0 +1,184 @@
+/*
+ * Copyright (c) 1998-2021 John Caron and University Corporation for Atmospheric Research/Unidata
+ * See LICENSE for license information.
+ */
+package ucar.nc2.internal.dataset;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import java.util.EnumSet;
+import java.util.Iterator;
+import java.util.Random;
+import java.util.Set;
+import org.junit.After;
+import org.junit.Test;
+import ucar.array.Array;
+import ucar.array.ArrayType;
+import ucar.array.Arrays;
+import ucar.array.ArraysConvert;
+import ucar.array.Section;
+import ucar.nc2.Attribute;
+import ucar.nc2.Dimension;
+import ucar.nc2.Group;
+import ucar.nc2.constants.CDM;
+import ucar.nc2.dataset.EnhanceScaleMissingUnsignedImpl;
+import ucar.nc2.dataset.NetcdfDataset;
+import ucar.nc2.dataset.NetcdfDataset.Enhance;
+import ucar.nc2.dataset.VariableDS;
+
+/** Compare {@link DataEnhancer#convertArray} to the ucar.ma2 conversion. */
+public class TestDataEnhancer {
+  private static final int[] shape = new int[] {6, 50};
+  private static final Set<Enhance> scaleOnly = EnumSet.of(Enhance.ApplyScaleOffset);
+  private static final Set<Enhance> noUnsigned = EnumSet.of(Enhance.ApplyScaleOffset, Enhance.ConvertMissing);
+  private static final Set<Enhance> missingOnly = EnumSet.of(Enhance.ConvertMissing);
+
+  private final int saveThreshold = DataEnhancer.parallelThreshold;
+
+  @After
+  public void reset() {
+    DataEnhancer.parallelThreshold = saveThreshold;
+  }
+
+  private static VariableDS makeVariable(ArrayType arrayType, Set<Enhance> enhance, Attribute... atts) {
+    Group.Builder parent =
+        Group.builder().addDimension(new Dimension("y", shape[0])).addDimension(new Dimension("x", shape[1]));
+    VariableDS.Builder<?> vb = VariableDS.builder().setName("data").setArrayType(arrayType).setEnhanceMode(enhance)
+        .setParentGroupBuilder(parent).setDimensionsByName("y x");
+    for (Attribute att : atts) {
+      vb.addAttribute(att);
+    }
+    parent.addVariable(vb);
+    return (VariableDS) parent.build().findVariableLocal("data");
+  }
+
+  private static Array<?> makeData(ArrayType arrayType, int[] shape) {
+    Random random = new Random(17);
+    int n = (int) Arrays.computeSize(shape);
+    switch (arrayType) {
+      case BYTE:
+      case UBYTE: {
+        byte[] values = new byte[n];
+        random.nextBytes(values);
+        values[0] = -1;
+        values[1] = 7;
+        return Arrays.factory(arrayType, shape, values);
+      }
+      case SHORT:
+      case USHORT: {
+        short[] values = new short[n];
+        for (int i = 0; i < n; i++) {
+          values[i] = (short) random.nextInt();
+        }
+        values[0] = -1;
+        values[1] = 7;
+        return Arrays.factory(arrayType, shape, values);
+      }
+      case INT:
+      case UINT: {
+        int[] values = new int[n];
+        for (int i = 0; i < n; i++) {
+          values[i] = random.nextInt();
+        }
+        values[0] = -1;
+        values[1] = 7;
+        return Arrays.factory(arrayType, shape, values);
+      }
+      case FLOAT: {
+        float[] values = new float[n];
+        for (int i = 0; i < n; i++) {
+          values[i] = random.nextFloat() * 200 - 100;
+        }
+        values[0] = -999;
+        values[1] = Float.NaN;
+        return Arrays.factory(arrayType, shape, values);
+      }
+      default:
+        throw new IllegalArgumentException();
+    }
+  }
+
+  private static void check(ArrayType arrayType, VariableDS vds, Set<Enhance> enhance) throws Exception {
+    Array<?> data = makeData(arrayType, shape);
+    check(vds, enhance, data);
+    check(vds, enhance, Arrays.flip(data, 1));
+    check(vds, enhance, Arrays.section(data, new Section("1:5:2,3:40:3")));
+  }
+
+  private static void check(VariableDS vds, Set<Enhance> enhance, Array<?> data) {
+    DataEnhancer enhancer = new DataEnhancer(vds, new EnhanceScaleMissingUnsignedImpl(vds, enhance));
+    Array<?> expected = ArraysConvert.convertToArray(enhancer.convert(ArraysConvert.convertFromArray(data), enhance));
+    Array<?> result = enhancer.convertArray(data, enhance);
+
+    assertThat(result.getArrayType()).isEqualTo(expected.getArrayType());
+    assertThat(result.getShape()).isEqualTo(expected.getShape());
+    Iterator<?> iter = result.iterator();
+    for (Object val : expected) {
+      assertThat(iter.next()).isEqualTo(val);
+    }
+  }
+
+  @Test
+  public void testScaleOffsetMissing() throws Exception {
+    Set<Enhance> all = NetcdfDataset.getEnhanceAll();
+    VariableDS vds = makeVariable(ArrayType.SHORT, all, new Attribute(CDM.SCALE_FACTOR, 0.01f),
+        new Attribute(CDM.ADD_OFFSET, 273.15f), new Attribute(CDM.MISSING_VALUE, (short) -1),
+        new Attribute(CDM.FILL_VALUE, (short) 7), new Attribute(CDM.VALID_MIN, (short) -30000));
+    check(ArrayType.SHORT, vds, all);
+    check(ArrayType.SHORT, vds, scaleOnly);
+    check(ArrayType.SHORT, vds, missingOnly);
+  }
+
+  @Test
+  public void testUnsigned() throws Exception {
+    Set<Enhance> all = NetcdfDataset.getEnhanceAll();
+    VariableDS ubyte = makeVariable(ArrayType.UBYTE, all, new Attribute(CDM.SCALE_FACTOR, 0.5),
+        new Attribute(CDM.ADD_OFFSET, -10.0), new Attribute(CDM.FILL_VALUE, (byte) -1));
+    check(ArrayType.UBYTE, ubyte, all);
+    check(ArrayType.UBYTE, ubyte, noUnsigned);
+
+    VariableDS unsignedAtt = makeVariable(ArrayType.BYTE, all, new Attribute(CDM.UNSIGNED, "true"),
+        new Attribute(CDM.SCALE_FACTOR, 2.0f), Attribute.fromArray(CDM.VALID_RANGE,
+            Arrays.factory(ArrayType.BYTE, new int[] {2}, new byte[] {0, (byte) 200})));
+    check(ArrayType.BYTE, unsignedAtt, all);
+    check(ArrayType.BYTE, unsignedAtt, noUnsigned);
+
+    VariableDS ushort = makeVariable(ArrayType.USHORT, all, new Attribute(CDM.SCALE_FACTOR, 0.1f));
+    check(ArrayType.USHORT, ushort, all);
+    check(ArrayType.USHORT, ushort, noUnsigned);
+
+    // integral result, not done by the fused conversion
+    VariableDS uint = makeVariable(ArrayType.UINT, all, new Attribute(CDM.MISSING_VALUE, 7));
+    check(ArrayType.UINT, uint, all);
+  }
+
+  @Test
+  public void testFloatMissing() throws Exception {
+    Set<Enhance> all = NetcdfDataset.getEnhanceAll();
+    VariableDS vds = makeVariable(ArrayType.FLOAT, all, new Attribute(CDM.MISSING_VALUE, -999.0f),
+        new Attribute(CDM.VALID_MAX, 90.0f));
+    check(ArrayType.FLOAT, vds, all);
+    check(ArrayType.FLOAT, vds, scaleOnly);
+  }
+
+  @Test
+  public void testParallel() throws Exception {
+    DataEnhancer.parallelThreshold = 100;
+    Set<Enhance> all = NetcdfDataset.getEnhanceAll();
+    VariableDS vds = makeVariable(ArrayType.SHORT, all, new Attribute(CDM.SCALE_FACTOR, 0.01),
+        new Attribute(CDM.MISSING_VALUE, (short) -1));
+    DataEnhancer enhancer = new DataEnhancer(vds, new EnhanceScaleMissingUnsignedImpl(vds, all));
+    int[] bigShape = new int[] {3, 200_000};
+    Array<?> data = makeData(ArrayType.SHORT, bigShape);
+    for (Array<?> view : new Array<?>[] {data, Arrays.flip(data, 1)}) {
+      Array<?> expected = ArraysConvert.convertToArray(enhancer.convert(ArraysConvert.convertFromArray(view), all));
+      Array<?> result = enhancer.convertArray(view, all);
+      assertThat(result.getArrayType()).isEqualTo(ArrayType.DOUBLE);
+      double[] values = new double[(int) result.length()];
+      result.copyTo(values, 0);
+      double[] expectedValues = new double[values.length];
+      expected.copyTo(expectedValues, 0);
+      assertThat(values).isEqualTo(expectedValues);
+    }
+  }
+}
@@ -0,0 +1,135 @@
+/*
+ * Copyright (c) 1998-2021 University Corporation for Atmospheric Research/Unidata
+ * See LICENSE for license information.
+ */
+package ucar.nc2.internal.iosp.hdf5;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import ucar.nc2.NetcdfFile;
+import ucar.nc2.NetcdfFiles;
+import ucar.unidata.util.test.TestDir;
+
+/** Test {@link H5chunkCache} */
+public class TestH5chunkCache {
+  private long savedSize;
+
+  @Before
+  public void saveSize() {
+    H5chunkCache cache = H5chunkCache.getInstance();
+    savedSize = (cache == null) ? 0 : cache.getMaxBytes();
+  }
+
+  @After
+  public void restoreSize() {
+    H5chunkCache.init(savedSize);
+  }
+
+  @Test
+  public void testHitAndMiss() {
+    H5chunkCache.init(1000 * 1000);
+    H5chunkCache cache = H5chunkCache.getInstance();
+    assertThat(cache).isNotNull();
+
+    H5chunkCache.Key key = new H5chunkCache.Key("file.h5", 123, 4567, new int[] {0, 10});
+    assertThat(cache.get(key)).isNull();
+
+    ByteBuffer bb = ByteBuffer.allocate(16);
+    bb.putInt(0, 42);
+    cache.put(key, bb, null).release();
+
+    // equal keys are distinct objects
+    H5chunkCache.Key same = new H5chunkCache.Key("file.h5", 123, 4567, new int[] {0, 10});
+    H5chunkCache.Entry entry = cache.get(same);
+    assertThat(entry).isNotNull();
+    ByteBuffer hit = entry.getByteBuffer(ByteOrder.BIG_ENDIAN);
+    assertThat(hit.getInt(0)).isEqualTo(42);
+
+    // each hit has its own position and order
+    hit.position(8);
+    ByteBuffer hit2 = cache.get(same).getByteBuffer(ByteOrder.LITTLE_ENDIAN);
+    assertThat(hit2.position()).isEqualTo(0);
+    assertThat(hit2.order()).isEqualTo(ByteOrder.LITTLE_ENDIAN);
+
+    // a different chunk, or the same chunk in a modified file, is a miss
+    assertThat(cache.get(new H5chunkCache.Key("file.h5", 123, 4567, new int[] {0, 20}))).isNull();
+    assertThat(cache.get(new H5chunkCache.Key("file.h5", 124, 4567, new int[] {0, 10}))).isNull();
+
+    assertThat(cache.getHitCount()).isEqualTo(2);
+    assertThat(cache.getMissCount()).isEqualTo(3);
+    assertThat(cache.getSize()).isEqualTo(1);
+
+    cache.clear();
+    assertThat(cache.getSize()).isEqualTo(0);
+  }
+
+  @Test
+  public void testBoundedBySize() {
+    H5chunkCache.init(100 * 1000);
+    H5chunkCache cache = H5chunkCache.getInstance();
+    for (int i = 0; i < 100; i++) {
+      cache.put(new H5chunkCache.Key("file.h5", 0, 0, new int[] {i}), ByteBuffer.allocate(10 * 1000), null).release();
+    }
+    assertThat(cache.getSize()).isAtMost(10);
+  }
+
+  @Test
+  public void testEvictedBuffersArePooled() {
+    H5chunkCache.init(100 * 1000);
+    H5chunkCache cache = H5chunkCache.getInstance();
+    ChunkBufferPool pool = new ChunkBufferPool(1000 * 1000);
+
+    H5chunkCache.Key key = new H5chunkCache.Key("file.h5", 0, 0, new int[] {0});
+    byte[] array = new byte[10 * 1000];
+    H5chunkCache.Entry reader = cache.put(key, ByteBuffer.wrap(array), pool);
+    H5chunkCache.Entry other = cache.get(key);
+    assertThat(other).isNotNull();
+
+    // evicted while in use: returned to the pool only after the last reader is done
+    cache.clear();
+    assertThat(cache.get(key)).isNull();
+    reader.release();
+    assertThat(pool.getPooledBytes()).isEqualTo(0);
+    other.release();
+    assertThat(pool.getPooledBytes()).isEqualTo(array.length);
+    assertThat(pool.acquire(array.length)).isSameInstanceAs(array);
+
+    // evicted when not in use
+    for (int i = 0; i < 20; i++) {
+      cache.put(new H5chunkCache.Key("file.h5", 0, 0, new int[] {i}), ByteBuffer.allocate(10 * 1000), pool).release();
+    }
+    assertThat(pool.getPooledBytes()).isAtLeast(10 * 10 * 1000);
+  }
+
+  @Test
+  public void testDisabled() {
+    H5chunkCache.init(0);
+    assertThat(H5chunkCache.getInstance()).isNull();
+  }
+
+  @Test
+  public void testCacheForOneFile() throws IOException {
+    H5chunkCache.init(1000 * 1000);
+    try (NetcdfFile ncfile = NetcdfFiles.open(TestDir.cdmLocalTestDataDir + "chunked.h5")) {
+      assertThat(ncfile.sendIospMessage(H5iosp.IOSP_MESSAGE_CHUNK_CACHE)).isSameInstanceAs(H5chunkCache.getInstance());
+
+      H5chunkCache own = H5chunkCache.create(5000);
+      ncfile.sendIospMessage(own);
+      assertThat(ncfile.sendIospMessage(H5iosp.IOSP_MESSAGE_CHUNK_CACHE)).isSameInstanceAs(own);
+      assertThat(own.getMaxBytes()).isEqualTo(5000);
+      assertThat(H5chunkCache.getInstance().getMaxBytes()).isEqualTo(1000 * 1000);
+
+      ncfile.sendIospMessage(H5chunkCache.create(0));
+      assertThat(ncfile.sendIospMessage(H5iosp.IOSP_MESSAGE_CHUNK_CACHE)).isNull();
+
+      ncfile.sendIospMessage(H5iosp.IOSP_MESSAGE_CHUNK_CACHE_ON);
+      assertThat(ncfile.sendIospMessage(H5iosp.IOSP_MESSAGE_CHUNK_CACHE)).isSameInstanceAs(H5chunkCache.getInstance());
+    }
+  }
+}
@@ -0,0 +1,291 @@
+/*
+ * Copyright (c) 1998-2021 University Corporation for Atmospheric Research/Unidata
+ * See LICENSE for license information.
+ */
+package ucar.nc2.internal.iosp.hdf5.filter;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.zip.Deflater;
+import org.junit.Test;
+import ucar.nc2.iosp.hdf5.spi.H5filter;
+import ucar.nc2.iosp.hdf5.spi.H5filterProvider;
+
+/** Test {@link H5filters} and the built-in filter decoders. */
+public class TestH5filters {
+
+  // zstd -19 of pattern(5000)
+  private static final String ZSTD_PATTERN = "KLUv/WCIEr0LACacVgwQEPgB//9fVVU1DwJRAFEAUQBalmHXZWHVZVkVRU2VRE2TFEWQ9EQQ9DhO8zBO0"
+      + "zDLojDJoigJghyJgRyHURSEMRQEMQjCH7zwv++d+90531rnjXXO+F6L67W2UjprQOcMAAEMszQKsyxKkiDKkSDIYRjFQRhFQQyDQPxBEL73/XP"
+      + "fO99b87y1zhjfbPG9tlZqZ6V0BgFgkoGyJMdRJMNRFEMQ/EIP/D6v6zhv6zhu07RswwL9e985313zvXXOWN+M8bW2XmprpXMGFDCDQEmSYymS4y"
+      + "iGISh+IQh+ntd9nNd13LZpXLZpWoZhV2Zh12VVFWVNFUVNkhRNkBRF0PM4UPM4ThMlGRhLkhxFMRxBMQzB7/PA7vO8juO2TuO2TcsyTLsyDLssq7"
+      + "ooq6qoaZKoaJKkCIKeyIGex2kaxlkahlkUJVkQJUmQ4zCQ4jCMgiCGQiCGQfjfCwGAl6ggQj/whT0DEhj//v//d6n9Lv//PdAiWw==";
+
+  // bzip2 -9 of text()
+  private static final String BZIP2_TEXT = "QlpoOTFBWSZTWdRODnsAAw6ZgEABfwA////wMADYBjJiaYTTEwE0wGMmJphNMTATTAFKpNQaMj"
+      + "JoHqG0ZJoJ8CaiZCb5u2ryXmty7pvnsJmJgJmJwE+ROIn4JgJkJgJkE0E2CcxOoTQTET9EwE2CaicxMRPQTMTqJiJxE6CaCYhNRNRPUVdhOwn+"
+      + "LuSKcKEhqJwc9g==";
+
+  /** Found by the ServiceLoader (see src/test/resources/META-INF/services), replaces the built-in bzip2 decoder. */
+  public static class Bzip2Override implements H5filterProvider {
+    private final H5filterProvider builtin = new Bzip2.Provider();
+
+    @Override
+    public int getId() {
+      return builtin.getId();
+    }
+
+    @Override
+    public String getName() {
+      return "bzip2-override";
+    }
+
+    @Override
+    public H5filter create(int[] clientData) throws IOException {
+      return builtin.create(clientData);
+    }
+  }
+
+  private static byte[] pattern(int n) {
+    byte[] result = new byte[n];
+    for (int i = 0; i < n; i++)
+      result[i] = (byte) ((i / 10) % 50 + (i % 3));
+    return result;
+  }
+
+  private static byte[] text() {
+    StringBuilder sb = new StringBuilder();
+    for (int i = 0; i < 40; i++)
+      sb.append(String.format("the quick brown fox %d jumps over the lazy dog. ", i % 7));
+    return sb.toString().getBytes(StandardCharsets.US_ASCII);
+  }
+
+  private static byte[] decode(int id, int[] clientData, byte[] encoded, int chunkSize) throws IOException {
+    H5filterProvider provider = H5filters.find(id);
+    assertThat(provider).isNotNull();
+    H5filter filter = provider.create(clientData);
+    ByteBuffer result = filter.decode(ByteBuffer.wrap(encoded), ByteBuffer.allocate(chunkSize));
+    byte[] bytes = new byte[result.remaining()];
+    result.get(bytes);
+    return bytes;
+  }
+
+  // A Blosc version 2 buffer of one block, not split, with the given codec and shuffle flags
+  private static byte[] bloscBlock(int codec, int shuffleFlags, int typesize, int nbytes, byte[] compressed) {
+    ByteBuffer bb = ByteBuffer.allocate(24 + compressed.length).order(ByteOrder.LITTLE_ENDIAN);
+    bb.put((byte) 2).put((byte) 1).put((byte) ((codec << 5) | 0x10 | shuffleFlags)).put((byte) typesize);
+    bb.putInt(nbytes).putInt(nbytes).putInt(bb.capacity());
+    bb.putInt(20).putInt(compressed.length).put(compressed);
+    return bb.array();
+  }
+
+  // a literal run of 4 bytes, then a match of 4 + matchLen at offset 4, then 3 literals
+  private static byte[] lz4Block(int matchLen) {
+    ByteBuffer bb = ByteBuffer.allocate(100).order(ByteOrder.LITTLE_ENDIAN);
+    bb.put((byte) 0x4F).put(new byte[] {1, 2, 3, 4}).putShort((short) 4);
+    int extra = matchLen - 15;
+    for (; extra >= 255; extra -= 255)
+      bb.put((byte) 255);
+    bb.put((byte) extra);
+    bb.put((byte) 0x30).put(new byte[] {5, 6, 7});
+    return Arrays.copyOf(bb.array(), bb.position());
+  }
+
+  private static byte[] lz4Expected(int matchLen) {
+    byte[] result = new byte[4 + 4 + matchLen + 3];
+    for (int i = 0; i < 8 + matchLen; i++)
+      result[i] = (byte) (i % 4 + 1);
+    result[result.length - 3] = 5;
+    result[result.length - 2] = 6;
+    result[result.length - 1] = 7;
+    return result;
+  }
+
+  @Test
+  public void testRegistry() throws IOException {
+    for (int id : new int[] {1, 2, 3, 307, 32001, 32004, 32015})
+      assertThat(H5filters.find(id)).isNotNull();
+    assertThat(H5filters.find(99999)).isNull();
+
+    H5filterProvider mine = new H5filterProvider() {
+      public int getId() {
+        return 99999;
+      }
+
+      public String getName() {
+        return "reverse";
+      }
+
+      public H5filter create(int[] clientData) {
+        return (in, out) -> {
+          int n = in.remaining();
+          for (int i = 0; i < n; i++)
+            out.put(i, in.get(in.position() + n - 1 - i));
+          out.limit(n);
+          return out;
+        };
+      }
+    };
+    H5filters.register(mine);
+    assertThat(H5filters.find(99999)).isSameInstanceAs(mine);
+    assertThat(decode(99999, new int[0], new byte[] {1, 2, 3}, 3)).isEqualTo(new byte[] {3, 2, 1});
+  }
+
+  @Test
+  public void testShuffle() throws IOException {
+    byte[] shuffled = {1, 3, 5, 2, 4, 6, 7};
+    assertThat(decode(2, new int[] {2}, shuffled, 7)).isEqualTo(new byte[] {1, 2, 3, 4, 5, 6, 7});
+    // too small an output buffer
+    assertThat(decode(2, new int[] {2}, shuffled, 2)).isEqualTo(new byte[] {1, 2, 3, 4, 5, 6, 7});
+  }
+
+  @Test
+  public void testFletcher32() throws IOException {
+    assertThat(decode(3, new int[0], new byte[] {1, 2, 3, 9, 9, 9, 9}, 3)).isEqualTo(new byte[] {1, 2, 3});
+  }
+
+  @Test
+  public void testZstd() throws IOException {
+    byte[] encoded = Base64.getDecoder().decode(ZSTD_PATTERN);
+    assertThat(decode(32015, new int[0], encoded, 5000)).isEqualTo(pattern(5000));
+    // output grows if the chunk size is too small
+    assertThat(decode(32015, new int[0], encoded, 10)).isEqualTo(pattern(5000));
+  }
+
+  @Test
+  public void testBzip2() throws IOException {
+    byte[] encoded = Base64.getDecoder().decode(BZIP2_TEXT);
+    assertThat(decode(307, new int[0], encoded, 100)).isEqualTo(text());
+  }
+
+  @Test
+  public void testLz4() throws IOException {
+    byte[] block = lz4Block(300);
+    byte[] expected = lz4Expected(300);
+    byte[] raw = {8, 9, 10};
+    ByteBuffer bb = ByteBuffer.allocate(100); // big endian
+    bb.putLong(expected.length + raw.length).putInt(expected.length);
+    bb.putInt(block.length).put(block);
+    bb.putInt(raw.length).put(raw); // the last block is stored uncompressed
+    byte[] encoded = Arrays.copyOf(bb.array(), bb.position());
+
+    byte[] result = decode(32004, new int[0], encoded, expected.length + raw.length);
+    assertThat(Arrays.copyOf(result, expected.length)).isEqualTo(expected);
+    assertThat(Arrays.copyOfRange(result, expected.length, result.length)).isEqualTo(raw);
+  }
+
+  @Test
+  public void testBlosc() throws IOException {
+    int typesize = 4;
+    byte[] expected = lz4Expected(1000); // not a multiple of typesize
+    byte[] shuffled = new byte[expected.length];
+    int m = expected.length / typesize;
+    for (int j = 0; j < typesize; j++)
+      for (int i = 0; i < m; i++)
+        shuffled[j * m + i] = expected[i * typesize + j];
+    System.arraycopy(expected, m * typesize, shuffled, m * typesize, expected.length - m * typesize);
+    // store the shuffled bytes uncompressed in a single stream, with the lz4 codec and byte shuffle
+    ByteBuffer bb = ByteBuffer.allocate(2000).order(ByteOrder.LITTLE_ENDIAN);
+    bb.put((byte) 2).put((byte) 1).put((byte) (0x20 | 0x10 | 0x01)).put((byte) typesize);
+    bb.putInt(expected.length).putInt(expected.length).putInt(0);
+    bb.putInt(20).putInt(shuffled.length).put(shuffled);
+    bb.putInt(12, bb.position());
+    byte[] encoded = Arrays.copyOf(bb.array(), bb.position());
+    assertThat(decode(32001, new int[0], encoded, expected.length)).isEqualTo(expected);
+
+    // lz4 compressed, not shuffled
+    bb = ByteBuffer.allocate(2000).order(ByteOrder.LITTLE_ENDIAN);
+    bb.put((byte) 2).put((byte) 1).put((byte) (0x20 | 0x10)).put((byte) 1);
+    bb.putInt(expected.length).putInt(expected.length).putInt(0);
+    byte[] block = lz4Block(1000);
+    bb.putInt(20).putInt(block.length).put(block);
+    bb.putInt(12, bb.position());
+    encoded = Arrays.copyOf(bb.array(), bb.position());
+    assertThat(decode(32001, new int[0], encoded, expected.length)).isEqualTo(expected);
+  }
+
+  @Test
+  public void testBloscCodecs() throws IOException {
+    byte[] expected = lz4Expected(296);
+
+    // blosclz: 4 literals, a match of 300 at distance 4 with an extended length, 3 literals
+    byte[] blosclz = {0x03, 1, 2, 3, 4, (byte) 0xE0, (byte) 255, 36, 3, 0x02, 5, 6, 7};
+    assertThat(decode(32001, new int[0], bloscBlock(0, 0, 1, expected.length, blosclz), expected.length))
+        .isEqualTo(expected);
+
+    // snappy: the length, 4 literals, copies of 64, 64, 64, 64, 40 and 4 at offset 4, 3 literals
+    ByteBuffer bb = ByteBuffer.allocate(100);
+    bb.put((byte) 0xB3).put((byte) 0x02);
+    bb.put((byte) 0x0C).put(new byte[] {1, 2, 3, 4});
+    for (int i = 0; i < 4; i++)
+      bb.put((byte) 0xFE).put((byte) 4).put((byte) 0);
+    bb.put((byte) ((39 << 2) | 2)).put((byte) 4).put((byte) 0);
+    bb.put((byte) 0x01).put((byte) 4);
+    bb.put((byte) 0x08).put(new byte[] {5, 6, 7});
+    byte[] snappy = Arrays.copyOf(bb.array(), bb.position());
+    assertThat(decode(32001, new int[0], bloscBlock(2, 0, 1, expected.length, snappy), expected.length))
+        .isEqualTo(expected);
+
+    // zlib
+    Deflater deflater = new Deflater();
+    deflater.setInput(expected);
+    deflater.finish();
+    byte[] zlib = new byte[1000];
+    zlib = Arrays.copyOf(zlib, deflater.deflate(zlib));
+    deflater.end();
+    assertThat(decode(32001, new int[0], bloscBlock(3, 0, 1, expected.length, zlib), expected.length))
+        .isEqualTo(expected);
+
+    // zstd
+    byte[] zstd = Base64.getDecoder().decode(ZSTD_PATTERN);
+    assertThat(decode(32001, new int[0], bloscBlock(4, 0, 1, 5000, zstd), 5000)).isEqualTo(pattern(5000));
+  }
+
+  @Test
+  public void testBloscBitshuffle() throws IOException {
+    // 8 one byte elements 0..7: bit row i holds bit i of each element, element k in bit k
+    byte[] rows = {(byte) 0xAA, (byte) 0xCC, (byte) 0xF0, 0, 0, 0, 0, 0};
+    byte[] lz4 = new byte[9]; // the rows as a single lz4 literal run
+    lz4[0] = (byte) 0x80;
+    System.arraycopy(rows, 0, lz4, 1, 8);
+    assertThat(decode(32001, new int[0], bloscBlock(1, 0x04, 1, 8, lz4), 8))
+        .isEqualTo(new byte[] {0, 1, 2, 3, 4, 5, 6, 7});
+
+    // 8 two byte elements (k, k + 8), then 3 leftover bytes that are not shuffled (format version 3)
+    ByteBuffer bb = ByteBuffer.allocate(100);
+    bb.put((byte) 0xF0).put((byte) 4); // 15 + 4 literals
+    bb.put(rows).put(new byte[] {(byte) 0xAA, (byte) 0xCC, (byte) 0xF0, (byte) 0xFF, 0, 0, 0, 0});
+    bb.put(new byte[] {21, 22, 23});
+    byte[] block = Arrays.copyOf(bb.array(), bb.position());
+    byte[] expected = new byte[19];
+    for (int k = 0; k < 8; k++) {
+      expected[2 * k] = (byte) k;
+      expected[2 * k + 1] = (byte) (k + 8);
+    }
+    expected[16] = 21;
+    expected[17] = 22;
+    expected[18] = 23;
+    byte[] encoded = bloscBlock(1, 0x04, 2, 19, block);
+    encoded[0] = 3;
+    assertThat(decode(32001, new int[0], encoded, 19)).isEqualTo(expected);
+  }
+
+  @Test
+  public void testServiceLoaderOverridesBuiltin() throws IOException {
+    assertThat(H5filters.find(307)).isInstanceOf(Bzip2Override.class);
+    byte[] encoded = Base64.getDecoder().decode(BZIP2_TEXT);
+    assertThat(decode(307, new int[0], encoded, 100)).isEqualTo(text());
+  }
+
+  @Test(expected = IOException.class)
+  public void testCorruptZstd() throws IOException {
+    byte[] encoded = Base64.getDecoder().decode(ZSTD_PATTERN);
+    decode(32015, new int[0], Arrays.copyOf(encoded, encoded.length / 2), 5000);
+  }
+}
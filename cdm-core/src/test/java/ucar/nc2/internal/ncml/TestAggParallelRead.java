@@ -0,0 +1,101 @@
+/*
+ * Copyright (c) 1998-2021 John Caron and University Corporation for Atmospheric Research/Unidata
+ * See LICENSE for license information.
+ */
+package ucar.nc2.internal.ncml;
+
+import static com.google.common.truth.Truth.assertWithMessage;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.After;
+import org.junit.Test;
+import ucar.ma2.Array;
+import ucar.ma2.InvalidRangeException;
+import ucar.ma2.MAMath;
+import ucar.ma2.Range;
+import ucar.ma2.Section;
+import ucar.nc2.NetcdfFile;
+import ucar.nc2.Variable;
+import ucar.nc2.dataset.NetcdfDatasets;
+
+/** Test that reading the nested datasets of an outer aggregation concurrently gives the same data. */
+public class TestAggParallelRead {
+  private final int saveMaxConcurrentReads = Aggregation.maxConcurrentReads;
+  private ExecutorService pool;
+
+  @After
+  public void resetExecutor() throws InterruptedException {
+    Aggregation.resetExecutor();
+    Aggregation.setMaxConcurrentReads(saveMaxConcurrentReads);
+    if (pool != null) {
+      pool.shutdownNow();
+      assertWithMessage("pool terminated").that(pool.awaitTermination(10, TimeUnit.SECONDS)).isTrue();
+      pool = null;
+    }
+  }
+
+  @Test
+  public void testJoinExisting() throws IOException, InvalidRangeException {
+    compareSerialAndParallel("aggExisting.xml");
+  }
+
+  @Test
+  public void testJoinNew() throws IOException, InvalidRangeException {
+    compareSerialAndParallel("aggSynthetic.xml");
+  }
+
+  private void compareSerialAndParallel(String name) throws IOException, InvalidRangeException {
+    String filename = "file:./" + TestNcmlRead.topDir + name;
+
+    Aggregation.setExecutor(null);
+    List<Array> serial = readAll(filename);
+
+    pool = Executors.newFixedThreadPool(2);
+    AtomicInteger submitted = new AtomicInteger();
+    Aggregation.setExecutor(task -> {
+      submitted.incrementAndGet();
+      pool.execute(task);
+    });
+    Aggregation.setMaxConcurrentReads(3); // the calling thread also reads
+    List<Array> parallel = readAll(filename);
+    assertWithMessage(name).that(submitted.get()).isGreaterThan(0);
+
+    assertWithMessage(name).that(parallel.size()).isEqualTo(serial.size());
+    for (int i = 0; i < serial.size(); i++) {
+      assertWithMessage(name + " " + i).that(MAMath.equals(parallel.get(i), serial.get(i))).isTrue();
+    }
+  }
+
+  // read each aggregation variable fully, and in sections that cross the nested datasets
+  private List<Array> readAll(String filename) throws IOException, InvalidRangeException {
+    List<Array> result = new ArrayList<>();
+    try (NetcdfFile ncfile = NetcdfDatasets.openDataset(filename, false, null)) {
+      for (Variable v : ncfile.getVariables()) {
+        if (v.getRank() == 0) {
+          continue;
+        }
+        result.add(v.read());
+
+        int[] shape = v.getShape();
+        int[] origin = new int[shape.length];
+        int[] size = shape.clone();
+        for (int start = 0; start < shape[0]; start++) {
+          origin[0] = start;
+          size[0] = shape[0] - start;
+          result.add(v.read(new Section(origin, size)));
+        }
+        if (shape[0] > 2) {
+          Section strided = v.getShapeAsSection().toBuilder().replaceRange(0, new Range(0, shape[0] - 1, 2)).build();
+          result.add(v.read(strided));
+        }
+      }
+    }
+    return result;
+  }
+}
@@ -0,0 +1,138 @@
+/*
+ * Copyright (c) 1998-2021 University Corporation for Atmospheric Research/Unidata
+ * See LICENSE for license information.
+ */
+package ucar.nc2.iosp;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import java.nio.ByteBuffer;
+import java.nio.IntBuffer;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import ucar.ma2.InvalidRangeException;
+import ucar.ma2.Section;
+
+/** Test {@link ucar.nc2.iosp.LayoutBBTiled}, serial and with read ahead on an Executor. */
+public class TestLayoutBBTiled {
+  private static final int[] shape = {37, 53};
+  private static final int[] chunkSize = {5, 7};
+  private static ExecutorService executor;
+
+  @BeforeClass
+  public static void setup() {
+    executor = Executors.newFixedThreadPool(4);
+  }
+
+  @AfterClass
+  public static void shutdown() {
+    executor.shutdownNow();
+  }
+
+  @Test
+  public void testFull() throws InvalidRangeException {
+    checkSection(new Section("0:36,0:52"));
+  }
+
+  @Test
+  public void testStrided() throws InvalidRangeException {
+    checkSection(new Section("3:30:2,10:40:3"));
+  }
+
+  @Test
+  public void testSingleElement() throws InvalidRangeException {
+    checkSection(new Section("20:20,52:52"));
+  }
+
+  private void checkSection(Section want) throws InvalidRangeException {
+    AtomicInteger released = new AtomicInteger();
+    int[] serial = read(want, null, 0, released);
+    int nreleased = released.get();
+    assertThat(nreleased).isGreaterThan(0);
+
+    released.set(0);
+    int[] parallel = read(want, executor, 4, released);
+    assertThat(parallel).isEqualTo(serial);
+    assertThat(released.get()).isEqualTo(nreleased);
+
+    int count = 0;
+    for (int i : want.getRange(0)) {
+      for (int j : want.getRange(1)) {
+        assertThat(serial[count++]).isEqualTo(value(i, j));
+      }
+    }
+  }
+
+  private int[] read(Section want, ExecutorService exec, int readAhead, AtomicInteger released) {
+    List<LayoutBBTiled.DataChunk> chunks = new ArrayList<>();
+    for (int i = 0; i < shape[0]; i += chunkSize[0]) {
+      for (int j = 0; j < shape[1]; j += chunkSize[1]) {
+        chunks.add(new TestChunk(new int[] {i, j}, released));
+      }
+    }
+    Iterator<LayoutBBTiled.DataChunk> iter = chunks.iterator();
+    LayoutBBTiled.DataChunkIterator chunkIterator = new LayoutBBTiled.DataChunkIterator() {
+      public boolean hasNext() {
+        return iter.hasNext();
+      }
+
+      public LayoutBBTiled.DataChunk next() {
+        return iter.next();
+      }
+    };
+
+    LayoutBB layout = new LayoutBBTiled(chunkIterator, chunkSize, 4, want, exec, readAhead);
+    int[] result = new int[(int) want.computeSize()];
+    while (layout.hasNext()) {
+      LayoutBB.Chunk chunk = layout.next();
+      IntBuffer buff = chunk.getIntBuffer();
+      buff.position(chunk.getSrcElem());
+      int pos = (int) chunk.getDestElem();
+      for (int i = 0; i < chunk.getNelems(); i++)
+        result[pos++] = buff.get();
+    }
+    return result;
+  }
+
+  private static int value(int i, int j) {
+    return i * 1000 + j;
+  }
+
+  private static class TestChunk implements LayoutBBTiled.DataChunk {
+    private final int[] offset;
+    private final AtomicInteger released;
+
+    TestChunk(int[] offset, AtomicInteger released) {
+      this.offset = offset;
+      this.released = released;
+    }
+
+    @Override
+    public int[] getOffset() {
+      return offset;
+    }
+
+    @Override
+    public ByteBuffer getByteBuffer() {
+      ByteBuffer bb = ByteBuffer.allocate(chunkSize[0] * chunkSize[1] * 4);
+      for (int i = 0; i < chunkSize[0]; i++) {
+        for (int j = 0; j < chunkSize[1]; j++) {
+          bb.putInt((i * chunkSize[1] + j) * 4, value(offset[0] + i, offset[1] + j));
+        }
+      }
+      return bb;
+    }
+
+    @Override
+    public void release(ByteBuffer bb) {
+      released.incrementAndGet();
+    }
+  }
+}
@@ -0,0 +1,247 @@
+/*
+ * Copyright (c) 1998-2021 John Caron and University Corporation for Atmospheric Research/Unidata
+ * See LICENSE for license information.
+ */
+package ucar.nc2.write;
+
+import static com.google.common.truth.Truth.assertThat;
+import static org.junit.Assert.fail;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import ucar.ma2.Array;
+import ucar.ma2.ArrayChar;
+import ucar.ma2.DataType;
+import ucar.ma2.InvalidRangeException;
+import ucar.ma2.Section;
+import ucar.ma2.StructureData;
+import ucar.nc2.Attribute;
+import ucar.nc2.Dimension;
+import ucar.nc2.Group;
+import ucar.nc2.NetcdfFile;
+import ucar.nc2.NetcdfFiles;
+import ucar.nc2.Structure;
+import ucar.nc2.Variable;
+import ucar.nc2.internal.iosp.IospFileWriter;
+import ucar.nc2.util.CancelTask;
+
+/** Test NetcdfFormatWriter with asynchronous writes. */
+public class TestNetcdfFormatWriterWriteBehind {
+  private static final int nrecs = 200;
+
+  @Rule
+  public TemporaryFolder tempFolder = new TemporaryFolder();
+
+  private NetcdfFormatWriter.Builder<?> makeBuilder(String filename) {
+    NetcdfFormatWriter.Builder<?> writerb = NetcdfFormatWriter.createNewNetcdf3(filename).setFill(false);
+    writerb.addUnlimitedDimension("time");
+    writerb.addDimension("lat", 6);
+    writerb.addDimension("lon", 12);
+    writerb.addDimension("strlen", 10);
+    writerb.addVariable("temperature", DataType.FLOAT, "time lat lon");
+    writerb.addVariable("count", DataType.INT, "time");
+    writerb.addVariable("name", DataType.CHAR, "time strlen");
+    writerb.addVariable("lat", DataType.DOUBLE, "lat");
+    return writerb;
+  }
+
+  // write the records one at a time, the way a converter does
+  private void writeRecords(NetcdfFormatWriter writer) throws IOException, InvalidRangeException {
+    Variable temperature = writer.findVariable("temperature");
+    Variable count = writer.findVariable("count");
+    for (int rec = 0; rec < nrecs; rec++) {
+      Array data = Array.factory(DataType.FLOAT, new int[] {1, 6, 12});
+      for (int i = 0; i < data.getSize(); i++) {
+        data.setFloat(i, rec * 1000 + i);
+      }
+      writer.write(temperature, new int[] {rec, 0, 0}, data);
+    }
+    for (int rec = 0; rec < nrecs; rec++) {
+      writer.write(count, new int[] {rec}, Array.factory(DataType.INT, new int[] {1}, new int[] {rec}));
+      writer.write("name", new int[] {rec, 0}, ArrayChar.makeFromString("rec" + rec, 10).reshape(new int[] {1, 10}));
+    }
+    writer.write("lat", Array.makeArray(DataType.DOUBLE, 6, -90, 30));
+  }
+
+  @Test
+  public void testSameAsSynchronous() throws IOException, InvalidRangeException {
+    String syncFile = tempFolder.newFile().getAbsolutePath();
+    try (NetcdfFormatWriter writer = makeBuilder(syncFile).build()) {
+      writeRecords(writer);
+    }
+
+    String asyncFile = tempFolder.newFile().getAbsolutePath();
+    try (NetcdfFormatWriter writer = makeBuilder(asyncFile).setWriteBehind(10).build()) {
+      writeRecords(writer);
+      writer.flush();
+      int[] counts = writer.writeBehind.getWriteCounts();
+      assertThat(counts[0]).isEqualTo(3 * nrecs + 1);
+      // count and name alternate so are never merged; how many temperature records are merged depends on timing
+      assertThat(counts[1]).isAtLeast(2 * nrecs + 2);
+      assertThat(counts[1]).isAtMost(3 * nrecs + 1);
+
+      Dimension time = writer.findDimension("time");
+      assertThat(time.getLength()).isEqualTo(nrecs);
+    }
+
+    assertThat(Files.readAllBytes(Paths.get(asyncFile))).isEqualTo(Files.readAllBytes(Paths.get(syncFile)));
+    try (NetcdfFile ncfile = NetcdfFiles.open(asyncFile)) {
+      Variable v = ncfile.findVariable("temperature");
+      assertThat(v.getShape()).isEqualTo(new int[] {nrecs, 6, 12});
+      assertThat(v.read().getFloat(nrecs * 72 - 1)).isEqualTo((nrecs - 1) * 1000 + 71);
+    }
+  }
+
+  @Test
+  public void testMergedWrites() throws Exception {
+    String filename = tempFolder.newFile().getAbsolutePath();
+    try (NetcdfFormatWriter writer = makeBuilder(filename).build()) {
+      Variable temperature = writer.findVariable("temperature");
+      Variable count = writer.findVariable("count");
+      FileWriter fileWriter = new FileWriter(writer.spiw);
+      WriteBehind writeBehind = new WriteBehind(fileWriter, 2 * nrecs);
+
+      // hold the first write until the rest are queued behind it
+      writeBehind.write(count, new Section(new int[] {0}, new int[] {1}), Array.factory(DataType.INT, new int[] {1}));
+      assertThat(fileWriter.started.await(10, TimeUnit.SECONDS)).isTrue();
+      for (int rec = 0; rec < nrecs; rec++) {
+        writeBehind.write(temperature, new Section(new int[] {rec, 0, 0}, new int[] {1, 6, 12}),
+            Array.factory(DataType.FLOAT, new int[] {1, 6, 12}));
+      }
+      for (int rec = 1; rec < nrecs; rec++) {
+        writeBehind.write(count, new Section(new int[] {rec}, new int[] {1}),
+            Array.factory(DataType.INT, new int[] {1}));
+      }
+      fileWriter.release.countDown();
+      writeBehind.close();
+
+      // the first count record, then all the temperature records, then the rest of the count records
+      assertThat(writeBehind.getWriteCounts()).isEqualTo(new int[] {2 * nrecs, 3});
+      assertThat(fileWriter.nwrites.get()).isEqualTo(3);
+      assertThat(writer.findDimension("time").getLength()).isEqualTo(nrecs);
+    }
+  }
+
+  @Test
+  public void testInvalidSectionFailsAtOnce() throws IOException, InvalidRangeException {
+    String filename = tempFolder.newFile().getAbsolutePath();
+    try (NetcdfFormatWriter writer = makeBuilder(filename).setWriteBehind(4).build()) {
+      // outside of the lat dimension
+      try {
+        writer.write("lat", new int[] {10}, Array.makeArray(DataType.DOUBLE, 6, -90, 30));
+        fail();
+      } catch (InvalidRangeException e) {
+        // expected
+      }
+      // past the end of the unlimited dimension is ok
+      writer.write("count", new int[] {nrecs}, Array.factory(DataType.INT, new int[] {1}));
+      writer.flush();
+      assertThat(writer.findDimension("time").getLength()).isEqualTo(nrecs + 1);
+    }
+  }
+
+  @Test
+  public void testFailureIsReported() throws IOException, InvalidRangeException {
+    String filename = tempFolder.newFile().getAbsolutePath();
+    NetcdfFormatWriter writer = makeBuilder(filename).build();
+    FileWriter fileWriter = new FileWriter(writer.spiw);
+    fileWriter.fail = true;
+    WriteBehind writeBehind = new WriteBehind(fileWriter, 4);
+    fileWriter.release.countDown();
+    Variable lat = writer.findVariable("lat");
+    Section section = new Section(new int[] {0}, new int[] {6});
+
+    // fails on the background thread
+    writeBehind.write(lat, section, Array.makeArray(DataType.DOUBLE, 6, -90, 30));
+    try {
+      writeBehind.flush();
+      fail();
+    } catch (IOException e) {
+      assertThat(e.getCause()).isNotNull();
+    }
+    try {
+      writeBehind.write(lat, section, Array.makeArray(DataType.DOUBLE, 6, -90, 30));
+      fail();
+    } catch (IOException e) {
+      // expected
+    }
+    writeBehind.abort();
+    writer.abort();
+  }
+
+  /** Passes the writes on to an IospFileWriter, counting them. The first write waits until released. */
+  private static class FileWriter implements IospFileWriter {
+    final IospFileWriter delegate;
+    final CountDownLatch started = new CountDownLatch(1);
+    final CountDownLatch release = new CountDownLatch(1);
+    final AtomicInteger nwrites = new AtomicInteger();
+    volatile boolean fail;
+
+    FileWriter(IospFileWriter delegate) {
+      this.delegate = delegate;
+    }
+
+    @Override
+    public void writeData(Variable v2, Section section, Array values) throws IOException, InvalidRangeException {
+      if (nwrites.getAndIncrement() == 0) {
+        started.countDown();
+        try {
+          release.await();
+        } catch (InterruptedException e) {
+          throw new InterruptedIOException();
+        }
+      }
+      if (fail) {
+        throw new IOException("failed");
+      }
+      delegate.writeData(v2, section, values);
+    }
+
+    @Override
+    public NetcdfFile getOutputFile() {
+      return delegate.getOutputFile();
+    }
+
+    @Override
+    public NetcdfFile create(String filename, Group.Builder rootGroup, int extra, long preallocateSize,
+        boolean largeFile) {
+      throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public void openForWriting(String location, Group.Builder rootGroup, CancelTask cancelTask) {
+      throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public void setFill(boolean fill) {
+      throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public int appendStructureData(Structure s, StructureData sdata) {
+      throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public void updateAttribute(Variable v2, Attribute att) {
+      throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public void updateAttribute(Group g, Attribute att) {
+      throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public void close() {}
+  }
+}
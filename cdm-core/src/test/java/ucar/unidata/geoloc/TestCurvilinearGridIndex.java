@@ -0,0 +1,122 @@
+/*
+ * Copyright (c) 1998-2021 John Caron and University Corporation for Atmospheric Research/Unidata
+ * See LICENSE for license information.
+ */
+package ucar.unidata.geoloc;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import java.util.Random;
+import org.junit.Test;
+
+/** Test {@link CurvilinearGridIndex} */
+public class TestCurvilinearGridIndex {
+
+  // a rotated, sheared grid with cell edges (nrows+1, ncols+1)
+  private static double[][] makeEdges(int nrows, int ncols, double lat0, double lon0, double rotate) {
+    int n = (nrows + 1) * (ncols + 1);
+    double[] lat = new double[n];
+    double[] lon = new double[n];
+    double cos = Math.cos(Math.toRadians(rotate));
+    double sin = Math.sin(Math.toRadians(rotate));
+    for (int row = 0; row <= nrows; row++) {
+      for (int col = 0; col <= ncols; col++) {
+        double x = col * 0.1 + row * 0.01;
+        double y = row * 0.05;
+        int k = row * (ncols + 1) + col;
+        lat[k] = lat0 + x * sin + y * cos;
+        lon[k] = LatLonPoints.lonNormal(lon0 + x * cos - y * sin);
+      }
+    }
+    return new double[][] {lat, lon};
+  }
+
+  private static void checkCellCenters(CurvilinearGridIndex index, double[][] edges, double lonOffset) {
+    int nrows = index.getNrows();
+    int ncols = index.getNcols();
+    double[] lat = edges[0];
+    double[] lon = edges[1];
+    int[] rectIndex = new int[2];
+    for (int row = 0; row < nrows; row++) {
+      for (int col = 0; col < ncols; col++) {
+        int k0 = row * (ncols + 1) + col;
+        int k1 = k0 + 1;
+        int k2 = k0 + ncols + 2;
+        int k3 = k0 + ncols + 1;
+        double wantLat = (lat[k0] + lat[k1] + lat[k2] + lat[k3]) / 4;
+        double lon0 = lon[k0];
+        double wantLon = (lon0 + LatLonPoints.lonNormal(lon[k1], lon0) + LatLonPoints.lonNormal(lon[k2], lon0)
+            + LatLonPoints.lonNormal(lon[k3], lon0)) / 4 + lonOffset;
+
+        assertThat(index.findCell(wantLat, wantLon)).isEqualTo(row * ncols + col);
+        assertThat(index.findCoordElement(wantLat, wantLon, rectIndex)).isTrue();
+        assertThat(rectIndex).isEqualTo(new int[] {row, col});
+      }
+    }
+  }
+
+  @Test
+  public void testRotatedGrid() {
+    double[][] edges = makeEdges(40, 60, 30, -80, 20);
+    CurvilinearGridIndex index = CurvilinearGridIndex.fromEdges(40, 60, edges[0], edges[1]);
+    checkCellCenters(index, edges, 0);
+    checkCellCenters(index, edges, 360);
+
+    int[] rectIndex = new int[] {7, 8};
+    assertThat(index.findCell(0, -80)).isEqualTo(-1);
+    assertThat(index.findCell(30, 100)).isEqualTo(-1);
+    assertThat(index.findCell(Double.NaN, -80)).isEqualTo(-1);
+    assertThat(index.findCoordElement(0, -80, rectIndex)).isFalse();
+    assertThat(rectIndex).isEqualTo(new int[] {7, 8});
+  }
+
+  @Test
+  public void testDateline() {
+    double[][] edges = makeEdges(30, 50, -20, 177, -10);
+    assertThat(edges[1][0]).isGreaterThan(0.0);
+    assertThat(edges[1][50]).isLessThan(0.0);
+    CurvilinearGridIndex index = CurvilinearGridIndex.fromEdges(30, 50, edges[0], edges[1]);
+    checkCellCenters(index, edges, 0);
+    checkCellCenters(index, edges, -360);
+  }
+
+  @Test
+  public void testMissingCells() {
+    double[][] edges = makeEdges(10, 10, 0, 0, 0);
+    edges[0][5 * 11 + 5] = Double.NaN; // corner of 4 cells
+    CurvilinearGridIndex index = CurvilinearGridIndex.fromEdges(10, 10, edges[0], edges[1]);
+    int[] rectIndex = new int[2];
+    for (int row = 0; row < 10; row++) {
+      for (int col = 0; col < 10; col++) {
+        double lat = edges[0][row * 11 + col + 1] + 0.01;
+        double lon = edges[1][row * 11 + col + 1] - 0.01;
+        boolean missing = (row == 4 || row == 5) && (col == 4 || col == 5);
+        assertThat(index.findCoordElement(lat, lon, rectIndex)).isEqualTo(!missing);
+      }
+    }
+  }
+
+  @Test
+  public void testBatch() {
+    double[][] edges = makeEdges(100, 100, 40, 10, 30);
+    CurvilinearGridIndex index = CurvilinearGridIndex.fromEdges(100, 100, edges[0], edges[1]);
+    Random random = new Random(17);
+    int n = 1000;
+    double[] lats = new double[n];
+    double[] lons = new double[n];
+    for (int i = 0; i < n; i++) {
+      lats[i] = 35 + random.nextDouble() * 20;
+      lons[i] = 5 + random.nextDouble() * 20;
+    }
+    int[] cells = index.findCells(lats, lons);
+    int found = 0;
+    for (int i = 0; i < n; i++) {
+      assertThat(cells[i]).isEqualTo(index.findCell(lats[i], lons[i]));
+      if (cells[i] >= 0) {
+        found++;
+      }
+    }
+    assertThat(found).isGreaterThan(0);
+    assertThat(found).isLessThan(n);
+  }
+}
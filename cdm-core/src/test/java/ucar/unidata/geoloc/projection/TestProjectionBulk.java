@@ -0,0 +1,149 @@
+/*
+ * Copyright (c) 1998-2021 John Caron and University Corporation for Atmospheric Research/Unidata
+ * See LICENSE for license information.
+ */
+package ucar.unidata.geoloc.projection;
+
+import static com.google.common.truth.Truth.assertThat;
+import static com.google.common.truth.Truth.assertWithMessage;
+
+import com.google.common.collect.ImmutableList;
+import java.util.Random;
+import org.junit.Test;
+import ucar.unidata.geoloc.LatLonPoint;
+import ucar.unidata.geoloc.Projection;
+import ucar.unidata.geoloc.ProjectionPoint;
+import ucar.unidata.geoloc.projection.sat.Geostationary;
+import ucar.unidata.geoloc.projection.sat.MSGnavigation;
+import ucar.unidata.geoloc.projection.sat.VerticalPerspectiveView;
+
+/** Test that the bulk array methods of Projection give the same values as the per-point methods. */
+public class TestProjectionBulk {
+  private static final ImmutableList<Projection> projections = ImmutableList.of(new LambertConformal(),
+      new LambertConformal(-40, 170, -30, -60, 100, 200), new Mercator(), new Mercator(-100, 20, 10, 20),
+      new Stereographic(), new Stereographic(90, -105, 0.93, 50, -50), new RotatedPole(), new RotatedPole(37.5, 177.5),
+      new TransverseMercator(), new TransverseMercator(10, -80, 0.9996, 500, 0), new AlbersEqualArea(),
+      new AlbersEqualArea(-23, -96, -29.5, -45.5, 10, 10), new LatLonProjection(),
+      new LatLonProjection("centered", null, 180.0), new Geostationary(), new Geostationary(-75, "x", 1.0e-3),
+      new MSGnavigation(), new VerticalPerspectiveView(), new Orthographic(40, -100), new FlatEarth());
+
+  private static double[][] makeLatLon(int n) {
+    Random random = new Random(17);
+    double[] lat = new double[n];
+    double[] lon = new double[n];
+    for (int i = 0; i < n; i++) {
+      lat[i] = random.nextDouble() * 200 - 100; // some are out of range
+      lon[i] = random.nextDouble() * 800 - 400;
+    }
+    lat[0] = 90;
+    lat[1] = -90;
+    lon[2] = 180;
+    lat[3] = Double.NaN;
+    return new double[][] {lat, lon};
+  }
+
+  // the projection of lat/lon points, plus some scattered points
+  private static double[][] makeXY(Projection proj, int n) {
+    double[][] latlon = makeLatLon(n);
+    Random random = new Random(71);
+    double[] x = new double[n];
+    double[] y = new double[n];
+    for (int i = 0; i < n; i++) {
+      if (i % 4 == 0) {
+        x[i] = (random.nextDouble() - 0.5) * (proj.isLatLon() ? 360 : 10000);
+        y[i] = (random.nextDouble() - 0.5) * (proj.isLatLon() ? 360 : 10000);
+      } else {
+        ProjectionPoint pt = proj.latLonToProj(latlon[0][i], latlon[1][i]);
+        x[i] = pt.getX();
+        y[i] = pt.getY();
+      }
+      if (proj instanceof RotatedPole && Math.abs(y[i]) > 90) {
+        y[i] = 0;
+      }
+    }
+    return new double[][] {x, y};
+  }
+
+  @Test
+  public void testLatLonToProj() {
+    int n = 1000;
+    for (Projection proj : projections) {
+      double[][] latlon = makeLatLon(n);
+      double[] lat = latlon[0];
+      double[] lon = latlon[1];
+      double[] expectedX = new double[n];
+      double[] expectedY = new double[n];
+      for (int i = 0; i < n; i++) {
+        ProjectionPoint pt = proj.latLonToProj(lat[i], lon[i]);
+        expectedX[i] = pt.getX();
+        expectedY[i] = pt.getY();
+      }
+
+      double[] x = new double[n];
+      double[] y = new double[n];
+      proj.latLonToProj(lat, lon, x, y);
+      assertWithMessage(proj.getName() + " x").that(x).isEqualTo(expectedX);
+      assertWithMessage(proj.getName() + " y").that(y).isEqualTo(expectedY);
+
+      // in place
+      proj.latLonToProj(lat, lon, lat, lon);
+      assertThat(lat).isEqualTo(expectedX);
+      assertThat(lon).isEqualTo(expectedY);
+    }
+  }
+
+  @Test
+  public void testProjToLatLon() {
+    int n = 1000;
+    for (Projection proj : projections) {
+      double[][] xy = makeXY(proj, n);
+      double[] x = xy[0];
+      double[] y = xy[1];
+      double[] expectedLat = new double[n];
+      double[] expectedLon = new double[n];
+      for (int i = 0; i < n; i++) {
+        LatLonPoint pt = proj.projToLatLon(x[i], y[i]);
+        expectedLat[i] = pt.getLatitude();
+        expectedLon[i] = pt.getLongitude();
+      }
+
+      double[] lat = new double[n];
+      double[] lon = new double[n];
+      proj.projToLatLon(x, y, lat, lon);
+      assertWithMessage(proj.getName() + " lat").that(lat).isEqualTo(expectedLat);
+      assertWithMessage(proj.getName() + " lon").that(lon).isEqualTo(expectedLon);
+
+      // in place
+      proj.projToLatLon(x, y, x, y);
+      assertThat(x).isEqualTo(expectedLat);
+      assertThat(y).isEqualTo(expectedLon);
+    }
+  }
+
+  @Test
+  public void testParallel() {
+    int n = 100_000; // several chunks
+    Projection proj = new LambertConformal(25, 265, 25, 25);
+    double[][] latlon = makeLatLon(n);
+    double[] x = new double[n];
+    double[] y = new double[n];
+    proj.latLonToProj(latlon[0], latlon[1], x, y);
+    double[] px = new double[n];
+    double[] py = new double[n];
+    proj.latLonToProjParallel(latlon[0], latlon[1], px, py);
+    assertThat(px).isEqualTo(x);
+    assertThat(py).isEqualTo(y);
+
+    double[] lat = new double[n];
+    double[] lon = new double[n];
+    proj.projToLatLon(x, y, lat, lon);
+    proj.projToLatLonParallel(x, y, x, y);
+    assertThat(x).isEqualTo(lat);
+    assertThat(y).isEqualTo(lon);
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testLengthMismatch() {
+    new Mercator().projToLatLon(new double[3], new double[3], new double[3], new double[2]);
+  }
+}
@@ -0,0 +1,251 @@
+/*
+ * Copyright (c) 1998-2021 John Caron and University Corporation for Atmospheric Research/Unidata
+ * See LICENSE for license information.
+ */
+package ucar.unidata.io;
+
+import static com.google.common.truth.Truth.assertThat;
+import static org.junit.Assert.fail;
+
+import java.io.EOFException;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import org.junit.BeforeClass;
+import org.junit.ClassRule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import ucar.ma2.Section;
+import ucar.nc2.NetcdfFile;
+import ucar.nc2.NetcdfFiles;
+import ucar.nc2.Variable;
+import ucar.nc2.internal.util.CompareArrayToArray;
+
+/** Test {@link MappedRandomAccessFile} */
+public class TestMappedRandomAccessFile {
+
+  @ClassRule
+  public static final TemporaryFolder tempFolder = new TemporaryFolder();
+
+  // use small segments, so that reads cross segment boundaries
+  private static final int SEGMENT_SIZE = 1000;
+  private static final int NBYTES = 10 * 1000 + 17;
+
+  private static String path;
+  private static byte[] contents;
+
+  @BeforeClass
+  public static void setUpTests() throws IOException {
+    contents = new byte[NBYTES];
+    for (int i = 0; i < NBYTES; i++) {
+      contents[i] = (byte) (i * 31 + i / 7);
+    }
+    byte[] marker = "MARKER".getBytes(StandardCharsets.UTF_8);
+    System.arraycopy(marker, 0, contents, 3 * SEGMENT_SIZE - 2, marker.length);
+    path = tempFolder.newFile().getAbsolutePath();
+    try (FileOutputStream out = new FileOutputStream(path)) {
+      out.write(contents);
+    }
+  }
+
+  @Test
+  public void testReadBytes() throws IOException {
+    try (MappedRandomAccessFile raf = new MappedRandomAccessFile(path, SEGMENT_SIZE)) {
+      assertThat(raf.length()).isEqualTo(NBYTES);
+      raf.seek(SEGMENT_SIZE - 3);
+      assertThat(raf.read()).isEqualTo(contents[SEGMENT_SIZE - 3] & 0xff);
+
+      byte[] b = new byte[2 * SEGMENT_SIZE + 10];
+      raf.readFully(b);
+      for (int i = 0; i < b.length; i++) {
+        assertThat(b[i]).isEqualTo(contents[SEGMENT_SIZE - 2 + i]);
+      }
+      assertThat(raf.getFilePointer()).isEqualTo(3 * SEGMENT_SIZE + 8);
+
+      raf.seek(NBYTES - 2);
+      assertThat(raf.read(b, 0, 10)).isEqualTo(2);
+      assertThat(raf.read(b, 0, 10)).isEqualTo(-1);
+      assertThat(raf.read()).isEqualTo(-1);
+      assertThat(raf.isAtEndOfFile()).isTrue();
+
+      raf.seek(NBYTES - 2);
+      try {
+        raf.readFully(b, 0, 10);
+        fail();
+      } catch (EOFException e) {
+        // expected
+      }
+    }
+  }
+
+  @Test
+  public void testReadPrimitives() throws IOException {
+    readPrimitives(ByteOrder.BIG_ENDIAN);
+    readPrimitives(ByteOrder.LITTLE_ENDIAN);
+  }
+
+  private void readPrimitives(ByteOrder bo) throws IOException {
+    ByteBuffer expected = ByteBuffer.wrap(contents).order(bo);
+    try (MappedRandomAccessFile raf = new MappedRandomAccessFile(path, SEGMENT_SIZE)) {
+      raf.order(bo);
+      raf.seek(5);
+      assertThat(raf.readInt()).isEqualTo(expected.getInt(5));
+      assertThat(raf.readDouble()).isEqualTo(expected.getDouble(9));
+
+      int offset = 3; // values straddle the segment boundaries
+      int n = (NBYTES - offset) / 4;
+      raf.seek(offset);
+      int[] ints = new int[n];
+      raf.readInt(ints, 0, n);
+      for (int i = 0; i < n; i++) {
+        assertThat(ints[i]).isEqualTo(expected.getInt(offset + 4 * i));
+      }
+
+      raf.seek(offset);
+      n = (NBYTES - offset) / 8;
+      double[] doubles = new double[n];
+      raf.readDouble(doubles, 0, n);
+      for (int i = 0; i < n; i++) {
+        assertThat(Double.doubleToRawLongBits(doubles[i])).isEqualTo(expected.getLong(offset + 8 * i));
+      }
+
+      raf.seek(offset);
+      n = (NBYTES - offset) / 2;
+      short[] shorts = new short[n];
+      raf.readShort(shorts, 0, n);
+      for (int i = 0; i < n; i++) {
+        assertThat(shorts[i]).isEqualTo(expected.getShort(offset + 2 * i));
+      }
+
+      raf.seek(NBYTES - 12);
+      try {
+        raf.readLong(new long[2], 0, 2);
+        fail();
+      } catch (EOFException e) {
+        // expected
+      }
+    }
+  }
+
+  @Test
+  public void testGetByteBuffer() throws IOException {
+    try (MappedRandomAccessFile raf = new MappedRandomAccessFile(path, SEGMENT_SIZE)) {
+      raf.seek(7);
+      // within one segment
+      ByteBuffer bb = raf.getByteBuffer(SEGMENT_SIZE + 10, 100);
+      assertThat(bb.isReadOnly()).isTrue();
+      assertThat(bb.remaining()).isEqualTo(100);
+      for (int i = 0; i < 100; i++) {
+        assertThat(bb.get(i)).isEqualTo(contents[SEGMENT_SIZE + 10 + i]);
+      }
+      // across segments
+      bb = raf.getByteBuffer(SEGMENT_SIZE - 10, 2 * SEGMENT_SIZE);
+      assertThat(bb.remaining()).isEqualTo(2 * SEGMENT_SIZE);
+      for (int i = 0; i < 2 * SEGMENT_SIZE; i++) {
+        assertThat(bb.get(i)).isEqualTo(contents[SEGMENT_SIZE - 10 + i]);
+      }
+      assertThat(raf.getFilePointer()).isEqualTo(7);
+
+      try {
+        raf.getByteBuffer(NBYTES - 10, 11);
+        fail();
+      } catch (EOFException e) {
+        // expected
+      }
+    }
+  }
+
+  @Test
+  public void testSearchForward() throws IOException {
+    try (MappedRandomAccessFile raf = new MappedRandomAccessFile(path, SEGMENT_SIZE)) {
+      raf.seek(0);
+      assertThat(raf.searchForward(new KMPMatch("MARKER".getBytes(StandardCharsets.UTF_8)), -1)).isTrue();
+      assertThat(raf.getFilePointer()).isEqualTo(3 * SEGMENT_SIZE - 2);
+
+      raf.seek(0);
+      assertThat(raf.searchForward(new KMPMatch("MARKER".getBytes(StandardCharsets.UTF_8)), 100)).isFalse();
+      assertThat(raf.getFilePointer()).isEqualTo(100);
+    }
+  }
+
+  @Test
+  public void testMemoryMapThreshold() throws IOException {
+    long save = RandomAccessFile.getMemoryMapThreshold();
+    try {
+      RandomAccessFile.setMemoryMapThreshold(NBYTES + 1);
+      try (RandomAccessFile raf = RandomAccessFile.acquire(path)) {
+        assertThat(raf).isNotInstanceOf(MappedRandomAccessFile.class);
+      }
+      RandomAccessFile.setMemoryMapThreshold(NBYTES);
+      try (RandomAccessFile raf = RandomAccessFile.acquire(path)) {
+        assertThat(raf).isInstanceOf(MappedRandomAccessFile.class);
+      }
+    } finally {
+      RandomAccessFile.setMemoryMapThreshold(save);
+    }
+  }
+
+  @Test
+  public void testOpenMapped() throws IOException {
+    String filename = "src/test/data/testWrite.nc";
+    try (NetcdfFile mapped = NetcdfFiles.openMapped(filename, null); NetcdfFile org = NetcdfFiles.open(filename)) {
+      assertThat(CompareArrayToArray.compareFiles(org, mapped)).isTrue();
+    }
+  }
+
+  @Test
+  public void testReadSectionsMapped() throws Exception {
+    String filename = "src/test/data/testWrite.nc";
+    try (NetcdfFile mapped = NetcdfFiles.openMapped(filename, null); NetcdfFile org = NetcdfFiles.open(filename)) {
+      int count = 0;
+      for (Variable v : org.getVariables()) {
+        if (v.getRank() == 0)
+          continue;
+        Section.Builder sb = Section.builder();
+        for (int len : v.getShape()) {
+          sb.appendRange(len > 2 ? 1 : 0, len - 1, len > 2 ? 2 : 1);
+        }
+        Section section = sb.build();
+        ucar.array.Section arraySection = new ucar.array.Section(section.toString());
+        Variable mv = mapped.findVariable(v.getFullName());
+        assertThat(
+            CompareArrayToArray.compareData(v.getShortName(), v.readArray(arraySection), mv.readArray(arraySection)))
+                .isTrue();
+        assertThat(Arrays.deepEquals(new Object[] {v.read(section).copyTo1DJavaArray()},
+            new Object[] {mv.read(section).copyTo1DJavaArray()})).isTrue();
+        count++;
+      }
+      assertThat(count).isGreaterThan(0);
+    }
+  }
+
+  @Test
+  public void testOpenMappedFailure() throws IOException {
+    String expected = null;
+    try (NetcdfFile ncfile = NetcdfFiles.open(path)) {
+      fail();
+    } catch (IOException e) {
+      expected = e.getCause().getMessage(); // open wraps the exception
+    }
+    try (NetcdfFile ncfile = NetcdfFiles.openMapped(path, null)) {
+      fail();
+    } catch (IOException e) {
+      assertThat(e.getMessage()).isEqualTo(expected);
+    }
+  }
+
+  @Test
+  public void testCloseUnmaps() throws IOException {
+    MappedRandomAccessFile raf = new MappedRandomAccessFile(path, SEGMENT_SIZE);
+    raf.close();
+    try {
+      raf.getByteBuffer(0, 10);
+      fail();
+    } catch (NullPointerException e) {
+      // expected, the segments are gone
+    }
+  }
+}
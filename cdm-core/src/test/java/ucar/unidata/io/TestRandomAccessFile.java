@@ -783,6 +783,90 @@ public class TestRandomAccessFile {
     tempFile.close();
   }
 
+  ///////////////////////////
+  // Test bulk reads of primitive arrays
+
+  @Test
+  public void testReadArraysInBulk() throws IOException {
+    readArraysInBulk(ByteOrder.BIG_ENDIAN);
+    readArraysInBulk(ByteOrder.LITTLE_ENDIAN);
+  }
+
+  private void readArraysInBulk(ByteOrder bo) throws IOException {
+    // larger than the direct buffer, so the reads cross buffer windows, straddle values, and go through the channel
+    int n = 100 * 1000;
+    ByteBuffer bb = ByteBuffer.allocate(8 * n).order(bo);
+    for (int i = 0; i < n; i++) {
+      bb.putLong(i * 8, i * 1000003L);
+    }
+    String path = tempFolder.newFile().getAbsolutePath();
+    try (java.io.FileOutputStream out = new java.io.FileOutputStream(path)) {
+      out.write(bb.array());
+    }
+
+    try (RandomAccessFile raf = new RandomAccessFile(path, "r", 1000)) {
+      raf.order(bo);
+      // odd offset so that values straddle the end of the buffer
+      int offset = 3;
+      int count = (8 * n - offset) / 8;
+      raf.seek(offset);
+      raf.readShort(); // fill the buffer first
+      long[] longs = new long[count];
+      raf.readLong(longs, 0, count - 2);
+      for (int i = 0; i < count - 2; i++) {
+        assertThat(longs[i]).isEqualTo(bb.getLong(offset + 2 + i * 8));
+      }
+      assertThat(raf.getFilePointer()).isEqualTo(offset + 2 + 8L * (count - 2));
+
+      raf.seek(offset);
+      int[] ints = new int[2 * count];
+      raf.readInt(ints, 1, 2 * count - 1);
+      for (int i = 0; i < 2 * count - 1; i++) {
+        assertThat(ints[i + 1]).isEqualTo(bb.getInt(offset + i * 4));
+      }
+
+      raf.seek(offset);
+      short[] shorts = new short[4 * count];
+      raf.readShort(shorts, 0, shorts.length);
+      for (int i = 0; i < shorts.length; i++) {
+        assertThat(shorts[i]).isEqualTo(bb.getShort(offset + i * 2));
+      }
+
+      raf.seek(0);
+      float[] floats = new float[2 * n];
+      raf.readFloat(floats, 0, floats.length);
+      for (int i = 0; i < floats.length; i++) {
+        assertThat(Float.floatToRawIntBits(floats[i])).isEqualTo(bb.getInt(i * 4));
+      }
+
+      raf.seek(0);
+      double[] doubles = new double[n];
+      raf.readDouble(doubles, 0, n);
+      for (int i = 0; i < n; i++) {
+        assertThat(Double.doubleToRawLongBits(doubles[i])).isEqualTo(bb.getLong(i * 8));
+      }
+      assertThat(raf.getFilePointer()).isEqualTo(raf.length());
+
+      raf.seek(8);
+      try {
+        raf.readDouble(doubles, 0, n);
+        fail();
+      } catch (java.io.EOFException e) {
+        // expected
+      }
+    }
+
+    try (RandomAccessFile raf = new InMemoryRandomAccessFile("bulk", bb.array())) {
+      raf.order(bo);
+      raf.seek(1);
+      int[] ints = new int[2 * n - 1];
+      raf.readInt(ints, 0, ints.length);
+      for (int i = 0; i < ints.length; i++) {
+        assertThat(ints[i]).isEqualTo(bb.getInt(1 + i * 4));
+      }
+    }
+  }
+
   ///////////////////////////
   // Test read and write UTF-16
   @Test
@@ -0,0 +1,323 @@
+/*
+ * Copyright (c) 1998-2021 John Caron and University Corporation for Atmospheric Research/Unidata
+ * See LICENSE for license information.
+ */
+package ucar.unidata.io;
+
+import static com.google.common.truth.Truth.assertThat;
+import static org.junit.Assert.fail;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteOrder;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import ucar.ma2.DataType;
+import ucar.ma2.InvalidRangeException;
+import ucar.ma2.Section;
+import ucar.nc2.iosp.IospHelper;
+import ucar.nc2.iosp.LayoutRegular;
+
+/** Test {@link RemoteBlockCache} */
+public class TestRemoteBlockCache {
+  private static final int BLOCK_SIZE = 100;
+  private static final int NBYTES = 10 * BLOCK_SIZE + 37;
+  private static final byte[] contents = new byte[NBYTES];
+
+  static {
+    for (int i = 0; i < NBYTES; i++) {
+      contents[i] = (byte) (i * 7);
+    }
+  }
+
+  /** A remote file in memory, that counts the remote reads. */
+  private static class FakeRemoteFile extends RemoteRandomAccessFile {
+    final AtomicInteger nreads = new AtomicInteger();
+    final String version;
+
+    FakeRemoteFile(String url, String version) {
+      super(url, BLOCK_SIZE, 10 * BLOCK_SIZE);
+      this.version = version;
+    }
+
+    @Override
+    public int readRemote(long pos, byte[] buff, int offset, int len) {
+      nreads.incrementAndGet();
+      int n = (int) Math.min(len, NBYTES - pos);
+      System.arraycopy(contents, (int) pos, buff, offset, n);
+      return n;
+    }
+
+    @Override
+    public void closeRemote() {}
+
+    @Override
+    public long length() {
+      return NBYTES;
+    }
+
+    @Override
+    protected String getVersionTag() {
+      return version;
+    }
+  }
+
+  /** A remote file whose reads stop short at a given position, like a truncated response. */
+  private static class TruncatingRemoteFile implements ReadableRemoteFile {
+    final AtomicInteger nreads = new AtomicInteger();
+    final int stopAt;
+
+    TruncatingRemoteFile(int stopAt) {
+      this.stopAt = stopAt;
+    }
+
+    @Override
+    public int readRemote(long pos, byte[] buff, int offset, int len) {
+      nreads.incrementAndGet();
+      int n = (int) Math.min(len, stopAt - pos);
+      if (n <= 0)
+        return -1;
+      System.arraycopy(contents, (int) pos, buff, offset, n);
+      return n;
+    }
+
+    @Override
+    public void closeRemote() {}
+
+    @Override
+    public void close() {}
+  }
+
+  @Before
+  public void setup() {
+    RemoteBlockCache.init(100 * 1000);
+  }
+
+  @After
+  public void reset() {
+    RemoteBlockCache.init(64 * 1024 * 1024);
+  }
+
+  private void checkBytes(byte[] b, int pos) {
+    for (int i = 0; i < b.length; i++) {
+      assertThat(b[i]).isEqualTo(contents[pos + i]);
+    }
+  }
+
+  @Test
+  public void testCoalesceAndShare() throws IOException {
+    try (FakeRemoteFile raf = new FakeRemoteFile("http://test/coalesce", "v1")) {
+      byte[] b = new byte[3 * BLOCK_SIZE];
+      assertThat(raf.read_(5 * BLOCK_SIZE + 10, b, 0, b.length)).isEqualTo(b.length);
+      checkBytes(b, 5 * BLOCK_SIZE + 10);
+      // 4 missing blocks in one request
+      assertThat(raf.nreads.get()).isEqualTo(1);
+    }
+
+    // another instance of the same file uses the cached blocks
+    try (FakeRemoteFile raf = new FakeRemoteFile("http://test/coalesce", "v1")) {
+      byte[] b = new byte[2 * BLOCK_SIZE];
+      assertThat(raf.read_(6 * BLOCK_SIZE, b, 0, b.length)).isEqualTo(b.length);
+      checkBytes(b, 6 * BLOCK_SIZE);
+      assertThat(raf.nreads.get()).isEqualTo(0);
+    }
+
+    // a changed file does not
+    try (FakeRemoteFile raf = new FakeRemoteFile("http://test/coalesce", "v2")) {
+      byte[] b = new byte[2 * BLOCK_SIZE];
+      raf.read_(6 * BLOCK_SIZE, b, 0, b.length);
+      assertThat(raf.nreads.get()).isEqualTo(1);
+    }
+
+    RemoteBlockCache cache = RemoteBlockCache.getInstance();
+    assertThat(cache.getRemoteRequestCount()).isEqualTo(2);
+    assertThat(cache.getHitCount()).isEqualTo(2);
+  }
+
+  @Test
+  public void testEndOfFile() throws IOException {
+    try (FakeRemoteFile raf = new FakeRemoteFile("http://test/eof", "v1")) {
+      byte[] b = new byte[2 * BLOCK_SIZE];
+      assertThat(raf.read_(NBYTES - 50, b, 0, b.length)).isEqualTo(50);
+      assertThat(raf.read_(NBYTES, b, 0, b.length)).isEqualTo(-1);
+
+      // through RandomAccessFile
+      raf.seek(NBYTES - 50);
+      byte[] all = new byte[50];
+      raf.readFully(all);
+      checkBytes(all, NBYTES - 50);
+      assertThat(raf.read()).isEqualTo(-1);
+    }
+  }
+
+  @Test
+  public void testTruncatedRead() throws IOException {
+    RemoteBlockCache cache = RemoteBlockCache.getInstance();
+    TruncatingRemoteFile remote = new TruncatingRemoteFile(3 * BLOCK_SIZE / 2);
+    RemoteBlockCache.FileBlocks file =
+        new RemoteBlockCache.FileBlocks(remote, "http://test/truncated", "v1", BLOCK_SIZE, 3 * BLOCK_SIZE);
+    byte[] b = new byte[3 * BLOCK_SIZE];
+    assertThat(cache.read(file, 0, b, 0, b.length, false)).isEqualTo(3 * BLOCK_SIZE / 2);
+    checkBytes(Arrays.copyOf(b, 3 * BLOCK_SIZE / 2), 0);
+    // only the whole first block is kept
+    assertThat(cache.getSize()).isEqualTo(1);
+
+    // the short blocks are read again
+    int nreads = remote.nreads.get();
+    assertThat(cache.read(file, BLOCK_SIZE + 10, b, 0, 2 * BLOCK_SIZE, false)).isEqualTo(BLOCK_SIZE / 2 - 10);
+    checkBytes(Arrays.copyOf(b, BLOCK_SIZE / 2 - 10), BLOCK_SIZE + 10);
+    assertThat(remote.nreads.get()).isGreaterThan(nreads);
+    assertThat(cache.getSize()).isEqualTo(1);
+  }
+
+  @Test
+  public void testPrefetchSequential() throws IOException {
+    try (FakeRemoteFile raf = new FakeRemoteFile("http://test/sequential", "v1")) {
+      byte[] b = new byte[NBYTES];
+      raf.seek(0);
+      for (int i = 0; i < NBYTES; i += 10) {
+        raf.readFully(b, i, Math.min(10, NBYTES - i));
+      }
+      checkBytes(b, 0);
+      // 11 blocks, with read ahead of 1, 2, 4, 8 blocks
+      assertThat(raf.nreads.get()).isAtMost(4);
+      assertThat(RemoteBlockCache.getInstance().getPrefetchCount()).isGreaterThan(0);
+    }
+  }
+
+  @Test
+  public void testNoPrefetchRandom() throws IOException {
+    try (FakeRemoteFile raf = new FakeRemoteFile("http://test/random", "v1")) {
+      byte[] b = new byte[10];
+      raf.read_(5 * BLOCK_SIZE, b, 0, b.length);
+      raf.read_(2 * BLOCK_SIZE, b, 0, b.length);
+      raf.read_(8 * BLOCK_SIZE, b, 0, b.length);
+      assertThat(raf.nreads.get()).isEqualTo(3);
+      assertThat(RemoteBlockCache.getInstance().getPrefetchCount()).isEqualTo(0);
+      assertThat(RemoteBlockCache.getInstance().getSize()).isEqualTo(3);
+    }
+  }
+
+  @Test
+  public void testBoundedBySize() throws IOException {
+    RemoteBlockCache.init(3 * BLOCK_SIZE);
+    try (FakeRemoteFile raf = new FakeRemoteFile("http://test/bounded", "v1")) {
+      byte[] b = new byte[NBYTES];
+      assertThat(raf.read_(0, b, 0, b.length)).isEqualTo(NBYTES);
+      checkBytes(b, 0);
+      assertThat(RemoteBlockCache.getInstance().getSize()).isAtMost(3);
+    }
+  }
+
+  @Test
+  public void testDisabled() throws IOException {
+    RemoteBlockCache.init(0);
+    assertThat(RemoteBlockCache.getInstance()).isNull();
+    try (FakeRemoteFile raf = new FakeRemoteFile("http://test/disabled", "v1")) {
+      byte[] b = new byte[10];
+      raf.read_(0, b, 0, b.length);
+      raf.read_(0, b, 0, b.length);
+      assertThat(raf.nreads.get()).isEqualTo(2);
+    }
+  }
+
+  @Test
+  public void testConcurrentReaders() throws Exception {
+    int nthreads = 8;
+    List<FakeRemoteFile> files = new ArrayList<>();
+    for (int i = 0; i < nthreads; i++) {
+      files.add(new FakeRemoteFile("http://test/concurrent", "v1"));
+    }
+    ExecutorService pool = Executors.newFixedThreadPool(nthreads);
+    try {
+      List<Future<byte[]>> results = new ArrayList<>();
+      for (FakeRemoteFile raf : files) {
+        results.add(pool.submit(() -> {
+          byte[] b = new byte[NBYTES];
+          raf.read_(0, b, 0, b.length);
+          return b;
+        }));
+      }
+      for (Future<byte[]> result : results) {
+        checkBytes(result.get(), 0);
+      }
+    } finally {
+      pool.shutdown();
+    }
+    int total = 0;
+    for (FakeRemoteFile raf : files) {
+      total += raf.nreads.get();
+      raf.close();
+    }
+    // each block is fetched once
+    assertThat(RemoteBlockCache.getInstance().getRemoteBytes()).isEqualTo(NBYTES);
+    assertThat(total).isAtMost(11);
+  }
+
+  @Test
+  public void testReadVectored() throws IOException {
+    try (FakeRemoteFile raf = new FakeRemoteFile("http://test/vectored", "v1")) {
+      raf.seek(17);
+      long prefetched = RemoteBlockCache.getInstance().getPrefetchCount();
+      long[] positions = {8 * BLOCK_SIZE + 5, 10, 3 * BLOCK_SIZE - 20, NBYTES - 30};
+      byte[][] dest = {new byte[150], new byte[2 * BLOCK_SIZE], new byte[40], new byte[30]};
+      raf.readVectored(positions, dest);
+      for (int i = 0; i < positions.length; i++) {
+        checkBytes(dest[i], (int) positions[i]);
+      }
+      assertThat(raf.getFilePointer()).isEqualTo(17);
+      // the ranges are not sequential reads
+      assertThat(RemoteBlockCache.getInstance().getPrefetchCount()).isEqualTo(prefetched);
+
+      // past the end
+      try {
+        raf.readVectored(new long[] {0, NBYTES - 10}, new byte[][] {new byte[10], new byte[20]});
+        fail();
+      } catch (EOFException e) {
+        // expected
+      }
+    }
+  }
+
+  @Test
+  public void testReadVectoredNoCache() throws IOException {
+    RemoteBlockCache.init(0);
+    try (FakeRemoteFile raf = new FakeRemoteFile("http://test/vectored", "v1")) {
+      long[] positions = {5 * BLOCK_SIZE, 0, 7};
+      byte[][] dest = {new byte[3 * BLOCK_SIZE], new byte[BLOCK_SIZE], new byte[1]};
+      raf.readVectored(positions, dest);
+      for (int i = 0; i < positions.length; i++) {
+        checkBytes(dest[i], (int) positions[i]);
+      }
+      assertThat(raf.nreads.get()).isEqualTo(3);
+    }
+  }
+
+  @Test
+  public void testLayoutRegularVectored() throws IOException, InvalidRangeException {
+    int[] shape = {4, 30};
+    Section section = new Section("1:3,5:29:3");
+    for (DataType dataType : new DataType[] {DataType.BYTE, DataType.SHORT, DataType.FLOAT, DataType.DOUBLE}) {
+      int elemSize = dataType.getSize();
+      LayoutRegular local = new LayoutRegular(13, elemSize, shape, section);
+      LayoutRegular remote = new LayoutRegular(13, elemSize, shape, section);
+      Object expected;
+      try (RandomAccessFile raf = new InMemoryRandomAccessFile("local", contents)) {
+        expected = IospHelper.readDataFill(raf, local, dataType, null, ByteOrder.LITTLE_ENDIAN);
+      }
+      Object result;
+      try (FakeRemoteFile raf = new FakeRemoteFile("http://test/layout", "v1")) {
+        result = IospHelper.readDataFill(raf, remote, dataType, null, ByteOrder.LITTLE_ENDIAN);
+      }
+      assertThat(result).isEqualTo(expected);
+    }
+  }
+}
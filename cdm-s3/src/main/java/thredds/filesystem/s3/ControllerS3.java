@@ -31,8 +31,10 @@ import ucar.unidata.io.s3.CdmS3Client;
 import ucar.unidata.io.s3.CdmS3Uri;
 
 /**
- * Implements an MController without caching, reading from the object store each time.
- * recheck is ignored (always true)
+ * Implements an MController for objects stored on AWS S3 compatible object stores.
+ * getInventoryAll() lists the sub-prefixes of the collection concurrently, and caches the listings, see S3Inventory;
+ * if recheck is true, the listings are read again. The other methods read from the object store each time, and ignore
+ * recheck.
  */
 public class ControllerS3 implements MController {
 
@@ -77,9 +79,97 @@ public class ControllerS3 implements MController {
     if (initialUri.getKey().isPresent()) {
       prefix = initialUri.getKey().get();
     }
-    // to get all inventory, we need to make the listObject call in MFileS3Iterator without a delimiter.
-    // but, we want the resulting MFile object to retain CdmS3Uri objects that continue to have a delimiter.
-    return new FilteredIterator(mc, new MFileS3Iterator(client, initialUri, prefix, limit, true), true, true);
+    if (limit) {
+      // to get all inventory, we need to make the listObject call in MFileS3Iterator without a delimiter.
+      // but, we want the resulting MFile object to retain CdmS3Uri objects that continue to have a delimiter.
+      return new FilteredIterator(mc, new MFileS3Iterator(client, initialUri, prefix, limit, true), true, true);
+    }
+
+    // fan out across the levels of the keys, even if the collection does not use a delimiter
+    String delimiter = initialUri.getDelimiter().orElse("/");
+    S3Inventory inventory = new S3Inventory(bucketId(initialUri), delimiter, S3Inventory.fanoutDepth, this::listPage);
+    List<S3Object> objects = inventory.list(prefix, recheck);
+    List<MFile> mFiles = new ArrayList<>(objects.size());
+    for (S3Object object : objects) {
+      try {
+        // the resulting MFile objects retain the delimiter of the collection
+        CdmS3Uri cdmS3Uri = initialUri.resolveNewKey(object.key());
+        if (object.size() != null && object.lastModified() != null) {
+          mFiles.add(new MFileS3(cdmS3Uri, object.size(), object.lastModified().toEpochMilli()));
+        } else {
+          mFiles.add(new MFileS3(cdmS3Uri));
+        }
+      } catch (URISyntaxException e) {
+        logger.warn("Cannot create MFile for {} in bucket {}", object.key(), initialUri.getBucket(), e);
+      }
+    }
+    return new FilteredIterator(mc, mFiles.iterator(), true, true);
+  }
+
+  // one page of a listing, for S3Inventory; may be called from several threads at once
+  private S3Inventory.Page listPage(@Nullable String prefix, @Nullable String delimiter,
+      @Nullable String continuationToken) {
+    if (initialUri.isAws()) {
+      ListObjectsV2Request.Builder builder = ListObjectsV2Request.builder().bucket(initialUri.getBucket());
+      if (prefix != null)
+        builder.prefix(prefix);
+      if (delimiter != null)
+        builder.delimiter(delimiter);
+      if (continuationToken != null)
+        builder.continuationToken(continuationToken);
+      ListObjectsV2Response res = client.listObjectsV2(builder.build());
+      return new S3Inventory.Page(res.contents(), getPrefixes(res.commonPrefixes()),
+          res.isTruncated() ? res.nextContinuationToken() : null);
+    }
+
+    ListObjectsRequest.Builder builder = ListObjectsRequest.builder().bucket(initialUri.getBucket());
+    if (prefix != null)
+      builder.prefix(prefix);
+    if (delimiter != null)
+      builder.delimiter(delimiter);
+    if (continuationToken != null)
+      builder.marker(continuationToken);
+    ListObjectsResponse res = client.listObjects(builder.build());
+    List<String> prefixes = getPrefixes(res.commonPrefixes());
+    String marker = null;
+    if (res.isTruncated()) {
+      // NextMarker is only returned when there is a delimiter, otherwise continue after the last key
+      marker = res.nextMarker();
+      if (marker == null && !res.contents().isEmpty())
+        marker = res.contents().get(res.contents().size() - 1).key();
+      if (marker == null && !prefixes.isEmpty())
+        marker = prefixes.get(prefixes.size() - 1);
+    }
+    return new S3Inventory.Page(res.contents(), prefixes, marker);
+  }
+
+  private static List<String> getPrefixes(List<CommonPrefix> commonPrefixes) {
+    List<String> result = new ArrayList<>(commonPrefixes.size());
+    for (CommonPrefix commonPrefix : commonPrefixes) {
+      result.add(commonPrefix.prefix());
+    }
+    return result;
+  }
+
+  // identifies the object store and bucket in the listing cache
+  private static String bucketId(CdmS3Uri uri) {
+    return uri.getEndpoint().map(Object::toString).orElse("") + "|" + uri.getProfile().orElse("") + "|"
+        + uri.getBucket();
+  }
+
+  /**
+   * Remove the cached listings of the objects under a location, so the next getInventoryAll() lists them again.
+   *
+   * @param location a cdms3 uri; if it has no key, the listings of the whole bucket are removed.
+   */
+  public static void invalidate(String location) throws IOException {
+    CdmS3Uri uri;
+    try {
+      uri = new CdmS3Uri(location);
+    } catch (URISyntaxException ue) {
+      throw new IOException("Cannot create a CdmS3Uri from " + location, ue);
+    }
+    S3Inventory.invalidate(bucketId(uri), uri.getKey().orElse(null));
   }
 
   @Override
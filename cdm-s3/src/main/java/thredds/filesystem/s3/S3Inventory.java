@@ -0,0 +1,305 @@
+/*
+ * Copyright (c) 1998-2021 John Caron and University Corporation for Atmospheric Research/Unidata
+ * See LICENSE for license information.
+ */
+
+package thredds.filesystem.s3;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.collect.ImmutableList;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.TimeUnit;
+import javax.annotation.Nullable;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import software.amazon.awssdk.services.s3.model.S3Object;
+
+/**
+ * Lists all the objects under a prefix of a bucket, for {@link ControllerS3#getInventoryAll}.
+ * <p/>
+ * A list request returns at most 1000 keys, and the pages of one listing must be requested one after another.
+ * So the prefix is listed with the delimiter down to -Dthredds.s3.listing.fanoutDepth levels (default 2), and the
+ * sub-prefixes of each level are listed concurrently on a shared, bounded Executor of -Dthredds.s3.listing.threads
+ * threads (default 16). The sub-prefixes of the last level are listed without the delimiter. This suits the usual
+ * date-partitioned layouts, eg product/year/day/hour/file.
+ * <p/>
+ * Each listing is kept in a process-wide cache for -Dthredds.s3.listing.ttlSecs seconds (default 600, 0 disables
+ * the cache), up to -Dthredds.s3.listing.cacheSize objects in all (default 500000).
+ * A rescan that must be in sync with the object store (recheck) lists everything again, and replaces the cached
+ * listings. With -Dthredds.s3.listing.partialRecheck=true, a recheck lists again only the prefixes that may have
+ * changed: the last sub-prefix at each level, which in a date-partitioned layout is where new keys are added, along
+ * with the levels above it, the sub-prefixes not yet in the cache, and the ones that were last when they were cached.
+ * Other changes are then found only when their listings expire, or after {@link #invalidate}.
+ */
+class S3Inventory {
+  private static final Logger logger = LoggerFactory.getLogger(S3Inventory.class);
+
+  // System property names for -D flags
+  private static final String FANOUTDEPTH_PROPERTY = "thredds.s3.listing.fanoutDepth";
+  private static final String THREADS_PROPERTY = "thredds.s3.listing.threads";
+  private static final String TTL_PROPERTY = "thredds.s3.listing.ttlSecs";
+  private static final String CACHESIZE_PROPERTY = "thredds.s3.listing.cacheSize";
+  private static final String PARTIALRECHECK_PROPERTY = "thredds.s3.listing.partialRecheck";
+
+  static final int fanoutDepth = readProperty(FANOUTDEPTH_PROPERTY, 2);
+  private static final int listingThreads = readProperty(THREADS_PROPERTY, 16);
+  private static final int ttlSecs = readProperty(TTL_PROPERTY, 600);
+  private static final int cacheSize = readProperty(CACHESIZE_PROPERTY, 500 * 1000);
+  private static final boolean partialRecheckDefault = Boolean.getBoolean(PARTIALRECHECK_PROPERTY);
+
+  private static final Cache<String, Listing> cache =
+      CacheBuilder.newBuilder().expireAfterWrite(ttlSecs, TimeUnit.SECONDS).maximumWeight(cacheSize)
+          .weigher((String key, Listing listing) -> 1 + listing.objects.size() + listing.commonPrefixes.size()).build();
+
+  private static Executor executor;
+  private static boolean executorSet;
+
+  private static int readProperty(String name, int defaultValue) {
+    String prop = System.getProperty(name);
+    if (prop != null) {
+      try {
+        int value = Integer.parseInt(prop);
+        if (value >= 0)
+          return value;
+        logger.warn(String.format("-D%s must be >= 0", name));
+      } catch (NumberFormatException nfe) {
+        logger.warn(String.format("-D%s is not an integer", name));
+      }
+    }
+    return defaultValue;
+  }
+
+  /**
+   * Set the Executor used to list sub-prefixes, shared by all collections. Set to null to list them on the calling
+   * thread. If never set, a daemon thread pool of -Dthredds.s3.listing.threads threads is used.
+   */
+  static synchronized void setExecutor(@Nullable Executor exec) {
+    executor = exec;
+    executorSet = true;
+  }
+
+  @Nullable
+  private static synchronized Executor getExecutor() {
+    if (!executorSet && listingThreads > 1) {
+      executor = Executors.newFixedThreadPool(listingThreads,
+          new ThreadFactoryBuilder().setNameFormat("S3Listing-%d").setDaemon(true).build());
+      executorSet = true;
+    }
+    return executor;
+  }
+
+  /**
+   * Remove the cached listings of a prefix and everything under it.
+   *
+   * @param bucketId identifies the object store and bucket, see ControllerS3.
+   * @param prefix the prefix, or null for the whole bucket.
+   */
+  static void invalidate(String bucketId, @Nullable String prefix) {
+    String start = bucketId + '\n' + (prefix == null ? "" : prefix);
+    cache.asMap().keySet().removeIf(key -> key.startsWith(start));
+  }
+
+  /** Remove all cached listings. */
+  static void clearCache() {
+    cache.invalidateAll();
+  }
+
+  // the prefix first, so that invalidate can match a prefix and everything under it
+  private static String cacheKey(String bucketId, @Nullable String prefix, String delimiter) {
+    return bucketId + '\n' + (prefix == null ? "" : prefix) + '\n' + delimiter;
+  }
+
+  /** Makes list requests. */
+  interface Lister {
+    /**
+     * Request one page of a listing.
+     *
+     * @param prefix list the keys that start with this, may be null.
+     * @param delimiter if not null, group the keys that contain it after the prefix into common prefixes.
+     * @param continuationToken from the previous page, or null for the first page.
+     */
+    Page listPage(@Nullable String prefix, @Nullable String delimiter, @Nullable String continuationToken);
+  }
+
+  /** One page of a listing. */
+  static class Page {
+    final List<S3Object> objects;
+    final List<String> commonPrefixes;
+    @Nullable
+    final String nextContinuationToken; // null if this is the last page
+
+    Page(List<S3Object> objects, List<String> commonPrefixes, @Nullable String nextContinuationToken) {
+      this.objects = objects;
+      this.commonPrefixes = commonPrefixes;
+      this.nextContinuationToken = nextContinuationToken;
+    }
+  }
+
+  // All the pages of a prefix.
+  private static class Listing {
+    final ImmutableList<S3Object> objects;
+    final ImmutableList<String> commonPrefixes;
+    final boolean open; // was the last prefix of its level when listed
+
+    Listing(List<S3Object> objects, List<String> commonPrefixes, boolean open) {
+      this.objects = ImmutableList.copyOf(objects);
+      this.commonPrefixes = ImmutableList.copyOf(commonPrefixes);
+      this.open = open;
+    }
+  }
+
+  // A prefix to list.
+  private static class Want {
+    final String prefix;
+    final boolean open; // the last prefix of its level, under a prefix that is also open
+    Listing listing;
+
+    Want(@Nullable String prefix, boolean open) {
+      this.prefix = prefix;
+      this.open = open;
+    }
+  }
+
+  ////////////////////////////////////////////////////////////////////////////////////////////
+
+  private final String bucketId;
+  private final String delimiter;
+  private final int depth;
+  private final Lister lister;
+  private final boolean partialRecheck;
+
+  /**
+   * Constructor. A recheck is partial if -Dthredds.s3.listing.partialRecheck is true.
+   *
+   * @param bucketId identifies the object store and bucket in the shared cache.
+   * @param delimiter separates the levels of the keys, eg "/".
+   * @param depth number of levels listed with the delimiter, 0 lists the prefix without it.
+   * @param lister makes the list requests; called from several threads at once.
+   */
+  S3Inventory(String bucketId, String delimiter, int depth, Lister lister) {
+    this(bucketId, delimiter, depth, lister, partialRecheckDefault);
+  }
+
+  /**
+   * Constructor.
+   *
+   * @param bucketId identifies the object store and bucket in the shared cache.
+   * @param delimiter separates the levels of the keys, eg "/".
+   * @param depth number of levels listed with the delimiter, 0 lists the prefix without it.
+   * @param lister makes the list requests; called from several threads at once.
+   * @param partialRecheck if true, a recheck lists again only the prefixes that may have changed.
+   */
+  S3Inventory(String bucketId, String delimiter, int depth, Lister lister, boolean partialRecheck) {
+    this.bucketId = bucketId;
+    this.delimiter = delimiter;
+    this.depth = depth;
+    this.lister = lister;
+    this.partialRecheck = partialRecheck;
+  }
+
+  /**
+   * List all the objects under a prefix.
+   *
+   * @param prefix list the keys that start with this, may be null.
+   * @param recheck if false, use any cached listing; otherwise list everything again, or only the prefixes that may
+   *        have changed if the recheck is partial.
+   * @return the objects, sorted by key.
+   */
+  List<S3Object> list(@Nullable String prefix, boolean recheck) {
+    List<S3Object> result = new ArrayList<>();
+    List<Want> level = ImmutableList.of(new Want(prefix, true));
+    for (int i = 0; i <= depth && !level.isEmpty(); i++) {
+      String levelDelimiter = (i < depth) ? delimiter : null;
+      listLevel(level, levelDelimiter, recheck);
+
+      List<Want> next = new ArrayList<>();
+      for (Want want : level) {
+        result.addAll(want.listing.objects);
+        List<String> prefixes = want.listing.commonPrefixes;
+        for (int j = 0; j < prefixes.size(); j++) {
+          next.add(new Want(prefixes.get(j), want.open && j == prefixes.size() - 1));
+        }
+      }
+      level = next;
+    }
+    result.sort(Comparator.comparing(S3Object::key));
+    return result;
+  }
+
+  // list the prefixes of one level that are not in the cache, or must be listed again, concurrently
+  private void listLevel(List<Want> level, @Nullable String levelDelimiter, boolean recheck) {
+    List<Want> missing = new ArrayList<>();
+    for (Want want : level) {
+      Listing cached = (recheck && !partialRecheck) ? null
+          : cache.getIfPresent(cacheKey(bucketId, want.prefix, keyDelimiter(levelDelimiter)));
+      if (cached != null && !(recheck && (want.open || cached.open))) {
+        want.listing = cached;
+      } else {
+        missing.add(want);
+      }
+    }
+
+    Executor exec = getExecutor();
+    if (exec == null || missing.size() < 2) {
+      for (Want want : missing) {
+        listPrefix(want, levelDelimiter);
+      }
+      return;
+    }
+
+    List<FutureTask<Void>> tasks = new ArrayList<>(missing.size());
+    for (Want want : missing) {
+      FutureTask<Void> task = new FutureTask<>(() -> {
+        listPrefix(want, levelDelimiter);
+        return null;
+      });
+      tasks.add(task);
+      exec.execute(task);
+    }
+    try {
+      for (FutureTask<Void> task : tasks) {
+        task.get();
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new RuntimeException(e);
+    } catch (ExecutionException e) {
+      Throwable cause = e.getCause();
+      if (cause instanceof RuntimeException)
+        throw (RuntimeException) cause;
+      throw new RuntimeException(cause);
+    } finally {
+      for (FutureTask<Void> task : tasks) {
+        task.cancel(false);
+      }
+    }
+  }
+
+  private void listPrefix(Want want, @Nullable String levelDelimiter) {
+    List<S3Object> objects = new ArrayList<>();
+    List<String> prefixes = new ArrayList<>();
+    String token = null;
+    do {
+      Page page = lister.listPage(want.prefix, levelDelimiter, token);
+      objects.addAll(page.objects);
+      prefixes.addAll(page.commonPrefixes);
+      token = page.nextContinuationToken;
+    } while (token != null);
+
+    want.listing = new Listing(objects, prefixes, want.open);
+    if (ttlSecs > 0)
+      cache.put(cacheKey(bucketId, want.prefix, keyDelimiter(levelDelimiter)), want.listing);
+  }
+
+  private static String keyDelimiter(@Nullable String levelDelimiter) {
+    return levelDelimiter == null ? "" : levelDelimiter;
+  }
+}
@@ -6,6 +6,7 @@ package thredds.inventory.s3;
 
 import java.io.IOException;
 import java.net.URISyntaxException;
+import java.time.Instant;
 import java.util.Objects;
 import java.util.function.Supplier;
 import javax.annotation.Nullable;
@@ -56,6 +57,23 @@ public class MFileS3 implements MFile {
     this.headObjectResponse = () -> getHeadObjectResponse();
   }
 
+  /**
+   * Create an MFileS3 for an object whose length and last modified time are already known, for example from a
+   * listing, so that they are not requested from the object store.
+   *
+   * @param s3Uri the object
+   * @param length the length of the object in bytes
+   * @param lastModified the last modified time of the object, in msecs since the epoch
+   */
+  public MFileS3(CdmS3Uri s3Uri, long length, long lastModified) {
+    cdmS3Uri = s3Uri;
+    key = getKey();
+    delimiter = getDelimiter();
+    HeadObjectResponse response =
+        HeadObjectResponse.builder().contentLength(length).lastModified(Instant.ofEpochMilli(lastModified)).build();
+    this.headObjectResponse = () -> response;
+  }
+
   @Nullable
   private String getKey() {
     return cdmS3Uri.getKey().isPresent() ? cdmS3Uri.getKey().get() : null;
@@ -7,14 +7,20 @@ package ucar.unidata.io.s3;
 
 import static com.google.common.base.Preconditions.checkState;
 
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
 import java.io.Closeable;
 import java.io.IOException;
 import java.io.InputStream;
 import java.net.URISyntaxException;
-import software.amazon.awssdk.core.ResponseBytes;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.FutureTask;
+import javax.annotation.Nullable;
 import software.amazon.awssdk.services.s3.S3Client;
 import software.amazon.awssdk.services.s3.model.GetObjectRequest;
-import software.amazon.awssdk.services.s3.model.GetObjectResponse;
 import software.amazon.awssdk.services.s3.model.HeadObjectRequest;
 import software.amazon.awssdk.services.s3.model.HeadObjectResponse;
 import ucar.unidata.io.RandomAccessFile;
@@ -27,6 +33,10 @@ import ucar.unidata.io.spi.RandomAccessFileProvider;
  *
  * Extensions to {@link ucar.unidata.io.RandomAccessFile} and {@link ucar.unidata.io.RemoteRandomAccessFile} for
  * objects stored on AWS S3 compatible Object Stores.
+ * <p/>
+ * Reads larger than -Ducar.unidata.io.s3.partSize bytes (default 8 MiB) are split into parts, which are requested
+ * concurrently with ranged GETs on a shared, bounded Executor of -Ducar.unidata.io.s3.maxConcurrentParts threads
+ * (default 8, 0 or 1 requests the parts one after another).
  *
  * @author James McClain, based on work by John Caron and Donald Denbof
  * @since 5.3.2
@@ -40,6 +50,37 @@ public final class S3RandomAccessFile extends RemoteRandomAccessFile implements
   private static final long s3MaxReadCacheSize = Long
       .parseLong(System.getProperty("ucar.unidata.io.s3.maxReadCacheSize", String.valueOf(defaultMaxReadCacheSize)));
 
+  // 8 MiB default size of the parts of large reads
+  private static final int s3PartSize =
+      Math.max(1, Integer.parseInt(System.getProperty("ucar.unidata.io.s3.partSize", String.valueOf(8 * 1024 * 1024))));
+
+  private static final int s3MaxConcurrentParts =
+      Integer.parseInt(System.getProperty("ucar.unidata.io.s3.maxConcurrentParts", "8"));
+
+  private static Executor partExecutor;
+  private static boolean partExecutorSet;
+
+  /**
+   * Set the Executor used to request the parts of large reads, shared by all S3 files. Set to null to request them
+   * one after another on the calling thread. If never set, a daemon thread pool of
+   * -Ducar.unidata.io.s3.maxConcurrentParts threads is used.
+   * It must not be the Executor of {@link RemoteRandomAccessFile#setExecutor}, which waits for the parts.
+   */
+  public static synchronized void setExecutor(@Nullable Executor exec) {
+    partExecutor = exec;
+    partExecutorSet = true;
+  }
+
+  @Nullable
+  private static synchronized Executor getPartExecutor() {
+    if (!partExecutorSet && s3MaxConcurrentParts > 1) {
+      partExecutor = Executors.newFixedThreadPool(s3MaxConcurrentParts,
+          new ThreadFactoryBuilder().setNameFormat("S3ReadPart-%d").setDaemon(true).build());
+      partExecutorSet = true;
+    }
+    return partExecutor;
+  }
+
   private final CdmS3Uri uri;
   private S3Client client;
 
@@ -82,6 +123,7 @@ public final class S3RandomAccessFile extends RemoteRandomAccessFile implements
 
   /**
    * Read directly from the remote service All reading goes through here or readToByteChannel;
+   * Reads larger than the part size are split into parts that are requested concurrently.
    *
    * 1. https://docs.aws.amazon.com/AmazonS3/latest/dev/RetrievingObjectUsingJava.html
    *
@@ -94,17 +136,63 @@ public final class S3RandomAccessFile extends RemoteRandomAccessFile implements
    */
   @Override
   public int readRemote(long pos, byte[] buff, int offset, int len) throws IOException {
+    len = (int) Math.max(0, Math.min(len, length() - pos));
+    if (len == 0)
+      return 0;
+
+    Executor exec = getPartExecutor();
+    if (exec == null || len <= s3PartSize) {
+      return readRange(pos, buff, offset, len);
+    }
+
+    List<FutureTask<Integer>> parts = new ArrayList<>();
+    for (int start = 0; start < len; start += s3PartSize) {
+      int partStart = start;
+      int partLen = Math.min(s3PartSize, len - start);
+      FutureTask<Integer> part = new FutureTask<>(() -> readRange(pos + partStart, buff, offset + partStart, partLen));
+      parts.add(part);
+      exec.execute(part);
+    }
 
-    String range = String.format("bytes=%d-%d", pos, pos + len);
+    // the bytes read, up to the first short part
+    int totalBytes = 0;
+    boolean shortRead = false;
+    try {
+      for (int i = 0; i < parts.size(); i++) {
+        int bytes = parts.get(i).get();
+        if (!shortRead)
+          totalBytes += bytes;
+        shortRead |= bytes < Math.min(s3PartSize, len - i * s3PartSize);
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new IOException(e);
+    } catch (ExecutionException e) {
+      Throwable cause = e.getCause();
+      if (cause instanceof IOException)
+        throw (IOException) cause;
+      if (cause instanceof RuntimeException)
+        throw (RuntimeException) cause;
+      throw new IOException(cause);
+    } finally {
+      for (FutureTask<Integer> part : parts) {
+        part.cancel(false);
+      }
+    }
+    return totalBytes;
+  }
+
+  // one ranged GET, streamed into buff
+  private int readRange(long pos, byte[] buff, int offset, int len) throws IOException {
+    // the end of the range is inclusive
+    String range = String.format("bytes=%d-%d", pos, pos + len - 1);
     GetObjectRequest rangeObjectRequest =
         GetObjectRequest.builder().bucket(uri.getBucket()).key(uri.getKey().get()).range(range).build();
 
-    ResponseBytes<GetObjectResponse> objectPortion = client.getObjectAsBytes(rangeObjectRequest);
-
     int bytes;
     int totalBytes = 0;
     // read response into buff
-    try (InputStream objectData = objectPortion.asInputStream()) {
+    try (InputStream objectData = client.getObject(rangeObjectRequest)) {
       bytes = objectData.read(buff, offset + totalBytes, len - totalBytes);
       while ((bytes > 0) && ((len - totalBytes) > 0)) {
         totalBytes += bytes;
@@ -123,6 +211,12 @@ public final class S3RandomAccessFile extends RemoteRandomAccessFile implements
     return objectHeadResponse.contentLength();
   }
 
+  @Override
+  protected String getVersionTag() {
+    String etag = objectHeadResponse.eTag();
+    return (etag != null) ? etag : length() + ":" + getLastModified();
+  }
+
   @Override
   public long getLastModified() {
     return objectHeadResponse.lastModified().toEpochMilli();
@@ -0,0 +1,181 @@
+/*
+ * Copyright (c) 1998-2021 John Caron and University Corporation for Atmospheric Research/Unidata
+ * See LICENSE for license information.
+ */
+
+package thredds.filesystem.s3;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.TreeSet;
+import java.util.concurrent.atomic.AtomicInteger;
+import javax.annotation.Nullable;
+import org.junit.Before;
+import org.junit.Test;
+import software.amazon.awssdk.services.s3.model.S3Object;
+
+/** Test {@link S3Inventory} with a bucket in memory. */
+public class TestS3Inventory {
+  private static final int PAGE_SIZE = 3;
+
+  /** Lists the keys of a bucket in memory like the list objects request, counting the requests. */
+  private static class FakeBucket implements S3Inventory.Lister {
+    final TreeSet<String> keys = new TreeSet<>();
+    final AtomicInteger nrequests = new AtomicInteger();
+
+    FakeBucket() {
+      for (int year = 2019; year <= 2021; year++) {
+        for (int day = 1; day <= 4; day++) {
+          for (int hour = 0; hour < 5; hour++) {
+            keys.add(String.format("prod/%d/%03d/%02d/file_%d%03d%02d.nc", year, day, hour, year, day, hour));
+          }
+        }
+        keys.add(String.format("prod/%d/index.txt", year));
+      }
+      keys.add("prod/README");
+      keys.add("other/2021/001/file.nc");
+    }
+
+    @Override
+    public synchronized S3Inventory.Page listPage(@Nullable String prefix, @Nullable String delimiter,
+        @Nullable String continuationToken) {
+      nrequests.incrementAndGet();
+      String start = (prefix == null) ? "" : prefix;
+      List<S3Object> objects = new ArrayList<>();
+      List<String> prefixes = new ArrayList<>();
+      String last = null;
+      for (String key : (continuationToken == null) ? keys : keys.tailSet(continuationToken, false)) {
+        if (!key.startsWith(start))
+          continue;
+        if (objects.size() + prefixes.size() == PAGE_SIZE)
+          return new S3Inventory.Page(objects, prefixes, last);
+        int pos = (delimiter == null) ? -1 : key.indexOf(delimiter, start.length());
+        if (pos >= 0) {
+          String commonPrefix = key.substring(0, pos + delimiter.length());
+          if (!prefixes.contains(commonPrefix))
+            prefixes.add(commonPrefix);
+          last = commonPrefix + Character.MAX_VALUE; // skip the rest of the common prefix
+        } else {
+          objects.add(S3Object.builder().key(key).size((long) key.length()).lastModified(Instant.EPOCH).build());
+          last = key;
+        }
+      }
+      return new S3Inventory.Page(objects, prefixes, null);
+    }
+
+    List<String> keys(String prefix) {
+      List<String> result = new ArrayList<>();
+      for (String key : keys) {
+        if (key.startsWith(prefix))
+          result.add(key);
+      }
+      return result;
+    }
+  }
+
+  private static List<String> keys(List<S3Object> objects) {
+    List<String> result = new ArrayList<>();
+    for (S3Object object : objects) {
+      result.add(object.key());
+    }
+    return result;
+  }
+
+  @Before
+  public void clearCache() {
+    S3Inventory.clearCache();
+  }
+
+  @Test
+  public void testFanOutListsEverything() {
+    FakeBucket bucket = new FakeBucket();
+    for (String prefix : new String[] {"prod/", "prod", "prod/2020/", "prod/2020/00", "other/", "none/", ""}) {
+      for (int depth = 0; depth <= 4; depth++) {
+        S3Inventory.clearCache();
+        S3Inventory inventory = new S3Inventory("fan-out", "/", depth, bucket);
+        assertThat(keys(inventory.list(prefix, true))).containsExactlyElementsIn(bucket.keys(prefix)).inOrder();
+      }
+    }
+    assertThat(keys(new S3Inventory("fan-out", "/", 2, bucket).list(null, true)))
+        .containsExactlyElementsIn(bucket.keys)
+        .inOrder();
+  }
+
+  @Test
+  public void testCachedListings() {
+    FakeBucket bucket = new FakeBucket();
+    S3Inventory inventory = new S3Inventory("cached", "/", 2, bucket, false);
+    List<String> expected = bucket.keys("prod/");
+    assertThat(keys(inventory.list("prod/", true))).isEqualTo(expected);
+    int nrequests = bucket.nrequests.get();
+    assertThat(nrequests).isGreaterThan(3);
+
+    // no recheck uses the cache
+    assertThat(keys(inventory.list("prod/", false))).isEqualTo(expected);
+    assertThat(bucket.nrequests.get()).isEqualTo(nrequests);
+
+    // a recheck lists everything again, and finds keys added to any partition
+    bucket.nrequests.set(0);
+    bucket.keys.add("prod/2021/004/05/file_202100405.nc");
+    bucket.keys.add("prod/2019/001/05/file_201900105.nc");
+    assertThat(keys(inventory.list("prod/", true))).isEqualTo(bucket.keys("prod/"));
+    assertThat(bucket.nrequests.get()).isAtLeast(nrequests);
+
+    // which replaces the cached listings
+    bucket.nrequests.set(0);
+    assertThat(keys(inventory.list("prod/", false))).isEqualTo(bucket.keys("prod/"));
+    assertThat(bucket.nrequests.get()).isEqualTo(0);
+  }
+
+  @Test
+  public void testPartialRecheck() {
+    FakeBucket bucket = new FakeBucket();
+    S3Inventory inventory = new S3Inventory("partial", "/", 2, bucket, true);
+    assertThat(keys(inventory.list("prod/", true))).isEqualTo(bucket.keys("prod/"));
+
+    // a recheck lists again only prod/, prod/2021/ and prod/2021/004/
+    bucket.nrequests.set(0);
+    bucket.keys.add("prod/2021/004/05/file_202100405.nc");
+    bucket.keys.add("prod/2019/001/05/file_201900105.nc"); // an old partition, not seen until invalidated
+    List<String> found = keys(inventory.list("prod/", true));
+    assertThat(found).contains("prod/2021/004/05/file_202100405.nc");
+    assertThat(found).doesNotContain("prod/2019/001/05/file_201900105.nc");
+    assertThat(bucket.nrequests.get()).isAtMost(1 + 2 + 3);
+
+    S3Inventory.invalidate("partial", "prod/2019/");
+    assertThat(keys(inventory.list("prod/", true))).isEqualTo(bucket.keys("prod/"));
+  }
+
+  @Test
+  public void testNewPartition() {
+    FakeBucket bucket = new FakeBucket();
+    S3Inventory inventory = new S3Inventory("partition", "/", 2, bucket, false);
+    inventory.list("prod/", true);
+
+    // keys added to the last partition before and after the next one started
+    bucket.keys.add("prod/2021/004/05/file_202100405.nc");
+    bucket.keys.add("prod/2021/005/00/file_202100500.nc");
+    assertThat(keys(inventory.list("prod/", true))).isEqualTo(bucket.keys("prod/"));
+    bucket.keys.add("prod/2021/004/06/file_202100406.nc");
+    assertThat(keys(inventory.list("prod/", true))).isEqualTo(bucket.keys("prod/"));
+  }
+
+  @Test
+  public void testNewPartitionPartialRecheck() {
+    FakeBucket bucket = new FakeBucket();
+    S3Inventory inventory = new S3Inventory("partition-partial", "/", 2, bucket, true);
+    inventory.list("prod/", true);
+
+    // keys added to the last partition before the next one started
+    bucket.keys.add("prod/2021/004/05/file_202100405.nc");
+    bucket.keys.add("prod/2021/005/00/file_202100500.nc");
+    assertThat(keys(inventory.list("prod/", true))).isEqualTo(bucket.keys("prod/"));
+
+    // prod/2021/004/ was the last when it was listed, so it is listed once more
+    bucket.keys.add("prod/2021/004/06/file_202100406.nc");
+    assertThat(keys(inventory.list("prod/", true))).doesNotContain("prod/2021/004/06/file_202100406.nc");
+  }
+}
@@ -73,9 +73,8 @@ public class TestSparseArray {
         vip.showSparseArray(f);
 
       } else {
-        v.readRecords();
-        if (v.getSparseArray() != null) {
-          sa = v.getSparseArray();
+        sa = v.getSparseArray();
+        if (sa != null) {
           sa.showMissing(f);
         }
       }
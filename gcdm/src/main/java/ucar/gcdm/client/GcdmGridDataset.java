@@ -10,6 +10,7 @@ import com.google.common.collect.ImmutableList;
 import io.grpc.ManagedChannel;
 import io.grpc.ManagedChannelBuilder;
 import io.grpc.StatusRuntimeException;
+import javax.annotation.Nullable;
 import ucar.gcdm.*;
 import ucar.nc2.AttributeContainer;
 import ucar.nc2.constants.FeatureType;
@@ -79,6 +80,9 @@ public class GcdmGridDataset implements GridDataset {
   GridReferencedArray readData(GridSubset subset) throws IOException {
     log.info("GcdmGridDataset request data subset " + subset);
     GcdmGridProto.GridDataRequest.Builder requestb = GcdmGridProto.GridDataRequest.newBuilder().setLocation(path);
+    if (compression != null) {
+      requestb.setCompression(compression);
+    }
     for (Map.Entry<String, Object> entry : subset.getEntries()) {
       requestb.putSubset(entry.getKey(), entry.getValue().toString());
     }
@@ -126,6 +130,8 @@ public class GcdmGridDataset implements GridDataset {
   private final String path;
   private final ManagedChannel channel;
   private final GcdmGrpc.GcdmBlockingStub blockingStub;
+  @Nullable
+  private final String compression;
 
   private final GcdmGridProto.GridDataset proto;
   private final ImmutableList<GridAxis<?>> axes;
@@ -137,6 +143,7 @@ public class GcdmGridDataset implements GridDataset {
     this.path = builder.path;
     this.channel = builder.channel;
     this.blockingStub = builder.blockingStub;
+    this.compression = builder.compression;
     this.proto = builder.proto;
 
     this.axes = ImmutableList.copyOf(builder.axes);
@@ -164,6 +171,7 @@ public class GcdmGridDataset implements GridDataset {
 
   private Builder addLocalFieldsToBuilder(Builder b) {
     b.setRemoteURI(this.remoteURI);
+    b.setCompression(this.compression);
     return b;
   }
 
@@ -176,6 +184,7 @@ public class GcdmGridDataset implements GridDataset {
     private ManagedChannel channel;
     private GcdmGrpc.GcdmBlockingStub blockingStub;
     private String path;
+    private String compression;
     private GcdmGridProto.GridDataset proto;
     public final ArrayList<GridAxis<?>> axes = new ArrayList<>();
     private final ArrayList<GridCoordinateSystem> coordsys = new ArrayList<>();
@@ -188,6 +197,12 @@ public class GcdmGridDataset implements GridDataset {
       return this;
     }
 
+    /** Ask the server to compress the data messages with this grpc encoding, eg "gzip". Default is no compression. */
+    public Builder setCompression(@Nullable String compression) {
+      this.compression = compression;
+      return this;
+    }
+
     public Builder addGridAxis(GridAxis<?> axis) {
       axes.add(axis);
       return this;
@@ -16,6 +16,7 @@ import java.util.Iterator;
 import java.util.List;
 import java.util.concurrent.TimeUnit;
 import javax.annotation.Nullable;
+import ucar.array.ArrayType;
 import ucar.array.Arrays;
 import ucar.array.StructureDataArray;
 import ucar.gcdm.GcdmGrpc;
@@ -76,21 +77,36 @@ public class GcdmNetcdfFile extends NetcdfFile {
           this.path);
     final Stopwatch stopwatch = Stopwatch.createStarted();
 
+    // the chunks are copied into the result as they arrive, when possible
+    ArrayType arrayType = v.getArrayType();
+    boolean canAssemble = arrayType != ArrayType.STRUCTURE && arrayType != ArrayType.SEQUENCE
+        && arrayType != ArrayType.OPAQUE && !sectionWanted.isVariableLength();
     List<ucar.array.Array<?>> results = new ArrayList<>();
+    Object all = null;
     long size = 0;
-    DataRequest request = DataRequest.newBuilder().setLocation(this.path).setVariableSpec(spec).build();
+    DataRequest.Builder request = DataRequest.newBuilder().setLocation(this.path).setVariableSpec(spec);
+    if (compression != null) {
+      request.setCompression(compression);
+    }
     try {
       Iterator<DataResponse> responses =
-          blockingStub.withDeadlineAfter(MAX_DATA_WAIT_SECONDS, TimeUnit.SECONDS).getNetcdfData(request);
+          blockingStub.withDeadlineAfter(MAX_DATA_WAIT_SECONDS, TimeUnit.SECONDS).getNetcdfData(request.build());
       while (responses.hasNext()) {
         DataResponse response = responses.next();
         if (response.hasError()) {
           throw new IOException(response.getError().getMessage());
         }
-        // Section sectionReturned = GcdmConverter.decodeSection(response.getSection());
         ucar.array.Array<?> result = GcdmConverter.decodeData(response.getData());
-        results.add(result);
         size += result.length();
+        if (!canAssemble || result.isVlen() || (all == null && !responses.hasNext())) {
+          results.add(result); // only one, or cant be assembled
+          continue;
+        }
+        if (all == null) {
+          all = Arrays.makePrimitiveArray(arrayType, (int) Arrays.computeSize(sectionWanted.getShape()));
+        }
+        ucar.array.Section sectionReturned = GcdmConverter.decodeSection(response.getSection());
+        Arrays.arraycopy(result, all, chunkOffset(sectionWanted, sectionReturned));
       }
 
     } catch (StatusRuntimeException e) {
@@ -104,13 +120,27 @@ public class GcdmNetcdfFile extends NetcdfFile {
     }
     System.out.printf(" ** size=%d took=%s%n", size, stopwatch.stop());
 
-    if (results.size() == 1) {
+    if (all != null) {
+      return Arrays.factory(arrayType, sectionWanted.getShape(), all);
+    } else if (results.size() == 1) {
       return results.get(0);
     } else {
-      return Arrays.factoryCopy(v.getArrayType(), sectionWanted.getShape(), (List) results); // TODO generics
+      return Arrays.factoryCopy(arrayType, sectionWanted.getShape(), (List) results); // TODO generics
     }
   }
 
+  // position of the first element of chunk within want, in canonical order
+  private static int chunkOffset(ucar.array.Section want, ucar.array.Section chunk) {
+    int[] wantShape = want.getShape();
+    long offset = 0;
+    for (int i = 0; i < wantShape.length; i++) {
+      ucar.array.Range wantRange = want.getRange(i);
+      int index = (chunk.getRange(i).first() - wantRange.first()) / wantRange.stride();
+      offset = offset * wantShape[i] + index;
+    }
+    return (int) offset;
+  }
+
   @Override
   public String getFileTypeId() {
     return PROTOCOL;
@@ -137,6 +167,8 @@ public class GcdmNetcdfFile extends NetcdfFile {
   private final String path;
   private final ManagedChannel channel;
   private final GcdmGrpc.GcdmBlockingStub blockingStub;
+  @Nullable
+  private final String compression;
 
   private GcdmNetcdfFile(Builder<?> builder) {
     super(builder);
@@ -144,6 +176,7 @@ public class GcdmNetcdfFile extends NetcdfFile {
     this.path = builder.path;
     this.channel = builder.channel;
     this.blockingStub = builder.blockingStub;
+    this.compression = builder.compression;
   }
 
   public Builder<?> toBuilder() {
@@ -152,6 +185,7 @@ public class GcdmNetcdfFile extends NetcdfFile {
 
   private Builder<?> addLocalFieldsToBuilder(Builder<? extends Builder<?>> b) {
     b.setRemoteURI(this.remoteURI);
+    b.setCompression(this.compression);
     return (Builder<?>) super.addLocalFieldsToBuilder(b);
   }
 
@@ -171,6 +205,7 @@ public class GcdmNetcdfFile extends NetcdfFile {
     private ManagedChannel channel;
     private GcdmGrpc.GcdmBlockingStub blockingStub;
     private String path;
+    private String compression;
     private boolean built;
 
     protected abstract T self();
@@ -180,6 +215,21 @@ public class GcdmNetcdfFile extends NetcdfFile {
       return self();
     }
 
+    /** Ask the server to compress the data messages with this grpc encoding, eg "gzip". Default is no compression. */
+    public T setCompression(@Nullable String compression) {
+      this.compression = compression;
+      return self();
+    }
+
+    /**
+     * Use this channel to talk to the server, instead of opening one to the authority of the remote URI.
+     * It is shut down when the file is closed.
+     */
+    public T setChannel(ManagedChannel channel) {
+      this.channel = channel;
+      return self();
+    }
+
     public GcdmNetcdfFile build() {
       if (built)
         throw new IllegalStateException("already built");
@@ -200,12 +250,14 @@ public class GcdmNetcdfFile extends NetcdfFile {
       // Create a communication channel to the server, known as a Channel. Channels are thread-safe
       // and reusable. It is common to create channels at the beginning of your application and reuse
       // them until the application shuts down.
-      this.channel = ManagedChannelBuilder.forTarget(target)
-          // Channels are secure by default (via SSL/TLS). For now, we disable TLS to avoid needing certificates.
-          .usePlaintext() //
-          .enableFullStreamDecompression() //
-          .maxInboundMessageSize(MAX_MESSAGE) //
-          .build();
+      if (this.channel == null) {
+        this.channel = ManagedChannelBuilder.forTarget(target)
+            // Channels are secure by default (via SSL/TLS). For now, we disable TLS to avoid needing certificates.
+            .usePlaintext() //
+            .enableFullStreamDecompression() //
+            .maxInboundMessageSize(MAX_MESSAGE) //
+            .build();
+      }
       try {
         this.blockingStub = GcdmGrpc.newBlockingStub(channel);
         readHeader(path);
@@ -0,0 +1,199 @@
+/*
+ * Copyright (c) 1998-2021 John Caron and University Corporation for Atmospheric Research/Unidata
+ * See LICENSE for license information.
+ */
+package ucar.gcdm.server;
+
+import com.google.common.base.Stopwatch;
+import io.grpc.stub.ServerCallStreamObserver;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Executor;
+import ucar.array.Array;
+import ucar.array.Arrays;
+import ucar.array.InvalidRangeException;
+import ucar.array.Range;
+import ucar.array.Section;
+import ucar.gcdm.GcdmConverter;
+import ucar.gcdm.GcdmNetcdfProto;
+import ucar.gcdm.GcdmNetcdfProto.DataResponse;
+import ucar.nc2.NetcdfFile;
+import ucar.nc2.ParsedArraySectionSpec;
+import ucar.nc2.Variable;
+import ucar.nc2.write.ChunkingIndex;
+
+/**
+ * Sends the data of a Variable section as a stream of DataResponse messages, each at most maxChunkBytes.
+ * The chunks are read on the Executor, ahead of the chunk being sent, and sent only when the client is ready
+ * (grpc flow control), so reading from disk and sending over the network overlap. A reader does not wait for a client
+ * that is not ready: it returns its thread when READ_AHEAD chunks are waiting, and the next read is started on the
+ * Executor when the client takes one.
+ * The chunks are contiguous pieces of the wanted section, in order, so the client can copy each one directly
+ * into the result.
+ */
+class ChunkedDataSender {
+  private static final org.slf4j.Logger logger = org.slf4j.LoggerFactory.getLogger(ChunkedDataSender.class);
+  private static final int READ_AHEAD = 2;
+
+  /** Divide wantSection into contiguous chunks of at most maxChunkElems, in canonical order. */
+  static List<Section> makeChunks(Section wantSection, long maxChunkElems) throws InvalidRangeException {
+    List<Section> result = new ArrayList<>();
+    int[] wantShape = wantSection.getShape();
+    if (Arrays.computeSize(wantShape) <= maxChunkElems || wantSection.isVariableLength()) {
+      result.add(wantSection);
+      return result;
+    }
+
+    // the chunks are computed relative to the wanted section, then composed with it
+    ChunkingIndex index = new ChunkingIndex(wantShape);
+    while (index.currentElement() < index.getSize()) {
+      int[] chunkOrigin = index.getCurrentCounter();
+      int[] chunkShape = index.computeChunkShape(maxChunkElems);
+      Section.Builder chunk = Section.builder();
+      for (int i = 0; i < wantShape.length; i++) {
+        Range want = wantSection.getRange(i);
+        chunk.appendRange(want.compose(new Range(want.name(), chunkOrigin[i], chunkOrigin[i] + chunkShape[i] - 1)));
+      }
+      result.add(chunk.build());
+      index.setCurrentCounter(index.currentElement() + (int) Arrays.computeSize(chunkShape));
+    }
+    return result;
+  }
+
+  private final NetcdfFile ncfile;
+  private final Variable var;
+  private final List<Section> chunks;
+  private final ServerCallStreamObserver<DataResponse> responseObserver;
+  private final BlockingQueue<DataResponse> ready = new ArrayBlockingQueue<>(READ_AHEAD);
+  private final Stopwatch stopwatch = Stopwatch.createStarted();
+
+  private Executor executor; // guarded by this
+  private int nextChunk; // guarded by this
+  private boolean reading; // a read is queued on the executor or running, guarded by this
+  private boolean allRead; // guarded by this
+  private boolean closed; // guarded by this
+  private boolean completed; // guarded by this
+  private volatile boolean cancelled;
+  private volatile long size;
+
+  /**
+   * @param ncfile the file, closed when done.
+   * @param varSection the wanted Variable and section.
+   * @param maxChunkBytes maximum size of the data in one message.
+   * @param responseObserver must be the StreamObserver passed to the service method.
+   */
+  ChunkedDataSender(NetcdfFile ncfile, ParsedArraySectionSpec varSection, long maxChunkBytes,
+      ServerCallStreamObserver<DataResponse> responseObserver) throws InvalidRangeException {
+    this.ncfile = ncfile;
+    this.var = varSection.getVariable();
+    this.chunks = makeChunks(varSection.getArraySection(), Math.max(1, maxChunkBytes / var.getElementSize()));
+    this.responseObserver = responseObserver;
+  }
+
+  /** Must be called from the service method, before it returns. */
+  void start(Executor executor) {
+    synchronized (this) {
+      this.executor = executor;
+      this.reading = true;
+    }
+    responseObserver.setOnReadyHandler(this::send);
+    responseObserver.setOnCancelHandler(this::cancel);
+    executor.execute(this::readChunks);
+  }
+
+  // read chunks until the queue is full, or all are read
+  private void readChunks() {
+    try {
+      while (true) {
+        Section chunk;
+        synchronized (this) {
+          if (cancelled || nextChunk == chunks.size()) {
+            reading = false;
+            allRead = true;
+            close();
+            break;
+          }
+          if (ready.remainingCapacity() == 0) {
+            reading = false; // send() starts the next read
+            return;
+          }
+          chunk = chunks.get(nextChunk++);
+        }
+        ParsedArraySectionSpec spec = new ParsedArraySectionSpec(var, chunk);
+        DataResponse.Builder response = DataResponse.newBuilder().setLocation(ncfile.getLocation())
+            .setVariableSpec(spec.makeSectionSpecString()).setVarFullName(var.getFullName())
+            .setSection(GcdmConverter.encodeSection(chunk));
+        Array<?> data = var.readArray(chunk);
+        response.setData(GcdmConverter.encodeData(data.getArrayType(), data));
+        size += data.length() * var.getElementSize();
+        ready.add(response.build());
+        send();
+      }
+
+    } catch (Throwable t) {
+      logger.warn("GcdmServer getData failed ", t);
+      DataResponse.Builder response = DataResponse.newBuilder().setLocation(ncfile.getLocation())
+          .setVariableSpec(var.getFullName());
+      response.setError(
+          GcdmNetcdfProto.Error.newBuilder().setMessage(t.getMessage() == null ? "N/A" : t.getMessage()).build());
+      synchronized (this) {
+        ready.clear(); // make room for the error
+        ready.add(response.build());
+        reading = false;
+        allRead = true;
+        close();
+      }
+    }
+    send();
+  }
+
+  private synchronized void cancel() {
+    cancelled = true;
+    if (!reading) {
+      close(); // else the reader closes it
+    }
+  }
+
+  private synchronized void close() {
+    if (closed) {
+      return;
+    }
+    closed = true;
+    try {
+      ncfile.close();
+    } catch (IOException e) {
+      logger.warn("GcdmServer close failed ", e);
+    }
+  }
+
+  // send whatever has been read, as long as the client is ready. Called by the reader and by grpc.
+  private synchronized void send() {
+    if (completed) {
+      return;
+    }
+    if (cancelled) {
+      ready.clear();
+      completed = true;
+      return;
+    }
+    while (responseObserver.isReady()) {
+      DataResponse response = ready.poll();
+      if (response == null) {
+        break;
+      }
+      responseObserver.onNext(response);
+    }
+    if (!reading && !allRead && ready.remainingCapacity() > 0) {
+      reading = true;
+      executor.execute(this::readChunks);
+    }
+    if (allRead && ready.isEmpty()) {
+      completed = true;
+      responseObserver.onCompleted();
+      logger.debug(" ** {} chunks={} size={} took={}", var.getFullName(), chunks.size(), size, stopwatch.stop());
+    }
+  }
+}
@@ -6,6 +6,7 @@
 package ucar.gcdm.server;
 
 import com.google.common.base.Stopwatch;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
 import io.grpc.Metadata;
 import io.grpc.Server;
 import io.grpc.ServerBuilder;
@@ -13,10 +14,14 @@ import io.grpc.ServerCall;
 import io.grpc.ServerCall.Listener;
 import io.grpc.ServerCallHandler;
 import io.grpc.ServerInterceptor;
+import io.grpc.stub.ServerCallStreamObserver;
 import io.grpc.stub.StreamObserver;
 import java.io.IOException;
 import java.util.Formatter;
 import java.util.Iterator;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 import java.util.concurrent.TimeUnit;
 
 import ucar.array.*;
@@ -43,7 +48,6 @@ import ucar.nc2.grid2.GridDatasetFactory;
 import ucar.nc2.grid2.GridReferencedArray;
 import ucar.nc2.grid2.GridSubset;
 import ucar.nc2.util.Misc;
-import ucar.nc2.write.ChunkingIndex;
 
 /** Server that manages startup/shutdown of a gCDM Server. */
 public class GcdmServer {
@@ -51,6 +55,31 @@ public class GcdmServer {
   private static final int MAX_MESSAGE = 50 * 1000 * 1000; // 50 Mb
   private static final int SEQUENCE_CHUNK = 1000;
 
+  // System property name for -D flag
+  private static final String READTHREADS_PROPERTY = "unidata.gcdm.read.threads";
+
+  // reads the data chunks, ahead of sending them. A thread is held only while reading, not while a client is not
+  // ready, so the number of threads bounds the number of chunks being read at the same time.
+  private static final ExecutorService readExecutor = Executors.newFixedThreadPool(readReadThreads(),
+      new ThreadFactoryBuilder().setNameFormat("GcdmServer-read-%d").setDaemon(true).build());
+
+  private static int readReadThreads() {
+    int nthreads = 16;
+    String prop = System.getProperty(READTHREADS_PROPERTY);
+    if (prop != null) {
+      try {
+        int size = Integer.parseInt(prop);
+        if (size < 1)
+          logger.warn(String.format("-D%s must be >= 1", READTHREADS_PROPERTY));
+        else
+          nthreads = size;
+      } catch (NumberFormatException nfe) {
+        logger.warn(String.format("-D%s is not an integer", READTHREADS_PROPERTY));
+      }
+    }
+    return nthreads;
+  }
+
   private Server server;
 
   private void start() throws IOException {
@@ -113,6 +142,26 @@ public class GcdmServer {
   }
 
   static class GcdmImpl extends GcdmImplBase {
+    private final long maxChunkBytes;
+    private final Executor readExecutor;
+
+    GcdmImpl() {
+      this(MAX_MESSAGE);
+    }
+
+    /** @param maxChunkBytes maximum size of the data in one DataResponse message. */
+    GcdmImpl(long maxChunkBytes) {
+      this(maxChunkBytes, GcdmServer.readExecutor);
+    }
+
+    /**
+     * @param maxChunkBytes maximum size of the data in one DataResponse message.
+     * @param readExecutor reads the data chunks.
+     */
+    GcdmImpl(long maxChunkBytes, Executor readExecutor) {
+      this.maxChunkBytes = maxChunkBytes;
+      this.readExecutor = readExecutor;
+    }
 
     @Override
     public void getNetcdfHeader(HeaderRequest req, StreamObserver<HeaderResponse> responseObserver) {
@@ -136,19 +185,24 @@ public class GcdmServer {
     public void getNetcdfData(DataRequest req, StreamObserver<DataResponse> responseObserver) {
       System.out.printf("GcdmServer getData %s %s%n", req.getLocation(), req.getVariableSpec());
       final Stopwatch stopwatch = Stopwatch.createStarted();
-      long size = -1;
 
-      try (NetcdfFile ncfile = NetcdfDatasets.openFile(req.getLocation(), null)) { // LOOK cache ncfile?
+      NetcdfFile ncfile = null;
+      try {
+        setCompression(responseObserver, req.getCompression());
+        ncfile = NetcdfDatasets.openFile(req.getLocation(), null); // LOOK cache ncfile?
         ParsedArraySectionSpec varSection = ParsedArraySectionSpec.parseVariableSection(ncfile, req.getVariableSpec());
         Variable var = varSection.getVariable();
         if (var instanceof Sequence) {
-          size = getSequenceData(ncfile, varSection, responseObserver);
+          long size = getSequenceData(ncfile, varSection, responseObserver);
+          responseObserver.onCompleted();
+          logger.debug(" ** {} size={} took={}", var.getFullName(), size, stopwatch.stop());
         } else {
-          Section wantSection = varSection.getArraySection();
-          size = var.getElementSize() * wantSection.computeSize();
-          getNetcdfData(ncfile, varSection, responseObserver);
+          // the sender reads and sends the data in chunks, and closes the file when done; it logs the time taken
+          ChunkedDataSender sender = new ChunkedDataSender(ncfile, varSection, maxChunkBytes,
+              (ServerCallStreamObserver<DataResponse>) responseObserver);
+          ncfile = null;
+          sender.start(readExecutor);
         }
-        responseObserver.onCompleted();
         logger.info("GcdmServer getData " + req.getLocation());
 
       } catch (Throwable t) {
@@ -159,59 +213,26 @@ public class GcdmServer {
         response.setError(
             GcdmNetcdfProto.Error.newBuilder().setMessage(t.getMessage() == null ? "N/A" : t.getMessage()).build());
         responseObserver.onNext(response.build());
-      }
-
-      System.out.printf(" ** size=%d took=%s%n", size, stopwatch.stop());
-    }
+        responseObserver.onCompleted();
 
-    private void getNetcdfData(NetcdfFile ncfile, ParsedArraySectionSpec varSection,
-        StreamObserver<DataResponse> responseObserver) throws IOException, InvalidRangeException {
-      Variable var = varSection.getVariable();
-      Section wantSection = varSection.getArraySection();
-      long size = var.getElementSize() * wantSection.computeSize();
-      if (size > MAX_MESSAGE) {
-        getDataInChunks(ncfile, varSection, responseObserver);
-      } else {
-        getOneChunk(ncfile, varSection, responseObserver);
+      } finally {
+        if (ncfile != null) {
+          try {
+            ncfile.close();
+          } catch (IOException e) {
+            logger.warn("GcdmServer close failed ", e);
+          }
+        }
       }
     }
 
-    private void getDataInChunks(NetcdfFile ncfile, ParsedArraySectionSpec varSection,
-        StreamObserver<DataResponse> responseObserver) throws IOException, InvalidRangeException {
-
-      Variable var = varSection.getVariable();
-      long maxChunkElems = MAX_MESSAGE / var.getElementSize();
-      // LOOK wrong this assume starts at 0, should start at varSection
-      ChunkingIndex index = new ChunkingIndex(var.getShape());
-      while (index.currentElement() < index.getSize()) {
-        int[] chunkOrigin = index.getCurrentCounter();
-        int[] chunkShape = index.computeChunkShape(maxChunkElems);
-        Section section = new Section(chunkOrigin, chunkShape);
-        ParsedArraySectionSpec spec = new ParsedArraySectionSpec(var, section);
-        getOneChunk(ncfile, spec, responseObserver);
-        index.setCurrentCounter(index.currentElement() + (int) Arrays.computeSize(chunkShape));
+    // use grpc message compression on the responses, if the client asked for it
+    private void setCompression(StreamObserver<?> responseObserver, String compression) {
+      if (!compression.isEmpty()) {
+        ((ServerCallStreamObserver<?>) responseObserver).setCompression(compression);
       }
     }
 
-    private void getOneChunk(NetcdfFile ncfile, ParsedArraySectionSpec varSection,
-        StreamObserver<DataResponse> responseObserver) throws IOException, InvalidRangeException {
-
-      String spec = varSection.makeSectionSpecString();
-      Variable var = varSection.getVariable();
-      Section wantSection = varSection.getArraySection();
-
-      DataResponse.Builder response = DataResponse.newBuilder().setLocation(ncfile.getLocation()).setVariableSpec(spec)
-          .setVarFullName(var.getFullName()).setSection(GcdmConverter.encodeSection(wantSection));
-
-      Array<?> data = var.readArray(wantSection);
-      response.setData(GcdmConverter.encodeData(data.getArrayType(), data));
-
-      responseObserver.onNext(response.build());
-      System.out.printf(" Send one chunk %s size=%d bytes%n", spec,
-          data.length() * varSection.getVariable().getElementSize());
-    }
-
-
     private long getSequenceData(NetcdfFile ncfile, ParsedArraySectionSpec varSection,
         StreamObserver<DataResponse> responseObserver) throws InvalidRangeException {
 
@@ -273,6 +294,15 @@ public class GcdmServer {
       response.setLocation(request.getLocation()).putAllSubset(request.getSubsetMap());
       final Stopwatch stopwatch = Stopwatch.createStarted();
 
+      try {
+        setCompression(responseObserver, request.getCompression());
+      } catch (IllegalArgumentException e) {
+        makeError(response, e.getMessage());
+        responseObserver.onNext(response.build());
+        responseObserver.onCompleted();
+        return;
+      }
+
       GridSubset gridSubset = GridSubset.fromStringMap(request.getSubsetMap());
       if (gridSubset.getGridName() == null) {
         makeError(response, "GridName is not set");
@@ -0,0 +1,183 @@
+/*
+ * Copyright (c) 1998-2021 John Caron and University Corporation for Atmospheric Research/Unidata
+ * See LICENSE for license information.
+ */
+package ucar.gcdm.server;
+
+import static com.google.common.truth.Truth.assertThat;
+import static org.junit.Assert.fail;
+
+import io.grpc.ManagedChannel;
+import io.grpc.Server;
+import io.grpc.inprocess.InProcessChannelBuilder;
+import io.grpc.inprocess.InProcessServerBuilder;
+import io.grpc.stub.ClientCallStreamObserver;
+import io.grpc.stub.ClientResponseObserver;
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import ucar.array.Array;
+import ucar.array.Arrays;
+import ucar.array.InvalidRangeException;
+import ucar.array.Section;
+import ucar.gcdm.GcdmGrpc;
+import ucar.gcdm.GcdmNetcdfProto.DataRequest;
+import ucar.gcdm.GcdmNetcdfProto.DataResponse;
+import ucar.gcdm.client.GcdmNetcdfFile;
+import ucar.nc2.NetcdfFile;
+import ucar.nc2.NetcdfFiles;
+import ucar.nc2.Variable;
+import ucar.nc2.internal.util.CompareArrayToArray;
+import ucar.unidata.util.test.TestDir;
+
+/** Test sending data in chunks with {@link ChunkedDataSender}, using an in-process server. */
+public class TestChunkedDataSender {
+  private static final String filename =
+      TestDir.cdmLocalTestDataDir + "ncml/fmrc/GFS_Puerto_Rico_191km_20090730_0000.nc";
+
+  private Server server;
+  private ManagedChannel channel;
+
+  @Before
+  public void startServer() throws IOException {
+    String name = InProcessServerBuilder.generateName();
+    // small messages, so the data is sent in many chunks
+    server = InProcessServerBuilder.forName(name).addService(new GcdmServer.GcdmImpl(10000)).build().start();
+    channel = InProcessChannelBuilder.forName(name).build();
+  }
+
+  @After
+  public void stopServer() {
+    channel.shutdownNow();
+    server.shutdownNow();
+  }
+
+  @Test
+  public void testMakeChunks() throws InvalidRangeException {
+    Section want = new Section("1:30:2, 1:2, 0:3:3");
+    List<Section> chunks = ChunkedDataSender.makeChunks(want, 5);
+    assertThat(chunks.size()).isGreaterThan(1);
+
+    long total = 0;
+    int[] nextOrigin = want.getOrigin();
+    for (Section chunk : chunks) {
+      for (int i = 0; i < want.getRank(); i++) {
+        assertThat(chunk.getRange(i).stride()).isEqualTo(want.getRange(i).stride());
+        assertThat(chunk.getRange(i).last()).isAtMost(want.getRange(i).last());
+      }
+      assertThat(chunk.computeSize()).isAtMost(5);
+      total += chunk.computeSize();
+      // each chunk starts where the last one ended
+      assertThat(chunk.getOrigin()).isEqualTo(nextOrigin);
+      nextOrigin = next(want, chunk);
+    }
+    assertThat(total).isEqualTo(want.computeSize());
+  }
+
+  // the origin of the element after the last element of chunk, in canonical order within want
+  private static int[] next(Section want, Section chunk) {
+    int rank = want.getRank();
+    int[] last = new int[rank];
+    for (int i = 0; i < rank; i++) {
+      last[i] = chunk.getRange(i).last();
+    }
+    for (int i = rank - 1; i >= 0; i--) {
+      if (last[i] + want.getRange(i).stride() <= want.getRange(i).last()) {
+        last[i] += want.getRange(i).stride();
+        return last;
+      }
+      last[i] = want.getRange(i).first();
+    }
+    return last;
+  }
+
+  @Test
+  public void testSections() throws Exception {
+    try (NetcdfFile ncfile = NetcdfFiles.open(filename);
+        GcdmNetcdfFile gcdmFile = GcdmNetcdfFile.builder().setRemoteURI("gcdm://inprocess/" + filename)
+            .setChannel(channel).setCompression("gzip").build()) {
+      Variable v = ncfile.findVariable("Temperature_isobaric");
+      Variable gv = gcdmFile.findVariable("Temperature_isobaric");
+      assertThat(gv).isNotNull();
+
+      for (String spec : new String[] {"", "1:20:3, 1:5:2, 3:38, 0:44:4", "5:20, 0:5, 10:30, 1:43", "3, 1, 0:38, 0:44"}) {
+        Section section = spec.isEmpty() ? v.getSection() : new Section(spec);
+        Array<?> want = v.readArray(section);
+        Array<?> got = gv.readArray(section);
+        assertThat(got.getShape()).isEqualTo(want.getShape());
+        assertThat(CompareArrayToArray.compareData(spec, want, got)).isTrue();
+        assertThat(Arrays.copyPrimitiveArray(got)).isEqualTo(Arrays.copyPrimitiveArray(want));
+      }
+    }
+  }
+
+  @Test(timeout = 60 * 1000)
+  public void testPausedClient() throws Exception {
+    // one reader thread, shared by the requests
+    ExecutorService reader = Executors.newSingleThreadExecutor();
+    String name = InProcessServerBuilder.generateName();
+    Server oneReaderServer =
+        InProcessServerBuilder.forName(name).addService(new GcdmServer.GcdmImpl(10000, reader)).build().start();
+    ManagedChannel oneReaderChannel = InProcessChannelBuilder.forName(name).build();
+    try {
+      // a client that takes one message, then stops reading
+      CountDownLatch first = new CountDownLatch(1);
+      AtomicReference<ClientCallStreamObserver<DataRequest>> paused = new AtomicReference<>();
+      DataRequest request =
+          DataRequest.newBuilder().setLocation(filename).setVariableSpec("Temperature_isobaric").build();
+      GcdmGrpc.newStub(oneReaderChannel).getNetcdfData(request,
+          new ClientResponseObserver<DataRequest, DataResponse>() {
+            @Override
+            public void beforeStart(ClientCallStreamObserver<DataRequest> requestStream) {
+              paused.set(requestStream);
+              requestStream.disableAutoRequestWithInitial(1);
+            }
+
+            @Override
+            public void onNext(DataResponse response) {
+              first.countDown();
+            }
+
+            @Override
+            public void onError(Throwable t) {}
+
+            @Override
+            public void onCompleted() {}
+          });
+      assertThat(first.await(30, TimeUnit.SECONDS)).isTrue();
+
+      // another request completes meanwhile
+      try (NetcdfFile ncfile = NetcdfFiles.open(filename);
+          GcdmNetcdfFile gcdmFile = GcdmNetcdfFile.builder().setRemoteURI("gcdm://inprocess/" + filename)
+              .setChannel(oneReaderChannel).build()) {
+        Array<?> want = ncfile.findVariable("Temperature_isobaric").readArray();
+        Array<?> got = gcdmFile.findVariable("Temperature_isobaric").readArray();
+        assertThat(Arrays.copyPrimitiveArray(got)).isEqualTo(Arrays.copyPrimitiveArray(want));
+      }
+      paused.get().cancel("done", null);
+
+    } finally {
+      oneReaderChannel.shutdownNow();
+      oneReaderServer.shutdownNow();
+      reader.shutdownNow();
+    }
+  }
+
+  @Test
+  public void testUnknownCompression() throws Exception {
+    try (GcdmNetcdfFile gcdmFile = GcdmNetcdfFile.builder().setRemoteURI("gcdm://inprocess/" + filename)
+        .setChannel(channel).setCompression("nope").build()) {
+      gcdmFile.findVariable("Temperature_isobaric").readArray();
+      fail();
+    } catch (IOException e) {
+      // expected
+    }
+  }
+}
@@ -11,6 +11,7 @@ import java.util.ArrayList;
 import java.util.Collections;
 import java.util.Formatter;
 import java.util.List;
+import javax.annotation.Nullable;
 import javax.annotation.concurrent.Immutable;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -55,6 +56,17 @@ public abstract class GribArrayReader {
 
   protected abstract float[] readData(RandomAccessFile rafData, GribReaderRecord dr) throws IOException;
 
+  /**
+   * Read only the wanted (y, x) window of the record.
+   * 
+   * @return the data at (y, x) for each y in yRange, for each x in xRange, or null if the whole record must be read.
+   */
+  @Nullable
+  protected float[] readSubset(RandomAccessFile rafData, GribReaderRecord dr, RangeIterator yRange,
+      RangeIterator xRange) throws IOException {
+    return null;
+  }
+
   protected abstract void show(RandomAccessFile rafData, long dataPos) throws IOException;
 
   /////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////
@@ -66,6 +78,7 @@ public abstract class GribArrayReader {
   protected final GribCollectionImmutable gribCollection;
   private final GribCollectionImmutable.VariableIndex vindex;
   private final List<GribReaderRecord> records = new ArrayList<>();
+  private RangeIterator yRange, xRange; // the wanted (y, x) window
 
   protected GribArrayReader(GribCollectionImmutable gribCollection, GribCollectionImmutable.VariableIndex vindex) {
     this.gribCollection = gribCollection;
@@ -96,8 +109,8 @@ public abstract class GribArrayReader {
    */
   private Array<?> readDataFromCollection(GribCollectionImmutable.VariableIndex vindex, SectionIterable want)
       throws IOException {
-    // first time, read records and keep in memory
-    vindex.readRecords();
+    // hold on to the records while reading, they may be evicted from the cache
+    RecordStore recordStore = vindex.getRecords();
 
     int rank = want.getRank();
     int sectionLen = rank - 2; // all but x, y
@@ -108,7 +121,7 @@ public abstract class GribArrayReader {
     int resultIndex = 0;
     for (int sourceIndex : sectionWanted) {
       // addRecord(sourceIndex, count++);
-      GribCollectionImmutable.Record record = vindex.getRecordAt(sourceIndex);
+      GribCollectionImmutable.Record record = recordStore == null ? null : recordStore.getRecord(sourceIndex);
       if (Grib.debugRead)
         logger.debug("GribIosp debugRead sourceIndex={} resultIndex={} record is null={}", sourceIndex, resultIndex,
             record == null);
@@ -118,7 +131,9 @@ public abstract class GribArrayReader {
     }
 
     // sort by file and position, then read
-    DataReceiverIF dataReceiver = new DataReceiver(want.getShape(), want.getRange(rank - 2), want.getRange(rank - 1));
+    this.yRange = want.getRange(rank - 2);
+    this.xRange = want.getRange(rank - 1);
+    DataReceiverIF dataReceiver = new DataReceiver(want.getShape(), yRange, xRange);
     read(dataReceiver);
     return dataReceiver.getArray();
   }
@@ -140,6 +155,7 @@ public abstract class GribArrayReader {
     int[] useIndex = indexWanted;
 
     // collect all the records that need to be read
+    PartitionCollectionImmutable.ReadContext context = new PartitionCollectionImmutable.ReadContext();
     int resultPos = 0;
     while (iterWanted.hasNext()) {
       iterWanted.next(indexWanted); // returns the vindexP index in indexWanted array
@@ -158,7 +174,7 @@ public abstract class GribArrayReader {
         useIndex = indexReallyWanted;
       }
 
-      PartitionCollectionImmutable.DataRecord record = vindexP.getDataRecord(useIndex);
+      PartitionCollectionImmutable.DataRecord record = vindexP.getDataRecord(useIndex, context);
       if (record == null) {
         if (Grib.debugRead)
           logger.debug("readDataFromPartition missing data%n");
@@ -171,8 +187,9 @@ public abstract class GribArrayReader {
     }
 
     // sort by file and position, then read
-    DataReceiverIF dataReceiver =
-        new DataReceiver(section.getShape(), section.getRange(rank - 2), section.getRange(rank - 1));
+    this.yRange = section.getRange(rank - 2);
+    this.xRange = section.getRange(rank - 1);
+    DataReceiverIF dataReceiver = new DataReceiver(section.getShape(), yRange, xRange);
     readPartitioned(dataReceiver);
 
     return dataReceiver.getArray();
@@ -182,7 +199,8 @@ public abstract class GribArrayReader {
 
   /**
    * Read all of the data records that have been added.
-   * The full (x,y) record is read, the reciever will subset the (x, y) as needed.
+   * GRIB2 records read only the wanted (x, y) window when they can, otherwise the full (x,y) record is read, and the
+   * reciever will subset the (x, y) as needed.
    * 
    * @param dataReceiver send data here.
    */
@@ -222,9 +240,14 @@ public abstract class GribArrayReader {
           show(rafData, dr.record.pos + dr.record.drsOffset);
         }
 
-        float[] data = readData(rafData, dr);
-        GdsHorizCoordSys hcs = vindex.group.getGdsHorizCoordSys();
-        dataReceiver.addData(data, dr.resultIndex, hcs.nx);
+        float[] data = readSubset(rafData, dr, yRange, xRange);
+        if (data != null) {
+          dataReceiver.addSubset(data, dr.resultIndex);
+        } else {
+          data = readData(rafData, dr);
+          GdsHorizCoordSys hcs = vindex.group.getGdsHorizCoordSys();
+          dataReceiver.addData(data, dr.resultIndex, hcs.nx);
+        }
       }
 
     } finally {
@@ -274,9 +297,14 @@ public abstract class GribArrayReader {
           show(rafData, dr.record.pos + dr.record.drsOffset);
         }
 
-        float[] data = readData(rafData, dr);
-        GdsHorizCoordSys hcs = dr.hcs;
-        dataReceiver.addData(data, dr.resultIndex, hcs.nx);
+        float[] data = readSubset(rafData, dr, yRange, xRange);
+        if (data != null) {
+          dataReceiver.addSubset(data, dr.resultIndex);
+        } else {
+          data = readData(rafData, dr);
+          GdsHorizCoordSys hcs = dr.hcs;
+          dataReceiver.addData(data, dr.resultIndex, hcs.nx);
+        }
       }
 
     } finally {
@@ -288,6 +316,9 @@ public abstract class GribArrayReader {
   public interface DataReceiverIF {
     void addData(float[] data, int resultIndex, int nx);
 
+    /** Add data that is already subset to the wanted (y, x) window, eg by readSubset(). */
+    void addSubset(float[] data, int resultIndex);
+
     void setDataToZero(); // only used when debugging with gbx/ncx only, to fake the data
 
     Array<?> getArray();
@@ -330,6 +361,11 @@ public abstract class GribArrayReader {
       }
     }
 
+    @Override
+    public void addSubset(float[] data, int resultIndex) {
+      System.arraycopy(data, 0, this.dataArray, resultIndex * horizSize, horizSize);
+    }
+
     // optimization
     @Override
     public void setDataToZero() {
@@ -361,6 +397,16 @@ public abstract class GribArrayReader {
           hcs.nyRaw, hcs.nptsInLine);
     }
 
+    @Override
+    protected float[] readSubset(RandomAccessFile rafData, GribReaderRecord dr, RangeIterator yRange,
+        RangeIterator xRange) throws IOException {
+      GdsHorizCoordSys hcs = dr.hcs;
+      long dataPos = dr.record.pos + dr.record.drsOffset;
+      long bmsPos = (dr.record.bmsOffset > 0) ? dr.record.pos + dr.record.bmsOffset : 0;
+      return Grib2Record.readData(rafData, dataPos, bmsPos, hcs.gdsNumberPoints, hcs.getScanMode(), hcs.nxRaw,
+          hcs.nyRaw, hcs.nptsInLine, yRange, xRange);
+    }
+
     @Override
     protected void show(RandomAccessFile rafData, long pos) throws IOException {
       Grib2Record gr = Grib2RecordScanner.findRecordByDrspos(rafData, pos);
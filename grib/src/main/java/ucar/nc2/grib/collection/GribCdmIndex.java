@@ -37,6 +37,8 @@ import java.util.Arrays;
 import java.util.Comparator;
 import java.util.Formatter;
 import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
 import java.util.concurrent.atomic.AtomicBoolean;
 
 /**
@@ -92,6 +94,48 @@ public class GribCdmIndex implements IndexReader {
     return (GribCollectionImmutable) result;
   }
 
+  // System property name for -D flag
+  private static final String INDEXTHREADS_PROPERTY = "unidata.grib.index.threads";
+  private static final int indexThreads = readIndexThreads();
+  private static Executor indexExecutor;
+  private static boolean indexExecutorSet;
+
+  private static int readIndexThreads() {
+    int nthreads = Runtime.getRuntime().availableProcessors();
+    String prop = System.getProperty(INDEXTHREADS_PROPERTY);
+    if (prop != null) {
+      try {
+        int size = Integer.parseInt(prop);
+        if (size < 0)
+          classLogger.warn(String.format("-D%s must be >= 0", INDEXTHREADS_PROPERTY));
+        else
+          nthreads = size;
+      } catch (NumberFormatException nfe) {
+        classLogger.warn(String.format("-D%s is not an integer", INDEXTHREADS_PROPERTY));
+      }
+    }
+    return nthreads;
+  }
+
+  /**
+   * Set the Executor used to read or create the gbx9 indexes of the files of a collection, shared by all collections.
+   * Set to null to do it on the calling thread. If never set, a work stealing pool of -Dunidata.grib.index.threads
+   * threads is used.
+   */
+  public static synchronized void setIndexExecutor(@Nullable Executor exec) {
+    indexExecutor = exec;
+    indexExecutorSet = true;
+  }
+
+  @Nullable
+  static synchronized Executor getIndexExecutor() {
+    if (!indexExecutorSet && indexThreads > 1) {
+      indexExecutor = Executors.newWorkStealingPool(indexThreads);
+      indexExecutorSet = true;
+    }
+    return indexExecutor;
+  }
+
   public static void shutdown() {
     if (gribCollectionCache != null)
       gribCollectionCache.clearCache(true);
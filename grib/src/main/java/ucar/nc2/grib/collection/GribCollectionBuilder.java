@@ -5,6 +5,7 @@
 
 package ucar.nc2.grib.collection;
 
+import javax.annotation.Nullable;
 import javax.annotation.concurrent.Immutable;
 import thredds.featurecollection.FeatureCollectionConfig;
 import thredds.inventory.CollectionManager;
@@ -26,6 +27,9 @@ import ucar.unidata.util.StringUtil2;
 import java.io.File;
 import java.io.IOException;
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
 
 /**
  * Superclass to build indexes for collections of Grib files.
@@ -58,6 +62,86 @@ abstract class GribCollectionBuilder {
     this.directory = new File(dcm.getRoot());
   }
 
+  /**
+   * Read or create the gbx9 index of each file in the collection. This is done in parallel on
+   * GribCdmIndex.getIndexExecutor(), but the results are in the order of the collection's file iterator, so that
+   * the collection index does not depend on which file finished first.
+   *
+   * @param allFiles the files whose index was read are added to this
+   * @return the index of each file in allFiles, in the same order
+   */
+  protected List<GribIndex> readIndexes(List<MFile> allFiles) throws IOException {
+    List<MFile> mfiles = new ArrayList<>();
+    try (CloseableIterator<MFile> iter = dcm.getFileIterator()) { // not sorted
+      while (iter.hasNext()) {
+        mfiles.add(iter.next());
+      }
+    }
+
+    List<GribIndex> result = new ArrayList<>(mfiles.size());
+    Executor executor = GribCdmIndex.getIndexExecutor();
+    if (executor == null || mfiles.size() < 2) {
+      for (MFile mfile : mfiles) {
+        addIndex(mfile, readIndex(mfile), allFiles, result);
+      }
+      return result;
+    }
+
+    List<CompletableFuture<GribIndex>> futures = new ArrayList<>(mfiles.size());
+    for (MFile mfile : mfiles) {
+      futures.add(CompletableFuture.supplyAsync(() -> readIndex(mfile), executor));
+    }
+    try {
+      for (int i = 0; i < mfiles.size(); i++) {
+        addIndex(mfiles.get(i), futures.get(i).join(), allFiles, result);
+      }
+    } catch (CompletionException e) {
+      Throwable cause = e.getCause();
+      if (cause instanceof RuntimeException)
+        throw (RuntimeException) cause;
+      if (cause instanceof Error)
+        throw (Error) cause;
+      throw new IOException(cause);
+    } finally {
+      for (CompletableFuture<GribIndex> future : futures) {
+        future.cancel(false); // dont start the rest if we failed
+      }
+    }
+    return result;
+  }
+
+  private void addIndex(MFile mfile, @Nullable GribIndex index, List<MFile> allFiles, List<GribIndex> indexes) {
+    if (index != null) {
+      allFiles.add(mfile);
+      indexes.add(index);
+    }
+  }
+
+  // Returns null on failure.
+  @Nullable
+  private GribIndex readIndex(MFile mfile) {
+    String builderName = getClass().getSimpleName();
+    try {
+      GribIndex index;
+      if (Grib.debugGbxIndexOnly) {
+        index = GribIndex.open(isGrib1, mfile);
+      } else {
+        // this is where gbx9 files get recreated
+        index = GribIndex.readOrCreateIndexFromSingleFile(isGrib1, mfile, CollectionUpdateType.test, logger);
+      }
+      if (index == null) {
+        logger.error(builderName + " " + name + " : reading/Creating gbx9 index for file " + mfile.getPath()
+            + " failed");
+      }
+      return index;
+
+    } catch (IOException ioe) {
+      logger.error(
+          builderName + " " + name + " : reading/Creating gbx9 index for file " + mfile.getPath() + " failed", ioe);
+      return null;
+    }
+  }
+
   boolean updateNeeded(CollectionUpdateType ff) throws IOException {
     if (ff == CollectionUpdateType.never)
       return false;
@@ -51,7 +51,7 @@ import java.util.*;
 /**
  * An Immutable GribCollection, corresponds to one index (ncx) file.
  * The index file has already been read; it is opened and the closed when a variable is first accessed to read in the
- * record array (sa).
+ * records (see RecordStore).
  * <p>
  * Could use the Proto equivalents, and eliminate GribCollectionMutable ?
  *
@@ -453,7 +453,7 @@ public abstract class GribCollectionImmutable implements Closeable, FileCacheabl
     }
   }
 
-  @Immutable // except for sa
+  @Immutable
   public class VariableIndex {
     final GroupGC group; // belongs to this group
     final VariableIndex.Info info;
@@ -466,9 +466,6 @@ public abstract class GribCollectionImmutable implements Closeable, FileCacheabl
     // stats
     final int ndups, nrecords, nmissing;
 
-    // read in on demand
-    private SparseArray<Record> sa; // for GC only; lazily read; same array shape as variable, minus x and y
-
     protected VariableIndex(GroupGC g, GribCollectionMutable.VariableIndex gcVar) {
       this.group = g;
       this.info = new Info(gcVar);
@@ -483,12 +480,25 @@ public abstract class GribCollectionImmutable implements Closeable, FileCacheabl
       this.nmissing = gcVar.nmissing;
     }
 
-    public synchronized void readRecords() throws IOException {
-      if (this.sa != null)
-        return;
+    /** Make sure the records have been read in. */
+    public void readRecords() throws IOException {
+      getRecords();
+    }
 
+    /**
+     * Get the records, for GC only. They are read from the index file on demand, and kept in a shared cache that may
+     * evict them, so hold on to the result while it is being used, rather than calling this for each record.
+     *
+     * @return the records, same array shape as variable, minus x and y; or null if there are none.
+     */
+    @Nullable
+    public RecordStore getRecords() throws IOException {
       if (recordsLen == 0)
-        return;
+        return null;
+      return RecordStore.get(this, this::loadRecords);
+    }
+
+    private RecordStore loadRecords() throws IOException {
       byte[] b = new byte[recordsLen];
 
       try (RandomAccessFile indexRaf = RandomAccessFile.acquire(indexFilename)) {
@@ -517,13 +527,18 @@ public abstract class GribCollectionImmutable implements Closeable, FileCacheabl
           track[i] = proto.getTrack(i);
 
         int n = proto.getRecordsCount();
-        List<Record> records = new ArrayList<>(n);
+        int[] fileno = new int[n];
+        long[] pos = new long[n];
+        int[] bmsOffset = new int[n];
+        int[] drsOffset = new int[n];
         for (int i = 0; i < n; i++) {
           GribCollectionProto.Record pr = proto.getRecords(i);
-          records.add(new Record(pr.getFileno(), pr.getStartPos(), pr.getBmsOffset(), pr.getDrsOffset()));
+          fileno[i] = pr.getFileno();
+          pos[i] = pr.getStartPos();
+          bmsOffset[i] = pr.getBmsOffset();
+          drsOffset[i] = pr.getDrsOffset();
         }
-        int ndups = proto.getNdups();
-        this.sa = new SparseArray<>(size, track, records, ndups);
+        return new RecordStore(size, track, fileno, pos, bmsOffset, drsOffset, proto.getNdups());
 
       } catch (com.google.protobuf.InvalidProtocolBufferException e) {
         logger.error(" file={} recordsLen={} recordPos={}", indexFilename, recordsLen, recordsPos);
@@ -531,18 +546,28 @@ public abstract class GribCollectionImmutable implements Closeable, FileCacheabl
       }
     }
 
-    synchronized Record getRecordAt(int sourceIndex) {
-      return sa.getContent(sourceIndex);
+    @Nullable
+    Record getRecordAt(int sourceIndex) throws IOException {
+      RecordStore records = getRecords();
+      return records == null ? null : records.getRecord(sourceIndex);
     }
 
-    synchronized Record getRecordAt(int[] sourceIndex) {
-      return sa.getContent(sourceIndex);
+    @Nullable
+    Record getRecordAt(int[] sourceIndex) throws IOException {
+      RecordStore records = getRecords();
+      return records == null ? null : records.getRecord(sourceIndex);
     }
 
     ///////////////////////////////////////////////////////////////////////////////////////////////////////////////////////
     // coord based record finding. note only one record at a time
     @Nullable
-    synchronized Record getRecordAt(SubsetParams coords) {
+    Record getRecordAt(SubsetParams coords) throws IOException {
+      return getRecordAt(coords, getRecords());
+    }
+
+    /** Same as getRecordAt(coords), using the records already found with getRecords(). */
+    @Nullable
+    Record getRecordAt(SubsetParams coords, @Nullable RecordStore records) {
       int[] want = new int[getRank()];
       int count = 0;
       int runIdx = -1;
@@ -619,7 +644,7 @@ public abstract class GribCollectionImmutable implements Closeable, FileCacheabl
 
         want[count++] = idx;
       }
-      return sa.getContent(want);
+      return records == null ? null : records.getRecord(want);
     }
 
     public List<Coordinate> getCoordinates() {
@@ -660,12 +685,17 @@ public abstract class GribCollectionImmutable implements Closeable, FileCacheabl
       return coordIndex;
     }
 
-    public SparseArray<Record> getSparseArray() {
-      return sa;
+    /** The records as a SparseArray, for diagnostics; null if there are none. */
+    @Nullable
+    public SparseArray<Record> getSparseArray() throws IOException {
+      RecordStore records = getRecords();
+      return records == null ? null : records.toSparseArray();
     }
 
-    public int countNRecords() {
-      return sa == null ? -1 : sa.countNotMissing();
+    /** The number of records that are not missing, or -1 if there are none. */
+    public int countNRecords() throws IOException {
+      RecordStore records = getRecords();
+      return records == null ? -1 : records.countNotMissing();
     }
 
     public int getTableVersion() {
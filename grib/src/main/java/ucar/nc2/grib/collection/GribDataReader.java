@@ -6,6 +6,7 @@
 package ucar.nc2.grib.collection;
 
 import com.google.common.base.Throwables;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import ucar.nc2.ft2.coverage.CoordsSet;
@@ -23,14 +24,29 @@ import ucar.nc2.grib.grib2.Grib2Record;
 import ucar.nc2.grib.grib2.Grib2RecordScanner;
 import ucar.nc2.grib.grib2.table.Grib2Tables;
 import ucar.nc2.grid2.GridSubset;
+import ucar.nc2.util.CancelTask;
 import ucar.unidata.io.RandomAccessFile;
+import javax.annotation.Nullable;
 import javax.annotation.concurrent.Immutable;
 import java.io.IOException;
 import java.util.*;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.BooleanSupplier;
 
 /**
  * Grib Data Reader.
  * Split from GribIosp, so can be used by GribCoverage.
+ * <p/>
+ * The records are sorted by file and position, and split into batches from the same file, each read with one
+ * RandomAccessFile. If there is more than one batch, they are read and decoded concurrently on a shared thread pool,
+ * of -Dunidata.grib.read.threads threads, see {@link #setExecutor}. At most that many batches are in flight, each
+ * holding one decoded record at a time.
  * 
  * @deprecated use GribArrayReader.
  */
@@ -39,6 +55,48 @@ import java.util.*;
 public abstract class GribDataReader {
   private static final Logger logger = LoggerFactory.getLogger(GribDataReader.class);
 
+  // System property name for -D flag
+  private static final String READTHREADS_PROPERTY = "unidata.grib.read.threads";
+  private static final int readThreads = readReadThreads();
+  private static Executor executor;
+  private static boolean executorSet;
+
+  private static int readReadThreads() {
+    int nthreads = Math.min(Runtime.getRuntime().availableProcessors(), 8);
+    String prop = System.getProperty(READTHREADS_PROPERTY);
+    if (prop != null) {
+      try {
+        int size = Integer.parseInt(prop);
+        if (size < 0)
+          logger.warn(String.format("-D%s must be >= 0", READTHREADS_PROPERTY));
+        else
+          nthreads = size;
+      } catch (NumberFormatException nfe) {
+        logger.warn(String.format("-D%s is not an integer", READTHREADS_PROPERTY));
+      }
+    }
+    return nthreads;
+  }
+
+  /**
+   * Set the Executor used to read and decode records, shared by all collections. Set to null to read on the calling
+   * thread. If never set, a daemon thread pool of -Dunidata.grib.read.threads threads is used.
+   */
+  public static synchronized void setExecutor(@Nullable Executor exec) {
+    executor = exec;
+    executorSet = true;
+  }
+
+  @Nullable
+  private static synchronized Executor getExecutor() {
+    if (!executorSet && readThreads > 1) {
+      executor = Executors.newFixedThreadPool(readThreads,
+          new ThreadFactoryBuilder().setNameFormat("GribDataReader-%d").setDaemon(true).build());
+      executorSet = true;
+    }
+    return executor;
+  }
+
   public static GribDataReader factory(GribCollectionImmutable gribCollection,
       GribCollectionImmutable.VariableIndex vindex) {
     if (gribCollection.isGrib1)
@@ -49,6 +107,17 @@ public abstract class GribDataReader {
 
   protected abstract float[] readData(RandomAccessFile rafData, GribReaderRecord dr) throws IOException;
 
+  /**
+   * Read only the wanted (y, x) window of the record.
+   * 
+   * @return the data at (y, x) for each y in yRange, for each x in xRange, or null if the whole record must be read.
+   */
+  @Nullable
+  protected float[] readSubset(RandomAccessFile rafData, GribReaderRecord dr, RangeIterator yRange,
+      RangeIterator xRange) throws IOException {
+    return null;
+  }
+
   protected abstract void show(RandomAccessFile rafData, long dataPos) throws IOException;
 
   /////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////
@@ -60,6 +129,7 @@ public abstract class GribDataReader {
   protected final GribCollectionImmutable gribCollection;
   private final GribCollectionImmutable.VariableIndex vindex;
   private final List<GribReaderRecord> records = new ArrayList<>();
+  private RangeIterator yRange, xRange; // the wanted (y, x) window
 
   protected GribDataReader(GribCollectionImmutable gribCollection, GribCollectionImmutable.VariableIndex vindex) {
     this.gribCollection = gribCollection;
@@ -73,10 +143,22 @@ public abstract class GribDataReader {
    * @return data as an Array
    */
   public Array readData(SectionIterable want) throws IOException, InvalidRangeException {
+    return readData(want, null);
+  }
+
+  /**
+   * Read the section of data described by want
+   * 
+   * @param want which data do you want?
+   * @param cancelTask stop reading when cancelled, the records not yet read are left as NaN. May be null.
+   * @return data as an Array
+   */
+  public Array readData(SectionIterable want, @Nullable CancelTask cancelTask)
+      throws IOException, InvalidRangeException {
     if (vindex instanceof PartitionCollectionImmutable.VariableIndexPartitioned)
-      return readDataFromPartition((PartitionCollectionImmutable.VariableIndexPartitioned) vindex, want);
+      return readDataFromPartition((PartitionCollectionImmutable.VariableIndexPartitioned) vindex, want, cancelTask);
     else
-      return readDataFromCollection(vindex, want);
+      return readDataFromCollection(vindex, want, cancelTask);
   }
 
   /*
@@ -86,10 +168,10 @@ public abstract class GribDataReader {
    * want.getShape() indicates the result Array shape.
    * SectionIterable.next(int[] index) is not used here.
    */
-  private Array readDataFromCollection(GribCollectionImmutable.VariableIndex vindex, SectionIterable want)
-      throws IOException {
-    // first time, read records and keep in memory
-    vindex.readRecords();
+  private Array readDataFromCollection(GribCollectionImmutable.VariableIndex vindex, SectionIterable want,
+      @Nullable CancelTask cancelTask) throws IOException {
+    // hold on to the records while reading, they may be evicted from the cache
+    RecordStore recordStore = vindex.getRecords();
 
     int rank = want.getRank();
     int sectionLen = rank - 2; // all but x, y
@@ -100,7 +182,7 @@ public abstract class GribDataReader {
     int resultIndex = 0;
     for (int sourceIndex : sectionWanted) {
       // addRecord(sourceIndex, count++);
-      GribCollectionImmutable.Record record = vindex.getRecordAt(sourceIndex);
+      GribCollectionImmutable.Record record = recordStore == null ? null : recordStore.getRecord(sourceIndex);
       if (Grib.debugRead)
         logger.debug("GribIosp debugRead sourceIndex={} resultIndex={} record is null={}", sourceIndex, resultIndex,
             record == null);
@@ -110,8 +192,10 @@ public abstract class GribDataReader {
     }
 
     // sort by file and position, then read
-    DataReceiverIF dataReceiver = new DataReceiver(want.getShape(), want.getRange(rank - 2), want.getRange(rank - 1));
-    read(dataReceiver);
+    this.yRange = want.getRange(rank - 2);
+    this.xRange = want.getRange(rank - 1);
+    DataReceiverIF dataReceiver = new DataReceiver(want.getShape(), yRange, xRange);
+    read(dataReceiver, cancelTask);
     return dataReceiver.getArray();
   }
 
@@ -122,7 +206,7 @@ public abstract class GribDataReader {
    * want.getShape() indicates the result Array shape.
    */
   private Array readDataFromPartition(PartitionCollectionImmutable.VariableIndexPartitioned vindexP,
-      SectionIterable section) throws IOException {
+      SectionIterable section, @Nullable CancelTask cancelTask) throws IOException {
 
     int rank = section.getRank();
     SectionIterable sectionWanted = section.subSection(0, rank - 2); // all but x, y
@@ -131,6 +215,7 @@ public abstract class GribDataReader {
     int[] useIndex = indexWanted;
 
     // collect all the records that need to be read
+    PartitionCollectionImmutable.ReadContext context = new PartitionCollectionImmutable.ReadContext();
     int resultPos = 0;
     while (iterWanted.hasNext()) {
       iterWanted.next(indexWanted); // returns the vindexP index in indexWanted array
@@ -149,7 +234,7 @@ public abstract class GribDataReader {
         useIndex = indexReallyWanted;
       }
 
-      PartitionCollectionImmutable.DataRecord record = vindexP.getDataRecord(useIndex);
+      PartitionCollectionImmutable.DataRecord record = vindexP.getDataRecord(useIndex, context);
       if (record == null) {
         if (Grib.debugRead)
           logger.debug("readDataFromPartition missing data%n");
@@ -162,9 +247,10 @@ public abstract class GribDataReader {
     }
 
     // sort by file and position, then read
-    DataReceiverIF dataReceiver =
-        new DataReceiver(section.getShape(), section.getRange(rank - 2), section.getRange(rank - 1));
-    readPartitioned(dataReceiver);
+    this.yRange = section.getRange(rank - 2);
+    this.xRange = section.getRange(rank - 1);
+    DataReceiverIF dataReceiver = new DataReceiver(section.getShape(), yRange, xRange);
+    readPartitioned(dataReceiver, cancelTask);
 
     return dataReceiver.getArray();
   }
@@ -182,21 +268,23 @@ public abstract class GribDataReader {
 
   private Array readDataFromCollection2(GribCollectionImmutable.VariableIndex vindex, CoordsSet want,
       RangeIterator yRange, RangeIterator xRange) throws IOException {
-    // first time, read records and keep in memory
-    vindex.readRecords();
+    // read the records once, and hold on to them for the whole read
+    RecordStore recordStore = vindex.getRecords();
 
     // collect all the records that need to be read
     int resultIndex = 0;
     for (SubsetParams coords : want) {
-      GribCollectionImmutable.Record record = vindex.getRecordAt(coords);
+      GribCollectionImmutable.Record record = vindex.getRecordAt(coords, recordStore);
       if (record != null) {
         GribReaderRecord dr = new GribReaderRecord(resultIndex, record, vindex.group.getGdsHorizCoordSys());
       }
       resultIndex++;
     }
 
+    this.yRange = yRange;
+    this.xRange = xRange;
     DataReceiverIF dataReceiver = new DataReceiver(want.getShape(yRange, xRange), yRange, xRange);
-    read(dataReceiver);
+    read(dataReceiver, null);
     return dataReceiver.getArray();
   }
 
@@ -204,9 +292,10 @@ public abstract class GribDataReader {
       RangeIterator yRange, RangeIterator xRange) throws IOException {
 
     // collect all the records that need to be read
+    PartitionCollectionImmutable.ReadContext context = new PartitionCollectionImmutable.ReadContext();
     int resultPos = 0;
     for (SubsetParams coords : want) {
-      PartitionCollectionImmutable.DataRecord record = vindexP.getDataRecord(coords);
+      PartitionCollectionImmutable.DataRecord record = vindexP.getDataRecord(coords, context);
       if (record != null) {
         record.resultIndex = resultPos;
         records.add(record);
@@ -215,8 +304,10 @@ public abstract class GribDataReader {
     }
 
     // sort by file and position, then read
+    this.yRange = yRange;
+    this.xRange = xRange;
     DataReceiverIF dataReceiver = new DataReceiver(want.getShape(yRange, xRange), yRange, xRange);
-    readPartitioned(dataReceiver);
+    readPartitioned(dataReceiver, null);
 
     return dataReceiver.getArray();
   }
@@ -225,55 +316,29 @@ public abstract class GribDataReader {
 
   /**
    * Read all of the data records that have been added.
-   * The full (x,y) record is read, the reciever will subset the (x, y) as needed.
+   * GRIB2 records read only the wanted (x, y) window when they can, otherwise the full (x,y) record is read, and the
+   * reciever will subset the (x, y) as needed.
    * 
    * @param dataReceiver send data here.
+   * @param cancelTask stop when cancelled, may be null.
    */
-  private void read(DataReceiverIF dataReceiver) throws IOException {
+  private void read(DataReceiverIF dataReceiver, @Nullable CancelTask cancelTask) throws IOException {
     Collections.sort(records);
 
-    int currFile = -1;
-    RandomAccessFile rafData = null;
-    try {
+    if (Grib.debugIndexOnly || Grib.debugGbxIndexOnly) {
       for (GribReaderRecord dr : records) {
-        if (Grib.debugIndexOnly || Grib.debugGbxIndexOnly) {
-          GribIosp.debugIndexOnlyCount++;
-          currentDataRecord = dr.record;
-          currentDataRafFilename = gribCollection.getDataRafFilename(dr.record.fileno);
-          if (Grib.debugIndexOnlyShow)
-            dr.show(gribCollection);
-          dataReceiver.setDataToZero();
-          continue;
-        }
-
-        if (dr.record.fileno != currFile) {
-          if (rafData != null)
-            rafData.close();
-          rafData = gribCollection.getDataRaf(dr.record.fileno);
-          currFile = dr.record.fileno;
-        }
-
-        if (dr.record.pos == GribCollectionMutable.MISSING_RECORD)
-          continue;
-
-        if (GribDataReader.validator != null && dr.validation != null && rafData != null) {
-          GribDataReader.validator.validate(gribCollection.cust, rafData, dr.record.pos + dr.record.drsOffset,
-              dr.validation);
-
-        } else if (show && rafData != null) { // for validation
-          show(dr.validation);
-          show(rafData, dr.record.pos + dr.record.drsOffset);
-        }
-
-        float[] data = readData(rafData, dr);
-        GdsHorizCoordSys hcs = vindex.group.getGdsHorizCoordSys();
-        dataReceiver.addData(data, dr.resultIndex, hcs.nx);
+        GribIosp.debugIndexOnlyCount++;
+        currentDataRecord = dr.record;
+        currentDataRafFilename = gribCollection.getDataRafFilename(dr.record.fileno);
+        if (Grib.debugIndexOnlyShow)
+          dr.show(gribCollection);
+        dataReceiver.setDataToZero();
       }
-
-    } finally {
-      if (rafData != null)
-        rafData.close(); // make sure its closed even on exception
+      return;
     }
+
+    readBatches(dataReceiver, cancelTask, (dr, last) -> dr.record.fileno == last.record.fileno,
+        dr -> gribCollection.getDataRaf(dr.record.fileno));
   }
 
   private void show(GridSubset validation) {
@@ -282,32 +347,135 @@ public abstract class GribDataReader {
     System.out.printf("Coords wanted%n %s", validation);
   }
 
-  private void readPartitioned(DataReceiverIF dataReceiver) throws IOException {
+  private void readPartitioned(DataReceiverIF dataReceiver, @Nullable CancelTask cancelTask) throws IOException {
     Collections.sort(records);
 
-    PartitionCollectionImmutable.DataRecord lastRecord = null;
-    RandomAccessFile rafData = null;
-    try {
-
+    if (Grib.debugIndexOnly || Grib.debugGbxIndexOnly) {
       for (GribReaderRecord dr : records) {
-        PartitionCollectionImmutable.DataRecord drp = (PartitionCollectionImmutable.DataRecord) dr;
-        if (Grib.debugIndexOnly || Grib.debugGbxIndexOnly) {
-          GribIosp.debugIndexOnlyCount++;
-          if (Grib.debugIndexOnlyShow)
-            drp.show();
-          dataReceiver.setDataToZero();
-          continue;
-        }
+        GribIosp.debugIndexOnlyCount++;
+        if (Grib.debugIndexOnlyShow)
+          ((PartitionCollectionImmutable.DataRecord) dr).show();
+        dataReceiver.setDataToZero();
+      }
+      return;
+    }
+
+    readBatches(dataReceiver, cancelTask,
+        (dr, last) -> ((PartitionCollectionImmutable.DataRecord) dr)
+            .usesSameFile((PartitionCollectionImmutable.DataRecord) last),
+        dr -> {
+          PartitionCollectionImmutable.DataRecord drp = (PartitionCollectionImmutable.DataRecord) dr;
+          return drp.usePartition.getRaf(drp.partno, dr.record.fileno);
+        });
+  }
+
+  private interface SameFile {
+    boolean test(GribReaderRecord dr, GribReaderRecord last);
+  }
+
+  private interface RafOpener {
+    RandomAccessFile open(GribReaderRecord dr) throws IOException;
+  }
+
+  /*
+   * Split the sorted records into batches from the same file, and read each batch with one RandomAccessFile.
+   * With an Executor, the batches are read concurrently, no more than readThreads at a time, and each batch
+   * holds one decoded record at a time, so that is the bound on the float[] in flight. Each result goes to its own
+   * resultIndex, so the order of completion does not matter.
+   */
+  private void readBatches(DataReceiverIF dataReceiver, @Nullable CancelTask cancelTask, SameFile sameFile,
+      RafOpener opener) throws IOException {
+    // the validator and show are for debugging, and expect the records in order
+    Executor exec = (validator == null && !show) ? getExecutor() : null;
+    int maxInFlight = Math.max(readThreads, 2);
+    int nrecords = 0;
+    for (GribReaderRecord dr : records) {
+      if (dr.record.pos != GribCollectionMutable.MISSING_RECORD)
+        nrecords++;
+    }
+    // a few batches per thread, to balance the load
+    int batchSize =
+        (exec == null) ? Integer.MAX_VALUE : Math.max(1, (nrecords + 2 * maxInFlight - 1) / (2 * maxInFlight));
+
+    List<List<GribReaderRecord>> batches = new ArrayList<>();
+    List<GribReaderRecord> batch = null;
+    GribReaderRecord last = null;
+    for (GribReaderRecord dr : records) {
+      if (dr.record.pos == GribCollectionMutable.MISSING_RECORD)
+        continue;
+      if (batch == null || batch.size() >= batchSize || !sameFile.test(dr, last)) {
+        batch = new ArrayList<>();
+        batches.add(batch);
+      }
+      batch.add(dr);
+      last = dr;
+    }
 
-        if ((rafData == null) || !drp.usesSameFile(lastRecord)) {
-          if (rafData != null)
-            rafData.close();
-          rafData = drp.usePartition.getRaf(drp.partno, dr.record.fileno);
+    if (exec == null || batches.size() < 2) {
+      BooleanSupplier cancelled = () -> cancelTask != null && cancelTask.isCancel();
+      for (List<GribReaderRecord> b : batches) {
+        if (cancelled.getAsBoolean())
+          return;
+        readBatch(b, dataReceiver, opener, cancelled);
+      }
+      return;
+    }
+
+    AtomicBoolean failed = new AtomicBoolean();
+    BooleanSupplier stop = () -> failed.get() || (cancelTask != null && cancelTask.isCancel());
+    CompletionService<Void> completion = new ExecutorCompletionService<>(exec);
+    List<Future<Void>> futures = new ArrayList<>();
+    int next = 0;
+    int running = 0;
+    try {
+      while (next < batches.size() || running > 0) {
+        while (running < maxInFlight && next < batches.size() && !stop.getAsBoolean()) {
+          List<GribReaderRecord> b = batches.get(next++);
+          futures.add(completion.submit(() -> {
+            readBatch(b, dataReceiver, opener, stop);
+            return null;
+          }));
+          running++;
         }
-        lastRecord = drp;
+        if (running == 0)
+          break; // cancelled
+        Future<Void> done = completion.take();
+        running--;
+        getResult(done);
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new IOException(e);
+    } finally {
+      if (running > 0) {
+        failed.set(true); // the running batches stop at their next record
+        for (Future<Void> future : futures)
+          future.cancel(false);
+      }
+    }
+  }
 
-        if (dr.record.pos == GribCollectionMutable.MISSING_RECORD)
-          continue;
+  private static void getResult(Future<Void> future) throws IOException, InterruptedException {
+    try {
+      future.get();
+    } catch (ExecutionException e) {
+      Throwable cause = e.getCause();
+      if (cause instanceof IOException)
+        throw (IOException) cause;
+      if (cause instanceof RuntimeException)
+        throw (RuntimeException) cause;
+      if (cause instanceof Error)
+        throw (Error) cause;
+      throw new IOException(cause);
+    }
+  }
+
+  private void readBatch(List<GribReaderRecord> batch, DataReceiverIF dataReceiver, RafOpener opener,
+      BooleanSupplier stop) throws IOException {
+    try (RandomAccessFile rafData = opener.open(batch.get(0))) {
+      for (GribReaderRecord dr : batch) {
+        if (stop.getAsBoolean())
+          return;
 
         if (GribDataReader.validator != null && dr.validation != null) {
           GribDataReader.validator.validate(gribCollection.cust, rafData, dr.record.pos + dr.record.drsOffset,
@@ -317,20 +485,27 @@ public abstract class GribDataReader {
           show(rafData, dr.record.pos + dr.record.drsOffset);
         }
 
-        float[] data = readData(rafData, dr);
-        GdsHorizCoordSys hcs = dr.hcs;
-        dataReceiver.addData(data, dr.resultIndex, hcs.nx);
+        float[] data = readSubset(rafData, dr, yRange, xRange);
+        if (data != null) {
+          synchronized (dataReceiver) {
+            dataReceiver.addSubset(data, dr.resultIndex);
+          }
+        } else {
+          data = readData(rafData, dr);
+          synchronized (dataReceiver) {
+            dataReceiver.addData(data, dr.resultIndex, dr.hcs.nx);
+          }
+        }
       }
-
-    } finally {
-      if (rafData != null)
-        rafData.close(); // make sure its closed even on exception
     }
   }
 
   public interface DataReceiverIF {
     void addData(float[] data, int resultIndex, int nx);
 
+    /** Add data that is already subset to the wanted (y, x) window, eg by readSubset(). */
+    void addSubset(float[] data, int resultIndex);
+
     void setDataToZero(); // only used when debugging with gbx/ncx only, to fake the data
 
     Array getArray();
@@ -338,6 +513,7 @@ public abstract class GribDataReader {
 
   public static class DataReceiver implements DataReceiverIF {
     private final Array dataArray;
+    private final float[] storage;
     private final RangeIterator yRange;
     private final RangeIterator xRange;
     private final int horizSize;
@@ -353,9 +529,9 @@ public abstract class GribDataReader {
             Throwables.getStackTraceAsString(new Throwable()));
         throw new IllegalArgumentException("RequestTooLarge: Len greater that 100M ");
       }
-      float[] data = new float[(int) len];
-      Arrays.fill(data, Float.NaN); // prefill primitive array
-      dataArray = Array.factory(DataType.FLOAT, shape, data);
+      storage = new float[(int) len];
+      Arrays.fill(storage, Float.NaN); // prefill primitive array
+      dataArray = Array.factory(DataType.FLOAT, shape, storage);
     }
 
     @Override
@@ -371,6 +547,11 @@ public abstract class GribDataReader {
       }
     }
 
+    @Override
+    public void addSubset(float[] data, int resultIndex) {
+      System.arraycopy(data, 0, storage, resultIndex * horizSize, horizSize);
+    }
+
     // optimization
     @Override
     public void setDataToZero() {
@@ -403,6 +584,16 @@ public abstract class GribDataReader {
           hcs.nyRaw, hcs.nptsInLine);
     }
 
+    @Override
+    protected float[] readSubset(RandomAccessFile rafData, GribReaderRecord dr, RangeIterator yRange,
+        RangeIterator xRange) throws IOException {
+      GdsHorizCoordSys hcs = dr.hcs;
+      long dataPos = dr.record.pos + dr.record.drsOffset;
+      long bmsPos = (dr.record.bmsOffset > 0) ? dr.record.pos + dr.record.bmsOffset : 0;
+      return Grib2Record.readData(rafData, dataPos, bmsPos, hcs.gdsNumberPoints, hcs.getScanMode(), hcs.nxRaw,
+          hcs.nyRaw, hcs.nptsInLine, yRange, xRange);
+    }
+
     @Override
     protected void show(RandomAccessFile rafData, long pos) throws IOException {
       Grib2Record gr = Grib2RecordScanner.findRecordByDrspos(rafData, pos);
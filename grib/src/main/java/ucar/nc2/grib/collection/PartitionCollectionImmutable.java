@@ -28,7 +28,11 @@ import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.Formatter;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Optional;
 
 /**
  * An Immutable PartitionCollection
@@ -342,9 +346,8 @@ public abstract class PartitionCollectionImmutable extends GribCollectionImmutab
           continue;
         }
 
-        vpart.readRecords(); // make sure sparse array has been read in.
-        if (vpart.getSparseArray() != null) {
-          SparseArray<Record> sa = vpart.getSparseArray();
+        SparseArray<Record> sa = vpart.getSparseArray();
+        if (sa != null) {
           sa.showMissing(f);
         }
       }
@@ -356,10 +359,11 @@ public abstract class PartitionCollectionImmutable extends GribCollectionImmutab
      * find the data record for a request
      *
      * @param indexWanted the source index request, excluding x and y
+     * @param context holds the partition variables and records found by earlier requests of the same read
      * @return DataRecord pointing to where the data is, or null if missing
      */
     @Nullable
-    DataRecord getDataRecord(int[] indexWanted) throws IOException {
+    DataRecord getDataRecord(int[] indexWanted, ReadContext context) throws IOException {
 
       if (Grib.debugRead)
         logger.debug("PartitionCollection.getDataRecord index wanted = ({}) on {} type={}",
@@ -410,7 +414,7 @@ public abstract class PartitionCollectionImmutable extends GribCollectionImmutab
       }
 
       // the 2D component variable in the partno partition
-      GribCollectionImmutable.VariableIndex vindex2Dpart = getVindex2D(partno);
+      GribCollectionImmutable.VariableIndex vindex2Dpart = context.getVindex2D(this, partno);
       if (vindex2Dpart == null)
         return null; // missing
       if (Grib.debugRead)
@@ -418,7 +422,7 @@ public abstract class PartitionCollectionImmutable extends GribCollectionImmutab
 
       if (isPartitionOfPartitions) {
         VariableIndexPartitioned compVindex2Dp = (VariableIndexPartitioned) vindex2Dpart;
-        return getDataRecordPofP(indexWanted, compVindex2Dp);
+        return getDataRecordPofP(indexWanted, compVindex2Dp, context);
       }
 
       // translate to coordinates in vindex
@@ -430,7 +434,8 @@ public abstract class PartitionCollectionImmutable extends GribCollectionImmutab
 
       if (sourceIndex == null)
         return null; // missing
-      GribCollectionImmutable.Record record = vindex2Dpart.getRecordAt(sourceIndex);
+      RecordStore records = context.getRecords(vindex2Dpart);
+      GribCollectionImmutable.Record record = (records == null) ? null : records.getRecord(sourceIndex);
       if (record == null) {
         return null;
       }
@@ -446,17 +451,19 @@ public abstract class PartitionCollectionImmutable extends GribCollectionImmutab
      *
      * @param indexWanted index into this PoP
      * @param compVindex2Dp 2D variable from the desired partition; may be PofP or PofGC
+     * @param context holds the partition variables and records found by earlier requests of the same read
      * @return desired record to be read, from the GC, or null if missing
      */
     @Nullable
-    private DataRecord getDataRecordPofP(int[] indexWanted, VariableIndexPartitioned compVindex2Dp) throws IOException {
+    private DataRecord getDataRecordPofP(int[] indexWanted, VariableIndexPartitioned compVindex2Dp,
+        ReadContext context) throws IOException {
       if (group.getType() == Type.Best) {
         int[] indexWantedP = translateIndexBest(indexWanted, compVindex2Dp);
         if (Grib.debugRead)
           logger.debug("  (Best) getDataRecordPofP= {}", Arrays.toString(indexWantedP));
         if (indexWantedP == null)
           return null;
-        return compVindex2Dp.getDataRecord(indexWantedP);
+        return compVindex2Dp.getDataRecord(indexWantedP, context);
 
       } else {
         // corresponding index into compVindex2Dp
@@ -465,7 +472,7 @@ public abstract class PartitionCollectionImmutable extends GribCollectionImmutab
           logger.debug("  (2D) getDataRecordPofP= {}", Arrays.toString(indexWantedP));
         if (indexWantedP == null)
           return null;
-        return compVindex2Dp.getDataRecord(indexWantedP);
+        return compVindex2Dp.getDataRecord(indexWantedP, context);
 
       } /*
          * else if (group.getType() == Type.Best) {
@@ -707,7 +714,7 @@ public abstract class PartitionCollectionImmutable extends GribCollectionImmutab
     ///////////////////////////////////////////////////////////////////////////////////////////////////////////////////////
     // experimental coord based
     @Nullable
-    DataRecord getDataRecord(SubsetParams coords) throws IOException {
+    DataRecord getDataRecord(SubsetParams coords, ReadContext context) throws IOException {
 
       // identify the master index for this runtime
       CalendarDate runtime = coords.getRunTime();
@@ -724,8 +731,8 @@ public abstract class PartitionCollectionImmutable extends GribCollectionImmutab
         return null; // LOOK is this possible?
 
       // find the 2D vi in that partition
-      GribCollectionImmutable.VariableIndex compVindex2D = getVindex2D(partno); // the 2D component variable in the
-      // partno partition
+      GribCollectionImmutable.VariableIndex compVindex2D = context.getVindex2D(this, partno); // the 2D component
+      // variable in the partno partition
       if (compVindex2D == null)
         return null; // missing
       if (Grib.debugRead)
@@ -733,11 +740,11 @@ public abstract class PartitionCollectionImmutable extends GribCollectionImmutab
 
       if (isPartitionOfPartitions) {
         VariableIndexPartitioned compVindex2Dp = (VariableIndexPartitioned) compVindex2D;
-        return compVindex2Dp.getDataRecord(coords);
+        return compVindex2Dp.getDataRecord(coords, context);
       }
 
       // otherwise its a GribCollection
-      GribCollectionImmutable.Record record = compVindex2D.getRecordAt(coords);
+      GribCollectionImmutable.Record record = compVindex2D.getRecordAt(coords, context.getRecords(compVindex2D));
       if (record == null)
         return null;
 
@@ -750,6 +757,41 @@ public abstract class PartitionCollectionImmutable extends GribCollectionImmutab
   }
 
 
+  /**
+   * The partition variables and their RecordStores used by one read. Each is found once, on the first request that
+   * needs it, instead of through the partition and RecordStore caches for every record; and the stores are held
+   * until the read is done, so they are not evicted and read again part way through. Not thread safe.
+   */
+  static class ReadContext {
+    private final Map<VariableIndexPartitioned, Map<Integer, Optional<GribCollectionImmutable.VariableIndex>>> vindexes =
+        new IdentityHashMap<>();
+    private final Map<GribCollectionImmutable.VariableIndex, Optional<RecordStore>> stores = new IdentityHashMap<>();
+
+    /** The 2D component variable of vip in partition partno, or null if missing. */
+    @Nullable
+    GribCollectionImmutable.VariableIndex getVindex2D(VariableIndexPartitioned vip, int partno) throws IOException {
+      Map<Integer, Optional<GribCollectionImmutable.VariableIndex>> parts =
+          vindexes.computeIfAbsent(vip, k -> new HashMap<>());
+      Optional<GribCollectionImmutable.VariableIndex> result = parts.get(partno);
+      if (result == null) {
+        result = Optional.ofNullable(vip.getVindex2D(partno));
+        parts.put(partno, result);
+      }
+      return result.orElse(null);
+    }
+
+    /** The records of vindex, or null if there are none. */
+    @Nullable
+    RecordStore getRecords(GribCollectionImmutable.VariableIndex vindex) throws IOException {
+      Optional<RecordStore> result = stores.get(vindex);
+      if (result == null) {
+        result = Optional.ofNullable(vindex.getRecords());
+        stores.put(vindex, result);
+      }
+      return result.orElse(null);
+    }
+  }
+
   @Immutable
   static class DataRecord extends GribReaderRecord {
     final PartitionCollectionImmutable usePartition;
@@ -0,0 +1,230 @@
+/*
+ * Copyright (c) 1998-2021 John Caron and University Corporation for Atmospheric Research/Unidata
+ * See LICENSE for license information.
+ */
+package ucar.nc2.grib.collection;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheStats;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Formatter;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import javax.annotation.Nullable;
+import javax.annotation.concurrent.Immutable;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import ucar.nc2.grib.coord.SparseArray;
+
+/**
+ * The records of one GribCollectionImmutable.VariableIndex, stored by column instead of as a SparseArray of Record
+ * objects. Conceptually a multidim array with the variable's shape (minus x and y), where track[index] = 0 if the
+ * record is missing, else recno+1. The record columns (fileno, pos, bmsOffset, drsOffset) are primitive arrays, and
+ * the track, fileno and offsets are not stored at all when they are constant or sequential (see SmartArrayInt).
+ * Records are made on demand by {@link #getRecord(int)}.
+ * <p>
+ * The stores that have been read are kept in a cache shared by all collections, bounded by their total heap bytes,
+ * and evicted LRU; an evicted store is read again from the ncx4 file when next needed.
+ * The size in bytes may be set with -Dunidata.grib.records.maxbytes, default 1/4 of the maximum heap.
+ */
+@Immutable
+public class RecordStore {
+  private static final Logger logger = LoggerFactory.getLogger(RecordStore.class);
+
+  // System property name for -D flag
+  private static final String MAXBYTES_PROPERTY = "unidata.grib.records.maxbytes";
+
+  private static long maxBytes = readMaxBytes();
+  private static Cache<Object, RecordStore> cache = makeCache(maxBytes);
+
+  private static long readMaxBytes() {
+    String prop = System.getProperty(MAXBYTES_PROPERTY);
+    if (prop != null) {
+      try {
+        long size = Long.parseLong(prop);
+        if (size >= 0)
+          return size;
+        logger.warn(String.format("-D%s must be >= 0", MAXBYTES_PROPERTY));
+      } catch (NumberFormatException nfe) {
+        logger.warn(String.format("-D%s is not an integer", MAXBYTES_PROPERTY));
+      }
+    }
+    return Runtime.getRuntime().maxMemory() / 4;
+  }
+
+  // keys are compared by identity, and dropped when the variable is no longer reachable.
+  private static Cache<Object, RecordStore> makeCache(long maxBytes) {
+    return CacheBuilder.newBuilder().weakKeys().maximumWeight(maxBytes)
+        .weigher((Object key, RecordStore store) -> (int) Math.min(Integer.MAX_VALUE, store.getHeapBytes()))
+        .recordStats().build();
+  }
+
+  /** Get the store for owner from the cache, reading it with loader if not present. */
+  static RecordStore get(Object owner, Callable<RecordStore> loader) throws IOException {
+    Cache<Object, RecordStore> current;
+    synchronized (RecordStore.class) {
+      current = cache;
+    }
+    try {
+      return current.get(owner, loader);
+    } catch (ExecutionException e) {
+      if (e.getCause() instanceof IOException)
+        throw (IOException) e.getCause();
+      throw new RuntimeException(e.getCause());
+    }
+  }
+
+  /**
+   * Replace the shared cache with an empty one of the given size. Stores already in use are not affected.
+   *
+   * @param maxBytes maximum total heap bytes of the cached stores; 0 means the stores are read each time they are
+   *        needed.
+   */
+  public static synchronized void init(long maxBytes) {
+    RecordStore.maxBytes = maxBytes;
+    cache = makeCache(maxBytes);
+  }
+
+  /** Remove all stores from the shared cache. */
+  public static synchronized void clearCache() {
+    cache.invalidateAll();
+  }
+
+  /** Total heap bytes of the stores in the shared cache. */
+  public static synchronized long getCacheHeapBytes() {
+    long total = 0;
+    for (RecordStore store : cache.asMap().values()) {
+      total += store.getHeapBytes();
+    }
+    return total;
+  }
+
+  public static synchronized CacheStats getCacheStats() {
+    return cache.stats();
+  }
+
+  public static synchronized void showCache(Formatter f) {
+    CacheStats stats = cache.stats();
+    f.format("RecordStore cache maxBytes=%d nvars=%d heapBytes=%d hits=%d misses=%d evictions=%d%n", maxBytes,
+        cache.size(), getCacheHeapBytes(), stats.hitCount(), stats.missCount(), stats.evictionCount());
+  }
+
+  ////////////////////////////////////////////////////////////////////////////////////////////
+
+  private final int[] shape; // multidim sizes
+  private final int[] stride; // for index calculation
+  private final int totalSize; // product of sizes
+  private final int ndups;
+
+  private final SmartArrayInt track; // recno+1, 0 = missing; size totalSize
+  private final SmartArrayInt fileno; // which file, size nrecords
+  private final long[] pos; // offset on file where message starts
+  private final SmartArrayInt bmsOffset; // if non-zero, offset where bms starts (grib2)
+  private final SmartArrayInt drsOffset; // if non-zero, offset where drs starts (grib2)
+
+  RecordStore(int[] shape, int[] track, int[] fileno, long[] pos, int[] bmsOffset, int[] drsOffset, int ndups) {
+    this.shape = shape;
+    this.stride = new int[shape.length];
+    int product = 1;
+    for (int ii = shape.length - 1; ii >= 0; ii--) {
+      stride[ii] = product;
+      product *= shape[ii];
+    }
+    this.totalSize = product;
+    if (track.length != totalSize)
+      throw new IllegalStateException("track len " + track.length + " != totalSize " + totalSize);
+    if (fileno.length != pos.length || bmsOffset.length != pos.length || drsOffset.length != pos.length)
+      throw new IllegalStateException("record columns must have the same length");
+
+    this.track = new SmartArrayInt(track);
+    this.fileno = new SmartArrayInt(fileno);
+    this.pos = pos;
+    this.bmsOffset = new SmartArrayInt(bmsOffset);
+    this.drsOffset = new SmartArrayInt(drsOffset);
+    this.ndups = ndups;
+  }
+
+  /** The record at the given element of the multidim array, or null if missing. */
+  @Nullable
+  public GribCollectionImmutable.Record getRecord(int idx) {
+    if (idx >= totalSize || idx < 0) {
+      logger.error("BAD index get=" + idx + " max= " + totalSize, new Throwable());
+      return null;
+    }
+    int recno = track.get(idx) - 1;
+    if (recno < 0)
+      return null; // missing
+    return new GribCollectionImmutable.Record(fileno.get(recno), pos[recno], bmsOffset.get(recno),
+        drsOffset.get(recno));
+  }
+
+  /** The record at the given index of the multidim array, or null if missing. */
+  @Nullable
+  public GribCollectionImmutable.Record getRecord(int[] index) {
+    int result = 0;
+    for (int ii = 0; ii < index.length; ii++)
+      result += index[ii] * stride[ii];
+    return getRecord(result);
+  }
+
+  public int[] getShape() {
+    return shape.clone();
+  }
+
+  public int getRank() {
+    return shape.length;
+  }
+
+  public int getTotalSize() {
+    return totalSize;
+  }
+
+  /** Number of records stored, including the duplicates that are not referenced. */
+  public int getNrecords() {
+    return pos.length;
+  }
+
+  public int getNdups() {
+    return ndups;
+  }
+
+  public int countNotMissing() {
+    int result = 0;
+    for (int idx = 0; idx < totalSize; idx++)
+      if (track.get(idx) > 0)
+        result++;
+    return result;
+  }
+
+  /** Approximate bytes of heap used by this store. */
+  public long getHeapBytes() {
+    return 64 + 4L * shape.length * 2 + heapBytes(track) + heapBytes(fileno) + 16 + 8L * pos.length
+        + heapBytes(bmsOffset) + heapBytes(drsOffset);
+  }
+
+  private static long heapBytes(SmartArrayInt sa) {
+    return 32 + (sa.isCompact() ? 0 : 16 + 4L * sa.getN());
+  }
+
+  /** Make the equivalent SparseArray, for diagnostics. */
+  public SparseArray<GribCollectionImmutable.Record> toSparseArray() {
+    int n = pos.length;
+    List<GribCollectionImmutable.Record> content = new ArrayList<>(n);
+    for (int recno = 0; recno < n; recno++) {
+      content.add(new GribCollectionImmutable.Record(fileno.get(recno), pos[recno], bmsOffset.get(recno),
+          drsOffset.get(recno)));
+    }
+    int[] trackArray = new int[totalSize];
+    for (int idx = 0; idx < totalSize; idx++)
+      trackArray[idx] = track.get(idx);
+    return new SparseArray<>(shape.clone(), trackArray, content, ndups);
+  }
+
+  public void show(Formatter f) {
+    f.format("RecordStore totalSize=%d nrecords=%d ndups=%d heapBytes=%d%n", totalSize, pos.length, ndups,
+        getHeapBytes());
+  }
+}
@@ -66,6 +66,11 @@ public class SmartArrayInt {
     return n;
   }
 
+  /** True if the values are not stored, because they are constant or sequential. */
+  public boolean isCompact() {
+    return raw == null;
+  }
+
   public void show(Formatter f) {
     if (isConstant)
       f.format("isConstant=%d", start);
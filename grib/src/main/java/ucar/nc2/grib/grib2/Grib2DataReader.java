@@ -81,18 +81,7 @@ public class Grib2DataReader {
    */
 
   public float[] getData(RandomAccessFile raf, Grib2SectionBitMap bitmapSection, Grib2Drs gdrs) throws IOException {
-    this.bitmap = bitmapSection.getBitmap(raf);
-    this.bitmapIndicator = bitmapSection.getBitMapIndicator();
-
-    if (bitmap != null) { // is bitmap ok ?
-      if (bitmap.length * 8 < totalNPoints) { // gdsNumberPoints == nx * ny ??
-        logger.warn("Bitmap section length = {} != grid length {} ({},{})", bitmap.length, totalNPoints, nx,
-            totalNPoints / nx);
-        throw new IllegalStateException("Bitmap section length!= grid length");
-      }
-    }
-
-    raf.seek(startPos + 5); // skip past first 5 bytes in data section, now ready to read
+    readBitmap(raf, bitmapSection);
 
     float[] data;
     switch (dataTemplate) {
@@ -125,8 +114,34 @@ public class Grib2DataReader {
     return data;
   }
 
-  @Nullable
-  int[] getRawData(RandomAccessFile raf, Grib2SectionBitMap bitmapSection, Grib2Drs gdrs) throws IOException {
+  /**
+   * Read only the wanted (y, x) window of the data. The (y, x) indices are those of the array returned by
+   * {@link #getData(RandomAccessFile, Grib2SectionBitMap, Grib2Drs)}, after the scan mode is applied.
+   * For simple packing, where every value has the same number of bits, only the wanted rows and columns are unpacked.
+   * Other packings (complex, spatial differencing, JPEG2000, PNG) unpack the whole record, then subset it.
+   *
+   * @param raf read from here
+   * @param bitmapSection the bitmap section
+   * @param gdrs the data representation section
+   * @param yRange wanted rows, in the order wanted, eg a RangeIterator.
+   * @param xRange wanted columns, in the order wanted, eg a RangeIterator.
+   * @return the data at (y, x) for each y in yRange, for each x in xRange.
+   * @throws IOException on read error
+   */
+  public float[] getData(RandomAccessFile raf, Grib2SectionBitMap bitmapSection, Grib2Drs gdrs,
+      Iterable<Integer> yRange, Iterable<Integer> xRange) throws IOException {
+    int[] yIndex = toIndex(yRange);
+    int[] xIndex = toIndex(xRange);
+    if (dataTemplate != 0 || nx <= 0 || !isWindow(yIndex, xIndex, nx, totalNPoints / nx)
+        || (long) yIndex.length * xIndex.length >= totalNPoints) {
+      return subset(getData(raf, bitmapSection, gdrs), nx, yIndex, xIndex);
+    }
+
+    readBitmap(raf, bitmapSection);
+    return getData0(raf, (Grib2Drs.Type0) gdrs, yIndex, xIndex);
+  }
+
+  private void readBitmap(RandomAccessFile raf, Grib2SectionBitMap bitmapSection) throws IOException {
     this.bitmap = bitmapSection.getBitmap(raf);
     this.bitmapIndicator = bitmapSection.getBitMapIndicator();
 
@@ -139,6 +154,46 @@ public class Grib2DataReader {
     }
 
     raf.seek(startPos + 5); // skip past first 5 bytes in data section, now ready to read
+  }
+
+  static int[] toIndex(Iterable<Integer> range) {
+    int n = 0;
+    for (int ignored : range)
+      n++;
+    int[] result = new int[n];
+    int count = 0;
+    for (int i : range)
+      result[count++] = i;
+    return result;
+  }
+
+  private static boolean isWindow(int[] yIndex, int[] xIndex, int nx, int ny) {
+    for (int y : yIndex) {
+      if (y < 0 || y >= ny)
+        return false;
+    }
+    for (int x : xIndex) {
+      if (x < 0 || x >= nx)
+        return false;
+    }
+    return true;
+  }
+
+  /** Extract the (y, x) window from the full data, whose rows have nx values. */
+  static float[] subset(float[] data, int nx, int[] yIndex, int[] xIndex) {
+    float[] result = new float[yIndex.length * xIndex.length];
+    int count = 0;
+    for (int y : yIndex) {
+      for (int x : xIndex) {
+        result[count++] = data[y * nx + x];
+      }
+    }
+    return result;
+  }
+
+  @Nullable
+  int[] getRawData(RandomAccessFile raf, Grib2SectionBitMap bitmapSection, Grib2Drs gdrs) throws IOException {
+    readBitmap(raf, bitmapSection);
 
     if (dataTemplate != 40) {
       return null;
@@ -248,6 +303,98 @@ public class Grib2DataReader {
     return data;
   }
 
+  // Grid point data - simple packing, only the wanted rows and columns.
+  // Every value has nb bits, so the position of a value is known without unpacking the ones before it;
+  // with a bitmap, it is the number of bits set in the bitmap before the point.
+  private float[] getData0(RandomAccessFile raf, Grib2Drs.Type0 gdrs, int[] yIndex, int[] xIndex)
+      throws IOException {
+    int nb = gdrs.numberOfBits;
+    int D = gdrs.decimalScaleFactor;
+    float DD = (float) java.lang.Math.pow((double) 10, (double) D);
+    float R = gdrs.referenceValue;
+    int E = gdrs.binaryScaleFactor;
+    float EE = (float) java.lang.Math.pow(2.0, (double) E);
+
+    int xmin = nx;
+    int xmax = -1;
+    for (int x : xIndex) {
+      xmin = Math.min(xmin, x);
+      xmax = Math.max(xmax, x);
+    }
+
+    float[] data = new float[yIndex.length * xIndex.length];
+    if (xIndex.length == 0)
+      return data;
+    float[] row = new float[xmax - xmin + 1]; // the span of the wanted columns in one row
+    long counted = 0; // bitmap bits counted so far
+    long nset = 0; // number of those that are set
+    int count = 0;
+    for (int y : yIndex) {
+      boolean reversed = isRowReversed(y);
+      int first = reversed ? nx - 1 - xmax : xmin; // first point of the span, in the order stored
+      long start = (long) y * nx + first;
+
+      long valueIndex = start;
+      if (bitmap != null) {
+        if (start < counted) {
+          counted = 0;
+          nset = 0;
+        }
+        nset += countBitsSet(counted, start);
+        counted = start;
+        valueIndex = nset;
+      }
+
+      long bitOffset = valueIndex * nb;
+      BitReader reader = new BitReader(raf, startPos + 5 + bitOffset / 8);
+      reader.bits2UInt((int) (bitOffset % 8));
+      for (int i = 0; i < row.length; i++) {
+        long point = start + i;
+        if (bitmap == null || GribNumbers.testBitIsSet(bitmap[(int) (point / 8)], (int) (point % 8))) {
+          row[i] = (R + reader.bits2UInt(nb) * EE) / DD;
+        } else {
+          row[i] = staticMissingValue;
+        }
+      }
+
+      for (int x : xIndex) {
+        data[count++] = row[reversed ? nx - 1 - x - first : x - first];
+      }
+    }
+
+    return data;
+  }
+
+  // number of bits set in the bitmap from point start (inclusive) to point end (exclusive)
+  private long countBitsSet(long start, long end) {
+    long n = 0;
+    long point = start;
+    while (point < end && point % 8 != 0) {
+      if (GribNumbers.testBitIsSet(bitmap[(int) (point / 8)], (int) (point % 8)))
+        n++;
+      point++;
+    }
+    while (point + 8 <= end) {
+      n += Integer.bitCount(bitmap[(int) (point / 8)] & 0xff);
+      point += 8;
+    }
+    while (point < end) {
+      if (GribNumbers.testBitIsSet(bitmap[(int) (point / 8)], (int) (point % 8)))
+        n++;
+      point++;
+    }
+    return n;
+  }
+
+  // True if row y is stored in the reverse x order of the data returned, see scanningModeCheck().
+  private boolean isRowReversed(int y) {
+    if ((scanMode == 0) || (scanMode == 64))
+      return false;
+    if (!GribUtils.scanModeXisPositive(scanMode))
+      return true;
+    return !GribUtils.scanModeSameDirection(scanMode) && (y % 2 != 0);
+  }
+
   /*
    * Data template 7.2 – Grid point data – complex packing
    * Note: For most templates, details of the packing process are described in Regulation 92.9.4.
@@ -328,6 +328,52 @@ public class Grib2Record {
     return data;
   }
 
+  /**
+   * Read the wanted (y, x) window of a data array: use when you want to be independent of the GribRecord.
+   * For simple packing, only the wanted rows and columns are unpacked, so a point or a small box costs about the size
+   * of the result, not of the grid. Other packings, and thin grids, read the whole record and then subset it.
+   *
+   * @param raf from this RandomAccessFile
+   * @param drsPos Grib2SectionDataRepresentation starts here
+   * @param bmsPos if non-zero, use the bms that starts here
+   * @param gdsNumberPoints gdss.getNumberPoints()
+   * @param scanMode gds.scanMode
+   * @param nx gds.nx
+   * @param ny gds.ny
+   * @param nptsInLine non-null for thin grids
+   * @param yRange wanted rows, eg a RangeIterator
+   * @param xRange wanted columns, eg a RangeIterator
+   * @return the data at (y, x) for each y in yRange, for each x in xRange, as float[] array
+   * @throws IOException on read error
+   */
+  public static float[] readData(RandomAccessFile raf, long drsPos, long bmsPos, int gdsNumberPoints, int scanMode,
+      int nx, int ny, int[] nptsInLine, Iterable<Integer> yRange, Iterable<Integer> xRange) throws IOException {
+    if (nptsInLine != null) {
+      float[] data = readData(raf, drsPos, bmsPos, gdsNumberPoints, scanMode, nx, ny, nptsInLine);
+      int width = (nx > 0) ? nx : QuasiRegular.getMax(nptsInLine);
+      return Grib2DataReader.subset(data, width, Grib2DataReader.toIndex(yRange), Grib2DataReader.toIndex(xRange));
+    }
+
+    raf.seek(drsPos);
+    Grib2SectionDataRepresentation drs = new Grib2SectionDataRepresentation(raf);
+    Grib2SectionBitMap bms = new Grib2SectionBitMap(raf);
+    Grib2SectionData dataSection = new Grib2SectionData(raf);
+
+    if (bmsPos > 0)
+      bms = Grib2SectionBitMap.factory(raf, bmsPos);
+
+    Grib2DataReader reader = new Grib2DataReader(drs.getDataTemplate(), gdsNumberPoints, drs.getDataPoints(), scanMode,
+        nx, dataSection.getStartingPosition(), dataSection.getMsgLength());
+
+    Grib2Drs gdrs = drs.getDrs(raf);
+
+    float[] data = reader.getData(raf, bms, gdrs, yRange, xRange);
+
+    if (getlastRecordRead)
+      lastRecordRead = Grib2RecordScanner.findRecordByDrspos(raf, drsPos);
+    return data;
+  }
+
   public void check(RandomAccessFile raf, Formatter f) throws IOException {
     long messLen = is.getMessageLength();
     long startPos = is.getStartPos();
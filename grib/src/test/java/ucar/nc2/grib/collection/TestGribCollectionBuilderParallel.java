@@ -0,0 +1,95 @@
+/*
+ * Copyright (c) 1998-2021 John Caron and University Corporation for Atmospheric Research/Unidata
+ * See LICENSE for license information.
+ */
+package ucar.nc2.grib.collection;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Formatter;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import org.junit.After;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import thredds.featurecollection.FeatureCollectionConfig;
+import thredds.filesystem.MFileOS;
+import thredds.inventory.CollectionList;
+import thredds.inventory.CollectionUpdateType;
+import thredds.inventory.MCollection;
+import thredds.inventory.MFile;
+
+/** Test that reading the gbx9 indexes concurrently in {@link GribCollectionBuilder} makes the same ncx4. */
+public class TestGribCollectionBuilderParallel {
+  private static final Logger logger = LoggerFactory.getLogger(TestGribCollectionBuilderParallel.class);
+  private static final String dataDir = "../grib/src/test/data/";
+
+  @Rule
+  public TemporaryFolder tempFolder = new TemporaryFolder();
+
+  @After
+  public void reset() {
+    GribCdmIndex.setIndexExecutor(null);
+  }
+
+  @Test
+  public void testGrib2() throws Exception {
+    checkSameIndex(false, "sref.pds12.grib2", "sref.pds2.grib2", "sref_eta.grib2", "ds.sky.grib2", "ds.snow.grib2");
+  }
+
+  @Test
+  public void testGrib1() throws Exception {
+    checkSameIndex(true, "ECMWF.grib1", "jma.grib1", "afwa.grib1", "radar_national.grib1");
+  }
+
+  private void checkSameIndex(boolean isGrib1, String... filenames) throws Exception {
+    File dir = tempFolder.newFolder();
+    List<MFile> mfiles = new ArrayList<>();
+    for (String filename : filenames) {
+      File copy = new File(dir, filename);
+      Files.copy(new File(dataDir + filename).toPath(), copy.toPath());
+      mfiles.add(new MFileOS(copy));
+    }
+
+    GribCdmIndex.setIndexExecutor(null);
+    byte[] serial = makeIndex(isGrib1, dir, mfiles);
+
+    ExecutorService pool = Executors.newFixedThreadPool(4);
+    try {
+      GribCdmIndex.setIndexExecutor(pool);
+      byte[] concurrent = makeIndex(isGrib1, dir, mfiles);
+      assertThat(concurrent).isEqualTo(serial);
+    } finally {
+      pool.shutdownNow();
+    }
+  }
+
+  // make the gbx9 and ncx4 indexes from scratch, return the ncx4 bytes
+  private static byte[] makeIndex(boolean isGrib1, File dir, List<MFile> mfiles) throws Exception {
+    File[] existing = dir.listFiles((d, name) -> name.endsWith(".gbx9") || name.endsWith(".ncx4"));
+    for (File f : existing) {
+      assertThat(f.delete()).isTrue();
+    }
+
+    MCollection dcm = new CollectionList("testParallel", dir.getPath(), new ArrayList<>(mfiles), logger);
+    dcm.putAuxInfo(FeatureCollectionConfig.AUX_CONFIG, new FeatureCollectionConfig());
+    Formatter errlog = new Formatter();
+    boolean changed = GribCdmIndex.updateGribCollection(isGrib1, dcm, CollectionUpdateType.always,
+        FeatureCollectionConfig.PartitionType.none, logger, errlog);
+    assertThat(changed).isTrue();
+
+    File ncx4 = new File(dcm.getIndexFilename(GribCdmIndex.NCX_SUFFIX));
+    assertThat(ncx4.exists()).isTrue();
+    for (MFile mfile : mfiles) {
+      assertThat(new File(mfile.getPath() + ".gbx9").exists()).isTrue();
+    }
+    return Files.readAllBytes(ncx4.toPath());
+  }
+}
@@ -0,0 +1,85 @@
+/*
+ * Copyright (c) 1998-2021 John Caron and University Corporation for Atmospheric Research/Unidata
+ * See LICENSE for license information.
+ */
+package ucar.nc2.grib.collection;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import org.junit.After;
+import org.junit.Test;
+import ucar.ma2.Array;
+import ucar.ma2.IndexIterator;
+import ucar.ma2.Section;
+import ucar.ma2.SectionIterable;
+import ucar.nc2.NetcdfFile;
+import ucar.nc2.NetcdfFiles;
+import ucar.nc2.Variable;
+import ucar.nc2.util.CancelTask;
+
+/** Test {@link GribDataReader} */
+public class TestGribDataReader {
+  private static final String filename = "../grib/src/test/data/berkes.grib2";
+  private static final String varname = "LatLon_29X40-90,-62/Temperature_height_above_ground";
+
+  @After
+  public void reset() {
+    GribDataReader.setExecutor(null);
+  }
+
+  private Array read(NetcdfFile ncfile, Section section, CancelTask cancelTask) throws Exception {
+    Variable v = ncfile.findVariable(varname);
+    assertThat(v).isNotNull();
+    GribIosp iosp = (GribIosp) ncfile.sendIospMessage(NetcdfFile.IOSP_MESSAGE_GET_IOSP);
+    GribDataReader dataReader =
+        GribDataReader.factory(iosp.gribCollection, (GribCollectionImmutable.VariableIndex) v.getSPobject());
+    return dataReader.readData(new SectionIterable(section, v.getShape()), cancelTask);
+  }
+
+  @Test
+  public void testConcurrentReadSameAsSerial() throws Exception {
+    try (NetcdfFile ncfile = NetcdfFiles.open(filename)) {
+      Section all = new Section(ncfile.findVariable(varname).getShape());
+      Section subset = new Section("3:60:3,0,2:20,5:30:2");
+
+      GribDataReader.setExecutor(null);
+      Array serial = read(ncfile, all, null);
+      Array serialSubset = read(ncfile, subset, null);
+
+      ExecutorService pool = Executors.newFixedThreadPool(4);
+      try {
+        GribDataReader.setExecutor(pool);
+        Array concurrent = read(ncfile, all, null);
+        Array concurrentSubset = read(ncfile, subset, null);
+        assertThat(concurrent.getShape()).isEqualTo(serial.getShape());
+        assertThat(concurrent.get1DJavaArray(float.class)).isEqualTo(serial.get1DJavaArray(float.class));
+        assertThat(concurrentSubset.getShape()).isEqualTo(serialSubset.getShape());
+        assertThat(concurrentSubset.get1DJavaArray(float.class))
+            .isEqualTo(serialSubset.get1DJavaArray(float.class));
+        assertThat(ncfile.findVariable(varname).read().get1DJavaArray(float.class))
+            .isEqualTo(serial.get1DJavaArray(float.class));
+      } finally {
+        pool.shutdown();
+      }
+    }
+  }
+
+  @Test
+  public void testCancel() throws Exception {
+    ExecutorService pool = Executors.newFixedThreadPool(4);
+    try (NetcdfFile ncfile = NetcdfFiles.open(filename)) {
+      GribDataReader.setExecutor(pool);
+      CancelTask cancelTask = CancelTask.create();
+      cancelTask.cancel();
+      Array data = read(ncfile, new Section(ncfile.findVariable(varname).getShape()), cancelTask);
+      IndexIterator iter = data.getIndexIterator();
+      while (iter.hasNext()) {
+        assertThat(iter.getFloatNext()).isNaN();
+      }
+    } finally {
+      pool.shutdown();
+    }
+  }
+}
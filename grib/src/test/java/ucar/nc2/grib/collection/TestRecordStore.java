@@ -0,0 +1,115 @@
+/*
+ * Copyright (c) 1998-2021 John Caron and University Corporation for Atmospheric Research/Unidata
+ * See LICENSE for license information.
+ */
+package ucar.nc2.grib.collection;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import java.util.List;
+import org.junit.After;
+import org.junit.Test;
+import ucar.ma2.Array;
+import ucar.nc2.NetcdfFile;
+import ucar.nc2.NetcdfFiles;
+import ucar.nc2.Variable;
+import ucar.nc2.grib.coord.SparseArray;
+
+/** Test {@link RecordStore} */
+public class TestRecordStore {
+  private static final String filename = "../grib/src/test/data/berkes.grib2";
+  private static final String varname = "LatLon_29X40-90,-62/Temperature_height_above_ground";
+
+  @After
+  public void reset() {
+    RecordStore.init(Runtime.getRuntime().maxMemory() / 4);
+  }
+
+  @Test
+  public void testRecords() {
+    int[] track = new int[] {2, 0, 1, 0, 3, 4};
+    int[] fileno = new int[] {0, 1, 1, 2};
+    long[] pos = new long[] {100, 200, 5_000_000_000L, 400};
+    int[] bms = new int[] {0, 0, 0, 0};
+    int[] drs = new int[] {7, 8, 9, 10};
+    RecordStore store = new RecordStore(new int[] {2, 3}, track, fileno, pos, bms, drs, 1);
+
+    assertThat(store.getTotalSize()).isEqualTo(6);
+    assertThat(store.getNrecords()).isEqualTo(4);
+    assertThat(store.countNotMissing()).isEqualTo(4);
+    assertThat(store.getNdups()).isEqualTo(1);
+
+    assertThat(store.getRecord(1)).isNull();
+    assertThat(store.getRecord(new int[] {1, 0})).isNull();
+    GribCollectionImmutable.Record record = store.getRecord(new int[] {1, 1});
+    assertThat(record.fileno).isEqualTo(1);
+    assertThat(record.pos).isEqualTo(5_000_000_000L);
+    assertThat(record.bmsOffset).isEqualTo(0);
+    assertThat(record.drsOffset).isEqualTo(9);
+    record = store.getRecord(0);
+    assertThat(record.pos).isEqualTo(200);
+
+    SparseArray<GribCollectionImmutable.Record> sa = store.toSparseArray();
+    assertThat(sa.getShape()).isEqualTo(new int[] {2, 3});
+    assertThat(sa.getTrack()).isEqualTo(track);
+    assertThat(sa.getNdups()).isEqualTo(1);
+    for (int idx = 0; idx < track.length; idx++) {
+      GribCollectionImmutable.Record expected = store.getRecord(idx);
+      GribCollectionImmutable.Record got = sa.getContent(idx);
+      if (expected == null) {
+        assertThat(got).isNull();
+      } else {
+        assertThat(got.toString()).isEqualTo(expected.toString());
+      }
+    }
+  }
+
+  @Test
+  public void testCompactColumns() {
+    int n = 1000;
+    int[] track = new int[n];
+    long[] pos = new long[n];
+    int[] scattered = new int[n];
+    for (int i = 0; i < n; i++) {
+      track[i] = i + 1;
+      pos[i] = i * 1000L;
+      scattered[i] = (i * 7919) % n;
+    }
+    RecordStore compact = new RecordStore(new int[] {n}, track, new int[n], pos, new int[n], new int[n], 0);
+    RecordStore full = new RecordStore(new int[] {n}, scattered.clone(), scattered.clone(), pos, scattered.clone(),
+        scattered.clone(), 0);
+
+    // the track is sequential and the other columns are constant, so only pos is stored
+    assertThat(compact.getHeapBytes()).isLessThan(9L * n + 500);
+    assertThat(full.getHeapBytes()).isAtLeast(24L * n);
+    assertThat(compact.getRecord(n - 1).pos).isEqualTo((n - 1) * 1000L);
+  }
+
+  @Test
+  public void testReadAfterEviction() throws Exception {
+    try (NetcdfFile ncfile = NetcdfFiles.open(filename)) {
+      Variable v = ncfile.findVariable(varname);
+      assertThat(v).isNotNull();
+      GribCollectionImmutable.VariableIndex vindex = (GribCollectionImmutable.VariableIndex) v.getSPobject();
+
+      RecordStore.clearCache();
+      Array data = v.read();
+      RecordStore records = vindex.getRecords();
+      assertThat(records).isNotNull();
+      assertThat(records.getHeapBytes()).isGreaterThan(0L);
+      assertThat(RecordStore.getCacheHeapBytes()).isAtLeast(records.getHeapBytes());
+      assertThat(vindex.getRecords()).isSameInstanceAs(records);
+      assertThat(records.countNotMissing()).isEqualTo(vindex.countNRecords());
+
+      List<GribCollectionImmutable.Record> content = vindex.getSparseArray().getContent();
+      assertThat(content).hasSize(records.getNrecords());
+
+      // nothing is kept, the records are read again from the index each time
+      RecordStore.init(0);
+      assertThat(vindex.getRecords()).isNotSameInstanceAs(records);
+      Array again = v.read();
+      assertThat(again.get1DJavaArray(float.class)).isEqualTo(data.get1DJavaArray(float.class));
+      assertThat(RecordStore.getCacheHeapBytes()).isEqualTo(0L);
+    }
+  }
+}
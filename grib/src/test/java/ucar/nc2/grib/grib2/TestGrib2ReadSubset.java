@@ -0,0 +1,88 @@
+/*
+ * Copyright (c) 1998-2021 John Caron and University Corporation for Atmospheric Research/Unidata
+ * See LICENSE for license information.
+ */
+package ucar.nc2.grib.grib2;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import org.junit.Test;
+import ucar.ma2.Array;
+import ucar.ma2.InvalidRangeException;
+import ucar.ma2.Section;
+import ucar.nc2.NetcdfFile;
+import ucar.nc2.NetcdfFiles;
+import ucar.nc2.Variable;
+import ucar.unidata.io.RandomAccessFile;
+
+/** Test reading a (y, x) window of a GRIB2 record, compared to reading the whole record. */
+public class TestGrib2ReadSubset {
+  // scan modes: +x +y, +x -y, -x, alternating rows
+  private static final int[] scanModes = {0, 64, 128, 16, 80};
+
+  private static List<Integer> range(int first, int last, int stride) {
+    List<Integer> result = new ArrayList<>();
+    for (int i = first; i <= last; i += stride) {
+      result.add(i);
+    }
+    return result;
+  }
+
+  // simple packing with a bitmap, and complex packing with spatial differencing
+  @Test
+  public void testSameAsWholeRecord() throws IOException {
+    checkFile("../grib/src/test/data/Eumetsat.VerticalPerspective.grib2");
+    checkFile("../grib/src/test/data/ds.snow.grib2");
+  }
+
+  private void checkFile(String filename) throws IOException {
+    Random random = new Random(17);
+    try (RandomAccessFile raf = new RandomAccessFile(filename, "r")) {
+      Grib2RecordScanner scanner = new Grib2RecordScanner(raf);
+      while (scanner.hasNext()) {
+        Grib2Record gr = scanner.next();
+        Grib2Gds gds = gr.getGDS();
+        int nx = gds.getNxRaw();
+        int ny = gds.getNyRaw();
+        int npts = gr.getGDSsection().getNumberPoints();
+        long drsPos = gr.getDataRepresentationSection().getStartingPosition();
+
+        for (int scanMode : scanModes) {
+          float[] all = Grib2Record.readData(raf, drsPos, 0, npts, scanMode, nx, ny, null);
+          for (int i = 0; i < 6; i++) {
+            int y = random.nextInt(ny);
+            int x = random.nextInt(nx);
+            int stride = 1 + i % 3;
+            List<Integer> yRange = (i == 0) ? range(y, y, 1) : range(y, Math.min(ny - 1, y + 40), stride);
+            List<Integer> xRange = (i == 0) ? range(x, x, 1) : range(x, Math.min(nx - 1, x + 60), stride + 1);
+
+            float[] window = Grib2Record.readData(raf, drsPos, 0, npts, scanMode, nx, ny, null, yRange, xRange);
+            assertThat(window.length).isEqualTo(yRange.size() * xRange.size());
+            int count = 0;
+            for (int wy : yRange) {
+              for (int wx : xRange) {
+                assertThat(window[count++]).isEqualTo(all[wy * nx + wx]);
+              }
+            }
+          }
+        }
+      }
+    }
+  }
+
+  @Test
+  public void testReadSection() throws IOException, InvalidRangeException {
+    try (NetcdfFile nc = NetcdfFiles.open("../grib/src/test/data/Eumetsat.VerticalPerspective.grib2")) {
+      Variable var = nc.findVariable("Pixel_scene_type");
+      assertThat(var).isNotNull();
+      Array point = var.read(new Section("0,584,632"));
+      assertThat(point.getFloat(0)).isEqualTo(101.0f);
+      Array missing = var.read(new Section("0,0,0"));
+      assertThat(missing.getFloat(0)).isNaN();
+    }
+  }
+}
@@ -7,9 +7,11 @@ package ucar.nc2.grib.grid;
 
 import org.junit.Test;
 import org.junit.experimental.categories.Category;
+import ucar.array.Array;
 import ucar.array.Arrays;
 import ucar.array.InvalidRangeException;
 import ucar.nc2.calendar.CalendarDate;
+import ucar.nc2.calendar.CalendarDateRange;
 import ucar.nc2.grid2.Grid;
 import ucar.nc2.grid2.GridAxis;
 import ucar.nc2.grid2.GridAxisPoint;
@@ -17,13 +19,17 @@ import ucar.nc2.grid2.GridAxisSpacing;
 import ucar.nc2.grid2.GridCoordinateSystem;
 import ucar.nc2.grid2.GridDataset;
 import ucar.nc2.grid2.GridDatasetFactory;
+import ucar.nc2.grid2.GridHorizCoordinateSystem;
+import ucar.nc2.grid2.GridPointSeries;
 import ucar.nc2.grid2.GridReferencedArray;
 import ucar.nc2.grid2.GridTimeCoordinateSystem;
 import ucar.nc2.grid2.MaterializedCoordinateSystem;
+import ucar.unidata.geoloc.LatLonPoint;
 import ucar.unidata.util.test.TestDir;
 import ucar.unidata.util.test.category.NeedsCdmUnitTest;
 
 import java.io.IOException;
+import java.util.ArrayList;
 import java.util.Formatter;
 import java.util.List;
 
@@ -98,6 +104,46 @@ public class TestReadGribGridSubset {
     }
   }
 
+  @Test
+  @Category(NeedsCdmUnitTest.class)
+  public void testReadPoints() throws IOException, InvalidRangeException {
+    String filename = TestDir.cdmUnitTestDir + "gribCollections/gfs_2p5deg/gfs_2p5deg.ncx4";
+
+    Formatter infoLog = new Formatter();
+    try (GridDataset gridDataset = GridDatasetFactory.openGridDataset(filename, infoLog)) {
+      assertThat(gridDataset).isNotNull();
+      Grid grid =
+          gridDataset.findGrid("Sunshine_Duration_surface").orElseThrow(() -> new RuntimeException("Cant find grid"));
+
+      GridTimeCoordinateSystem tsys = grid.getTimeCoordinateSystem();
+      CalendarDate wantRuntime = tsys.getRuntimeDate(1);
+      List<CalendarDate> times = tsys.getTimesForRuntime(1);
+      CalendarDateRange range = CalendarDateRange.of(times.get(60), times.get(70));
+
+      GridHorizCoordinateSystem hcs = grid.getHorizCoordinateSystem();
+      int[][] cells = {{0, 0}, {10, 20}, {40, 100}, {72, 143}};
+      List<LatLonPoint> points = new ArrayList<>();
+      for (int[] cell : cells) {
+        points.add(hcs.getLatLon(cell[1], cell[0]));
+      }
+
+      GridPointSeries series =
+          grid.getReader().setRunTime(wantRuntime).setTimeRange(range).setLatLonPoints(points).readPoints();
+      assertThat(series.times()).isEqualTo(times.subList(60, 71));
+      assertThat(series.data().getShape()).isEqualTo(new int[] {cells.length, 11});
+
+      GridReferencedArray geoArray = grid.getReader().setRunTime(wantRuntime).setTimeRange(range).read();
+      Array<Number> want = Arrays.reduce(geoArray.data());
+      for (int pt = 0; pt < cells.length; pt++) {
+        for (int t = 0; t < 11; t++) {
+          double wantVal = want.get(t, cells[pt][0], cells[pt][1]).doubleValue();
+          double val = series.data().get(pt, t);
+          assertThat(val).isEqualTo(grid.isMissing(wantVal) ? Double.NaN : wantVal);
+        }
+      }
+    }
+  }
+
   private void testGeoArray(GridReferencedArray geoArray, int expected, CalendarDate wantRuntime, Object wantTime) {
     assertThat(Arrays.reduce(geoArray.data()).getRank()).isEqualTo(expected);
     int[] dataShape = geoArray.data().getShape();
@@ -8,8 +8,8 @@ import thredds.featurecollection.FeatureCollectionConfig;
 import thredds.inventory.MFile;
 import ucar.nc2.grib.collection.GribCdmIndex;
 import ucar.nc2.grib.collection.GribCollectionImmutable;
-import ucar.nc2.grib.collection.GribCollectionImmutable.Record;
 import ucar.nc2.grib.collection.PartitionCollectionImmutable;
+import ucar.nc2.grib.collection.RecordStore;
 import ucar.nc2.grib.coord.Coordinate;
 import ucar.nc2.grib.coord.CoordinateRuntime;
 import ucar.nc2.grib.coord.CoordinateTime;
@@ -398,11 +398,9 @@ public class CdmIndexPanel extends JPanel {
             if (count == 0)
               f.format(" total   SA  Variable%n");
             try {
-              v.readRecords();
-              SparseArray<Record> sa = v.getSparseArray();
-              int ntracks = sa.getTotalSize();
-              int nrecords = sa.getContent().size();
-              int memEstForSA = 276 + nrecords * 40 + ntracks * 4;
+              RecordStore records = v.getRecords();
+              int nrecords = records == null ? 0 : records.getNrecords();
+              int memEstForSA = records == null ? 0 : (int) records.getHeapBytes();
               int memEstBytes = 280 + memEstForSA;
               f.format("%6d %6d %-50s nrecords=%6d%n", memEstBytes, memEstForSA, bean.getName(), nrecords);
               bytesTotal += memEstBytes;
@@ -470,11 +468,9 @@ public class CdmIndexPanel extends JPanel {
             if (count == 0)
               f.format(" total   SA  Variable%n");
             try {
-              v.readRecords();
-              SparseArray<GribCollectionImmutable.Record> sa = v.getSparseArray();
-              int ntracks = sa.getTotalSize();
-              int nrecords = sa.getContent().size();
-              int memEstForSA = 276 + nrecords * 40 + ntracks * 4;
+              RecordStore records = v.getRecords();
+              int nrecords = records == null ? 0 : records.getNrecords();
+              int memEstForSA = records == null ? 0 : (int) records.getHeapBytes();
               int memEstBytes = 280 + memEstForSA;
               f.format("%6d %6d %-50s nrecords=%6d%n", memEstBytes, memEstForSA, bean.getName(), nrecords);
               bytesTotal += memEstBytes;
@@ -1066,11 +1062,10 @@ public class CdmIndexPanel extends JPanel {
           vip.show(f);
 
         } else {
-          // make sure sparse array has been read in.
-          v.readRecords();
-
-          if (v.getSparseArray() != null) {
-            SparseArray<GribCollectionImmutable.Record> sa = v.getSparseArray();
+          RecordStore records = v.getRecords();
+          if (records != null) {
+            records.show(f);
+            SparseArray<GribCollectionImmutable.Record> sa = records.toSparseArray();
             sa.showInfo(f, null);
             f.format("%n");
             sa.showTracks(f);
@@ -113,7 +113,7 @@ public class GridRenderer {
       return "";
     }
 
-    // find the grid indexes
+    // find the grid indexes; loc is in the data projection, a LatLonProjection for curvilinear grids
     GridHorizCoordinateSystem hcs = dataState.gcs.getHorizCoordinateSystem();
     Optional<GridHorizCoordinateSystem.CoordReturn> opt = hcs.findXYindexFromCoord(loc.getX(), loc.getY());
 
@@ -19,7 +19,8 @@ import java.util.TimeZone;
 /**
  * Standard formatter/parser for unit specifications.
  * <p/>
- * Instances of this class are thread-compatible but not thread-safe.
+ * The parse methods are thread-safe: each thread parses with its own instance. Instances used directly as parsers,
+ * through the generated parser methods, are thread-compatible but not thread-safe.
  *
  * @author Steven R. Emmerson
  */
@@ -31,7 +32,17 @@ public final class StandardUnitFormat extends UnitFormatImpl implements Standard
    *
    * @serial
    */
-  private static StandardUnitFormat _instance;
+  private static volatile StandardUnitFormat _instance;
+
+  /**
+   * The parser of each thread, since the state of a parser is in its instance.
+   */
+  private static final ThreadLocal<StandardUnitFormat> parsers = ThreadLocal.withInitial(StandardUnitFormat::new);
+
+  /**
+   * Whether this instance is parsing, so that a parse started during a parse on the same thread gets another parser.
+   */
+  private transient boolean parsing;
 
   /**
    * The date formatter.
@@ -74,10 +85,16 @@ public final class StandardUnitFormat extends UnitFormatImpl implements Standard
    *
    * @return An instance of this class.
    */
-  public static synchronized StandardUnitFormat instance() {
-    if (_instance == null)
-      _instance = new StandardUnitFormat();
-    return _instance;
+  public static StandardUnitFormat instance() {
+    StandardUnitFormat result = _instance;
+    if (result == null) {
+      synchronized (StandardUnitFormat.class) {
+        result = _instance;
+        if (result == null)
+          _instance = result = new StandardUnitFormat();
+      }
+    }
+    return result;
   }
 
 
@@ -95,7 +112,7 @@ public final class StandardUnitFormat extends UnitFormatImpl implements Standard
 
   /**
    * Decodes a unit specification. An unrecognized unit is made into
-   * an UnknownUnit.
+   * an UnknownUnit. This method is thread-safe.
    *
    * @param spec The unit specification to be decoded.
    * @param unitDB The unit database to use.
@@ -116,6 +133,19 @@ public final class StandardUnitFormat extends UnitFormatImpl implements Standard
     if (spec == null)
       throw new UnitParseException(spec);
 
+    StandardUnitFormat parser = parsers.get();
+    if (parser.parsing)
+      parser = new StandardUnitFormat();
+    parser.parsing = true;
+    try {
+      return parser.parseSpec(spec, unitDB);
+    } finally {
+      parser.parsing = false;
+    }
+  }
+
+  private Unit parseSpec(String spec, UnitDB unitDB)
+      throws UnitParseException, SpecificationException, UnitDBException, PrefixDBException, UnitSystemException {
     ReInit(new StringReader(spec.trim()));
 
     try {
@@ -261,7 +291,11 @@ public final class StandardUnitFormat extends UnitFormatImpl implements Standard
 
 
   private StringBuffer format(TimeScaleUnit unit, StringBuffer buf, boolean normalize) throws UnitClassException {
-    return format(unit.getUnit(), buf, normalize).append(dateFormat.format(unit.getOrigin()));
+    String origin;
+    synchronized (dateFormat) {
+      origin = dateFormat.format(unit.getOrigin());
+    }
+    return format(unit.getUnit(), buf, normalize).append(origin);
   }
 
 
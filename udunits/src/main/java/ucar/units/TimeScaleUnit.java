@@ -256,7 +256,7 @@ public final class TimeScaleUnit extends UnitImpl {
    */
   @Override
   public Converter getConverterTo(final Unit outputUnit) throws ConversionException {
-    return new MyConverter(this, outputUnit);
+    return UnitCache.getConverter(this, outputUnit, () -> new MyConverter(this, outputUnit));
   }
 
   /**
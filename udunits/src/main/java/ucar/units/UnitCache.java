@@ -0,0 +1,251 @@
+/*
+ * Copyright (c) 1998-2021 John Caron and University Corporation for Atmospheric Research/Unidata
+ * See LICENSE for license information.
+ */
+package ucar.units;
+
+import java.util.Iterator;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Bounded caches of parsed unit specifications and of unit converters, shared by all threads.
+ * Datasets usually use a few unit strings over and over, and parsing one is much more expensive than a lookup.
+ * Units and Converters are immutable, so the same instance is returned to every caller.
+ * The parse cache is cleared when the default unit or prefix database is replaced, and when units, aliases or
+ * symbols are added to a unit database.
+ * The maximum number of entries in each cache may be set with -Dunidata.units.cache.size, 0 disables the caches.
+ *
+ * @see UnitFormatImpl#parse(String)
+ * @see UnitImpl#getConverterTo(Unit)
+ */
+public final class UnitCache {
+  // System property name for -D flag
+  private static final String CACHESIZE_PROPERTY = "unidata.units.cache.size";
+  private static final int DEFAULT_CACHESIZE = 1000;
+
+  private static volatile Cache<ParseKey, Unit> units;
+  private static volatile Cache<ConvertKey, Converter> converters;
+  // part of the parse key, so units parsed before a unit database changed are not found after
+  private static final AtomicInteger generation = new AtomicInteger();
+
+  static {
+    init(readCacheSize());
+  }
+
+  // udunits has no logger: an invalid value is ignored
+  private static int readCacheSize() {
+    String prop = System.getProperty(CACHESIZE_PROPERTY);
+    if (prop != null) {
+      try {
+        int size = Integer.parseInt(prop);
+        if (size >= 0)
+          return size;
+      } catch (NumberFormatException nfe) {
+        // use the default
+      }
+    }
+    return DEFAULT_CACHESIZE;
+  }
+
+  /**
+   * Replace the caches with empty ones.
+   *
+   * @param maxSize maximum number of entries in each cache, 0 disables the caches.
+   */
+  public static synchronized void init(int maxSize) {
+    if (maxSize < 0)
+      throw new IllegalArgumentException("maxSize must be >= 0");
+    units = new Cache<>(maxSize);
+    converters = new Cache<>(maxSize);
+  }
+
+  /** Remove all entries from the caches, keeping the statistics. */
+  public static void clear() {
+    units.map.clear();
+    converters.map.clear();
+  }
+
+  /** Called when units are added to a unit database, which may change how a spec parses. */
+  static void unitDBChanged() {
+    generation.incrementAndGet();
+    units.map.clear();
+  }
+
+  /** Statistics of the cache of parsed unit specifications. */
+  public static Stats getParseStats() {
+    return units.stats();
+  }
+
+  /** Statistics of the cache of unit converters. */
+  public static Stats getConverterStats() {
+    return converters.stats();
+  }
+
+  /** Parse spec with format and the default unit database, or get the unit from the cache. */
+  static Unit parse(UnitFormatImpl format, String spec) throws NoSuchUnitException, UnitParseException,
+      SpecificationException, UnitDBException, PrefixDBException, UnitSystemException {
+    if (spec == null)
+      return format.parse(null, UnitDBManager.instance());
+    Cache<ParseKey, Unit> cache = units;
+    ParseKey key = new ParseKey(format, spec, generation.get());
+    Unit unit = cache.get(key);
+    if (unit == null) {
+      unit = format.parse(spec, UnitDBManager.instance());
+      cache.put(key, unit);
+    }
+    return unit;
+  }
+
+  interface ConverterFactory {
+    Converter create() throws ConversionException;
+  }
+
+  /** Get the converter between the units from the cache, or make it with factory. */
+  static Converter getConverter(Unit fromUnit, Unit toUnit, ConverterFactory factory) throws ConversionException {
+    Cache<ConvertKey, Converter> cache = converters;
+    ConvertKey key = new ConvertKey(fromUnit, toUnit);
+    Converter converter = cache.get(key);
+    if (converter == null) {
+      converter = factory.create();
+      cache.put(key, converter);
+    }
+    return converter;
+  }
+
+  /** Cache statistics. */
+  public static final class Stats {
+    private final long hitCount;
+    private final long missCount;
+    private final int size;
+
+    private Stats(long hitCount, long missCount, int size) {
+      this.hitCount = hitCount;
+      this.missCount = missCount;
+      this.size = size;
+    }
+
+    /** Number of lookups that found an entry. */
+    public long getHitCount() {
+      return hitCount;
+    }
+
+    /** Number of lookups that did not find an entry. */
+    public long getMissCount() {
+      return missCount;
+    }
+
+    /** Fraction of lookups that found an entry, 1 if there were no lookups. */
+    public double getHitRate() {
+      long total = hitCount + missCount;
+      return (total == 0) ? 1.0 : (double) hitCount / total;
+    }
+
+    /** Current number of entries. */
+    public int getSize() {
+      return size;
+    }
+
+    @Override
+    public String toString() {
+      return String.format("hits=%d misses=%d hitRate=%.3f size=%d", hitCount, missCount, getHitRate(), size);
+    }
+  }
+
+  ////////////////////////////////////////////////////////////////////////////////////////////
+
+  private static final class Cache<K, V> {
+    private final int maxSize;
+    private final ConcurrentHashMap<K, V> map;
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+
+    Cache(int maxSize) {
+      this.maxSize = maxSize;
+      this.map = new ConcurrentHashMap<>(Math.min(maxSize, 1024));
+    }
+
+    V get(K key) {
+      V value = (maxSize == 0) ? null : map.get(key);
+      if (value == null)
+        misses.increment();
+      else
+        hits.increment();
+      return value;
+    }
+
+    void put(K key, V value) {
+      if (maxSize == 0)
+        return;
+      // when full, evict an arbitrary entry: cheap and good enough for a working set that mostly fits
+      if (map.size() >= maxSize) {
+        Iterator<K> iter = map.keySet().iterator();
+        if (iter.hasNext()) {
+          iter.next();
+          iter.remove();
+        }
+      }
+      map.putIfAbsent(key, value);
+    }
+
+    Stats stats() {
+      return new Stats(hits.sum(), misses.sum(), map.size());
+    }
+  }
+
+  private static final class ParseKey {
+    private final UnitFormat format;
+    private final String spec;
+    private final int generation;
+
+    ParseKey(UnitFormat format, String spec, int generation) {
+      this.format = format;
+      this.spec = spec;
+      this.generation = generation;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+      if (this == o)
+        return true;
+      if (!(o instanceof ParseKey))
+        return false;
+      ParseKey that = (ParseKey) o;
+      return format == that.format && generation == that.generation && spec.equals(that.spec);
+    }
+
+    @Override
+    public int hashCode() {
+      return 31 * (31 * System.identityHashCode(format) + spec.hashCode()) + generation;
+    }
+  }
+
+  private static final class ConvertKey {
+    private final Unit fromUnit;
+    private final Unit toUnit;
+
+    ConvertKey(Unit fromUnit, Unit toUnit) {
+      this.fromUnit = fromUnit;
+      this.toUnit = toUnit;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+      if (this == o)
+        return true;
+      if (!(o instanceof ConvertKey))
+        return false;
+      ConvertKey that = (ConvertKey) o;
+      // equal units of the same class convert values the same way
+      return fromUnit.getClass() == that.fromUnit.getClass() && toUnit.getClass() == that.toUnit.getClass()
+          && fromUnit.equals(that.fromUnit) && toUnit.equals(that.toUnit);
+    }
+
+    @Override
+    public int hashCode() {
+      return Objects.hash(fromUnit, toUnit);
+    }
+  }
+}
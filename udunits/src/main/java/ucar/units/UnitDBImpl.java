@@ -67,6 +67,7 @@ public class UnitDBImpl implements UnitDB, Serializable {
     unitSet.addAll(that.unitSet);
     nameMap.putAll(that.nameMap);
     symbolMap.putAll(that.symbolMap);
+    UnitCache.unitDBChanged();
   }
 
   /**
@@ -102,10 +103,14 @@ public class UnitDBImpl implements UnitDB, Serializable {
     if (unit.getName() == null) {
       throw new NameException("Unit name can't be null");
     }
-    addByName(unit.getName(), unit);
-    addByName(unit.getPlural(), unit);
-    addBySymbol(unit.getSymbol(), unit);
-    unitSet.add(unit);
+    try {
+      addByName(unit.getName(), unit);
+      addByName(unit.getPlural(), unit);
+      addBySymbol(unit.getSymbol(), unit);
+      unitSet.add(unit);
+    } finally {
+      UnitCache.unitDBChanged();
+    }
   }
 
   /**
@@ -202,9 +207,13 @@ public class UnitDBImpl implements UnitDB, Serializable {
     if (unit == null) {
       throw new NoSuchUnitException(name);
     }
-    addByName(alias.getName(), unit);
-    addByName(alias.getPlural(), unit);
-    addBySymbol(alias.getSymbol(), unit);
+    try {
+      addByName(alias.getName(), unit);
+      addByName(alias.getPlural(), unit);
+      addBySymbol(alias.getSymbol(), unit);
+    } finally {
+      UnitCache.unitDBChanged();
+    }
   }
 
   /**
@@ -18,7 +18,7 @@ public final class UnitDBManager implements Serializable {
    * 
    * @serial
    */
-  private static UnitDB instance;
+  private static volatile UnitDB instance;
 
   /**
    * Gets the default unit database.
@@ -27,11 +27,17 @@ public final class UnitDBManager implements Serializable {
    * @throws UnitDBException
    *         The default unit database couldn't be created.
    */
-  public static synchronized UnitDB instance() throws UnitDBException {
-    if (instance == null) {
-      instance = StandardUnitDB.instance();
+  public static UnitDB instance() throws UnitDBException {
+    UnitDB result = instance;
+    if (result == null) {
+      synchronized (UnitDBManager.class) {
+        result = instance;
+        if (result == null) {
+          instance = result = StandardUnitDB.instance();
+        }
+      }
     }
-    return instance;
+    return result;
   }
 
   /**
@@ -43,5 +49,6 @@ public final class UnitDBManager implements Serializable {
    */
   public static synchronized void setInstance(final UnitDB instance) {
     UnitDBManager.instance = instance;
+    UnitCache.clear();
   }
 }
@@ -15,10 +15,10 @@ package ucar.units;
 public abstract class UnitFormatImpl implements UnitFormat {
 
   private static final long serialVersionUID = 1L;
-  private static final Object MUTEX = new Object();
 
   /**
-   * Parses a unit specification. This method is thread-safe.
+   * Parses a unit specification, using the default unit database. This method is thread-safe.
+   * Parsed units are kept in the {@link UnitCache}.
    * 
    * @param spec
    *        The unit specification (e.g. "m/s");
@@ -39,9 +39,7 @@ public abstract class UnitFormatImpl implements UnitFormat {
    */
   public final Unit parse(final String spec) throws NoSuchUnitException, UnitParseException, SpecificationException,
       UnitDBException, PrefixDBException, UnitSystemException {
-    synchronized (MUTEX) {
-      return parse(spec, UnitDBManager.instance());
-    }
+    return UnitCache.parse(this, spec);
   }
 
   /**
@@ -248,7 +248,7 @@ public abstract class UnitImpl implements Unit, Serializable {
    *         The units aren't convertible.
    */
   public Converter getConverterTo(final Unit outputUnit) throws ConversionException {
-    return new MyConverter(this, outputUnit);
+    return UnitCache.getConverter(this, outputUnit, () -> new MyConverter(this, outputUnit));
   }
 
   /**
@@ -0,0 +1,157 @@
+/*
+ * Copyright (c) 1998-2021 John Caron and University Corporation for Atmospheric Research/Unidata
+ * See LICENSE for license information.
+ */
+package ucar.units;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import org.junit.After;
+import org.junit.Test;
+
+/** Test parsing concurrently, and the UnitCache. */
+public class TestUnitCache {
+  private static final String[] specs = {"K", "degC", "m/s", "kg m-2 s-1", "hPa", "millibar", "percent", "g/kg",
+      "degrees_north", "hours since 1970-01-01 00:00:00", "days since 1900-1-1", "3 m", "(g/mol)/(lb/kmol)"};
+
+  @After
+  public void restoreCache() {
+    UnitCache.init(1000);
+  }
+
+  @Test
+  public void testConcurrentParse() throws Exception {
+    UnitCache.init(0); // every parse uses the parser
+    StandardUnitFormat format = StandardUnitFormat.instance();
+    UnitDB unitDB = UnitDBManager.instance();
+    List<Unit> expected = new ArrayList<>();
+    for (String spec : specs) {
+      expected.add(format.parse(spec, unitDB));
+    }
+
+    ExecutorService executor = Executors.newFixedThreadPool(8);
+    try {
+      List<Future<List<Unit>>> futures = new ArrayList<>();
+      for (int t = 0; t < 8; t++) {
+        futures.add(executor.submit(() -> {
+          List<Unit> result = new ArrayList<>();
+          for (int repeat = 0; repeat < 200; repeat++) {
+            result.clear();
+            for (String spec : specs) {
+              result.add(format.parse(spec));
+            }
+          }
+          return result;
+        }));
+      }
+      for (Future<List<Unit>> future : futures) {
+        assertEquals(expected, future.get());
+      }
+    } finally {
+      executor.shutdown();
+    }
+  }
+
+  @Test
+  public void testParseCache() throws Exception {
+    UnitCache.init(100);
+    UnitFormat format = UnitFormatManager.instance();
+    Unit first = format.parse("m/s");
+    Unit second = format.parse("m/s");
+    assertSame(first, second);
+    assertEquals(1, UnitCache.getParseStats().getMissCount());
+    assertEquals(1, UnitCache.getParseStats().getHitCount());
+    assertEquals(0.5, UnitCache.getParseStats().getHitRate(), 0.0);
+
+    // errors are not cached
+    for (int i = 0; i < 2; i++) {
+      try {
+        format.parse("m/");
+        fail();
+      } catch (UnitParseException e) {
+        // expected
+      }
+    }
+    assertEquals(1, UnitCache.getParseStats().getSize());
+  }
+
+  @Test
+  public void testUnitDBChanged() throws Exception {
+    UnitCache.init(100);
+    UnitDB original = UnitDBManager.instance();
+    UnitDBImpl unitDB = new UnitDBImpl(100, 100);
+    unitDB.add((UnitDBImpl) original);
+    UnitDBManager.setInstance(unitDB);
+    try {
+      UnitFormat format = UnitFormatManager.instance();
+      Unit pascal = format.parse("Pa");
+      Unit before = format.parse("mb");
+      assertSame(before, format.parse("mb"));
+      assertTrue(!before.isCompatible(pascal));
+
+      // alias "mb" to millibar, as ucar.nc2.units.SimpleUnit does
+      unitDB.addUnit(format.parse("millibar").clone(UnitName.newUnitName("mb")));
+      Unit after = format.parse("mb");
+      assertTrue(after.isCompatible(pascal));
+      assertEquals(100.0, after.getConverterTo(pascal).convert(1.0), 1e-9);
+    } finally {
+      UnitDBManager.setInstance(original);
+    }
+  }
+
+  @Test
+  public void testBounded() throws Exception {
+    UnitCache.init(4);
+    UnitFormat format = UnitFormatManager.instance();
+    for (String spec : specs) {
+      format.parse(spec);
+    }
+    assertTrue(UnitCache.getParseStats().getSize() <= 4);
+    assertEquals(specs.length, UnitCache.getParseStats().getMissCount());
+  }
+
+  @Test
+  public void testDisabled() throws Exception {
+    UnitCache.init(0);
+    UnitFormat format = UnitFormatManager.instance();
+    Unit first = format.parse("m/s");
+    assertNotSame(first, format.parse("m/s"));
+    assertEquals(first, format.parse("m/s"));
+    assertEquals(0, UnitCache.getParseStats().getSize());
+  }
+
+  @Test
+  public void testConverterCache() throws Exception {
+    UnitCache.init(100);
+    UnitFormat format = UnitFormatManager.instance();
+    Unit celsius = format.parse("degC");
+    Unit kelvin = format.parse("K");
+    Converter converter = celsius.getConverterTo(kelvin);
+    assertSame(converter, celsius.getConverterTo(kelvin));
+    assertSame(converter, format.parse("Cel").getConverterTo(kelvin));
+    assertEquals(273.15, converter.convert(0.0), 1e-9);
+    assertEquals(0.0, kelvin.getConverterTo(celsius).convert(273.15), 1e-9);
+    assertEquals(2, UnitCache.getConverterStats().getSize());
+
+    Unit hours = format.parse("hours since 1970-01-01");
+    Unit days = format.parse("days since 1970-01-02");
+    assertSame(hours.getConverterTo(days), hours.getConverterTo(days));
+    assertEquals(1.0, hours.getConverterTo(days).convert(48.0), 1e-9);
+
+    try {
+      celsius.getConverterTo(format.parse("m"));
+      fail();
+    } catch (ConversionException e) {
+      // expected
+    }
+  }
+}